@@ -0,0 +1,23 @@
+package com.example.CoreBack.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.CoreBack.entity.TimeOrderedIdGenerator;
+
+import jakarta.annotation.PostConstruct;
+
+// Identidad de esta instancia: el nodo va en los ids generados en memoria (TimeOrderedIdGenerator),
+// así que dos instancias con el mismo core.node-id pueden generar la misma PK. En prod no tiene default.
+@Configuration
+public class NodeConfig {
+
+    @Value("${core.node-id:0}")
+    private long nodeId = 0;
+
+    @PostConstruct
+    public void applyNodeId() {
+        TimeOrderedIdGenerator.useNode(nodeId);
+        System.out.println("🆔 Nodo de esta instancia: " + nodeId);
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.CoreBack.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitConfig {
 
@@ -22,6 +28,17 @@ public class RabbitConfig {
     public static final String CORE_ANALYTICS_QUEUE = "core.analytics.queue";
     public static final String CORE_RECOMMENDATIONS_QUEUE = "core.recommendations.queue";
 
+    // Reintentos y parking del consumer (ver ConsumerRetries). core.all.queue conserva sus argumentos
+    // (redeclararla con x-dead-letter-exchange fallaría contra la cola ya creada), así que el consumer
+    // republica el mensaje fallido en el escalón de espera que corresponde o, sin intentos, en la DLX.
+    public static final String RETRY_EXCHANGE = "core.retry.exchange";
+    public static final String DEAD_LETTER_EXCHANGE = "core.dlx";
+    public static final String PARKING_QUEUE = "core.parking.queue";
+    public static final String PARKING_ROUTING_KEY = "parking";
+
+    // Avisos de cambios de configuración entre nodos (ver ConfigChanges): cada nodo escucha con su propia cola anónima
+    public static final String CONFIG_EXCHANGE = "core.config.fanout";
+
     // Routing keys base
     public static final String RK_MOVIE = "peliculas.#";
     public static final String RK_USER = "usuarios.#";
@@ -44,6 +61,47 @@ public class RabbitConfig {
     @Bean public Queue coreAnalyticsQueue() { return new Queue(CORE_ANALYTICS_QUEUE, true); }
     @Bean public Queue coreRecommendationsQueue() { return new Queue(CORE_RECOMMENDATIONS_QUEUE, true); }
 
+    // === Reintentos con espera escalonada + parking ===
+    @Bean public DirectExchange retryExchange() { return new DirectExchange(RETRY_EXCHANGE, true, false); }
+    @Bean public DirectExchange deadLetterExchange() { return new DirectExchange(DEAD_LETTER_EXCHANGE, true, false); }
+    @Bean public Queue parkingQueue() { return new Queue(PARKING_QUEUE, true); }
+
+    @Bean
+    public Binding parkingBinding(Queue parkingQueue, DirectExchange deadLetterExchange) {
+        return BindingBuilder.bind(parkingQueue).to(deadLetterExchange).with(PARKING_ROUTING_KEY);
+    }
+
+    // Una cola por escalón: el mensaje espera el TTL y el broker lo devuelve (dead-letter) directo a
+    // core.all.queue por el exchange por defecto, sin volver a pasar por el topic (los otros módulos no lo reciben de nuevo)
+    @Bean
+    public Declarables retryQueues(@Value("${core.retry.tiers-ms:1000,5000,30000,120000,600000}") List<Long> tiersMs) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (long ttl : tiersMs) {
+            Queue queue = QueueBuilder.durable(retryQueueName(ttl))
+                    .ttl((int) ttl)
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(CORE_ALL_QUEUE)
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(retryExchange()).with(queue.getName()));
+        }
+        return new Declarables(declarables);
+    }
+
+    // La routing key en core.retry.exchange es el mismo nombre de la cola
+    public static String retryQueueName(long ttlMs) {
+        return "core.retry." + ttlMs + "ms";
+    }
+
+    // === Cambios de configuración: fanout a una cola exclusiva por nodo (se borra cuando el nodo se va) ===
+    @Bean public FanoutExchange configExchange() { return new FanoutExchange(CONFIG_EXCHANGE, true, false); }
+    @Bean public Queue configChangesQueue() { return new AnonymousQueue(); }
+
+    @Bean
+    public Binding configChangesBinding(Queue configChangesQueue, FanoutExchange configExchange) {
+        return BindingBuilder.bind(configChangesQueue).to(configExchange);
+    }
+
     // === Bindings automáticos según las relaciones que pasaste ===
 
     // 📦 Todos los eventos van también a "core.all.queue"
@@ -142,6 +200,37 @@ public class RabbitConfig {
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(messageConverter());
+
+        // Publisher confirms (spring.rabbitmq.publisher-confirm-type=correlated):
+        // cada CorrelationData recibe su Confirm de forma asíncrona; acá solo dejamos registro de los nacks.
+        rabbitTemplate.setMandatory(true);
+        rabbitTemplate.setConfirmCallback((correlation, ack, cause) -> {
+            if (!ack) {
+                System.err.println("❌ Broker nack (id=" + (correlation != null ? correlation.getId() : "-") + "): " + cause);
+            }
+        });
+        rabbitTemplate.setReturnsCallback(returned ->
+            System.err.println("⚠️ Mensaje no ruteable (routingKey=" + returned.getRoutingKey() + "): " + returned.getReplyText()));
         return rabbitTemplate;
     }
+
+    // === Consumer por lotes (core.consumer.batch.enabled=true) ===
+    // Junta hasta batch-size mensajes o espera receive-timeout-ms, lo que ocurra primero,
+    // y entrega la lista completa al listener (ack manual con multiple=true).
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${core.consumer.batch.batch-size:200}") int batchSize,
+            @Value("${core.consumer.batch.receive-timeout-ms:100}") long receiveTimeoutMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setBatchReceiveTimeout(receiveTimeoutMs);
+        factory.setPrefetchCount(batchSize);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
 }
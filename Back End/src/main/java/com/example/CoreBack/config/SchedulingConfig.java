@@ -0,0 +1,10 @@
+package com.example.CoreBack.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita los jobs @Scheduled (relay del outbox, etc.); el tamaño del pool va en spring.task.scheduling.pool.size
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,9 +1,12 @@
 package com.example.CoreBack.controllers;
 
 import com.example.CoreBack.service.AdminService;
+import com.example.CoreBack.service.EventSearchPlan;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -17,20 +20,36 @@ import java.util.Map;
 @Tag(name = "Administración", description = "Consultas y estadísticas")
 public class AdminController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final AdminService adminService;
     public AdminController(AdminService adminService) {
         this.adminService = adminService;
     }
 
-    @Operation(summary = "Buscar eventos con filtros avanzados")
+    @Operation(summary = "Buscar eventos con filtros avanzados",
+            description = "Filtros: type (exacto o prefijo `movie.*`), source, module, status (lista separada por comas), "
+                    + "from/to (ventana de occurredAt, acotada), q (términos del payload), payload.<campo>=valor, "
+                    + "cursor, limit y explain=true (devuelve el plan sin ejecutarlo). "
+                    + "Responde NDJSON: un evento por línea y una última línea con count, hasMore y nextCursor.")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Eventos filtrados correctamente."),
-        @ApiResponse(responseCode = "400", description = "Filtros inválidos.")
+        @ApiResponse(responseCode = "400", description = "Filtros inválidos."),
+        @ApiResponse(responseCode = "503", description = "El índice de búsqueda todavía se está construyendo.")
     })
     @GetMapping("/search/events")
     public ResponseEntity<?> searchEvents(@RequestParam Map<String, String> filters) {
-        // TODO: implementar búsqueda con filtros
-        return ResponseEntity.status(501).body("Not Implemented");
+        EventSearchPlan plan;
+        try {
+            plan = adminService.compile(filters);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(Map.of("status", "error", "message", e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> adminService.stream(plan, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @Operation(summary = "Métricas generales")
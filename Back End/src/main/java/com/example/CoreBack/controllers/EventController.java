@@ -2,8 +2,13 @@ package com.example.CoreBack.controllers;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,7 +20,9 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.CoreBack.entity.EventDTO;
+import com.example.CoreBack.entity.StoredEvent;
 import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.service.AdmissionRejectedException;
 import com.example.CoreBack.service.EventService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -36,7 +43,9 @@ public class EventController {
     private final EventRepository eventRepository;
     private final EventService eventService;
     private final RabbitTemplate rabbitTemplate;
-    
+
+    // Máximo de eventos aceptados por request en /receive/batch
+    static final int MAX_BATCH_SIZE = 1000;
 
     public EventController(EventRepository eventRepository, EventService eventService, RabbitTemplate rabbitTemplate) {
         this.eventRepository = eventRepository;
@@ -48,10 +57,17 @@ public class EventController {
     // ============================================================
     // 1. Listar eventos con filtros
     // ============================================================
-    @Operation(summary = "Obtener todos los eventos", description = "Devuelve una lista paginada de eventos")
+    @Operation(summary = "Obtener todos los eventos", description = "Devuelve una lista paginada de eventos. "
+            + "Con `cursor` (vacío para la primera página) pagina por keyset usando el `nextCursor` de la respuesta; "
+            + "`count` = exact | none | estimate controla el cálculo del total (estimate usa los rollups por "
+            + "módulo/estado; con `search` cuenta hasta core.events.count-cap y marca `totalCapped` si lo supera). "
+            + "`search` matchea palabras del payload completas o por prefijo (no subcadenas dentro de una palabra); "
+            + "si hay más matches que los que ve el listado la respuesta trae `searchTruncated` y `searchTotalHits`")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista obtenida correctamente"),
-        @ApiResponse(responseCode = "500", description = "Error en la consulta de eventos")
+        @ApiResponse(responseCode = "400", description = "Cursor o modo de conteo inválido"),
+        @ApiResponse(responseCode = "500", description = "Error en la consulta de eventos"),
+        @ApiResponse(responseCode = "503", description = "Con `search`: el índice de búsqueda todavía se está construyendo")
     })
     @GetMapping
     public ResponseEntity<?> getAllEvents(
@@ -59,15 +75,23 @@ public class EventController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String module,
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String search
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "exact") String count
     ) {
-        return ResponseEntity.ok(eventService.getAllEvents(page, size, module, status, search));
+        try {
+            return ResponseEntity.ok(eventService.getAllEvents(page, size, module, status, search, cursor, count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("status", "error", "message", e.getMessage()));
+        }
     }
 
     // ============================================================
     // 2. Detalle de un evento
     // ============================================================
-    @Operation(summary = "Obtener detalle de un evento", description = "Devuelve toda la información de un evento")
+    @Operation(summary = "Obtener detalle de un evento", description = "Devuelve toda la información de un evento, también si ya pasó al archivo frío")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Evento encontrado"),
         @ApiResponse(responseCode = "404", description = "Evento no encontrado")
@@ -75,6 +99,7 @@ public class EventController {
     @GetMapping("/{eventId}")
     public ResponseEntity<?> getEventDetail(@PathVariable Long eventId) {
         return eventRepository.findById(eventId)
+                .or(() -> eventService.findArchived(eventId))
                 .map(event -> ResponseEntity.ok(Map.of(
                         "eventId", event.getEventId(),
                         "type", event.getEventType(),
@@ -93,42 +118,147 @@ public class EventController {
     // ============================================================
     // 3. Recibir un nuevo evento
     // ============================================================
-    @Operation(summary = "Recibir un nuevo evento", description = "Procesa un evento entrante y lo almacena")
+    @Operation(summary = "Recibir un nuevo evento", description = "Procesa un evento entrante. Con el outbox (por defecto) responde "
+            + "cuando el evento quedó guardado en la DB (delivery=queued) y el relay lo publica después; con core.outbox.enabled=false "
+            + "responde cuando el broker confirma la publicación (delivery=confirmed)")
     @Parameter(name = "routingKey", description = "Clave de enrutamiento", example = "movie.created")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Evento recibido correctamente"),
-        @ApiResponse(responseCode = "400", description = "Error en el procesamiento")
+        @ApiResponse(responseCode = "200", description = "Evento guardado para publicar (queued) o confirmado por el broker (confirmed)"),
+        @ApiResponse(responseCode = "400", description = "Error en el procesamiento"),
+        @ApiResponse(responseCode = "429", description = "Colas saturadas: reintentar después de Retry-After segundos"),
+        @ApiResponse(responseCode = "503", description = "Sin outbox: el broker no confirmó la publicación")
     })
     @PostMapping("/receive")
-    public ResponseEntity<?> receiveEvent(
+    public CompletableFuture<ResponseEntity<?>> receiveEvent(
             @Valid @RequestBody EventDTO eventDTO,
             @RequestParam(defaultValue = "movie.created") String routingKey,
             jakarta.servlet.http.HttpServletRequest req
     ) {
+        return sendToQueue(apiKey -> eventService.processIncomingEventAsync(eventDTO, routingKey, apiKey), routingKey, req);
+    }
+
+    // ============================================================
+    // 3.a Recibir un evento en modo passthrough
+    // ============================================================
+    @Operation(summary = "Recibir un evento sin reserializar", description = "Como /receive, pero el body se publica a Rabbit tal cual llegó: "
+            + "sólo se leen type, source y datacontenttype (y id/sysDate) con un parser de streaming")
+    @Parameter(name = "routingKey", description = "Clave de enrutamiento", example = "movie.created")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Evento guardado para publicar (queued) o confirmado por el broker (confirmed)"),
+        @ApiResponse(responseCode = "400", description = "Evento inválido o error en el procesamiento"),
+        @ApiResponse(responseCode = "429", description = "Colas saturadas: reintentar después de Retry-After segundos"),
+        @ApiResponse(responseCode = "503", description = "Sin outbox: el broker no confirmó la publicación")
+    })
+    @PostMapping(value = "/receive/raw", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<?>> receiveRawEvent(
+            @RequestBody byte[] body,
+            @RequestParam(defaultValue = "movie.created") String routingKey,
+            HttpServletRequest req
+    ) {
+        return sendToQueue(apiKey -> eventService.processRawEventAsync(body, routingKey, apiKey), routingKey, req);
+    }
+
+    private CompletableFuture<ResponseEntity<?>> sendToQueue(
+            Function<String, CompletableFuture<StoredEvent>> process, String routingKey, HttpServletRequest req) {
         try {
             String apiKey = (String) req.getAttribute("AUTH_API_KEY");
             if (apiKey == null) {
                 // Si alguien pegó esta acción sin pasar por el filtro (no debería)
-                return ResponseEntity.status(401).body(Map.of("error","Missing or invalid X-API-KEY"));
+                return CompletableFuture.completedFuture(
+                    ResponseEntity.status(401).body(Map.of("error","Missing or invalid X-API-KEY")));
             }
 
-            var stored = eventService.processIncomingEvent(eventDTO, routingKey, apiKey);
-
-            return ResponseEntity.ok(Map.of(
-                "status", "sent_to_queue",
-                "routingKey", routingKey,
-                "occurredAt", stored.getOccurredAt()
-            ));
+            // El hilo de Tomcat se libera acá; la respuesta sale con el commit local (outbox) o con el confirm del broker
+            String delivery = eventService.isOutboxEnabled() ? "queued" : "confirmed";
+            return process.apply(apiKey)
+                .<ResponseEntity<?>>thenApply(stored -> ResponseEntity.ok(Map.of(
+                    "status", "sent_to_queue",
+                    "delivery", delivery,
+                    "routingKey", routingKey,
+                    "occurredAt", stored.getOccurredAt()
+                )))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                        "status", "error",
+                        "message", String.valueOf(cause.getMessage())
+                    ));
+                });
+        } catch (AdmissionRejectedException ar) {
+            return CompletableFuture.completedFuture(throttled(ar.getRetryAfterSeconds(), ar.getMessage()));
         } catch (SecurityException se) {
             String msg = se.getMessage() != null ? se.getMessage() : "Forbidden";
             // Distinguí 401/403 si querés: acá mando 403
-            return ResponseEntity.status(403).body(Map.of("error", msg));
+            return CompletableFuture.completedFuture(ResponseEntity.status(403).body(Map.of("error", msg)));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of(
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of(
                 "status", "error",
                 "message", e.getMessage()
+            )));
+        }
+    }
+
+    // ============================================================
+    // 3.b Recibir un lote de eventos
+    // ============================================================
+    @Operation(summary = "Recibir un lote de eventos", description = "Autoriza el lote una sola vez, publica todos los eventos en un único canal y devuelve un resultado por ítem")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lote procesado (ver resultado por ítem)"),
+        @ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande"),
+        @ApiResponse(responseCode = "403", description = "API Key no autorizada"),
+        @ApiResponse(responseCode = "429", description = "Colas saturadas y ningún ítem aceptado: reintentar después de Retry-After segundos")
+    })
+    @PostMapping("/receive/batch")
+    public ResponseEntity<?> receiveBatch(
+            @RequestBody List<EventDTO> events,
+            HttpServletRequest req
+    ) {
+        String apiKey = (String) req.getAttribute("AUTH_API_KEY");
+        if (apiKey == null) {
+            return ResponseEntity.status(401).body(Map.of("error","Missing or invalid X-API-KEY"));
+        }
+        if (events == null || events.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "El lote está vacío"));
+        }
+        if (events.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "status", "error",
+                "message", "El lote supera el máximo de " + MAX_BATCH_SIZE + " eventos"
             ));
         }
+
+        try {
+            List<Map<String, Object>> results = eventService.processIncomingBatch(events, apiKey);
+            long accepted = results.stream().filter(r -> "sent_to_queue".equals(r.get("status"))).count();
+            long retryAfter = results.stream()
+                .filter(r -> "throttled".equals(r.get("status")))
+                .mapToLong(r -> (Long) r.get("retryAfter"))
+                .max().orElse(0);
+
+            // Nada aceptado por las colas saturadas: el productor tiene que esperar antes de reenviar el lote
+            if (accepted == 0 && retryAfter > 0) {
+                return throttled(retryAfter, "Colas saturadas: reintentar el lote en " + retryAfter + "s");
+            }
+            return ResponseEntity.ok(Map.of(
+                "status", "processed",
+                "accepted", accepted,
+                "rejected", results.size() - accepted,
+                "results", results
+            ));
+        } catch (SecurityException se) {
+            String msg = se.getMessage() != null ? se.getMessage() : "Forbidden";
+            return ResponseEntity.status(403).body(Map.of("error", msg));
+        }
+    }
+
+    private static ResponseEntity<?> throttled(long retryAfterSeconds, String message) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+            .body(Map.of(
+                "status", "throttled",
+                "message", message,
+                "retryAfter", retryAfterSeconds
+            ));
     }
 
     
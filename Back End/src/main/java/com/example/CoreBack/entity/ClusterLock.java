@@ -0,0 +1,24 @@
+package com.example.CoreBack.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lock con vencimiento para los jobs que tienen que correr en un solo nodo a la vez (ver ClusterLocks).
+// Si el dueño se cae, el lock queda libre cuando pasa lockedUntil. Se escribe sólo con los updates/insert
+// de ClusterLockRepository, nunca con save().
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "cluster_locks")
+public class ClusterLock {
+
+    @Id
+    private String name;
+
+    private String owner;
+
+    private LocalDateTime lockedUntil;
+}
@@ -0,0 +1,26 @@
+package com.example.CoreBack.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Migraciones de datos ya aplicadas (una fila por migración): las que sólo hacen falta una vez no se
+// vuelven a correr en cada arranque ni en cada nodo.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "data_migrations")
+public class DataMigration {
+
+    @Id
+    private String name;
+
+    private LocalDateTime appliedAt;
+
+    public DataMigration(String name) {
+        this.name = name;
+        this.appliedAt = LocalDateTime.now();
+    }
+}
@@ -9,7 +9,7 @@ import jakarta.validation.constraints.NotNull;
 
 public class EventDTO {
 
-    
+    private String id; // Opcional (CloudEvents "id"). Si no viene, lo asigna el core
 
     @NotBlank(message = "El campo 'type' es obligatorio")
     private String type; // Ej: "user.created"
@@ -30,6 +30,9 @@ public class EventDTO {
 
     // Getters y Setters
 
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
 
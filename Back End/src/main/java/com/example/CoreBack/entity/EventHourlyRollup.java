@@ -0,0 +1,44 @@
+package com.example.CoreBack.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Conteo de eventos por (hora, módulo, estado, tipo). Lo actualiza el consumer con upserts en batch
+// y lo leen los endpoints del dashboard en lugar de recorrer la tabla events.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "event_hourly_rollup")
+public class EventHourlyRollup {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "event_count", nullable = false)
+    private long eventCount;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "bucket_hour", nullable = false)
+        private LocalDateTime bucketHour; // occurredAt truncado a la hora
+
+        @Column(name = "module", nullable = false, length = 32)
+        private String module;
+
+        @Column(name = "status", nullable = false, length = 32)
+        private String status;
+
+        @Column(name = "event_type", nullable = false)
+        private String eventType;
+    }
+}
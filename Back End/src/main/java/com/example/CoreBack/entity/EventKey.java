@@ -0,0 +1,28 @@
+package com.example.CoreBack.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Registro de eventIds ya guardados: la PK es el índice único de eventId.
+// Va en una tabla aparte porque events está particionada por RANGE(id) y MySQL exige que todo índice
+// único incluya la columna de partición. Se escribe con insert-ignore (EventKeyClaims), nunca con save().
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "event_keys", indexes = {
+    // Retención: EventPartitionManager borra las claves de las particiones ya descartadas por rango de fecha
+    @Index(name = "idx_event_keys_created_at", columnList = "createdAt")
+})
+public class EventKey {
+
+    @Id
+    private String eventId;
+
+    // Token del insert que la reclamó: permite saber qué claves de un lote insertó cada llamada
+    private Long claimToken;
+
+    private LocalDateTime createdAt;
+}
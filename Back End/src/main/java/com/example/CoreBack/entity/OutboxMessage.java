@@ -0,0 +1,54 @@
+package com.example.CoreBack.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Mensaje pendiente de publicar en RabbitMQ. Se escribe en la misma transacción que el StoredEvent
+// y lo drena el OutboxRelay; cuando el broker confirma, la fila se borra.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "event_outbox", indexes = {
+    @Index(name = "idx_outbox_available_at", columnList = "availableAt, id")
+})
+public class OutboxMessage {
+
+    public static final String BINARY = "binary";
+
+    @Id
+    @TimeOrderedId
+    private Long id;
+
+    private String eventId;
+    private String routingKey;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload; // Mensaje ya serializado (JSON) tal cual se publica
+
+    private LocalDateTime createdAt;
+    private LocalDateTime availableAt; // No se reintenta antes de esta fecha
+    private int attempts;
+
+    // null: payload es el evento JSON completo. "binary" (CloudEventHeaders): payload es sólo `data`
+    // y los atributos de abajo van en los headers del mensaje
+    private String contentMode;
+    private String eventType;
+    private String source;
+    private String contentType;
+    private LocalDateTime occurredAt;
+
+    public OutboxMessage(String eventId, String routingKey, String payload) {
+        this.eventId = eventId;
+        this.routingKey = routingKey;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+        this.availableAt = this.createdAt;
+    }
+
+    public boolean isBinary() {
+        return BINARY.equals(contentMode);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.CoreBack.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Codificación de StoredEvent.payload en la columna binaria payload_data. El primer byte dice cómo sigue:
+//   RAW     → el UTF-8 tal cual (payloads chicos o que no comprimen)
+//   DEFLATE → zlib (deflate), nivel BEST_SPEED
+//   DICT    → id del diccionario (int) + zlib con ese diccionario precargado
+// Los diccionarios son por tipo de evento (PayloadDictionaryService los entrena y los guarda en la DB):
+// el JSON de un mismo tipo repite claves y estructura, así que con el diccionario comprime aunque sea chico.
+// Es estático porque lo usan los callbacks de la entidad; sin diccionarios registrados (tests) usa DEFLATE.
+public final class PayloadCodec {
+
+    static final byte RAW = 0;
+    static final byte DEFLATE = 1;
+    static final byte DICT = 2;
+
+    // Por debajo de esto el header de deflate se come lo que se ahorra (salvo con diccionario)
+    static final int MIN_DEFLATE_BYTES = 128;
+
+    private static volatile Dictionaries dictionaries;
+
+    private PayloadCodec() {}
+
+    public record Dictionary(int id, byte[] bytes) {}
+
+    public interface Dictionaries {
+        // Diccionario vigente del tipo (null si todavía no hay); el payload sirve de muestra para entrenarlo
+        Dictionary forType(String eventType, String sample);
+
+        // Cualquier diccionario por id (también los viejos o los de otro nodo), null si no existe
+        byte[] byId(int id);
+    }
+
+    public static void register(Dictionaries registry) {
+        dictionaries = registry;
+    }
+
+    public static void unregister(Dictionaries registry) {
+        if (dictionaries == registry) dictionaries = null;
+    }
+
+    public static byte[] encode(String eventType, String text) {
+        if (text == null) return null;
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+
+        Dictionaries registry = dictionaries;
+        Dictionary dictionary = registry != null ? registry.forType(eventType, text) : null;
+        if (dictionary != null) {
+            byte[] compressed = deflate(raw, dictionary.bytes());
+            if (compressed.length + Integer.BYTES < raw.length) {
+                return ByteBuffer.allocate(1 + Integer.BYTES + compressed.length)
+                        .put(DICT).putInt(dictionary.id()).put(compressed).array();
+            }
+        } else if (raw.length >= MIN_DEFLATE_BYTES) {
+            byte[] compressed = deflate(raw, null);
+            if (compressed.length < raw.length) {
+                return withHeader(DEFLATE, compressed);
+            }
+        }
+        return withHeader(RAW, raw);
+    }
+
+    // `legacyText`: la columna TEXT de las filas que todavía no se migraron a payload_data
+    public static String decode(byte[] data, String legacyText) {
+        if (data == null || data.length == 0) return legacyText;
+        return switch (data[0]) {
+            case RAW -> new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+            case DEFLATE -> inflate(data, 1, null);
+            case DICT -> {
+                int id = ByteBuffer.wrap(data, 1, Integer.BYTES).getInt();
+                Dictionaries registry = dictionaries;
+                byte[] dictionary = registry != null ? registry.byId(id) : null;
+                if (dictionary == null) {
+                    throw new IllegalStateException("Diccionario de payload " + id + " no disponible");
+                }
+                yield inflate(data, 1 + Integer.BYTES, dictionary);
+            }
+            default -> throw new IllegalStateException("Codificación de payload desconocida: " + data[0]);
+        };
+    }
+
+    private static byte[] withHeader(byte codec, byte[] body) {
+        byte[] data = new byte[body.length + 1];
+        data[0] = codec;
+        System.arraycopy(body, 0, data, 1, body.length);
+        return data;
+    }
+
+    private static byte[] deflate(byte[] raw, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            if (dictionary != null) deflater.setDictionary(dictionary);
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] data, int offset, byte[] dictionary) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && inflater.needsDictionary() && dictionary != null) {
+                    inflater.setDictionary(dictionary);
+                    dictionary = null;
+                } else if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Payload comprimido truncado");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Payload comprimido inválido", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.CoreBack.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Diccionario de compresión de payloads para un tipo de evento (ver PayloadCodec).
+// Inmutable: los payloads guardan el id, así que un diccionario nuevo para el mismo tipo es otra fila.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "payload_dictionary")
+public class PayloadDictionary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @Column(nullable = false, length = 65_535)
+    private byte[] content;
+
+    private LocalDateTime createdAt;
+
+    public PayloadDictionary(String eventType, byte[] content) {
+        this.eventType = eventType;
+        this.content = content;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.CoreBack.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Reintento en proceso pendiente (RetryScheduler): el mensaje fallido tal cual se vuelve a entregar.
+// El timing wheel sólo guarda el id; la fila existe para que un reinicio no pierda los reintentos
+// y se borra cuando el mensaje vuelve a core.all.queue.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "pending_retries", indexes = {
+    @Index(name = "idx_pending_retries_owner", columnList = "owner, id")
+})
+public class PendingRetry {
+
+    @Id
+    @TimeOrderedId
+    private Long id;
+
+    // Nodo que lo tiene en su wheel (core.retry.in-process.node): al arrancar cada uno recarga los suyos
+    private String owner;
+
+    private int attempt;
+    private LocalDateTime dueAt;
+    private LocalDateTime createdAt;
+
+    private String contentType;
+
+    @Column(columnDefinition = "TEXT")
+    private String headers; // Headers AMQP en JSON (CloudEvents, sobre crudo, conteo de reintentos)
+
+    @Column(length = 16_777_215)
+    private byte[] body;
+
+    public PendingRetry(String owner, int attempt, LocalDateTime dueAt) {
+        this.owner = owner;
+        this.attempt = attempt;
+        this.dueAt = dueAt;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -1,29 +1,60 @@
 package com.example.CoreBack.entity;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
+import jakarta.persistence.Basic;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 @Entity
-@Table(name = "events")
+@Table(name = "events", indexes = {
+    @Index(name = "idx_events_event_id", columnList = "eventId"),
+    @Index(name = "idx_events_occurred_at_id", columnList = "occurredAt, id"),           // listado sin filtros (keyset)
+    @Index(name = "idx_events_occurred_at_status", columnList = "occurredAt, status"),   // stats por mes
+    @Index(name = "idx_events_status_occurred_at", columnList = "status, occurredAt"),   // filtro por estado ordenado por fecha
+    @Index(name = "idx_events_module_occurred_at", columnList = "module, occurredAt"),   // filtro por módulo ordenado por fecha
+    @Index(name = "idx_events_module_status_occurred_at", columnList = "module, status, occurredAt")
+})
 public class StoredEvent {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     private String eventId;
     private String eventType;
     private String source;
+
+    @Column(length = 32)
+    private String module; // Derivado de source al escribir (ver EventModules.classify)
+
     private String contentType;
 
+    // Texto plano de las filas anteriores a payload_data; PayloadCompressionBackfill lo migra y lo deja en null.
+    // Lazy (requiere el bytecode enhancement del pom): sólo se lee al acceder, ej. en GET /events/{eventId}
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "TEXT")
     private String payload;
 
+    // Payload comprimido (PayloadCodec), en el mismo grupo lazy que el texto
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "payload_data", length = 16_777_215)
+    private byte[] payloadData;
+
+    // Texto decodificado o recién asignado; se codifica al persistir (hace falta el eventType para el diccionario)
+    @Transient
+    private String payloadText;
+
+    @Transient
+    private boolean payloadChanged;
+
     private LocalDateTime occurredAt;
 
     @Column(nullable = false)
@@ -36,24 +67,57 @@ public class StoredEvent {
         this.eventType = eventType;
         this.source = source;
         this.contentType = contentType;
-        this.payload = payload;
+        setPayload(payload);
         this.occurredAt = occurredAt;
         this.status = "InQueue";
     }
 
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
     public String getEventId() { return eventId; }
     public void setEventId(String eventId) { this.eventId = eventId; }
     public String getEventType() { return eventType; }
     public void setEventType(String eventType) { this.eventType = eventType; }
     public String getSource() { return source; }
     public void setSource(String source) { this.source = source; }
+    public String getModule() { return module; }
+    public void setModule(String module) { this.module = module; }
     public String getContentType() { return contentType; }
     public void setContentType(String contentType) { this.contentType = contentType; }
-    public String getPayload() { return payload; }
-    public void setPayload(String payload) { this.payload = payload; }
+    public String getPayload() {
+        if (payloadText == null && !payloadChanged) payloadText = PayloadCodec.decode(payloadData, payload);
+        return payloadText;
+    }
+
+    public void setPayload(String payload) {
+        this.payloadText = payload;
+        this.payloadChanged = true;
+        // En una entidad ya persistida marca la columna como sucia para que @PreUpdate la vuelva a codificar
+        this.payloadData = null;
+    }
     public LocalDateTime getOccurredAt() { return occurredAt; }
     public void setOccurredAt(LocalDateTime occurredAt) { this.occurredAt = occurredAt; }
     public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public void setStatus(String status) { this.status = canonicalStatus(status); }
+
+    @PrePersist
+    @PreUpdate
+    void encodePayload() {
+        if (!payloadChanged) return;
+        payloadData = PayloadCodec.encode(eventType, payloadText);
+        payload = null;
+        payloadChanged = false;
+    }
+
+    // Estados con mayúsculas fijas, así las búsquedas por igualdad usan el índice (sin lower())
+    public static final List<String> STATUSES = List.of("InQueue", "Delivered", "Failed");
+
+    public static String canonicalStatus(String status) {
+        if (status == null) return null;
+        String trimmed = status.trim();
+        for (String known : STATUSES) {
+            if (known.equalsIgnoreCase(trimmed)) return known;
+        }
+        return trimmed;
+    }
 }
\ No newline at end of file
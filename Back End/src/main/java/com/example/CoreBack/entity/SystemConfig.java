@@ -2,6 +2,7 @@ package com.example.CoreBack.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.Data;
 
 @Entity
@@ -14,4 +15,8 @@ public class SystemConfig {
     private int latencyThreshold;
     private int errorThreshold;
     private String notificationEmail;
+
+    // Sube con cada update: los nodos no reemplazan su foto por una lectura más vieja
+    @Version
+    private long version;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.CoreBack.entity;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+// Id numérico generado en memoria (ver TimeOrderedIdGenerator). A diferencia de IDENTITY,
+// Hibernate conoce el id antes del INSERT y puede agrupar los inserts en batches JDBC.
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface TimeOrderedId {
+}
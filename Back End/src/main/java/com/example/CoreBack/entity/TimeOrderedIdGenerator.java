@@ -0,0 +1,79 @@
+package com.example.CoreBack.entity;
+
+import java.time.Instant;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+// Ids tipo "snowflake" acotados a 53 bits para que el front (JavaScript) los lea sin perder precisión:
+//   41 bits de milisegundos desde EPOCH | 4 bits de nodo | 8 bits de secuencia
+// Son crecientes en el tiempo (el índice de la PK sigue siendo append-only) y alcanzan
+// 256 ids por milisegundo y por nodo.
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+    static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 4;
+    static final int SEQUENCE_BITS = 8;
+    static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+
+    // Compartido por todas las entidades: un único reloj por JVM
+    private static final Object LOCK = new Object();
+    private static long lastMillis = -1L;
+    private static long sequence = 0L;
+    // Lo fija NodeConfig al arrancar (core.node-id); cada instancia tiene que usar uno distinto
+    private static long nodeId = 0L;
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object entity) {
+        return nextId();
+    }
+
+    public static long nextId() {
+        synchronized (LOCK) {
+            long now = System.currentTimeMillis();
+            if (now < lastMillis) {
+                // Reloj que retrocede (NTP): seguimos sobre el último milisegundo usado
+                now = lastMillis;
+            }
+            if (now == lastMillis) {
+                sequence = (sequence + 1) & MAX_SEQUENCE;
+                if (sequence == 0) {
+                    now = waitNextMillis(lastMillis);
+                }
+            } else {
+                sequence = 0L;
+            }
+            lastMillis = now;
+            return ((now - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+        }
+    }
+
+    // Momento (epoch millis) en que se generó un id; útil para acotar búsquedas por fecha
+    public static long millisOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    // Menor id que se puede generar en `epochMillis`: cota para traducir fechas a rangos de ids (particiones)
+    public static long minIdAt(long epochMillis) {
+        return Math.max(0L, epochMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    private static long waitNextMillis(long last) {
+        long now = System.currentTimeMillis();
+        while (now <= last) {
+            Thread.onSpinWait();
+            now = System.currentTimeMillis();
+        }
+        return now;
+    }
+
+    public static void useNode(long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("core.node-id fuera de rango (0-" + MAX_NODE + "): " + node);
+        }
+        synchronized (LOCK) {
+            nodeId = node;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.CoreBack.repository;
+
+import java.time.LocalDateTime;
+
+import com.example.CoreBack.entity.PayloadCodec;
+import com.example.CoreBack.entity.StoredEvent;
+
+// Fila completa de un evento tal como se guarda en los segmentos del archivo frío (EventSegment)
+public record ArchivedEvent(Long id, String eventId, String eventType, String source, String module,
+                            String contentType, String payload, LocalDateTime occurredAt, String status) {
+
+    // Desde la tabla (EventRepository.findDayChunk): el payload puede venir comprimido en payload_data
+    public ArchivedEvent(Long id, String eventId, String eventType, String source, String module,
+                         String contentType, String payload, byte[] payloadData, LocalDateTime occurredAt, String status) {
+        this(id, eventId, eventType, source, module, contentType, PayloadCodec.decode(payloadData, payload),
+                occurredAt, status);
+    }
+
+    public EventSummary toSummary() {
+        return new EventSummary(id, eventId, eventType, source, module, status, occurredAt);
+    }
+
+    // Vista de sólo lectura para el detalle (GET /events/{id}); no se persiste
+    public StoredEvent toStoredEvent() {
+        StoredEvent event = new StoredEvent(eventType, source, contentType, payload, occurredAt);
+        event.setEventId(eventId);
+        event.setModule(module);
+        event.setStatus(status);
+        return event;
+    }
+}
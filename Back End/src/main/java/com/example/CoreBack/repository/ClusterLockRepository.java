@@ -0,0 +1,30 @@
+package com.example.CoreBack.repository;
+
+import com.example.CoreBack.entity.ClusterLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface ClusterLockRepository extends JpaRepository<ClusterLock, String> {
+
+    // Toma el lock si está vencido o si ya es de `owner` (renovación); 1 = tomado
+    @Modifying
+    @Query("""
+            update ClusterLock l set l.owner = :owner, l.lockedUntil = :until
+            where l.name = :name and (l.lockedUntil < :now or l.owner = :owner)
+            """)
+    int takeOver(@Param("name") String name, @Param("owner") String owner,
+                 @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    // Alta de un lock nuevo ya tomado; falla con clave duplicada si otro nodo lo creó antes
+    @Modifying
+    @Query("insert into ClusterLock (name, owner, lockedUntil) values (:name, :owner, :until)")
+    int create(@Param("name") String name, @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update ClusterLock l set l.lockedUntil = :now where l.name = :name and l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,7 @@
+package com.example.CoreBack.repository;
+
+import com.example.CoreBack.entity.DataMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DataMigrationRepository extends JpaRepository<DataMigration, String> {
+}
@@ -0,0 +1,230 @@
+package com.example.CoreBack.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// Archivo frío de eventos: un segmento inmutable por día (EventSegment) en `core.archive.dir`,
+// como <dir>/yyyy/MM/events-yyyy-MM-dd.seg. Los footers quedan en memoria: alcanzan para las
+// estadísticas y para saltear días y bloques sin leerlos. Lo escribe el EventArchiver; lo leen
+// el listado de GET /events (keyset), el detalle y las estadísticas cuando el rango cae en días archivados.
+// Con varios nodos el directorio tiene que ser un volumen compartido (core.archive.shared): cada nodo
+// relee periódicamente los segmentos que publicó el que archiva.
+@Component
+public class EventArchive {
+
+    private static final DateTimeFormatter FILE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/'events-'yyyy-MM-dd'.seg'");
+
+    private final ConcurrentSkipListMap<LocalDate, EventSegment.Footer> segments = new ConcurrentSkipListMap<>();
+
+    @Value("${core.archive.dir:data/archive}")
+    private String dir = "data/archive";
+
+    private Path root;
+
+    @PostConstruct
+    public void load() throws IOException {
+        open(Path.of(dir));
+    }
+
+    // Separado de load() para los tests (directorio temporal)
+    void open(Path root) throws IOException {
+        this.root = root;
+        segments.clear();
+        scan();
+        if (!segments.isEmpty()) {
+            System.out.println("🧊 Archivo frío: " + segments.size() + " días (" + segments.firstKey()
+                    + " a " + segments.lastKey() + ")");
+        }
+    }
+
+    // El directorio es compartido entre nodos: los días que archivó otro nodo se suman acá sin reiniciar
+    @Scheduled(fixedDelayString = "${core.archive.refresh-ms:60000}", initialDelayString = "${core.archive.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            int before = segments.size();
+            scan();
+            if (segments.size() > before) {
+                System.out.println("🧊 Archivo frío: " + (segments.size() - before) + " días nuevos de otro nodo");
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error releyendo el archivo frío: " + e.getMessage());
+        }
+    }
+
+    // Agrega los segmentos completos que todavía no están en memoria. Los .seg.tmp se ignoran: pueden ser
+    // de otro nodo escribiendo ahora, y si quedaron de una corrida cortada el día se reescribe desde la DB
+    // (el escritor trunca el .tmp)
+    private synchronized void scan() throws IOException {
+        if (!Files.isDirectory(root)) return;
+
+        Set<Path> known = new HashSet<>();
+        for (EventSegment.Footer footer : segments.values()) known.add(footer.file());
+
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(".seg") || known.contains(file)) continue;
+                try {
+                    EventSegment.Footer footer = EventSegment.readFooter(file);
+                    segments.put(footer.day(), footer);
+                } catch (IOException e) {
+                    System.err.println("❌ Segmento de archivo ilegible, se ignora: " + file + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+    }
+
+    public boolean hasSegments() {
+        return !segments.isEmpty();
+    }
+
+    public boolean contains(LocalDate day) {
+        return segments.containsKey(day);
+    }
+
+    public EventSegment.Writer writer(LocalDate day) throws IOException {
+        return EventSegment.create(root.resolve(FILE_FORMAT.format(day)), day);
+    }
+
+    // Se llama con el footer de un segmento recién terminado: el footer se relee del disco (ya sincronizado
+    // por finish()) y recién si coincide el día pasa a leerse del archivo
+    public void publish(EventSegment.Footer written) throws IOException {
+        EventSegment.Footer stored = EventSegment.readFooter(written.file());
+        if (!stored.day().equals(written.day()) || stored.rows() != written.rows()) {
+            throw new IOException("El segmento releído no coincide con el escrito: " + written.file());
+        }
+        segments.put(stored.day(), stored);
+    }
+
+    // Eventos archivados anteriores a (beforeAt, beforeId) en orden (occurredAt, id) descendente, como el
+    // keyset de la tabla. beforeAt null = desde el más nuevo. module/status comparan por igualdad con los
+    // valores normalizados y `search` busca en el payload (sin distinguir mayúsculas).
+    public List<ArchivedEvent> findBefore(LocalDateTime beforeAt, Long beforeId, String module, String status,
+                                          String search, int limit) {
+        List<ArchivedEvent> result = new ArrayList<>();
+        if (limit <= 0 || segments.isEmpty()) return result;
+
+        Long beforeMicros = beforeAt != null ? EventSegment.toMicros(beforeAt) : null;
+        NavigableMap<LocalDate, EventSegment.Footer> days = beforeAt != null
+                ? segments.headMap(beforeAt.toLocalDate(), true)
+                : segments;
+        String needle = search != null && !search.isBlank() ? search.toLowerCase() : null;
+
+        for (EventSegment.Footer footer : days.descendingMap().values()) {
+            // Días sin filas del módulo/estado pedido no se abren
+            if (footer.count(module, status) == 0) continue;
+
+            List<EventSegment.Block> blocks = footer.blocks();
+            for (int b = blocks.size() - 1; b >= 0; b--) {
+                EventSegment.Block block = blocks.get(b);
+                if (beforeMicros != null && block.minMicros() > beforeMicros) continue;
+
+                List<ArchivedEvent> rows = read(footer, block);
+                for (int i = rows.size() - 1; i >= 0; i--) {
+                    ArchivedEvent row = rows.get(i);
+                    if (beforeMicros != null && !isBefore(row, beforeMicros, beforeId)) continue;
+                    if (module != null && !module.equals(row.module())) continue;
+                    if (status != null && !status.equals(row.status())) continue;
+                    if (needle != null && (row.payload() == null || !row.payload().toLowerCase().contains(needle))) continue;
+                    result.add(row);
+                    if (result.size() == limit) return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Total archivado por módulo y estado (null = todos), desde los footers
+    public long count(String module, String status) {
+        long total = 0;
+        for (EventSegment.Footer footer : segments.values()) {
+            total += footer.count(module, status);
+        }
+        return total;
+    }
+
+    // Misma forma que EventRepository.countByStatusForMonths, para sumar los días archivados del rango.
+    // Los segmentos son de días completos, así que los límites se toman por fecha.
+    public List<EventRepository.MonthlyStatusCount> countByStatusForMonths(LocalDateTime lastMonthStart,
+                                                                           LocalDateTime thisMonthStart,
+                                                                           LocalDateTime nextMonthStart) {
+        Map<String, long[]> byStatus = new TreeMap<>();
+        LocalDate thisMonth = thisMonthStart.toLocalDate();
+        for (EventSegment.Footer footer : segments.subMap(lastMonthStart.toLocalDate(), nextMonthStart.toLocalDate()).values()) {
+            int slot = footer.day().isBefore(thisMonth) ? 1 : 0;
+            for (Map<String, Long> statuses : footer.counts().values()) {
+                statuses.forEach((status, count) -> byStatus.computeIfAbsent(status, s -> new long[2])[slot] += count);
+            }
+        }
+
+        List<EventRepository.MonthlyStatusCount> counts = new ArrayList<>(byStatus.size());
+        byStatus.forEach((status, months) -> counts.add(new MonthCount(status, months[0], months[1])));
+        return counts;
+    }
+
+    // Detalle de un evento archivado: sólo se abren los bloques cuyo rango de ids lo contiene
+    public Optional<ArchivedEvent> findById(long id) {
+        for (EventSegment.Footer footer : segments.values()) {
+            for (EventSegment.Block block : footer.blocks()) {
+                if (id < block.minId() || id > block.maxId()) continue;
+                for (ArchivedEvent row : read(footer, block)) {
+                    if (row.id() == id) return Optional.of(row);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Ids guardados en el segmento de un día (para terminar de borrar las filas si una corrida se cortó)
+    public List<Long> idsOf(LocalDate day) {
+        EventSegment.Footer footer = segments.get(day);
+        if (footer == null) return Collections.emptyList();
+        List<Long> ids = new ArrayList<>();
+        for (EventSegment.Block block : footer.blocks()) {
+            for (ArchivedEvent row : read(footer, block)) ids.add(row.id());
+        }
+        return ids;
+    }
+
+    private static boolean isBefore(ArchivedEvent row, long beforeMicros, Long beforeId) {
+        long micros = EventSegment.toMicros(row.occurredAt());
+        if (micros != beforeMicros) return micros < beforeMicros;
+        return beforeId != null && row.id() < beforeId;
+    }
+
+    private static List<ArchivedEvent> read(EventSegment.Footer footer, EventSegment.Block block) {
+        try {
+            return EventSegment.readBlock(footer.file(), block);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el segmento " + footer.file(), e);
+        }
+    }
+
+    private record MonthCount(String status, Long thisMonth, Long lastMonth)
+            implements EventRepository.MonthlyStatusCount {
+        public String getStatus() { return status; }
+        public Long getThisMonth() { return thisMonth; }
+        public Long getLastMonth() { return lastMonth; }
+    }
+}
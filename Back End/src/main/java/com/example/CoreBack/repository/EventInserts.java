@@ -0,0 +1,13 @@
+package com.example.CoreBack.repository;
+
+import java.util.List;
+
+import com.example.CoreBack.entity.StoredEvent;
+
+public interface EventInserts {
+
+    // Inserta el lote con un batch JDBC, sin pasar por el contexto de persistencia: el id se genera en memoria
+    // (TimeOrderedIdGenerator) y el payload se codifica igual que en @PrePersist. Devuelve los mismos objetos
+    // con el id asignado; no quedan administrados por el EntityManager.
+    List<StoredEvent> insertAll(List<StoredEvent> events);
+}
@@ -0,0 +1,48 @@
+package com.example.CoreBack.repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.CoreBack.entity.PayloadCodec;
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.entity.TimeOrderedIdGenerator;
+
+class EventInsertsImpl implements EventInserts {
+
+    // Filas por executeBatch (con rewriteBatchedStatements=true MySQL lo manda como un único INSERT multi-fila)
+    static final int BATCH_SIZE = 200;
+
+    private static final String INSERT = "insert into events (id, event_id, event_type, source, module, content_type, "
+            + "payload, payload_data, occurred_at, status) values (?, ?, ?, ?, ?, ?, null, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    EventInsertsImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<StoredEvent> insertAll(List<StoredEvent> events) {
+        if (events == null || events.isEmpty()) return List.of();
+        for (StoredEvent event : events) {
+            if (event.getId() == null) event.setId(TimeOrderedIdGenerator.nextId());
+        }
+        jdbcTemplate.batchUpdate(INSERT, events, BATCH_SIZE, (ps, event) -> {
+            ps.setLong(1, event.getId());
+            ps.setString(2, event.getEventId());
+            ps.setString(3, event.getEventType());
+            ps.setString(4, event.getSource());
+            ps.setString(5, event.getModule());
+            ps.setString(6, event.getContentType());
+            byte[] data = PayloadCodec.encode(event.getEventType(), event.getPayload());
+            if (data != null) ps.setBytes(7, data); else ps.setNull(7, Types.VARBINARY);
+            if (event.getOccurredAt() != null) ps.setTimestamp(8, Timestamp.valueOf(event.getOccurredAt()));
+            else ps.setNull(8, Types.TIMESTAMP);
+            ps.setString(9, event.getStatus());
+        });
+        return events;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.CoreBack.repository;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface EventKeyClaims {
+
+    // Inserta las claves que no existen (insert-ignore) y devuelve las que insertó esta llamada.
+    // Un solo statement por tramo; sólo si alguna ya existía se lee cuáles quedaron de este insert.
+    Set<String> claim(Collection<String> eventIds);
+}
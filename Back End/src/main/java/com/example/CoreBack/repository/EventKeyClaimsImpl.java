@@ -0,0 +1,97 @@
+package com.example.CoreBack.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class EventKeyClaimsImpl implements EventKeyClaims {
+
+    // Filas por statement (3 parámetros cada una)
+    static final int CHUNK_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean mysql;
+
+    EventKeyClaimsImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Set<String> claim(Collection<String> eventIds) {
+        if (eventIds == null || eventIds.isEmpty()) return Collections.emptySet();
+
+        // Sin repetidos dentro del statement y en orden fijo: dos inserts concurrentes bloquean las claves en el mismo orden
+        List<String> ids = new ArrayList<>(new TreeSet<>(eventIds));
+        Set<String> claimed = new HashSet<>(ids.size() * 2);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            claimed.addAll(claimChunk(ids.subList(from, Math.min(ids.size(), from + CHUNK_SIZE)), now));
+        }
+        return claimed;
+    }
+
+    private Set<String> claimChunk(List<String> ids, Timestamp now) {
+        long token = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        List<Object> args = new ArrayList<>(ids.size() * 3);
+        for (String id : ids) {
+            args.add(id);
+            args.add(token);
+            args.add(now);
+        }
+        int inserted = jdbcTemplate.update(isMysql() ? mysqlInsertIgnore(ids.size()) : mergeInsert(ids.size()), args.toArray());
+        if (inserted == ids.size()) return new HashSet<>(ids);
+        if (inserted == 0) return Collections.emptySet();
+
+        // Alguna ya existía: las de esta llamada son las que quedaron con su token
+        List<Object> selectArgs = new ArrayList<>(ids.size() + 1);
+        selectArgs.add(token);
+        selectArgs.addAll(ids);
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select event_id from event_keys where claim_token = ? and event_id in (" + placeholders(ids.size()) + ")",
+                String.class, selectArgs.toArray()));
+    }
+
+    private static String mysqlInsertIgnore(int rows) {
+        StringBuilder sql = new StringBuilder("insert ignore into event_keys (event_id, claim_token, created_at) values ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    // SQL estándar (H2 en tests): el update count es la cantidad de filas insertadas
+    private static String mergeInsert(int rows) {
+        StringBuilder sql = new StringBuilder("merge into event_keys t using (");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sql.append(" union all ");
+            sql.append("select cast(? as varchar(255)) as event_id, cast(? as bigint) as claim_token, cast(? as timestamp) as created_at");
+        }
+        return sql.append(") s on (t.event_id = s.event_id)")
+                .append(" when not matched then insert (event_id, claim_token, created_at)")
+                .append(" values (s.event_id, s.claim_token, s.created_at)")
+                .toString();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private boolean isMysql() {
+        if (mysql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con ->
+                    con.getMetaData().getDatabaseProductName());
+            mysql = product != null && product.toLowerCase().contains("mysql");
+        }
+        return mysql;
+    }
+}
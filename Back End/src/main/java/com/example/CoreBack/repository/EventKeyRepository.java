@@ -0,0 +1,10 @@
+package com.example.CoreBack.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.CoreBack.entity.EventKey;
+
+@Repository
+public interface EventKeyRepository extends JpaRepository<EventKey, String>, EventKeyClaims {
+}
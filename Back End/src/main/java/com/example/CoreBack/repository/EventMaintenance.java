@@ -0,0 +1,9 @@
+package com.example.CoreBack.repository;
+
+// Mantenimiento de events con SQL propio de cada base (las comparaciones de texto de MySQL no distinguen
+// mayúsculas con la collation por defecto, así que la versión JPQL no serviría)
+public interface EventMaintenance {
+
+    // Normaliza mayúsculas de estados viejos (ej: "delivered" → "Delivered"); devuelve las filas cambiadas
+    int normalizeStatus(String canonical);
+}
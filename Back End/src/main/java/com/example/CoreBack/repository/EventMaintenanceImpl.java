@@ -0,0 +1,41 @@
+package com.example.CoreBack.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class EventMaintenanceImpl implements EventMaintenance {
+
+    // `status = ?` no distingue mayúsculas (usa el índice de status); la comparación binaria deja sólo las
+    // filas que de verdad difieren
+    private static final String MYSQL_NORMALIZE = """
+            update events set status = ?
+            where status = ? and cast(status as binary) <> cast(? as binary)
+            """;
+
+    // SQL estándar (H2 en tests): las comparaciones ya distinguen mayúsculas
+    private static final String STANDARD_NORMALIZE = """
+            update events set status = ?
+            where lower(status) = lower(?) and status <> ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean mySql;
+
+    EventMaintenanceImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int normalizeStatus(String canonical) {
+        return jdbcTemplate.update(isMySql() ? MYSQL_NORMALIZE : STANDARD_NORMALIZE, canonical, canonical, canonical);
+    }
+
+    private boolean isMySql() {
+        if (mySql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con ->
+                    con.getMetaData().getDatabaseProductName());
+            mySql = product != null && product.toLowerCase().contains("mysql");
+        }
+        return mySql;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.CoreBack.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import com.example.CoreBack.entity.TimeOrderedIdGenerator;
+
+// La tabla events se particiona por RANGE(id) (ver EventPartitionManager): como los ids crecen con el
+// tiempo, cada partición es un período. MySQL sólo poda particiones con predicados sobre la columna
+// de partición, así que los rangos de occurredAt se acompañan de un rango de ids equivalente.
+// occurredAt no es exactamente el momento del id: el ingreso acepta un sysDate de hasta
+// MAX_SYSDATE_BEHIND atrás y MAX_SYSDATE_AHEAD adelante (EventService.toStoredEvent).
+public final class EventPartitioning {
+
+    public static final Duration MAX_SYSDATE_AHEAD = Duration.ofMinutes(5);
+    public static final Duration MAX_SYSDATE_BEHIND = Duration.ofDays(1);
+
+    // Margen extra para cambios de horario y relojes desfasados entre nodos
+    private static final Duration SLACK = Duration.ofHours(1);
+
+    // Las filas con ids IDENTITY (anteriores a @TimeOrderedId) quedan todas debajo de este valor
+    public static final long LEGACY_ID_LIMIT =
+            TimeOrderedIdGenerator.minIdAt(Instant.parse("2024-01-02T00:00:00Z").toEpochMilli());
+
+    private EventPartitioning() {}
+
+    // Menor id que puede tener una fila (no legacy) con occurredAt >= from
+    public static long idFloor(LocalDateTime from) {
+        return TimeOrderedIdGenerator.minIdAt(epochMillis(from.minus(MAX_SYSDATE_AHEAD).minus(SLACK)));
+    }
+
+    // Cota superior (exclusiva) de ids para filas con occurredAt < to
+    public static long idCeiling(LocalDateTime to) {
+        return TimeOrderedIdGenerator.minIdAt(epochMillis(to.plus(MAX_SYSDATE_BEHIND).plus(SLACK)));
+    }
+
+    public static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
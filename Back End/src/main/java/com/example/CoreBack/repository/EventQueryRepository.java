@@ -0,0 +1,24 @@
+package com.example.CoreBack.repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.example.CoreBack.entity.StoredEvent;
+
+public interface EventQueryRepository {
+
+    // Trae una ventana de filas (offset/limit) sin ejecutar el COUNT(*) que hace findAll(spec, pageable).
+    // Proyecta directo a EventSummary: el SELECT nunca incluye la columna payload.
+    List<EventSummary> findSlice(Specification<StoredEvent> spec, Sort sort, long offset, int limit);
+
+    // Cuenta las filas del filtro hasta `cap` + 1 (sólo ids, con LIMIT): más de `cap` significa "al menos cap"
+    long countUpTo(Specification<StoredEvent> spec, int cap);
+
+    // Igual que findSlice pero consumiendo el ResultSet a medida que llega (fetch size) y con timeout
+    // de consulta. Hay que cerrar el stream y usarlo dentro de una transacción.
+    Stream<EventSummary> streamSlice(Specification<StoredEvent> spec, Sort sort, int limit, Duration timeout);
+}
@@ -0,0 +1,80 @@
+package com.example.CoreBack.repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import com.example.CoreBack.entity.StoredEvent;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+class EventQueryRepositoryImpl implements EventQueryRepository {
+
+    static final int STREAM_FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    EventQueryRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<EventSummary> findSlice(Specification<StoredEvent> spec, Sort sort, long offset, int limit) {
+        return summaryQuery(spec, sort)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long countUpTo(Specification<StoredEvent> spec, int cap) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<StoredEvent> root = query.from(StoredEvent.class);
+        query.select(root.get("id"));
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) query.where(predicate);
+        }
+        return entityManager.createQuery(query)
+                .setMaxResults(cap + 1)
+                .getResultList()
+                .size();
+    }
+
+    @Override
+    public Stream<EventSummary> streamSlice(Specification<StoredEvent> spec, Sort sort, int limit, Duration timeout) {
+        return summaryQuery(spec, sort)
+                .setMaxResults(limit)
+                .setHint("jakarta.persistence.query.timeout", (int) timeout.toMillis())
+                .setHint("org.hibernate.fetchSize", STREAM_FETCH_SIZE)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream();
+    }
+
+    private TypedQuery<EventSummary> summaryQuery(Specification<StoredEvent> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<EventSummary> query = cb.createQuery(EventSummary.class);
+        Root<StoredEvent> root = query.from(StoredEvent.class);
+        query.select(cb.construct(EventSummary.class,
+                root.get("id"), root.get("eventId"), root.get("eventType"), root.get("source"),
+                root.get("module"), root.get("status"), root.get("occurredAt")));
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query);
+    }
+}
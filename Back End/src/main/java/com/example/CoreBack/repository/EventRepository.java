@@ -1,11 +1,213 @@
 package com.example.CoreBack.repository;
 
+import com.example.CoreBack.entity.PayloadCodec;
 import com.example.CoreBack.entity.StoredEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface EventRepository extends JpaRepository<StoredEvent, Long>, JpaSpecificationExecutor<StoredEvent> {
-    
+public interface EventRepository extends JpaRepository<StoredEvent, Long>, JpaSpecificationExecutor<StoredEvent>,
+        EventQueryRepository, EventInserts, EventMaintenance {
+
+    // Cambio de estado de un evento ya persistido (ej: InQueue → Delivered al consumirlo).
+    // Las filas que ya tienen ese estado no cuentan: una redelivery devuelve 0
+    @Modifying
+    @Query("update StoredEvent e set e.status = :status where e.eventId = :eventId and e.status <> :status")
+    int updateStatusByEventId(@Param("eventId") String eventId, @Param("status") String status);
+
+    // Versión en bloque para el consumer por lotes
+    @Modifying
+    @Query("update StoredEvent e set e.status = :status where e.eventId in :eventIds and e.status <> :status")
+    int updateStatusByEventIds(@Param("eventIds") Collection<String> eventIds, @Param("status") String status);
+
+    // Estado de los ids que ya tienen fila: InQueue (registrados por el outbox) o ya entregados (redeliveries)
+    @Query("select e.eventId as eventId, e.status as status from StoredEvent e where e.eventId in :eventIds")
+    List<EventIdStatus> findStatusesByEventIds(@Param("eventIds") Collection<String> eventIds);
+
+    // Filas cuyo eventId todavía no está en event_keys, en orden de id (EventKeyBackfill)
+    @Query("""
+            select e.id as id, e.eventId as eventId
+            from StoredEvent e
+            where e.id > :afterId and e.eventId is not null and e.eventId <> 'unknown'
+              and not exists (select k.eventId from EventKey k where k.eventId = e.eventId)
+            order by e.id
+            """)
+    List<UnclaimedEventId> findUnclaimedEventIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Conteo por estado del mes actual y del anterior en una sola pasada sobre el rango [lastMonthStart, nextMonthStart)
+    default List<MonthlyStatusCount> countByStatusForMonths(LocalDateTime lastMonthStart,
+                                                            LocalDateTime thisMonthStart,
+                                                            LocalDateTime nextMonthStart) {
+        return countByStatusForMonths(lastMonthStart, thisMonthStart, nextMonthStart,
+                EventPartitioning.idFloor(lastMonthStart), EventPartitioning.idCeiling(nextMonthStart),
+                EventPartitioning.LEGACY_ID_LIMIT);
+    }
+
+    // El rango de ids equivalente deja que MySQL lea sólo las particiones de esos meses
+    @Query("""
+            select e.status as status,
+                   sum(case when e.occurredAt >= :thisMonthStart then 1 else 0 end) as thisMonth,
+                   sum(case when e.occurredAt < :thisMonthStart then 1 else 0 end) as lastMonth
+            from StoredEvent e
+            where e.occurredAt >= :lastMonthStart and e.occurredAt < :nextMonthStart
+              and (e.id >= :minId or e.id < :legacyIdLimit) and e.id < :maxId
+            group by e.status
+            """)
+    List<MonthlyStatusCount> countByStatusForMonths(@Param("lastMonthStart") LocalDateTime lastMonthStart,
+                                                   @Param("thisMonthStart") LocalDateTime thisMonthStart,
+                                                   @Param("nextMonthStart") LocalDateTime nextMonthStart,
+                                                   @Param("minId") long minId,
+                                                   @Param("maxId") long maxId,
+                                                   @Param("legacyIdLimit") long legacyIdLimit);
+
+    // Conteos agrupados por hora/source/estado/tipo: alimenta el backfill inicial de event_hourly_rollup
+    @Query("""
+            select e.source as source, e.status as status, e.eventType as eventType,
+                   extract(year from e.occurredAt) as yr, extract(month from e.occurredAt) as mon,
+                   extract(day from e.occurredAt) as dy, extract(hour from e.occurredAt) as hr,
+                   count(e) as total
+            from StoredEvent e
+            where e.occurredAt is not null
+            group by e.source, e.status, e.eventType,
+                     extract(year from e.occurredAt), extract(month from e.occurredAt),
+                     extract(day from e.occurredAt), extract(hour from e.occurredAt)
+            """)
+    List<HourlyGroupCount> countGroupedByHour();
+
+    // Igual que countGroupedByHour pero sólo desde `from` (siembra de los contadores en vivo)
+    default List<HourlyGroupCount> countGroupedByHourSince(LocalDateTime from) {
+        return countGroupedByHourSince(from, EventPartitioning.idFloor(from), EventPartitioning.LEGACY_ID_LIMIT);
+    }
+
+    @Query("""
+            select e.source as source, e.status as status, e.eventType as eventType,
+                   extract(year from e.occurredAt) as yr, extract(month from e.occurredAt) as mon,
+                   extract(day from e.occurredAt) as dy, extract(hour from e.occurredAt) as hr,
+                   count(e) as total
+            from StoredEvent e
+            where e.occurredAt >= :from and (e.id >= :minId or e.id < :legacyIdLimit)
+            group by e.source, e.status, e.eventType,
+                     extract(year from e.occurredAt), extract(month from e.occurredAt),
+                     extract(day from e.occurredAt), extract(hour from e.occurredAt)
+            """)
+    List<HourlyGroupCount> countGroupedByHourSince(@Param("from") LocalDateTime from,
+                                                   @Param("minId") long minId,
+                                                   @Param("legacyIdLimit") long legacyIdLimit);
+
+    // Filas todavía sin módulo (creadas antes de la columna), en orden de id para el backfill
+    @Query("select e.id as id, e.source as source from StoredEvent e where e.module is null order by e.id")
+    List<IdAndSource> findWithoutModule(Pageable pageable);
+
+    @Modifying
+    @Query("update StoredEvent e set e.module = :module where e.id in :ids")
+    int updateModuleByIds(@Param("ids") Collection<Long> ids, @Param("module") String module);
+
+    // Reconstrucción del índice de búsqueda: payloads en orden de id a partir de `afterId`
+    @Query("""
+            select e.id as id, e.eventId as eventId, e.payload as payload, e.payloadData as payloadData,
+                   e.occurredAt as occurredAt
+            from StoredEvent e
+            where e.id > :afterId and e.eventId is not null
+            order by e.id
+            """)
+    List<PayloadRow> findPayloadsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Archivo frío: fecha del evento más viejo que sigue en la tabla
+    @Query("select min(e.occurredAt) from StoredEvent e")
+    LocalDateTime findOldestOccurredAt();
+
+    // Filas completas de un día en orden (occurredAt, id), en tramos a partir de (afterAt, afterId)
+    default List<ArchivedEvent> findDayChunk(LocalDateTime dayStart, LocalDateTime dayEnd,
+                                             LocalDateTime afterAt, long afterId, int limit) {
+        return findDayChunk(dayStart, dayEnd, afterAt, afterId, EventPartitioning.idFloor(dayStart),
+                EventPartitioning.idCeiling(dayEnd), EventPartitioning.LEGACY_ID_LIMIT, PageRequest.of(0, limit));
+    }
+
+    @Query("""
+            select new com.example.CoreBack.repository.ArchivedEvent(e.id, e.eventId, e.eventType, e.source,
+                   e.module, e.contentType, e.payload, e.payloadData, e.occurredAt, e.status)
+            from StoredEvent e
+            where e.occurredAt >= :dayStart and e.occurredAt < :dayEnd
+              and (e.occurredAt > :afterAt or (e.occurredAt = :afterAt and e.id > :afterId))
+              and (e.id >= :minId or e.id < :legacyIdLimit) and e.id < :maxId
+            order by e.occurredAt, e.id
+            """)
+    List<ArchivedEvent> findDayChunk(@Param("dayStart") LocalDateTime dayStart,
+                                     @Param("dayEnd") LocalDateTime dayEnd,
+                                     @Param("afterAt") LocalDateTime afterAt,
+                                     @Param("afterId") long afterId,
+                                     @Param("minId") long minId,
+                                     @Param("maxId") long maxId,
+                                     @Param("legacyIdLimit") long legacyIdLimit,
+                                     Pageable pageable);
+
+    // Filas con el payload todavía en la columna TEXT, en orden de id (PayloadCompressionBackfill)
+    @Query("""
+            select e.id as id, e.eventType as eventType, e.payload as payload
+            from StoredEvent e
+            where e.id > :afterId and e.payload is not null and e.payloadData is null
+            order by e.id
+            """)
+    List<UncompressedPayload> findUncompressedPayloads(@Param("afterId") Long afterId, Pageable pageable);
+
+    interface PayloadRow {
+        Long getId();
+        String getEventId();
+        String getPayload();
+        byte[] getPayloadData();
+        LocalDateTime getOccurredAt();
+
+        // Texto del payload, esté migrado a payload_data o no
+        default String getPayloadText() {
+            return PayloadCodec.decode(getPayloadData(), getPayload());
+        }
+    }
+
+    interface EventIdStatus {
+        String getEventId();
+        String getStatus();
+    }
+
+    interface UnclaimedEventId {
+        Long getId();
+        String getEventId();
+    }
+
+    interface UncompressedPayload {
+        Long getId();
+        String getEventType();
+        String getPayload();
+    }
+
+    interface IdAndSource {
+        Long getId();
+        String getSource();
+    }
+
+    interface HourlyGroupCount {
+        String getSource();
+        String getStatus();
+        String getEventType();
+        Number getYr();
+        Number getMon();
+        Number getDy();
+        Number getHr();
+        Long getTotal();
+    }
+
+    interface MonthlyStatusCount {
+        String getStatus();
+        Long getThisMonth();
+        Long getLastMonth();
+    }
 }
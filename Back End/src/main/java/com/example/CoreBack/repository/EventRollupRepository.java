@@ -0,0 +1,49 @@
+package com.example.CoreBack.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.CoreBack.entity.EventHourlyRollup;
+
+@Repository
+public interface EventRollupRepository extends JpaRepository<EventHourlyRollup, EventHourlyRollup.Key>, EventRollupUpsert {
+
+    @Query("""
+            select r.id.bucketHour as bucketHour, sum(r.eventCount) as total
+            from EventHourlyRollup r
+            where r.id.bucketHour >= :from
+            group by r.id.bucketHour
+            """)
+    List<HourTotal> sumByHourSince(@Param("from") LocalDateTime from);
+
+    @Query("""
+            select r.id.module as module, sum(r.eventCount) as total
+            from EventHourlyRollup r
+            group by r.id.module
+            """)
+    List<ModuleTotal> sumByModule();
+
+    // Estimación de totales para el listado (filtros opcionales por módulo/estado)
+    @Query("""
+            select coalesce(sum(r.eventCount), 0)
+            from EventHourlyRollup r
+            where (:module is null or r.id.module = :module)
+              and (:status is null or r.id.status = :status)
+            """)
+    long sumFiltered(@Param("module") String module, @Param("status") String status);
+
+    interface HourTotal {
+        LocalDateTime getBucketHour();
+        Long getTotal();
+    }
+
+    interface ModuleTotal {
+        String getModule();
+        Long getTotal();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.CoreBack.repository;
+
+import java.util.Map;
+
+import com.example.CoreBack.entity.EventHourlyRollup;
+
+public interface EventRollupUpsert {
+
+    // Suma cada delta al contador de su clave (insertándola si no existe) en un único batch JDBC
+    void upsertCounts(Map<EventHourlyRollup.Key, Long> deltas);
+}
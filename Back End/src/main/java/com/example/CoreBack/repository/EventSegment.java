@@ -0,0 +1,312 @@
+package com.example.CoreBack.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Segmento del archivo frío: los eventos de un día en un archivo inmutable, ordenados por (occurredAt, id).
+// Formato (DataOutput, big endian):
+//   MAGIC | VERSION
+//   bloques de hasta BLOCK_ROWS filas: columna por columna (id y occurredAt como deltas, después eventId,
+//   eventType, source, module, status, contentType y payload) y el bloque entero comprimido con Deflate
+//   footer: día, filas, índice de bloques (offset, largo, filas, min/max de occurredAt e id) y
+//   conteos por módulo y estado (las estadísticas salen de acá sin descomprimir bloques)
+//   offset del footer | MAGIC
+// El segmento se escribe en un .tmp y se mueve a su nombre final recién completo (archivo y directorio sincronizados).
+public final class EventSegment {
+
+    static final int MAGIC = 0x43534547; // "CSEG"
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 4096;
+
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private EventSegment() {}
+
+    // occurredAt en microsegundos (la precisión de DATETIME(6)), hora local del servidor igual que la columna
+    public record Block(long offset, int length, int rows, long minMicros, long maxMicros, long minId, long maxId) {}
+
+    public record Footer(Path file, LocalDate day, long rows, List<Block> blocks,
+                         Map<String, Map<String, Long>> counts) {
+
+        public long minMicros() {
+            return blocks.isEmpty() ? Long.MAX_VALUE : blocks.get(0).minMicros();
+        }
+
+        public long maxMicros() {
+            return blocks.isEmpty() ? Long.MIN_VALUE : blocks.get(blocks.size() - 1).maxMicros();
+        }
+
+        // Filas del módulo y estado pedidos (null = todos)
+        public long count(String module, String status) {
+            long total = 0;
+            for (Map.Entry<String, Map<String, Long>> byModule : counts.entrySet()) {
+                if (module != null && !module.equals(byModule.getKey())) continue;
+                for (Map.Entry<String, Long> byStatus : byModule.getValue().entrySet()) {
+                    if (status != null && !status.equals(byStatus.getKey())) continue;
+                    total += byStatus.getValue();
+                }
+            }
+            return total;
+        }
+    }
+
+    public static Writer create(Path file, LocalDate day) throws IOException {
+        return new Writer(file, day);
+    }
+
+    // Escritor secuencial: append() en orden de (occurredAt, id) y finish() escribe el footer y publica el archivo
+    public static final class Writer implements Closeable {
+
+        private final Path target;
+        private final Path tmp;
+        private final LocalDate day;
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+        private final List<ArchivedEvent> pending = new ArrayList<>(BLOCK_ROWS);
+        private final List<Block> blocks = new ArrayList<>();
+        private final Map<String, Map<String, Long>> counts = new TreeMap<>();
+        private long position;
+        private long rows;
+        private boolean finished;
+
+        private Writer(Path target, LocalDate day) throws IOException {
+            Files.createDirectories(target.getParent());
+            this.target = target;
+            this.tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.day = day;
+            this.file = new FileOutputStream(tmp.toFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            position = 2L * Integer.BYTES;
+        }
+
+        public void append(ArchivedEvent event) throws IOException {
+            pending.add(event);
+            counts.computeIfAbsent(String.valueOf(event.module()), m -> new TreeMap<>())
+                    .merge(String.valueOf(event.status()), 1L, Long::sum);
+            rows++;
+            if (pending.size() == BLOCK_ROWS) flushBlock();
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public Footer finish() throws IOException {
+            if (!pending.isEmpty()) flushBlock();
+            long footerOffset = position;
+
+            out.writeLong(day.toEpochDay());
+            out.writeLong(rows);
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                out.writeLong(block.offset());
+                out.writeInt(block.length());
+                out.writeInt(block.rows());
+                out.writeLong(block.minMicros());
+                out.writeLong(block.maxMicros());
+                out.writeLong(block.minId());
+                out.writeLong(block.maxId());
+            }
+            out.writeInt(counts.size());
+            for (Map.Entry<String, Map<String, Long>> byModule : counts.entrySet()) {
+                out.writeUTF(byModule.getKey());
+                out.writeInt(byModule.getValue().size());
+                for (Map.Entry<String, Long> byStatus : byModule.getValue().entrySet()) {
+                    out.writeUTF(byStatus.getKey());
+                    out.writeLong(byStatus.getValue());
+                }
+            }
+            out.writeLong(footerOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+            out.close();
+
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(target.getParent());
+            finished = true;
+            return new Footer(target, day, rows, List.copyOf(blocks), Collections.unmodifiableMap(counts));
+        }
+
+        // Sin finish() (error a mitad de camino) el .tmp se descarta
+        @Override
+        public void close() throws IOException {
+            if (finished) return;
+            out.close();
+            Files.deleteIfExists(tmp);
+        }
+
+        private void flushBlock() throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DataOutputStream columns = new DataOutputStream(new DeflaterOutputStream(compressed))) {
+                columns.writeInt(pending.size());
+                long previous = 0;
+                for (ArchivedEvent event : pending) {
+                    columns.writeLong(event.id() - previous);
+                    previous = event.id();
+                }
+                previous = 0;
+                for (ArchivedEvent event : pending) {
+                    long micros = toMicros(event.occurredAt());
+                    columns.writeLong(micros - previous);
+                    previous = micros;
+                }
+                for (ArchivedEvent event : pending) writeString(columns, event.eventId());
+                for (ArchivedEvent event : pending) writeString(columns, event.eventType());
+                for (ArchivedEvent event : pending) writeString(columns, event.source());
+                for (ArchivedEvent event : pending) writeString(columns, event.module());
+                for (ArchivedEvent event : pending) writeString(columns, event.status());
+                for (ArchivedEvent event : pending) writeString(columns, event.contentType());
+                for (ArchivedEvent event : pending) writeString(columns, event.payload());
+            }
+
+            byte[] bytes = compressed.toByteArray();
+            long minId = Long.MAX_VALUE, maxId = Long.MIN_VALUE;
+            for (ArchivedEvent event : pending) {
+                minId = Math.min(minId, event.id());
+                maxId = Math.max(maxId, event.id());
+            }
+            blocks.add(new Block(position, bytes.length, pending.size(),
+                    toMicros(pending.get(0).occurredAt()), toMicros(pending.get(pending.size() - 1).occurredAt()),
+                    minId, maxId));
+            out.write(bytes);
+            position += bytes.length;
+            pending.clear();
+        }
+    }
+
+    // Sin sincronizar el directorio el rename puede perderse con un corte de luz aunque el contenido esté en disco.
+    // Windows no deja abrir un directorio; ahí el rename ya queda en el journal de NTFS.
+    private static void syncDirectory(Path dir) throws IOException {
+        if (System.getProperty("os.name", "").startsWith("Windows")) return;
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public static Footer readFooter(Path file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            if (in.length() < 2L * Integer.BYTES + TRAILER_BYTES || in.readInt() != MAGIC) {
+                throw new IOException("No es un segmento de eventos: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de segmento no soportada (" + version + "): " + file);
+            }
+            in.seek(in.length() - TRAILER_BYTES);
+            long footerOffset = in.readLong();
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Segmento incompleto: " + file);
+            }
+
+            in.seek(footerOffset);
+            LocalDate day = LocalDate.ofEpochDay(in.readLong());
+            long rows = in.readLong();
+            int blockCount = in.readInt();
+            List<Block> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(new Block(in.readLong(), in.readInt(), in.readInt(),
+                        in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+            }
+            Map<String, Map<String, Long>> counts = new TreeMap<>();
+            int modules = in.readInt();
+            for (int i = 0; i < modules; i++) {
+                String module = in.readUTF();
+                Map<String, Long> byStatus = new TreeMap<>();
+                int statuses = in.readInt();
+                for (int j = 0; j < statuses; j++) {
+                    byStatus.put(in.readUTF(), in.readLong());
+                }
+                counts.put(module, Collections.unmodifiableMap(byStatus));
+            }
+            return new Footer(file, day, rows, List.copyOf(blocks), Collections.unmodifiableMap(counts));
+        }
+    }
+
+    // Descomprime un bloque completo (las filas salen en orden de (occurredAt, id))
+    public static List<ArchivedEvent> readBlock(Path file, Block block) throws IOException {
+        byte[] bytes = new byte[block.length()];
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            in.seek(block.offset());
+            in.readFully(bytes);
+        }
+
+        try (DataInputStream columns = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            int rows = columns.readInt();
+            long[] ids = new long[rows];
+            long[] micros = new long[rows];
+            long previous = 0;
+            for (int i = 0; i < rows; i++) ids[i] = previous += columns.readLong();
+            previous = 0;
+            for (int i = 0; i < rows; i++) micros[i] = previous += columns.readLong();
+            String[][] strings = new String[7][rows];
+            for (String[] column : strings) {
+                for (int i = 0; i < rows; i++) column[i] = readString(columns);
+            }
+
+            List<ArchivedEvent> events = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                events.add(new ArchivedEvent(ids[i], strings[0][i], strings[1][i], strings[2][i], strings[3][i],
+                        strings[5][i], strings[6][i], fromMicros(micros[i]), strings[4][i]));
+            }
+            return events;
+        }
+    }
+
+    public static long toMicros(LocalDateTime time) {
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        Instant instant = Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    // Largo -1 = null; los payloads pueden superar los 64KB de writeUTF
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
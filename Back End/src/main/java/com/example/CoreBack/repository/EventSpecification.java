@@ -3,20 +3,87 @@ package com.example.CoreBack.repository;
 import com.example.CoreBack.entity.StoredEvent;
 import org.springframework.data.jpa.domain.Specification;
 
+import jakarta.persistence.criteria.Predicate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public class EventSpecification {
 
     public static Specification<StoredEvent> hasModule(String module) {
         return (root, query, cb) -> module == null ? null :
-                cb.equal(root.get("source"), module);
+                cb.equal(root.get("module"), module);
     }
 
     public static Specification<StoredEvent> hasStatus(String status) {
         return (root, query, cb) -> status == null ? null :
-                cb.equal(root.get("status"), status);
+                cb.equal(root.get("status"), StoredEvent.canonicalStatus(status));
+    }
+
+    public static Specification<StoredEvent> hasStatusIn(Collection<String> statuses) {
+        return (root, query, cb) -> root.get("status").in(statuses.stream().map(StoredEvent::canonicalStatus).toList());
     }
 
     public static Specification<StoredEvent> hasSearch(String search) {
         return (root, query, cb) -> search == null ? null :
-                cb.like(cb.lower(root.get("type")), "%" + search.toLowerCase() + "%");
+                cb.like(cb.lower(root.get("eventType")), "%" + search.toLowerCase() + "%");
+    }
+
+    public static Specification<StoredEvent> hasType(String eventType) {
+        return (root, query, cb) -> eventType == null ? null :
+                cb.equal(root.get("eventType"), eventType);
+    }
+
+    // LIKE 'prefijo%' (sin comodín al inicio)
+    public static Specification<StoredEvent> hasTypePrefix(String prefix) {
+        return (root, query, cb) -> prefix == null ? null :
+                cb.like(root.get("eventType"), prefix.replace("%", "\\%").replace("_", "\\_") + "%", '\\');
+    }
+
+    public static Specification<StoredEvent> hasSource(String source) {
+        return (root, query, cb) -> source == null ? null :
+                cb.equal(root.get("source"), source);
+    }
+
+    // Rango [from, to) sobre occurredAt, con el rango de ids equivalente para podar particiones
+    public static Specification<StoredEvent> occurredBetween(LocalDateTime from, LocalDateTime to) {
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("occurredAt"), from),
+                cb.lessThan(root.get("occurredAt"), to),
+                idRangeFor(from, to).toPredicate(root, query, cb));
+    }
+
+    // Ids posibles para occurredAt en [from, to) (cualquiera de los dos puede ser null).
+    // Las filas legacy (ids IDENTITY) quedan siempre incluidas.
+    public static Specification<StoredEvent> idRangeFor(LocalDateTime from, LocalDateTime to) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(2);
+            if (to != null) {
+                predicates.add(cb.lessThan(root.get("id"), EventPartitioning.idCeiling(to)));
+            }
+            if (from != null) {
+                predicates.add(cb.or(
+                        cb.greaterThanOrEqualTo(root.get("id"), EventPartitioning.idFloor(from)),
+                        cb.lessThan(root.get("id"), EventPartitioning.LEGACY_ID_LIMIT)));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // Eventos devueltos por el índice de payloads (igualdad sobre idx_events_event_id)
+    public static Specification<StoredEvent> hasEventIdIn(Collection<String> eventIds) {
+        return (root, query, cb) -> eventIds.isEmpty() ? cb.disjunction() : root.get("eventId").in(eventIds);
+    }
+
+    // Keyset: filas estrictamente "después" de (occurredAt, id) en orden descendente
+    // (la cota de ids deja afuera las particiones más nuevas que el cursor)
+    public static Specification<StoredEvent> before(LocalDateTime occurredAt, Long id) {
+        return (root, query, cb) -> cb.and(
+                cb.or(
+                        cb.lessThan(root.get("occurredAt"), occurredAt),
+                        cb.and(cb.equal(root.get("occurredAt"), occurredAt), cb.lessThan(root.get("id"), id))),
+                cb.lessThan(root.get("id"), EventPartitioning.idCeiling(occurredAt)));
     }
-}
\ No newline at end of file
+}
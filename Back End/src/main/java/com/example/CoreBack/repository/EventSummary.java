@@ -0,0 +1,7 @@
+package com.example.CoreBack.repository;
+
+import java.time.LocalDateTime;
+
+// Fila del listado de GET /events: sólo las columnas que muestra la tabla (sin payload ni contentType)
+public record EventSummary(Long id, String eventId, String eventType, String source, String module,
+                           String status, LocalDateTime occurredAt) {}
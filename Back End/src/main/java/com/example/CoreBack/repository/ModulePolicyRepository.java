@@ -2,6 +2,13 @@ package com.example.CoreBack.repository;
 
 import com.example.CoreBack.entity.ModulePolicy;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface ModulePolicyRepository extends JpaRepository<ModulePolicy, Long> {
-}
\ No newline at end of file
+
+    // Con su RetryPolicy en la misma consulta (el @ManyToOne eager haría un select por política)
+    @Query("select m from ModulePolicy m left join fetch m.policy order by m.id")
+    List<ModulePolicy> findAllWithPolicy();
+}
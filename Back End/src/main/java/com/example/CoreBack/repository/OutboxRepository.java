@@ -0,0 +1,33 @@
+package com.example.CoreBack.repository;
+
+import com.example.CoreBack.entity.OutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Próximo lote a publicar. SKIP LOCKED (-2) permite varias instancias drenando en paralelo sin pisarse.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from OutboxMessage o where o.availableAt <= :now order by o.id")
+    List<OutboxMessage> lockNextBatch(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Reserva un lote reclamado hasta `until` (el relay lo publica fuera de la transacción)
+    @Modifying
+    @Query("update OutboxMessage o set o.availableAt = :until where o.id in :ids")
+    int lease(@Param("ids") List<Long> ids, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update OutboxMessage o set o.attempts = o.attempts + 1, o.availableAt = :retryAt where o.id in :ids")
+    int markFailedAttempt(@Param("ids") List<Long> ids, @Param("retryAt") LocalDateTime retryAt);
+}
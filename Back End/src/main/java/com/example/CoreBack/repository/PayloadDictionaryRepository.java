@@ -0,0 +1,12 @@
+package com.example.CoreBack.repository;
+
+import com.example.CoreBack.entity.PayloadDictionary;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface PayloadDictionaryRepository extends JpaRepository<PayloadDictionary, Integer> {
+
+    // En orden de id: el último de cada tipo es el vigente
+    List<PayloadDictionary> findAllByOrderByIdAsc();
+}
@@ -0,0 +1,27 @@
+package com.example.CoreBack.repository;
+
+import com.example.CoreBack.entity.PendingRetry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PendingRetryRepository extends JpaRepository<PendingRetry, Long> {
+
+    // Timers de un nodo en orden de id, sin headers ni body (RetryScheduler los recarga al arrancar)
+    @Query("""
+            select p.id as id, p.dueAt as dueAt
+            from PendingRetry p
+            where p.owner = :owner and p.id > :afterId
+            order by p.id
+            """)
+    List<PendingTimer> findTimers(@Param("owner") String owner, @Param("afterId") Long afterId, Pageable pageable);
+
+    interface PendingTimer {
+        Long getId();
+        LocalDateTime getDueAt();
+    }
+}
@@ -1,8 +1,126 @@
 package com.example.CoreBack.service;
 
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.EventSpecification;
+import com.example.CoreBack.repository.EventSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.PersistenceException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 public class AdminService {
-    // tu lógica aquí
+
+    private static final Sort NEWEST_FIRST =
+            Sort.by(Sort.Direction.DESC, "occurredAt").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private static final int FLUSH_EVERY = 100;
+
+    private final EventRepository eventRepository;
+    private final PayloadSearchIndex payloadIndex;
+    private final ObjectMapper objectMapper;
+
+    @Value("${core.admin.search.timeout-ms:5000}")
+    private long timeoutMs = 5000;
+
+    @Value("${core.admin.search.max-window-days:31}")
+    private int maxWindowDays = 31;
+
+    @Value("${core.admin.search.max-limit:1000}")
+    private int maxLimit = 1000;
+
+    public AdminService(EventRepository eventRepository, PayloadSearchIndex payloadIndex, ObjectMapper objectMapper) {
+        this.eventRepository = eventRepository;
+        this.payloadIndex = payloadIndex;
+        this.objectMapper = objectMapper;
+    }
+
+    // Valida y compila los filtros antes de empezar a responder (los errores salen como 400/503)
+    public EventSearchPlan compile(Map<String, String> filters) {
+        EventSearchPlan plan = EventSearchPlan.compile(filters, LocalDateTime.now(),
+                Duration.ofDays(maxWindowDays), maxLimit);
+        if (plan.needsPayloadIndex() && !payloadIndex.isReady()) {
+            throw new IllegalStateException("El índice de búsqueda todavía se está construyendo");
+        }
+        return plan;
+    }
+
+    // Escribe el resultado como NDJSON a medida que se leen las filas: un EventSummary por línea
+    // y una última línea con { count, hasMore, nextCursor } para pedir la página siguiente.
+    // Si la consulta supera el timeout se corta y la última línea trae el error.
+    @Transactional(readOnly = true)
+    public void stream(EventSearchPlan plan, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        Map<String, Object> trailer = new LinkedHashMap<>();
+
+        if (plan.explain()) {
+            writeLine(writer, Map.of("plan", plan.describe()));
+            writer.flush();
+            return;
+        }
+
+        Specification<StoredEvent> spec = plan.toSpecification();
+        PayloadSearchIndex.Hits hits = null;
+        if (plan.needsPayloadIndex()) {
+            // La ventana y el cursor van al índice: los max-hits candidatos son los siguientes de esta página
+            hits = payloadIndex.search(plan.text(), plan.payloadFields(), plan.from(), plan.to(), plan.cursor());
+            trailer.put("indexHits", hits.totalHits());
+            if (hits.truncated()) trailer.put("indexTruncated", true);
+            spec = spec.and(EventSpecification.hasEventIdIn(hits.eventIds()));
+        }
+
+        int count = 0;
+        EventSummary last = null;
+        boolean hasMore = false;
+        try (Stream<EventSummary> rows = eventRepository.streamSlice(spec, NEWEST_FIRST, plan.limit() + 1,
+                Duration.ofMillis(timeoutMs))) {
+            for (EventSummary row : (Iterable<EventSummary>) rows::iterator) {
+                if (count == plan.limit()) {
+                    hasMore = true;
+                    break;
+                }
+                writeLine(writer, row);
+                last = row;
+                if (++count % FLUSH_EVERY == 0) writer.flush();
+            }
+        } catch (DataAccessException | PersistenceException e) {
+            System.err.println("❌ Búsqueda de administración cortada: " + e.getMessage());
+            trailer.put("error", "La búsqueda superó el tiempo máximo o falló; acotá los filtros");
+        }
+
+        EventCursor next = hasMore && last != null ? EventCursor.of(last) : null;
+        if (!hasMore && !trailer.containsKey("error") && hits != null && hits.truncated()) {
+            // Los candidatos del índice se agotaron antes de llenar la página: se sigue después del último
+            hasMore = true;
+            next = hits.last();
+        }
+
+        trailer.put("count", count);
+        trailer.put("hasMore", hasMore);
+        trailer.put("nextCursor", next != null ? next.encode() : null);
+        writeLine(writer, trailer);
+        writer.flush();
+    }
+
+    private void writeLine(Writer writer, Object value) throws IOException {
+        writer.write(objectMapper.writeValueAsString(value));
+        writer.write('\n');
+    }
 }
@@ -0,0 +1,209 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.repository.OutboxRepository;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.CoreBack.config.RabbitConfig.CORE_ALL_QUEUE;
+
+// Control de admisión del ingreso según SystemConfig.queueThreshold. Un hilo propio (no el pool de @Scheduled,
+// donde un broker lento demoraría el relay y los reintentos) lee la profundidad de las colas con RabbitAdmin
+// cada sample-interval-ms y deja la muestra en memoria: el chequeo por evento no toca el broker.
+// Hay dos señales: la compartida, que es la cola más cargada de core.admission.queues (core.all.queue, por donde
+// pasa todo el ingreso) más las filas del outbox que todavía no se publicaron (el ingreso las cuenta como
+// aceptadas aunque el broker no las haya visto), y la de la cola propia de cada módulo (core.admission.module-queues).
+// Un módulo se corta si cualquiera de las dos supera su límite (queueThreshold × su prioridad): así un consumidor
+// lento frena sólo a su módulo y un broker caído frena a todos. El evento se rechaza con 429 y un Retry-After
+// de cuánto tardaría en drenarse el excedente al ritmo medido (el mayor de las dos señales).
+// Sin umbral (0), sin muestra o con la muestra vieja (broker sin respuesta) se admite todo.
+@Component
+public class AdmissionController {
+
+    private final AmqpAdmin amqpAdmin;
+    private final SystemConfigService systemConfig;
+    private final OutboxRepository outboxRepository;
+
+    @Value("${core.admission.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${core.admission.queues:" + CORE_ALL_QUEUE + "}")
+    private List<String> queues = List.of(CORE_ALL_QUEUE);
+
+    @Value("${core.admission.sample-interval-ms:2000}")
+    private long sampleIntervalMs = 2000;
+
+    @Value("${core.admission.retry-after.min-seconds:1}")
+    private long minRetryAfter = 1;
+
+    @Value("${core.admission.retry-after.max-seconds:60}")
+    private long maxRetryAfter = 60;
+
+    // módulo=factor sobre queueThreshold (ej: usuarios=2.0,discovery=0.5): >1 se corta más tarde, <1 antes
+    @Value("${core.admission.priorities:}")
+    private String priorities = "";
+
+    // módulo=cola propia del módulo (ej: usuarios=core.users.queue); los módulos sin cola sólo miran la compartida
+    @Value("${core.admission.module-queues:}")
+    private String moduleQueues = "";
+
+    private volatile Map<String, Double> factors = Map.of();
+    private volatile Map<String, String> queueByModule = Map.of();
+    private volatile Sample sample;
+    private volatile Map<String, Sample> moduleSamples = Map.of();
+    private ScheduledExecutorService sampler;
+
+    // Profundidad de una señal y cuánto baja por segundo (media móvil; negativo = crece)
+    record Sample(long depth, double drainPerSecond, long sampledAt) {
+
+        Sample next(long depth, long now) {
+            double drain = drainPerSecond;
+            if (now > sampledAt) {
+                double measured = (this.depth - depth) * 1000.0 / (now - sampledAt);
+                drain = (drainPerSecond + measured) / 2;
+            }
+            return new Sample(depth, drain, now);
+        }
+    }
+
+    public AdmissionController(AmqpAdmin amqpAdmin, SystemConfigService systemConfig, OutboxRepository outboxRepository) {
+        this.amqpAdmin = amqpAdmin;
+        this.systemConfig = systemConfig;
+        this.outboxRepository = outboxRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        loadPriorities();
+        loadModuleQueues();
+        if (!enabled) return;
+        sampler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "core-admission-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleWithFixedDelay(this::sample, 0, sampleIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sampler != null) sampler.shutdownNow();
+    }
+
+    void loadPriorities() {
+        Map<String, Double> parsed = new HashMap<>();
+        for (String entry : priorities.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2 || parts[0].isBlank()) continue;
+            try {
+                parsed.put(parts[0].trim().toLowerCase(Locale.ROOT), Double.parseDouble(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                System.err.println("⚠️ Prioridad de admisión inválida ignorada: " + entry);
+            }
+        }
+        factors = Map.copyOf(parsed);
+    }
+
+    void loadModuleQueues() {
+        Map<String, String> parsed = new HashMap<>();
+        for (String entry : moduleQueues.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) continue;
+            parsed.put(parts[0].trim().toLowerCase(Locale.ROOT), parts[1].trim());
+        }
+        queueByModule = Map.copyOf(parsed);
+    }
+
+    public void sample() {
+        if (!enabled) return;
+        try {
+            long depth = 0;
+            for (String queue : queues) {
+                depth = Math.max(depth, depthOf(queue));
+            }
+            depth += outboxRepository.count();
+
+            Map<String, Long> moduleDepths = new HashMap<>();
+            for (Map.Entry<String, String> entry : queueByModule.entrySet()) {
+                moduleDepths.put(entry.getKey(), depthOf(entry.getValue()));
+            }
+
+            long now = System.currentTimeMillis();
+            Sample previous = sample;
+            sample = previous != null ? previous.next(depth, now) : new Sample(depth, 0, now);
+
+            Map<String, Sample> previousModules = moduleSamples;
+            Map<String, Sample> modules = new HashMap<>();
+            moduleDepths.forEach((module, moduleDepth) -> {
+                Sample before = previousModules.get(module);
+                modules.put(module, before != null ? before.next(moduleDepth, now) : new Sample(moduleDepth, 0, now));
+            });
+            moduleSamples = Map.copyOf(modules);
+        } catch (Exception e) {
+            // La muestra anterior queda y envejece: pasado el margen se admite todo
+            System.err.println("⚠️ Admisión: no se pudo leer la profundidad de las colas: " + e.getMessage());
+        }
+    }
+
+    private long depthOf(String queue) {
+        QueueInformation info = amqpAdmin.getQueueInfo(queue);
+        return info != null ? info.getMessageCount() : 0;
+    }
+
+    // Lanza AdmissionRejectedException si el módulo del source tiene que esperar
+    public void admit(String source) {
+        String module = EventModules.classify(source);
+        OptionalLong retryAfter = retryAfter(module);
+        if (retryAfter.isPresent()) {
+            throw new AdmissionRejectedException(module, retryAfter.getAsLong());
+        }
+    }
+
+    // Segundos que tiene que esperar un evento del módulo; vacío si se admite
+    public OptionalLong retryAfter(String module) {
+        Sample current = sample;
+        if (!enabled || current == null || isStale(current)) {
+            return OptionalLong.empty();
+        }
+        int threshold = systemConfig.snapshot().queueThreshold();
+        if (threshold <= 0) return OptionalLong.empty();
+
+        String key = module == null ? null : module.toLowerCase(Locale.ROOT);
+        double factor = key == null ? 1.0 : factors.getOrDefault(key, 1.0);
+        long limit = (long) Math.ceil(threshold * factor);
+
+        long seconds = secondsOver(current, limit);
+        Sample own = key == null ? null : moduleSamples.get(key);
+        if (own != null && !isStale(own)) {
+            seconds = Math.max(seconds, secondsOver(own, limit));
+        }
+        return seconds < 0 ? OptionalLong.empty() : OptionalLong.of(seconds);
+    }
+
+    private boolean isStale(Sample sample) {
+        return System.currentTimeMillis() - sample.sampledAt() > 3 * sampleIntervalMs;
+    }
+
+    // Retry-After de una señal; -1 si está dentro del límite
+    private long secondsOver(Sample sample, long limit) {
+        if (sample.depth() <= limit) return -1;
+        long excess = sample.depth() - limit;
+        long seconds = sample.drainPerSecond() > 0
+                ? (long) Math.ceil(excess / sample.drainPerSecond())
+                : maxRetryAfter;
+        return Math.max(minRetryAfter, Math.min(maxRetryAfter, seconds));
+    }
+}
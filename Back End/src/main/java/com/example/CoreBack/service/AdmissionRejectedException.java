@@ -0,0 +1,23 @@
+package com.example.CoreBack.service;
+
+// El evento no se acepta porque las colas pasaron el umbral (AdmissionController); el controller responde
+// 429 con Retry-After = retryAfterSeconds
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final String module;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String module, long retryAfterSeconds) {
+        super("Colas saturadas: eventos de '" + module + "' demorados, reintentar en " + retryAfterSeconds + "s");
+        this.module = module;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
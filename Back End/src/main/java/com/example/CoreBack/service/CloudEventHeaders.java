@@ -0,0 +1,78 @@
+package com.example.CoreBack.service;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+// Modo binario de CloudEvents sobre AMQP (core.amqp.content-mode=binary): los atributos del evento
+// van en headers `cloudEvents:*` (el datacontenttype en el content-type del mensaje) y el body es sólo `data`.
+// Quien rutea, filtra o guarda el evento lo hace con los headers, sin parsear el body.
+public final class CloudEventHeaders {
+
+    public static final String PREFIX = "cloudEvents:";
+    public static final String SPECVERSION = PREFIX + "specversion";
+    public static final String ID = PREFIX + "id";
+    public static final String TYPE = PREFIX + "type";
+    public static final String SOURCE = PREFIX + "source";
+    public static final String TIME = PREFIX + "time";
+
+    static final String SPEC_VERSION = "1.0";
+    static final String DEFAULT_CONTENT_TYPE = MessageProperties.CONTENT_TYPE_JSON;
+
+    private CloudEventHeaders() {}
+
+    // Atributos del evento; `time` es la hora local del core (occurredAt)
+    public record Metadata(String id, String type, String source, String datacontenttype, LocalDateTime time) {}
+
+    public static Message toMessage(Metadata metadata, byte[] data) {
+        Message message = MessageBuilder.withBody(data)
+                .setContentType(metadata.datacontenttype() != null ? metadata.datacontenttype() : DEFAULT_CONTENT_TYPE)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId(metadata.id())
+                .setHeader(SPECVERSION, SPEC_VERSION)
+                .setHeader(ID, metadata.id())
+                .setHeader(TYPE, metadata.type())
+                .setHeader(SOURCE, metadata.source())
+                .build();
+        if (metadata.time() != null) {
+            // CloudEvents pide RFC 3339 con offset
+            message.getMessageProperties().setHeader(TIME, metadata.time().atZone(ZoneId.systemDefault()).toOffsetDateTime().toString());
+        }
+        return message;
+    }
+
+    public static boolean isBinary(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        return properties != null && properties.getHeader(SPECVERSION) != null;
+    }
+
+    public static Metadata read(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        return new Metadata(
+                header(properties, ID),
+                header(properties, TYPE),
+                header(properties, SOURCE),
+                properties.getContentType() != null ? properties.getContentType() : DEFAULT_CONTENT_TYPE,
+                parseTime(header(properties, TIME)));
+    }
+
+    private static String header(MessageProperties properties, String name) {
+        Object value = properties.getHeader(name);
+        return value != null ? value.toString() : null;
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        if (value == null) return null;
+        try {
+            return OffsetDateTime.parse(value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.repository.ClusterLockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Locks entre nodos sobre la tabla cluster_locks (misma DB que todos comparten, sin depender de funciones
+// propias de MySQL). Cada lock tiene un vencimiento: el lease tiene que cubrir la duración del job.
+// El dueño es el core.node-id más un id de proceso, así dos instancias con el mismo node-id no se confunden.
+@Component
+public class ClusterLocks {
+
+    private final ClusterLockRepository lockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String owner;
+
+    public ClusterLocks(ClusterLockRepository lockRepository, TransactionTemplate transactionTemplate,
+                        @Value("${core.node-id:0}") String nodeId) {
+        this.lockRepository = lockRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.owner = nodeId + "-" + UUID.randomUUID();
+    }
+
+    // true si este nodo tiene el lock hasta dentro de `lease`
+    public boolean tryAcquire(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer taken = transactionTemplate.execute(status ->
+                lockRepository.takeOver(name, owner, now, now.plus(lease)));
+        if (taken != null && taken > 0) return true;
+        if (lockRepository.existsById(name)) return false;
+        try {
+            // Primera vez que se usa este lock
+            transactionTemplate.executeWithoutResult(status ->
+                    lockRepository.create(name, owner, now.plus(lease)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo lo creó al mismo tiempo
+            return false;
+        }
+    }
+
+    public void release(String name) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    lockRepository.release(name, owner, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            // Vence solo al terminar el lease
+            System.err.println("⚠️ No se pudo liberar el lock " + name + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.CoreBack.service;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static com.example.CoreBack.config.RabbitConfig.CONFIG_EXCHANGE;
+
+// Avisos de configuración modificada. El cambio se publica como ConfigChanged en este nodo (los cachés
+// lo escuchan con @EventListener) y por core.config.fanout al resto, que lo vuelve a publicar localmente.
+// Si el broker no está, los otros nodos lo toman cuando vence el refresco de cada caché.
+@Component
+public class ConfigChanges {
+
+    public static final String RETRY_POLICIES = "retry-policies";
+    public static final String SYSTEM_CONFIG = "system-config";
+
+    static final String ORIGIN_HEADER = "x-core-origin";
+
+    // Tema modificado (RETRY_POLICIES, ...)
+    public record ConfigChanged(String topic) {}
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ApplicationEventPublisher events;
+    private final String origin = UUID.randomUUID().toString();
+
+    public ConfigChanges(RabbitTemplate rabbitTemplate, ApplicationEventPublisher events) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.events = events;
+    }
+
+    // Dentro de una transacción espera al commit: otro nodo no tiene que recargar antes de que el cambio se vea
+    public void changed(String topic) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(topic);
+                }
+            });
+        } else {
+            publish(topic);
+        }
+    }
+
+    @RabbitListener(queues = "#{configChangesQueue.name}")
+    public void onRemoteChange(Message message) {
+        if (origin.equals(message.getMessageProperties().getHeader(ORIGIN_HEADER))) return;
+        events.publishEvent(new ConfigChanged(new String(message.getBody(), StandardCharsets.UTF_8)));
+    }
+
+    private void publish(String topic) {
+        events.publishEvent(new ConfigChanged(topic));
+        try {
+            Message message = MessageBuilder.withBody(topic.getBytes(StandardCharsets.UTF_8))
+                    .setContentType(MessageProperties.CONTENT_TYPE_TEXT_PLAIN)
+                    .setHeader(ORIGIN_HEADER, origin)
+                    .build();
+            rabbitTemplate.send(CONFIG_EXCHANGE, "", message);
+        } catch (Exception e) {
+            System.err.println("⚠️ No se pudo avisar el cambio de " + topic + " a los otros nodos: " + e.getMessage());
+        }
+    }
+}
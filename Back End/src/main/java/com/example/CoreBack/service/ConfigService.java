@@ -12,9 +12,11 @@ import java.util.stream.Collectors;
 public class ConfigService {
 
     private final RetryPolicyRepository retryPolicyRepository;
+    private final ConfigChanges configChanges;
 
-    public ConfigService(RetryPolicyRepository retryPolicyRepository) {
+    public ConfigService(RetryPolicyRepository retryPolicyRepository, ConfigChanges configChanges) {
         this.retryPolicyRepository = retryPolicyRepository;
+        this.configChanges = configChanges;
     }
 
     // Crear
@@ -28,6 +30,7 @@ public class ConfigService {
         policy.setEnabled(dto.isEnabled());
 
         RetryPolicy saved = retryPolicyRepository.save(policy);
+        configChanges.changed(ConfigChanges.RETRY_POLICIES);
         dto.setId(saved.getId());
         return dto;
     }
@@ -77,6 +80,7 @@ public class ConfigService {
         policy.setEnabled(dto.isEnabled());
 
         retryPolicyRepository.save(policy);
+        configChanges.changed(ConfigChanges.RETRY_POLICIES);
         dto.setId(id);
         return dto;
     }
@@ -84,5 +88,6 @@ public class ConfigService {
     // Eliminar
     public void deleteRetryPolicy(Long id) {
         retryPolicyRepository.deleteById(id);
+        configChanges.changed(ConfigChanges.RETRY_POLICIES);
     }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.RetryPolicy;
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventRepository;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.example.CoreBack.config.RabbitConfig.DEAD_LETTER_EXCHANGE;
+import static com.example.CoreBack.config.RabbitConfig.PARKING_ROUTING_KEY;
+import static com.example.CoreBack.config.RabbitConfig.RETRY_EXCHANGE;
+import static com.example.CoreBack.config.RabbitConfig.retryQueueName;
+
+// Reintentos del consumer según la RetryPolicy del módulo del evento (ModulePolicy; si no tiene, la default).
+// Un mensaje que falla se republica en la cola de espera cuyo TTL cubre el delay del intento
+// (minDelay × backoffMultiplier^(intento-1), tope maxDelay) y vuelve a core.all.queue al vencer;
+// al agotar maxTries va a la cola de parking por la DLX y el evento queda Failed.
+// Los intentos viajan en el header x-core-retries, así que no hay estado en memoria.
+// La copia se publica con confirm y se espera el ack del broker antes de devolver: recién ahí el consumer
+// confirma el original, así un nack o un mensaje no ruteable no pierde el evento.
+// Con core.retry.mode=in-process la espera no pasa por el broker: RetryScheduler la lleva en un timing wheel
+// con el delay exacto de la política más un jitter (las colas por escalón no permiten jitter por mensaje).
+@Service
+public class ConsumerRetries {
+
+    public static final String RETRIES_HEADER = "x-core-retries";
+    public static final String ERROR_HEADER = "x-core-error";
+    public static final String ROUTING_KEY_HEADER = "x-core-routing-key";
+
+    public enum Outcome { RETRIED, PARKED }
+
+    private final EventPublisherService publisher;
+    private final ModulePolicyService modulePolicies;
+    private final EventRepository eventRepository;
+    private final EventRollupService rollupService;
+    private final LiveEventCounters liveCounters;
+    private final RetryScheduler scheduler;
+
+    @Value("${core.publisher.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs = 5000;
+
+    // broker: colas de espera por escalón; in-process: RetryScheduler
+    @Value("${core.retry.mode:broker}")
+    private String mode = "broker";
+
+    // Fracción del delay que se suma o resta al azar en modo in-process (0.2 = ±20%)
+    @Value("${core.retry.in-process.jitter:0.2}")
+    private double jitter = 0.2;
+
+    // Mismos escalones que declara RabbitConfig.retryQueues
+    @Value("${core.retry.tiers-ms:1000,5000,30000,120000,600000}")
+    private List<Long> tiersMs = List.of(1000L, 5000L, 30000L, 120000L, 600000L);
+
+    @Value("${core.retry.default.min-delay-ms:1000}")
+    private int defaultMinDelay = 1000;
+
+    @Value("${core.retry.default.max-delay-ms:60000}")
+    private int defaultMaxDelay = 60000;
+
+    @Value("${core.retry.default.backoff-multiplier:2.0}")
+    private double defaultBackoffMultiplier = 2.0;
+
+    @Value("${core.retry.default.max-tries:5}")
+    private int defaultMaxTries = 5;
+
+    public ConsumerRetries(EventPublisherService publisher,
+                           ModulePolicyService modulePolicies,
+                           EventRepository eventRepository,
+                           EventRollupService rollupService,
+                           LiveEventCounters liveCounters,
+                           RetryScheduler scheduler) {
+        this.publisher = publisher;
+        this.modulePolicies = modulePolicies;
+        this.eventRepository = eventRepository;
+        this.rollupService = rollupService;
+        this.liveCounters = liveCounters;
+        this.scheduler = scheduler;
+    }
+
+    // Republica el mensaje para otro intento o lo estaciona; después el consumer confirma el original.
+    // Si el broker (o la DB, en modo in-process) lo rechaza o no confirma a tiempo la excepción sube y el consumer lo reencola como antes.
+    public Outcome retryOrPark(Message message, String source, Exception cause) {
+        int failures = retriesOf(message) + 1;
+        RetryPolicy policy = policyFor(EventModules.classify(source));
+        String error = describe(cause);
+
+        if (failures >= Math.max(1, policy.getMaxTries())) {
+            park(message, failures, error);
+            return Outcome.PARKED;
+        }
+        if ("in-process".equalsIgnoreCase(mode)) {
+            long delay = withJitter(delayFor(policy, failures), jitter);
+            scheduler.schedule(copy(message, failures, error), failures, delay);
+            System.out.println("🔁 Event scheduled for in-process retry " + failures + "/" + policy.getMaxTries()
+                    + " in " + delay + "ms (" + policy.getName() + "): " + error);
+            return Outcome.RETRIED;
+        }
+        long tier = tierFor(delayFor(policy, failures), policy.getMaxDelay());
+        sendConfirmed(RETRY_EXCHANGE, retryQueueName(tier), copy(message, failures, error));
+        System.out.println("🔁 Event scheduled for retry " + failures + "/" + policy.getMaxTries()
+                + " in " + tier + "ms (" + policy.getName() + "): " + error);
+        return Outcome.RETRIED;
+    }
+
+    // Mensajes que no se pueden procesar nunca (ej: ilegibles): directo a parking, sin reintentos
+    public void park(Message message, String reason) {
+        park(message, retriesOf(message), reason);
+    }
+
+    // Marca Failed el evento registrado por el outbox. En su propia transacción: el consumer la llama
+    // después del rollback de la suya. `failed` trae los datos del mensaje para rollups y contadores
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void markFailed(StoredEvent failed) {
+        if (failed.getEventId() == null) return;
+        failed.setStatus("Failed");
+        if (eventRepository.updateStatusByEventId(failed.getEventId(), "Failed") > 0) {
+            rollupService.record(List.of(), List.of(failed), "InQueue");
+            liveCounters.recordTransition(failed, "InQueue");
+        } else {
+            // Sin fila del outbox (llegó directo a la cola): no queda registrado en events, sólo en parking
+            System.err.println("⚠️ Evento estacionado sin fila para marcar Failed (type=" + failed.getEventType()
+                    + ", id=" + failed.getEventId() + "): sólo queda en " + PARKING_ROUTING_KEY);
+        }
+    }
+
+    private void park(Message message, int failures, String reason) {
+        sendConfirmed(DEAD_LETTER_EXCHANGE, PARKING_ROUTING_KEY, copy(message, failures, reason));
+        System.err.println("🅿️ Event parked after " + failures + " tries: " + reason);
+    }
+
+    // Publica y bloquea hasta el confirm; nack, return o timeout suben como AmqpException
+    private void sendConfirmed(String exchange, String routingKey, Message message) {
+        try {
+            publisher.sendConfirmed(exchange, routingKey, message).get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrumpido esperando el confirm de " + routingKey, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof AmqpException amqp ? amqp : new AmqpException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new AmqpException("Sin confirm del broker para " + routingKey + " en " + confirmTimeoutMs + "ms", e);
+        }
+    }
+
+    RetryPolicy policyFor(String module) {
+        return modulePolicies.retryPolicyFor(module).orElseGet(this::defaultPolicy);
+    }
+
+    private RetryPolicy defaultPolicy() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setName("default");
+        policy.setMinDelay(defaultMinDelay);
+        policy.setMaxDelay(defaultMaxDelay);
+        policy.setBackoffMultiplier(defaultBackoffMultiplier);
+        policy.setMaxTries(defaultMaxTries);
+        policy.setEnabled(true);
+        return policy;
+    }
+
+    // Delay del reintento número `failures` (1 = primer reintento)
+    static long delayFor(RetryPolicy policy, int failures) {
+        double multiplier = Math.max(1.0, policy.getBackoffMultiplier());
+        double delay = Math.max(0, policy.getMinDelay()) * Math.pow(multiplier, failures - 1);
+        long maxDelay = policy.getMaxDelay() > 0 ? policy.getMaxDelay() : Long.MAX_VALUE;
+        return (long) Math.min(delay, maxDelay);
+    }
+
+    // delay ± jitter × delay, uniforme; nunca negativo
+    static long withJitter(long delay, double jitter) {
+        if (jitter <= 0 || delay <= 0) return delay;
+        double spread = delay * Math.min(jitter, 1.0);
+        return Math.max(0, Math.round(delay + spread * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+    }
+
+    // El escalón más chico que espera al menos `delay`, sin pasar el maxDelay de la política: si ese escalón
+    // lo supera se usa el más largo que entra en maxDelay (y el más corto si ninguno entra). maxDelay <= 0 = sin tope
+    long tierFor(long delay, long maxDelay) {
+        long limit = maxDelay > 0 ? maxDelay : Long.MAX_VALUE;
+        long chosen = -1;
+        long longestWithin = -1;
+        long longest = 0;
+        long shortest = Long.MAX_VALUE;
+        for (long tier : tiersMs) {
+            if (tier >= delay && (chosen < 0 || tier < chosen)) chosen = tier;
+            if (tier <= limit) longestWithin = Math.max(longestWithin, tier);
+            longest = Math.max(longest, tier);
+            shortest = Math.min(shortest, tier);
+        }
+        if (chosen < 0) chosen = longest;
+        if (chosen <= limit) return chosen;
+        return longestWithin >= 0 ? longestWithin : shortest;
+    }
+
+    private static int retriesOf(Message message) {
+        Object value = message.getMessageProperties().getHeader(RETRIES_HEADER);
+        if (value instanceof Number number) return number.intValue();
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString());
+            } catch (NumberFormatException ignored) {
+                // Header ajeno: se cuenta desde cero
+            }
+        }
+        return 0;
+    }
+
+    // Mismo body y headers (incluidos los de CloudEvents y el sobre crudo) + el conteo y el último error
+    private static Message copy(Message message, int failures, String error) {
+        String routingKey = message.getMessageProperties().getHeader(ROUTING_KEY_HEADER);
+        if (routingKey == null) routingKey = message.getMessageProperties().getReceivedRoutingKey();
+        Message copy = MessageBuilder.fromClonedMessage(message)
+                .setHeader(RETRIES_HEADER, failures)
+                .setHeader(ERROR_HEADER, error)
+                .build();
+        if (routingKey != null) copy.getMessageProperties().setHeader(ROUTING_KEY_HEADER, routingKey);
+        return copy;
+    }
+
+    private static String describe(Exception cause) {
+        String error = cause.getClass().getSimpleName() + (cause.getMessage() != null ? ": " + cause.getMessage() : "");
+        return error.length() > 255 ? error.substring(0, 255) : error;
+    }
+}
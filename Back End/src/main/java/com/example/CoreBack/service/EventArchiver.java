@@ -0,0 +1,148 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.repository.ArchivedEvent;
+import com.example.CoreBack.repository.EventArchive;
+import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.EventSegment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Mueve los eventos de más de `after-days` días de la tabla events al archivo frío (EventArchive):
+// un día por vez, del más viejo al más nuevo. Primero se escribe el segmento completo y recién
+// cuando quedó sincronizado en disco y releído con los mismos ids se borran las filas, en tramos.
+// Si la corrida se corta entre las dos cosas, la próxima encuentra el segmento y sólo termina de borrar.
+// Corre en un solo nodo por vez (lock "events-archive") y sólo si core.archive.shared confirma que
+// core.archive.dir es el mismo volumen para todos los nodos: si no, los demás no verían los días archivados.
+// Los rollups por hora no se tocan: el total estimado y los eventos por módulo siguen incluyendo lo archivado.
+@Component
+@ConditionalOnProperty(name = "core.archive.enabled", havingValue = "true")
+public class EventArchiver {
+
+    // Un día queda cerrado cuando ya no pueden llegar eventos con ese sysDate (EventPartitioning.MAX_SYSDATE_BEHIND)
+    // y fuera de las últimas 24h que muestran los contadores en vivo
+    static final int MIN_AFTER_DAYS = 2;
+
+    static final String LOCK = "events-archive";
+
+    private final EventRepository eventRepository;
+    private final EventArchive archive;
+    private final PayloadSearchIndex payloadIndex;
+    private final ClusterLocks locks;
+
+    // true = core.archive.dir es un volumen compartido por todos los nodos (o hay uno solo)
+    @Value("${core.archive.shared:false}")
+    private boolean shared = false;
+
+    @Value("${core.archive.lock-lease-ms:21600000}")
+    private long lockLeaseMs = 21_600_000L;
+
+    @Value("${core.archive.after-days:90}")
+    private int afterDays = 90;
+
+    // Días a archivar por corrida (acota el trabajo de cada noche mientras se pone al día)
+    @Value("${core.archive.max-days-per-run:7}")
+    private int maxDaysPerRun = 7;
+
+    @Value("${core.archive.batch-size:1000}")
+    private int batchSize = 1000;
+
+    public EventArchiver(EventRepository eventRepository, EventArchive archive, PayloadSearchIndex payloadIndex,
+                         ClusterLocks locks) {
+        this.eventRepository = eventRepository;
+        this.archive = archive;
+        this.payloadIndex = payloadIndex;
+        this.locks = locks;
+    }
+
+    @Scheduled(cron = "${core.archive.cron:0 45 2 * * *}")
+    public void run() {
+        if (!shared) {
+            System.err.println("⚠️ Archivo frío desactivado: core.archive.shared=false (el directorio tiene que ser compartido por los nodos)");
+            return;
+        }
+        if (!locks.tryAcquire(LOCK, Duration.ofMillis(lockLeaseMs))) return;
+
+        try {
+            int archived = archiveBefore(LocalDate.now().minusDays(Math.max(afterDays, MIN_AFTER_DAYS)));
+            if (archived > 0) {
+                System.out.println("🧊 Archivo frío: " + archived + " días archivados");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error archivando eventos: " + e.getMessage());
+        } finally {
+            locks.release(LOCK);
+        }
+    }
+
+    // Archiva los días anteriores a `cutoff`; devuelve cuántos días se movieron
+    int archiveBefore(LocalDate cutoff) throws IOException {
+        LocalDateTime oldest = eventRepository.findOldestOccurredAt();
+        if (oldest == null) return 0;
+
+        int archived = 0;
+        LocalDate day = oldest.toLocalDate();
+        for (; day.isBefore(cutoff) && archived < maxDaysPerRun; day = day.plusDays(1)) {
+            if (archiveDay(day)) archived++;
+        }
+
+        if (archived > 0) {
+            // Todo lo anterior a `day` quedó archivado: el índice invertido ya no tiene filas que devolver ahí
+            payloadIndex.deleteOlderThan(day.atStartOfDay());
+        }
+        return archived;
+    }
+
+    boolean archiveDay(LocalDate day) throws IOException {
+        List<Long> ids;
+        if (archive.contains(day)) {
+            ids = archive.idsOf(day);
+        } else {
+            ids = writeSegment(day);
+            if (ids.isEmpty()) return false;
+            // Se borra sólo lo que se puede volver a leer del disco
+            if (!archive.idsOf(day).equals(ids)) {
+                throw new IOException("El segmento del " + day + " no tiene las filas copiadas; no se borra nada");
+            }
+        }
+
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            eventRepository.deleteAllByIdInBatch(ids.subList(from, Math.min(from + batchSize, ids.size())));
+        }
+        return true;
+    }
+
+    // Copia las filas del día a un segmento nuevo; devuelve los ids copiados (vacío si no hubo filas)
+    private List<Long> writeSegment(LocalDate day) throws IOException {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        List<Long> ids = new ArrayList<>();
+
+        try (EventSegment.Writer writer = archive.writer(day)) {
+            LocalDateTime afterAt = start;
+            long afterId = Long.MIN_VALUE;
+            while (true) {
+                List<ArchivedEvent> chunk = eventRepository.findDayChunk(start, end, afterAt, afterId, batchSize);
+                for (ArchivedEvent event : chunk) {
+                    writer.append(event);
+                    ids.add(event.id());
+                }
+                if (chunk.size() < batchSize) break;
+                ArchivedEvent last = chunk.get(chunk.size() - 1);
+                afterAt = last.occurredAt();
+                afterId = last.id();
+            }
+            if (ids.isEmpty()) return ids;
+            archive.publish(writer.finish());
+        }
+        return ids;
+    }
+}
@@ -2,16 +2,35 @@ package com.example.CoreBack.service;
 
 import com.example.CoreBack.entity.StoredEvent;
 import com.example.CoreBack.repository.EventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rabbitmq.client.Channel;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 import static com.example.CoreBack.config.RabbitConfig.CORE_ALL_QUEUE;
 
@@ -20,46 +39,148 @@ public class EventConsumerService {
 
     private final EventRepository eventRepository;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EventRollupService rollupService;
+    private final LiveEventCounters liveCounters;
+    private final PayloadSearchIndex payloadIndex;
+    private final EventDeduplicator deduplicator;
+    private final ConsumerRetries retries;
 
-    public EventConsumerService(EventRepository eventRepository, ObjectMapper objectMapper) {
+    public EventConsumerService(EventRepository eventRepository,
+                                ObjectMapper objectMapper,
+                                TransactionTemplate transactionTemplate,
+                                EventRollupService rollupService,
+                                LiveEventCounters liveCounters,
+                                PayloadSearchIndex payloadIndex,
+                                EventDeduplicator deduplicator,
+                                ConsumerRetries retries) {
         this.eventRepository = eventRepository;
         this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.rollupService = rollupService;
+        this.liveCounters = liveCounters;
+        this.payloadIndex = payloadIndex;
+        this.deduplicator = deduplicator;
+        this.retries = retries;
     }
 
-    @RabbitListener(queues = CORE_ALL_QUEUE, ackMode = "MANUAL")
+    // Modo un-mensaje-por-transacción; se apaga cuando corre el consumer por lotes.
+    // Recibe el Message sin convertir: en modo binario (CloudEventHeaders) todo sale de los headers y el
+    // body (`data`) no se parsea; los que traen el sobre crudo (outbox, passthrough) se leen con RawEvent
+    // y su `data` se guarda tal cual; el resto se convierte a Map como antes.
+    @RabbitListener(queues = CORE_ALL_QUEUE, ackMode = "MANUAL",
+            autoStartup = "#{!${core.consumer.batch.enabled:false}}")
     @Transactional
+    public void receiveAllQueueMessage(Message amqpMessage, Channel channel) throws IOException {
+        if (CloudEventHeaders.isBinary(amqpMessage)) {
+            Incoming incoming = fromBinary(amqpMessage);
+            System.out.println("📥 [ALL QUEUE] Binary event received (type=" + incoming.type() + ", id=" + incoming.id() + ")");
+            receive(incoming, channel, amqpMessage);
+            return;
+        }
+        boolean raw = EventPublisherService.isRawEnvelope(amqpMessage);
+        RawEvent rawEvent = null;
+        Map<String, Object> message = null;
+        try {
+            if (raw) {
+                rawEvent = RawEvent.parse(amqpMessage.getBody());
+            } else {
+                message = objectMapper.readValue(amqpMessage.getBody(), new TypeReference<Map<String, Object>>() {});
+            }
+        } catch (Exception e) {
+            // Un mensaje ilegible no se puede guardar nunca: a parking en vez de reencolarlo
+            parkUnreadable(amqpMessage, channel, e);
+            return;
+        }
+
+        if (!raw) {
+            receiveAllEvents(message, channel, amqpMessage);
+            return;
+        }
+        System.out.println("📥 [ALL QUEUE] Raw event received (type=" + rawEvent.type() + ", id=" + rawEvent.id() + ")");
+        receive(fromRaw(rawEvent), channel, amqpMessage);
+    }
+
+    // Mensaje ya convertido a Map (lo que publica el converter de Jackson)
     public void receiveAllEvents(Map<String, Object> message, Channel channel, Message amqpMessage) throws IOException {
         long deliveryTag = amqpMessage.getMessageProperties().getDeliveryTag();
 
+        System.out.println("📥 [ALL QUEUE] Event received: " + message);
+        if (message == null || message.isEmpty()) {
+            System.out.println("⚠️ Empty event received, ignored.");
+            channel.basicAck(deliveryTag, false);
+            return;
+        }
+        receive(fromMap(message), channel, amqpMessage);
+    }
+
+    // Exactly-once por eventId: el evento se guarda sólo si reclama su clave en event_keys (insert-ignore)
+    // o si pasa una fila InQueue del outbox a Delivered. Lo que no logra ninguna de las dos es una
+    // redelivery o un reintento de algo ya guardado: se confirma sin volver a guardarlo.
+    private void receive(Incoming message, Channel channel, Message amqpMessage) throws IOException {
+        long deliveryTag = amqpMessage.getMessageProperties().getDeliveryTag();
         try {
-            System.out.println("📥 [ALL QUEUE] Event received: " + message);
+            String eventId = message.id();
+            String eventType = message.type();
 
-            if (message == null || message.isEmpty()) {
-                System.out.println("⚠️ Empty event received, ignored.");
+            if (deduplicator.recentlyDelivered(eventId)) {
+                System.out.println("♻️ Duplicate event ignored (type=" + eventType + ", id=" + eventId + ")");
                 channel.basicAck(deliveryTag, false);
                 return;
             }
 
-            // Extract event data
-            String eventId = (String) message.getOrDefault("id", "unknown");
-            String eventType = (String) message.getOrDefault("type", "UNKNOWN");
-            String eventSource = (String) message.getOrDefault("source", "unknown");
+            // Si este nodo no conoce el id, lo más probable es que sea nuevo: primero el claim.
+            // Si lo conoce (o el claim falla), primero se intenta la transición del outbox
+            boolean transitioned = false;
+            boolean claimed = false;
+            if (deduplicator.mightBeKnown(eventId)) {
+                transitioned = eventRepository.updateStatusByEventId(eventId, "Delivered") > 0;
+                if (!transitioned) claimed = claimOne(eventId);
+            } else {
+                claimed = claimOne(eventId);
+                if (!claimed) transitioned = eventRepository.updateStatusByEventId(eventId, "Delivered") > 0;
+            }
+
+            // Si el evento ya fue registrado por el outbox (InQueue), sólo se actualiza el estado
+            if (transitioned) {
+                StoredEvent delivered = toRollupEvent(message);
+                rollupService.record(List.of(), List.of(delivered), "InQueue");
+                liveCounters.recordTransition(delivered, "InQueue");
+                afterCommit(() -> deduplicator.delivered(List.of(eventId)));
+                System.out.println("✅ Event marked as Delivered (type=" + eventType + ", id=" + eventId + ")");
+                channel.basicAck(deliveryTag, false);
+                return;
+            }
+            if (!claimed) {
+                afterCommit(() -> deduplicator.delivered(List.of(eventId)));
+                System.out.println("♻️ Duplicate event ignored (type=" + eventType + ", id=" + eventId + ")");
+                channel.basicAck(deliveryTag, false);
+                return;
+            }
 
-            String payloadJson = objectMapper.writeValueAsString(message);
+            String payloadJson = message.payload().get();
 
             // Build and store event
             StoredEvent storedEvent = new StoredEvent(
                     eventType,
-                    eventSource,
-                    "application/json",
+                    message.source(),
+                    message.contentType(),
                     payloadJson,
                     LocalDateTime.now()
             );
 
             storedEvent.setEventId(eventId);
+            storedEvent.setModule(EventModules.classify(message.source()));
             storedEvent.setStatus("Delivered"); // 👈 Cambia de "InQueue" → "Delivered"
 
             eventRepository.save(storedEvent);
+            // Con el id en memoria el INSERT espera al commit, que es después del ack: se ejecuta acá para que
+            // un error caiga en el catch y se reintente en vez de perder el mensaje ya confirmado
+            eventRepository.flush();
+            rollupService.record(List.of(storedEvent));
+            liveCounters.recordStored(storedEvent);
+            indexPayload(storedEvent);
+            afterCommit(() -> deduplicator.delivered(List.of(eventId)));
 
             System.out.println("✅ Event saved with status = Delivered (type=" + eventType + ", id=" + eventId + ")");
 
@@ -69,8 +190,317 @@ public class EventConsumerService {
         } catch (Exception e) {
             System.err.println("❌ Error processing event: " + e.getMessage());
             e.printStackTrace();
-            // Requeue the message for retry
-            channel.basicNack(deliveryTag, false, true);
+            // Sin esto el claim quedaría commiteado y el reintento se tomaría como duplicado
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+            try {
+                retryLater(message, amqpMessage, e);
+                channel.basicAck(deliveryTag, false);
+            } catch (Exception retryError) {
+                // Sin poder republicarlo vuelve a la cola como antes
+                System.err.println("❌ Could not schedule retry: " + retryError.getMessage());
+                channel.basicNack(deliveryTag, false, true);
+            }
+        }
+    }
+
+    // El mensaje fallido se republica en su cola de espera (o en parking) y el original se confirma:
+    // no vuelve a la cabeza de core.all.queue. Si no se puede republicar, la excepción sube.
+    private void retryLater(Incoming message, Message amqpMessage, Exception cause) {
+        if (retries.retryOrPark(amqpMessage, message.source(), cause) == ConsumerRetries.Outcome.PARKED) {
+            StoredEvent failed = toRollupEvent(message);
+            // Después del rollback de esta transacción, que puede tener tomada la fila
+            afterCompletion(() -> {
+                try {
+                    retries.markFailed(failed);
+                } catch (Exception e) {
+                    System.err.println("❌ Could not mark event as Failed (id=" + failed.getEventId() + "): " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void parkUnreadable(Message amqpMessage, Channel channel, Exception cause) throws IOException {
+        long deliveryTag = amqpMessage.getMessageProperties().getDeliveryTag();
+        System.err.println("❌ Unreadable event parked: " + cause.getMessage());
+        try {
+            retries.park(amqpMessage, "Unreadable: " + cause.getMessage());
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            channel.basicNack(deliveryTag, false, false);
+        }
+    }
+
+    private boolean claimOne(String eventId) {
+        return deduplicator.claim(List.of(eventId)).contains(eventId);
+    }
+
+    // El LRU de entregados se actualiza recién con el commit: si la transacción se revierte, la redelivery tiene que pasar
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Modo por lotes: un insert en batch JDBC + un update en bloque en una sola transacción,
+    // y un único basicAck(multiple=true) sobre el último delivery tag.
+    @RabbitListener(queues = CORE_ALL_QUEUE, containerFactory = "batchListenerContainerFactory",
+            autoStartup = "${core.consumer.batch.enabled:false}")
+    public void receiveAllEventsBatch(List<Message> messages, Channel channel) throws IOException {
+        if (messages == null || messages.isEmpty()) return;
+
+        Map<String, Incoming> byEventId = new LinkedHashMap<>();
+        Map<String, Message> amqpByEventId = new HashMap<>();
+        Set<Message> settled = Collections.newSetFromMap(new IdentityHashMap<>());
+        int duplicates = 0;
+
+        for (Message amqpMessage : messages) {
+            Incoming message;
+            try {
+                message = read(amqpMessage);
+            } catch (Exception e) {
+                // Un mensaje ilegible no se puede guardar nunca: a parking para no trabar el lote
+                parkUnreadable(amqpMessage, channel, e);
+                settled.add(amqpMessage);
+                continue;
+            }
+            if (message == null) continue;
+
+            // Redeliveries ya entregadas por este nodo y repetidos dentro del lote cuentan una vez
+            if (deduplicator.recentlyDelivered(message.id()) || byEventId.putIfAbsent(message.id(), message) != null) {
+                duplicates++;
+            } else {
+                amqpByEventId.put(message.id(), amqpMessage);
+            }
+        }
+        // Los ilegibles ya se resolvieron uno por uno: el multi-ack llega hasta el último que sigue pendiente,
+        // repetir un tag resuelto cierra el canal (PRECONDITION_FAILED - unknown delivery tag)
+        long lastTag = lastUnsettledTag(messages, settled);
+
+        try {
+            BatchResult result = byEventId.isEmpty()
+                    ? new BatchResult(List.of(), List.of(), List.of())
+                    : transactionTemplate.execute(status -> persistBatch(byEventId));
+            deduplicator.delivered(byEventId.keySet());
+            result.transitioned().forEach(event -> liveCounters.recordTransition(event, "InQueue"));
+            result.inserted().forEach(liveCounters::recordStored);
+            // Las transiciones ya están en el índice desde que el outbox insertó la fila (PayloadSearchIndex.catchUp)
+            result.inserted().forEach(this::indexPayload);
+            System.out.println("✅ Batch of " + messages.size() + " events processed (delivered="
+                    + result.transitioned().size() + ", inserted=" + result.inserted().size()
+                    + ", duplicates=" + (duplicates + result.duplicates().size()) + ")");
+            if (lastTag >= 0) channel.basicAck(lastTag, true);
+        } catch (Exception e) {
+            System.err.println("❌ Error processing batch: " + e.getMessage());
+            e.printStackTrace();
+            // La transacción ya se revirtió: cada mensaje va a su cola de espera (o a parking) y el lote se confirma.
+            // Los sanos vuelven a entrar en el próximo intento; si no se puede republicar, se reencola el lote completo
+            try {
+                for (Map.Entry<String, Incoming> entry : byEventId.entrySet()) {
+                    retryLater(entry.getValue(), amqpByEventId.get(entry.getKey()), e);
+                }
+                if (lastTag >= 0) channel.basicAck(lastTag, true);
+            } catch (Exception retryError) {
+                System.err.println("❌ Could not schedule batch retry: " + retryError.getMessage());
+                if (lastTag >= 0) channel.basicNack(lastTag, true, true);
+            }
+        }
+    }
+
+    // Tag del último mensaje del lote que no se resolvió por separado; -1 si no queda ninguno
+    private static long lastUnsettledTag(List<Message> messages, Set<Message> settled) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (!settled.contains(messages.get(i))) return messages.get(i).getMessageProperties().getDeliveryTag();
+        }
+        return -1;
+    }
+
+    // Eventos del outbox pasados a Delivered + eventos nuevos insertados + ids que ya estaban guardados
+    private record BatchResult(List<StoredEvent> transitioned, List<StoredEvent> inserted, List<String> duplicates) {}
+
+    // Los ids que el Bloom no conoce van directo al insert-ignore (sin lectura previa); sólo los que
+    // el Bloom "tal vez" vio o cuyo claim falló se leen, en una consulta para todo el lote
+    private BatchResult persistBatch(Map<String, Incoming> byEventId) {
+        List<String> fresh = new ArrayList<>();
+        Set<String> suspects = new LinkedHashSet<>();
+        for (String eventId : byEventId.keySet()) {
+            (deduplicator.mightBeKnown(eventId) ? suspects : fresh).add(eventId);
+        }
+
+        Set<String> claimed = new HashSet<>(deduplicator.claim(fresh));
+        for (String eventId : fresh) {
+            if (!claimed.contains(eventId)) suspects.add(eventId);
+        }
+
+        List<String> inQueue = new ArrayList<>();
+        List<String> duplicates = new ArrayList<>();
+        if (!suspects.isEmpty()) {
+            Map<String, String> statuses = new HashMap<>();
+            for (EventRepository.EventIdStatus row : eventRepository.findStatusesByEventIds(suspects)) {
+                statuses.merge(row.getEventId(), row.getStatus(),
+                        (current, other) -> "InQueue".equals(current) ? current : other);
+            }
+            List<String> withoutRow = new ArrayList<>();
+            for (String eventId : suspects) {
+                String status = statuses.get(eventId);
+                if ("InQueue".equals(status)) inQueue.add(eventId);
+                else if (status != null) duplicates.add(eventId);
+                else if (!claimed.contains(eventId)) withoutRow.add(eventId);
+            }
+            // Sin fila: falso positivo del Bloom (se reclama ahora) o clave reclamada sin fila todavía (duplicado)
+            Set<String> late = deduplicator.claim(withoutRow);
+            for (String eventId : withoutRow) {
+                if (late.contains(eventId)) claimed.add(eventId);
+                else duplicates.add(eventId);
+            }
+            if (!inQueue.isEmpty()) {
+                eventRepository.updateStatusByEventIds(inQueue, "Delivered");
+            }
+        }
+
+        List<StoredEvent> transitioned = new ArrayList<>(inQueue.size());
+        for (String eventId : inQueue) {
+            transitioned.add(toRollupEvent(byEventId.get(eventId)));
         }
+        List<StoredEvent> toInsert = new ArrayList<>(claimed.size());
+        for (Map.Entry<String, Incoming> entry : byEventId.entrySet()) {
+            if (claimed.contains(entry.getKey())) toInsert.add(toDeliveredEvent(entry.getValue()));
+        }
+
+        if (!toInsert.isEmpty()) {
+            eventRepository.insertAll(toInsert);
+        }
+        rollupService.record(toInsert, transitioned, "InQueue");
+        return new BatchResult(transitioned, toInsert, duplicates);
+    }
+
+    private StoredEvent toDeliveredEvent(Incoming message) {
+        StoredEvent storedEvent = new StoredEvent(
+                message.type(),
+                message.source(),
+                message.contentType(),
+                message.payload().get(),
+                LocalDateTime.now()
+        );
+        storedEvent.setEventId(message.id());
+        storedEvent.setModule(EventModules.classify(storedEvent.getSource()));
+        storedEvent.setStatus("Delivered");
+        return storedEvent;
+    }
+
+    // Evento ya persistido por el outbox: para el rollup alcanza con el mensaje,
+    // tomando como hora el sysDate (que el ingreso iguala a occurredAt)
+    private StoredEvent toRollupEvent(Incoming message) {
+        StoredEvent rollupEvent = new StoredEvent(
+                message.type(),
+                message.source(),
+                "application/json",
+                null,
+                LocalDateTime.now()
+        );
+        rollupEvent.setEventId(message.id());
+        rollupEvent.setStatus("Delivered");
+        if (message.sysDate() instanceof LocalDateTime time) {
+            rollupEvent.setOccurredAt(time);
+        } else if (message.sysDate() instanceof String value) {
+            try {
+                rollupEvent.setOccurredAt(LocalDateTime.parse(value));
+            } catch (DateTimeParseException ignored) {
+                // Queda la hora de consumo
+            }
+        }
+        return rollupEvent;
+    }
+
+    // Lo que el consumer usa de un mensaje, venga convertido a Map, como sobre crudo o en modo binario.
+    // `payload` (lo que se inserta) es siempre `data`, igual que en el ingreso, y se arma recién si hace falta.
+    private record Incoming(String id, String type, String source, String contentType, Object sysDate,
+                            Supplier<String> payload) {}
+
+    // null si el mensaje viene vacío
+    private Incoming read(Message amqpMessage) throws IOException {
+        if (CloudEventHeaders.isBinary(amqpMessage)) {
+            return fromBinary(amqpMessage);
+        }
+        if (EventPublisherService.isRawEnvelope(amqpMessage)) {
+            return fromRaw(RawEvent.parse(amqpMessage.getBody()));
+        }
+        Map<String, Object> message = objectMapper.readValue(amqpMessage.getBody(), new TypeReference<Map<String, Object>>() {});
+        return message == null || message.isEmpty() ? null : fromMap(message);
+    }
+
+    // Modo binario: los atributos vienen en headers y el body es `data`, que se guarda como payload
+    // igual que en el ingreso. El body no se parsea.
+    private static Incoming fromBinary(Message amqpMessage) {
+        CloudEventHeaders.Metadata metadata = CloudEventHeaders.read(amqpMessage);
+        String data = new String(amqpMessage.getBody(), StandardCharsets.UTF_8);
+        return new Incoming(
+                metadata.id() != null ? metadata.id() : generatedId(),
+                metadata.type() != null ? metadata.type() : "UNKNOWN",
+                metadata.source() != null ? metadata.source() : "unknown",
+                metadata.datacontenttype(),
+                metadata.time(),
+                () -> data);
+    }
+
+    // Se guarda `data` tal cual vino en el body (el mismo rango de bytes que guarda el ingreso): nada se reserializa
+    private static Incoming fromRaw(RawEvent raw) {
+        return new Incoming(
+                raw.id() != null ? raw.id() : generatedId(),
+                raw.type() != null ? raw.type() : "UNKNOWN",
+                raw.source() != null ? raw.source() : "unknown",
+                raw.datacontenttype() != null ? raw.datacontenttype() : "application/json",
+                raw.sysDate(),
+                () -> raw.dataText() != null ? raw.dataText() : "null");
+    }
+
+    // `data` serializado igual que en el ingreso (EventService.toStoredEvent), no el sobre entero
+    private Incoming fromMap(Map<String, Object> message) {
+        Object contentType = message.get("datacontenttype");
+        return new Incoming(
+                message.get("id") != null ? (String) message.get("id") : generatedId(),
+                (String) message.getOrDefault("type", "UNKNOWN"),
+                (String) message.getOrDefault("source", "unknown"),
+                contentType instanceof String value ? value : "application/json",
+                message.get("sysDate"),
+                () -> {
+                    try {
+                        return objectMapper.writeValueAsString(message.get("data"));
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException("No se pudo serializar el evento", e);
+                    }
+                });
+    }
+
+    // Un mensaje sin id (publicado por fuera del ingreso) recibe uno propio para poder guardarse e indexarse;
+    // no hay forma de reconocer su redelivery, así que esos mensajes quedan sin dedup
+    private static String generatedId() {
+        return UUID.randomUUID().toString();
+    }
+
+    private void indexPayload(StoredEvent event) {
+        if (event.getEventId() == null) return;
+        payloadIndex.index(event.getId(), event.getEventId(), event.getPayload(), event.getOccurredAt());
     }
-}
\ No newline at end of file
+}
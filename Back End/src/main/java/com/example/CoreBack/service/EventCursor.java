@@ -0,0 +1,31 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.repository.EventSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Cursor opaco para la paginación por keyset de GET /events: posición (occurredAt, id) del último evento visto
+public record EventCursor(LocalDateTime occurredAt, Long id) {
+
+    public static EventCursor of(EventSummary event) {
+        return new EventCursor(event.occurredAt(), event.id());
+    }
+
+    public String encode() {
+        String raw = occurredAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static EventCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new EventCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
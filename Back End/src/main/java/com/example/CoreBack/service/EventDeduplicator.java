@@ -0,0 +1,96 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.repository.EventKeyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Dedup de eventos por eventId. La garantía la da event_keys (PK = índice único, claim con insert-ignore);
+// delante hay dos estructuras en memoria para no ir a la DB a preguntar:
+//   - LRU de ids ya entregados por este nodo: una redelivery se descarta sin tocar la DB.
+//   - Bloom con ventana deslizante de ids reclamados/entregados por este nodo: si dice "no", el id
+//     no pasó por acá en la ventana y el consumer va directo al insert-ignore sin leer nada antes.
+// Un "tal vez" del Bloom (o un id de otro nodo) lo resuelve el resultado del insert-ignore.
+@Component
+public class EventDeduplicator {
+
+    private final EventKeyRepository eventKeys;
+
+    @Value("${core.dedup.lru-size:100000}")
+    private int lruSize = 100000;
+
+    @Value("${core.dedup.bloom.capacity:1000000}")
+    private int bloomCapacity = 1000000;
+
+    @Value("${core.dedup.bloom.false-positive-rate:0.01}")
+    private double bloomFalsePositiveRate = 0.01;
+
+    private final Map<String, Boolean> delivered = Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > lruSize;
+                }
+            });
+
+    private volatile SlidingBloomFilter seen;
+
+    public EventDeduplicator(EventKeyRepository eventKeys) {
+        this.eventKeys = eventKeys;
+    }
+
+    @PostConstruct
+    public void start() {
+        seen = new SlidingBloomFilter(bloomCapacity, bloomFalsePositiveRate);
+    }
+
+    // Reclama los ids en event_keys y devuelve los que eran nuevos; el resto ya estaba guardado.
+    // Va dentro de la transacción del insert del evento: si esa transacción se revierte, el claim también.
+    public Set<String> claim(Collection<String> eventIds) {
+        if (eventIds == null || eventIds.isEmpty()) return Collections.emptySet();
+        Set<String> claimed = eventKeys.claim(eventIds);
+        SlidingBloomFilter filter = seen();
+        eventIds.forEach(filter::put);
+        return claimed;
+    }
+
+    // true: este nodo ya entregó el id (redelivery segura de descartar)
+    public boolean recentlyDelivered(String eventId) {
+        // get (no containsKey) para que el acceso renueve el id en el LRU
+        return delivered.get(eventId) != null;
+    }
+
+    // false: este nodo no reclamó ni entregó el id en la ventana del Bloom
+    public boolean mightBeKnown(String eventId) {
+        return seen().mightContain(eventId);
+    }
+
+    // Llamar después del commit: un id en el LRU se descarta sin mirar la DB
+    public void delivered(Collection<String> eventIds) {
+        SlidingBloomFilter filter = seen();
+        for (String eventId : eventIds) {
+            delivered.put(eventId, Boolean.TRUE);
+            filter.put(eventId);
+        }
+    }
+
+    // Rota la ventana del Bloom (los ids de hace más de dos ventanas se olvidan)
+    @Scheduled(fixedRateString = "${core.dedup.bloom.window-ms:600000}",
+            initialDelayString = "${core.dedup.bloom.window-ms:600000}")
+    public void rotateWindow() {
+        seen().rotate();
+    }
+
+    private SlidingBloomFilter seen() {
+        if (seen == null) start();
+        return seen;
+    }
+}
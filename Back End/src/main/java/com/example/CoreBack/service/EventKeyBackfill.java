@@ -0,0 +1,58 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.repository.EventKeyRepository;
+import com.example.CoreBack.repository.EventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Carga en event_keys los eventIds de las filas guardadas antes de que existiera la tabla,
+// para que una redelivery de esos eventos también se reconozca como duplicada.
+// Recorre en orden de id sólo las filas sin clave; una vez completo la consulta ya no devuelve nada
+// (se puede apagar con core.dedup.backfill.enabled=false para no recorrer events en cada arranque).
+@Component
+@ConditionalOnProperty(name = "core.dedup.backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class EventKeyBackfill {
+
+    private final EventRepository eventRepository;
+    private final EventKeyRepository eventKeys;
+
+    @Value("${core.dedup.backfill.chunk-size:500}")
+    private int chunkSize = 500;
+
+    public EventKeyBackfill(EventRepository eventRepository, EventKeyRepository eventKeys) {
+        this.eventRepository = eventRepository;
+        this.eventKeys = eventKeys;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            long claimed = backfill();
+            if (claimed > 0) {
+                System.out.println("🔑 Claves de eventos registradas: " + claimed);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Registro de claves de eventos interrumpido: " + e.getMessage());
+        }
+    }
+
+    // Devuelve la cantidad de claves nuevas (cada claim es su propio statement, sin transacción alrededor)
+    public long backfill() {
+        long total = 0;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<EventRepository.UnclaimedEventId> rows =
+                    eventRepository.findUnclaimedEventIds(afterId, PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) return total;
+
+            total += eventKeys.claim(rows.stream().map(EventRepository.UnclaimedEventId::getEventId).toList()).size();
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.DataMigration;
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.DataMigrationRepository;
+import com.example.CoreBack.repository.EventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Migración de datos para los eventos guardados antes de las columnas/índices actuales:
+// - normaliza las mayúsculas de `status` (las búsquedas usan igualdad sobre el índice). Corre una sola vez:
+//   queda registrada en data_migrations y los arranques siguientes no la repiten
+// - completa la columna `module`. Recorre las filas sin módulo en orden de id, en tramos chicos y una transacción por tramo
+// (locks cortos), con un UPDATE ... WHERE id IN (...) por módulo.
+@Component
+public class EventModuleBackfill {
+
+    static final String STATUS_MIGRATION = "normalize-event-status";
+
+    private final EventRepository eventRepository;
+    private final DataMigrationRepository migrationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${core.backfill.module.chunk-size:5000}")
+    private int chunkSize = 5000;
+
+    public EventModuleBackfill(EventRepository eventRepository, DataMigrationRepository migrationRepository,
+                               TransactionTemplate transactionTemplate) {
+        this.eventRepository = eventRepository;
+        this.migrationRepository = migrationRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            normalizeStatusesOnce();
+            long updated = backfill();
+            if (updated > 0) {
+                System.out.println("🧩 Backfill de módulos completo: " + updated + " eventos");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Backfill de módulos interrumpido: " + e.getMessage());
+        }
+    }
+
+    void normalizeStatusesOnce() {
+        if (migrationRepository.existsById(STATUS_MIGRATION)) return;
+        for (String status : StoredEvent.STATUSES) {
+            Integer normalized = transactionTemplate.execute(tx -> eventRepository.normalizeStatus(status));
+            if (normalized != null && normalized > 0) {
+                System.out.println("🧩 Estados normalizados a " + status + ": " + normalized + " eventos");
+            }
+        }
+        try {
+            migrationRepository.save(new DataMigration(STATUS_MIGRATION));
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo la registró al mismo tiempo (la normalización es idempotente)
+        }
+    }
+
+    // Devuelve la cantidad de filas actualizadas
+    public long backfill() {
+        long total = 0;
+        while (true) {
+            Integer updated = transactionTemplate.execute(status -> backfillChunk());
+            if (updated == null || updated == 0) return total;
+            total += updated;
+        }
+    }
+
+    int backfillChunk() {
+        List<EventRepository.IdAndSource> rows = eventRepository.findWithoutModule(PageRequest.of(0, chunkSize));
+        if (rows.isEmpty()) return 0;
+
+        // TreeMap: los UPDATE se ejecutan siempre en el mismo orden de módulos
+        Map<String, List<Long>> idsByModule = new TreeMap<>();
+        for (EventRepository.IdAndSource row : rows) {
+            idsByModule.computeIfAbsent(EventModules.classify(row.getSource()), m -> new ArrayList<>())
+                    .add(row.getId());
+        }
+
+        int updated = 0;
+        for (Map.Entry<String, List<Long>> entry : idsByModule.entrySet()) {
+            updated += eventRepository.updateModuleByIds(entry.getValue(), entry.getKey());
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+
+// Clasificación de eventos por módulo a partir del source (ej: "/usuarios/api" → "usuarios")
+public final class EventModules {
+
+    public static final List<String> KNOWN = List.of("usuarios", "social", "reviews", "peliculas", "discovery");
+    public static final String OTHER = "otros";
+
+    private EventModules() {}
+
+    public static String classify(String source) {
+        if (source == null) return OTHER;
+        String value = source.toLowerCase();
+        if (value.contains("user") || value.contains("usuario")) return "usuarios";
+        if (value.contains("social")) return "social";
+        if (value.contains("review")) return "reviews";
+        if (value.contains("movie") || value.contains("pelicula")) return "peliculas";
+        if (value.contains("discovery")) return "discovery";
+        return OTHER;
+    }
+}
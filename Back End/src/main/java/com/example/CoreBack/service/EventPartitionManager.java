@@ -0,0 +1,276 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.TimeOrderedIdGenerator;
+import com.example.CoreBack.repository.EventPartitioning;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Particionado por rango de la tabla events (sólo MySQL).
+// La partición es por RANGE(id): la PK es `id` y MySQL exige que la columna de partición esté en
+// todas las claves únicas; como los ids son crecientes en el tiempo, cada partición es un período
+// (mes por defecto). Las consultas por occurredAt agregan el rango de ids equivalente
+// (EventPartitioning) para que el planner lea sólo las particiones del rango.
+// - plegacy: filas con ids IDENTITY anteriores a @TimeOrderedId
+// - pYYYYMMDD: un período, nombrado por su fecha de inicio
+// - pmax: catch-all, se va partiendo a medida que se crean períodos futuros
+// La retención borra particiones enteras (DROP PARTITION) en lugar de hacer DELETEs, y después poda
+// event_keys y event_hourly_rollup hasta el mismo límite de fecha.
+// Todo corre con el lock "events-partitioning" (un solo nodo a la vez). Al arrancar sólo se hace el
+// mantenimiento de una tabla ya particionada: la conversión inicial (PARTITION BY, que en MySQL copia la
+// tabla entera bloqueándola) se hace una única vez y sólo en la corrida programada (cron, fuera de hora pico).
+@Component
+@ConditionalOnProperty(name = "core.events.partitioning.enabled", havingValue = "true", matchIfMissing = true)
+public class EventPartitionManager {
+
+    static final String TABLE = "events";
+    static final String LEGACY = "plegacy";
+    static final String CATCH_ALL = "pmax";
+    static final String LOCK = "events-partitioning";
+
+    // Filas por DELETE al podar event_keys / event_hourly_rollup (transacciones cortas)
+    static final int PRUNE_CHUNK = 10_000;
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PayloadSearchIndex payloadIndex;
+    private final ClusterLocks locks;
+
+    // DAYS, WEEKS o MONTHS
+    @Value("${core.events.partitioning.period:MONTHS}")
+    private ChronoUnit period = ChronoUnit.MONTHS;
+
+    // Períodos futuros que tienen que existir siempre
+    @Value("${core.events.partitioning.ahead:3}")
+    private int ahead = 3;
+
+    // Períodos a conservar contando el actual (0 = sin retención)
+    @Value("${core.events.partitioning.retention:0}")
+    private int retention = 0;
+
+    // Duración máxima esperada de una corrida (la conversión inicial copia la tabla entera)
+    @Value("${core.events.partitioning.lock-lease-ms:21600000}")
+    private long lockLeaseMs = 21_600_000L;
+
+    public EventPartitionManager(JdbcTemplate jdbcTemplate, PayloadSearchIndex payloadIndex, ClusterLocks locks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.payloadIndex = payloadIndex;
+        this.locks = locks;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain(false);
+    }
+
+    @Scheduled(cron = "${core.events.partitioning.cron:0 15 3 * * *}")
+    public void maintainScheduled() {
+        maintain(true);
+    }
+
+    // `initial`: si la tabla todavía no está particionada, se la convierte (sólo en la corrida programada)
+    void maintain(boolean initial) {
+        if (!isMySql()) return;
+        if (!locks.tryAcquire(LOCK, Duration.ofMillis(lockLeaseMs))) {
+            System.out.println("🗂️ Particiones de events: otro nodo está haciendo el mantenimiento");
+            return;
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            Map<String, Long> existing = loadPartitions();
+            if (existing.isEmpty() && !initial) {
+                System.out.println("🗂️ events todavía no está particionada: se convierte en la corrida programada");
+                return;
+            }
+            Long oldestId = existing.isEmpty() ? oldestTimeOrderedId() : null;
+
+            for (String ddl : plan(existing, today, oldestId)) {
+                try {
+                    jdbcTemplate.execute(ddl);
+                    System.out.println("🗂️ " + ddl);
+                } catch (DataAccessException e) {
+                    // Se reintenta en la próxima corrida
+                    System.err.println("❌ Error manteniendo particiones de events: " + e.getMessage());
+                    return;
+                }
+            }
+
+            if (retention > 0) {
+                pruneDerived(retentionStart(today).atStartOfDay());
+            }
+        } finally {
+            locks.release(LOCK);
+        }
+    }
+
+    // Lo que quedó fuera de la retención ya no existe en events: se borra lo derivado hasta el mismo límite.
+    // event_keys se crea al guardar la fila (mismo instante que el id); los rollups y el índice van por
+    // occurredAt, que puede estar hasta MAX_SYSDATE_BEHIND antes del id, así que ahí se deja ese margen.
+    void pruneDerived(LocalDateTime cutoff) {
+        LocalDateTime occurredCutoff = cutoff.minus(EventPartitioning.MAX_SYSDATE_BEHIND);
+        payloadIndex.deleteOlderThan(occurredCutoff);
+        try {
+            long keys = deleteInChunks("delete from event_keys where created_at < ? limit " + PRUNE_CHUNK, cutoff);
+            long rollups = deleteInChunks("delete from event_hourly_rollup where bucket_hour < ? limit " + PRUNE_CHUNK,
+                    occurredCutoff);
+            if (keys > 0 || rollups > 0) {
+                System.out.println("🗂️ Retención: " + keys + " claves de event_keys y " + rollups
+                        + " filas de rollups borradas");
+            }
+        } catch (DataAccessException e) {
+            // Se completa en la próxima corrida (los DELETE son idempotentes)
+            System.err.println("❌ Error podando event_keys/rollups: " + e.getMessage());
+        }
+    }
+
+    private long deleteInChunks(String sql, LocalDateTime cutoff) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, Timestamp.valueOf(cutoff));
+            total += deleted;
+        } while (deleted == PRUNE_CHUNK);
+        return total;
+    }
+
+    // DDL para dejar la tabla al día. `existing`: partición → cota superior en ids (null = MAXVALUE),
+    // en orden; vacío si la tabla todavía no está particionada. `oldestId`: menor id no legacy.
+    List<String> plan(Map<String, Long> existing, LocalDate today, Long oldestId) {
+        List<String> statements = new ArrayList<>();
+        LocalDate lastStart = next(periodStart(today), ahead);
+
+        if (existing.isEmpty()) {
+            LocalDate first = oldestId != null
+                    ? periodStart(dateOf(TimeOrderedIdGenerator.millisOf(oldestId)))
+                    : periodStart(today);
+            if (first.isAfter(periodStart(today))) first = periodStart(today);
+            List<String> definitions = new ArrayList<>();
+            definitions.add("PARTITION " + LEGACY + " VALUES LESS THAN (" + EventPartitioning.LEGACY_ID_LIMIT + ")");
+            definitions.addAll(periodDefinitions(first, lastStart));
+            definitions.add("PARTITION " + CATCH_ALL + " VALUES LESS THAN MAXVALUE");
+            statements.add("ALTER TABLE " + TABLE + " PARTITION BY RANGE (id) (" + String.join(", ", definitions) + ")");
+            return statements;
+        }
+
+        // Períodos futuros: desde el final de la última partición acotada
+        long maxBound = existing.values().stream()
+                .filter(bound -> bound != null)
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(EventPartitioning.LEGACY_ID_LIMIT);
+        LocalDate from = maxBound <= EventPartitioning.LEGACY_ID_LIMIT
+                ? periodStart(today)
+                : dateOf(TimeOrderedIdGenerator.millisOf(maxBound));
+        List<String> missing = periodDefinitions(from, lastStart);
+        if (!missing.isEmpty()) {
+            if (existing.containsKey(CATCH_ALL)) {
+                missing.add("PARTITION " + CATCH_ALL + " VALUES LESS THAN MAXVALUE");
+                statements.add("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + CATCH_ALL
+                        + " INTO (" + String.join(", ", missing) + ")");
+            } else {
+                statements.add("ALTER TABLE " + TABLE + " ADD PARTITION (" + String.join(", ", missing) + ")");
+            }
+        }
+
+        // Retención: particiones de período cuyo rango termina antes del primer período a conservar.
+        // plegacy no se toca (sus filas no tienen fecha en el id).
+        if (retention > 0) {
+            long keepFrom = boundOf(retentionStart(today));
+            List<String> expired = new ArrayList<>();
+            for (Map.Entry<String, Long> partition : existing.entrySet()) {
+                String name = partition.getKey();
+                Long bound = partition.getValue();
+                if (!LEGACY.equals(name) && bound != null && bound <= keepFrom) {
+                    expired.add(name);
+                }
+            }
+            if (!expired.isEmpty()) {
+                statements.add("ALTER TABLE " + TABLE + " DROP PARTITION " + String.join(", ", expired));
+            }
+        }
+        return statements;
+    }
+
+    // Una partición por período con inicio en [from, lastStart]
+    private List<String> periodDefinitions(LocalDate from, LocalDate lastStart) {
+        List<String> definitions = new ArrayList<>();
+        for (LocalDate start = from; !start.isAfter(lastStart); start = next(start, 1)) {
+            definitions.add("PARTITION p" + NAME_FORMAT.format(start)
+                    + " VALUES LESS THAN (" + boundOf(next(start, 1)) + ")");
+        }
+        return definitions;
+    }
+
+    private LocalDate retentionStart(LocalDate today) {
+        return next(periodStart(today), -(retention - 1));
+    }
+
+    LocalDate periodStart(LocalDate date) {
+        return switch (period) {
+            case DAYS -> date;
+            case WEEKS -> date.with(DayOfWeek.MONDAY);
+            case MONTHS -> date.withDayOfMonth(1);
+            default -> throw new IllegalStateException("core.events.partitioning.period debe ser DAYS, WEEKS o MONTHS");
+        };
+    }
+
+    private LocalDate next(LocalDate start, int periods) {
+        return start.plus(periods, period);
+    }
+
+    // Primer id del período que empieza en `start` (hora local del servidor, igual que occurredAt)
+    static long boundOf(LocalDate start) {
+        return TimeOrderedIdGenerator.minIdAt(start.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private static LocalDate dateOf(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private Map<String, Long> loadPartitions() {
+        Map<String, Long> partitions = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                select partition_name, partition_description
+                from information_schema.partitions
+                where table_schema = database() and table_name = ? and partition_name is not null
+                order by partition_ordinal_position
+                """, rs -> {
+            String description = rs.getString(2);
+            partitions.put(rs.getString(1),
+                    description == null || "MAXVALUE".equalsIgnoreCase(description) ? null : Long.parseLong(description));
+        }, TABLE);
+        return partitions;
+    }
+
+    private Long oldestTimeOrderedId() {
+        return jdbcTemplate.queryForObject("select min(id) from " + TABLE + " where id >= ?", Long.class,
+                EventPartitioning.LEGACY_ID_LIMIT);
+    }
+
+    private boolean isMySql() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) con ->
+                con.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("mysql");
+    }
+}
@@ -1,6 +1,24 @@
 package com.example.CoreBack.service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.example.CoreBack.config.RabbitConfig;
@@ -8,8 +26,19 @@ import com.example.CoreBack.config.RabbitConfig;
 @Service
 public class EventPublisherService {
 
+    // Header de los mensajes cuyo body es el sobre JSON del evento tal cual (outbox y passthrough):
+    // el consumer los lee con un parser de streaming en vez de convertirlos a Map
+    public static final String ENVELOPE_HEADER = "x-core-envelope";
+    public static final String RAW_ENVELOPE = "raw";
+
     private final AmqpTemplate rabbitTemplate;
 
+    // Confirms todavía sin respuesta del broker (id de correlación → CorrelationData)
+    private final ConcurrentMap<String, CorrelationData> pendingConfirms = new ConcurrentHashMap<>();
+
+    @Value("${core.publisher.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs = 5000;
+
     public EventPublisherService(AmqpTemplate rabbitTemplate) {
         this.rabbitTemplate = rabbitTemplate;
     }
@@ -18,5 +47,154 @@ public class EventPublisherService {
         rabbitTemplate.convertAndSend(RabbitConfig.EXCHANGE, routingKey, message);
         System.out.println(" Evento enviado con routingKey = " + routingKey);
     }
-}
 
+    // Publica y devuelve un future que se completa cuando el broker confirma (ack) el mensaje.
+    // No bloquea el hilo llamador: el Confirm llega por el hilo del connection factory.
+    public CompletableFuture<Void> publishConfirmed(Object message, String routingKey) {
+        if (!confirmsEnabled()) {
+            // Sin confirms habilitados no hay nada que esperar
+            publish(message, routingKey);
+            return CompletableFuture.completedFuture(null);
+        }
+        RabbitTemplate template = (RabbitTemplate) rabbitTemplate;
+        return sendWithConfirm(correlation ->
+                template.convertAndSend(RabbitConfig.EXCHANGE, routingKey, message, correlation));
+    }
+
+    // Publica un JSON ya serializado (ej: fila del outbox) sin pasar por el message converter
+    public CompletableFuture<Void> publishJsonConfirmed(String json, String routingKey) {
+        return publishRawConfirmed(json.getBytes(StandardCharsets.UTF_8), routingKey);
+    }
+
+    // Publica los bytes del evento como body, sin copiarlos ni pasarlos por el converter (modo passthrough)
+    public CompletableFuture<Void> publishRawConfirmed(byte[] body, String routingKey) {
+        Message message = MessageBuilder.withBody(body)
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setHeader(ENVELOPE_HEADER, RAW_ENVELOPE)
+                .build();
+        return sendConfirmed(message, routingKey);
+    }
+
+    // Modo binario de CloudEvents: atributos en headers y `data` (ya serializado) como body
+    public void publishBinary(CloudEventHeaders.Metadata metadata, byte[] data, String routingKey) {
+        rabbitTemplate.send(RabbitConfig.EXCHANGE, routingKey, CloudEventHeaders.toMessage(metadata, data));
+        System.out.println(" Evento enviado con routingKey = " + routingKey);
+    }
+
+    public CompletableFuture<Void> publishBinaryConfirmed(CloudEventHeaders.Metadata metadata, byte[] data, String routingKey) {
+        return sendConfirmed(CloudEventHeaders.toMessage(metadata, data), routingKey);
+    }
+
+    private CompletableFuture<Void> sendConfirmed(Message message, String routingKey) {
+        return sendConfirmed(RabbitConfig.EXCHANGE, routingKey, message);
+    }
+
+    // Mensaje ya armado a cualquier exchange (colas de reintento, parking, core.all.queue por el default)
+    public CompletableFuture<Void> sendConfirmed(String exchange, String routingKey, Message message) {
+        if (!confirmsEnabled()) {
+            rabbitTemplate.send(exchange, routingKey, message);
+            return CompletableFuture.completedFuture(null);
+        }
+        RabbitTemplate template = (RabbitTemplate) rabbitTemplate;
+        return sendWithConfirm(correlation ->
+                template.send(exchange, routingKey, message, correlation));
+    }
+
+    public static boolean isRawEnvelope(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        return properties != null && RAW_ENVELOPE.equals(properties.getHeader(ENVELOPE_HEADER));
+    }
+
+    private boolean confirmsEnabled() {
+        return rabbitTemplate instanceof RabbitTemplate template
+                && template.getConnectionFactory().isPublisherConfirms();
+    }
+
+    private CompletableFuture<Void> sendWithConfirm(Consumer<CorrelationData> send) {
+        CorrelationData correlation = new CorrelationData(UUID.randomUUID().toString());
+        pendingConfirms.put(correlation.getId(), correlation);
+
+        try {
+            send.accept(correlation);
+        } catch (AmqpException e) {
+            pendingConfirms.remove(correlation.getId());
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return correlation.getFuture()
+                .thenApply(confirm -> {
+                    if (!confirm.isAck()) {
+                        throw new AmqpException("Broker nack: " + confirm.getReason());
+                    }
+                    if (correlation.getReturned() != null) {
+                        throw new AmqpException("Mensaje no ruteable: " + correlation.getReturned().getReplyText());
+                    }
+                    return (Void) null;
+                })
+                .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((ok, ex) -> pendingConfirms.remove(correlation.getId()));
+    }
+
+    // Cantidad de publicaciones esperando confirm del broker
+    public int getPendingConfirms() {
+        return pendingConfirms.size();
+    }
+
+    // Publica un lote completo reutilizando un único canal (un solo checkout del pool)
+    public void publishBatch(List<OutgoingEvent> events) {
+        if (events == null || events.isEmpty()) return;
+
+        if (rabbitTemplate instanceof RabbitOperations rabbitOperations) {
+            rabbitOperations.invoke(ops -> {
+                for (OutgoingEvent event : events) {
+                    if (event.message() instanceof Message message) {
+                        ops.send(RabbitConfig.EXCHANGE, event.routingKey(), message);
+                    } else {
+                        ops.convertAndSend(RabbitConfig.EXCHANGE, event.routingKey(), event.message());
+                    }
+                }
+                return null;
+            });
+        } else {
+            for (OutgoingEvent event : events) {
+                if (event.message() instanceof Message message) {
+                    rabbitTemplate.send(RabbitConfig.EXCHANGE, event.routingKey(), message);
+                } else {
+                    rabbitTemplate.convertAndSend(RabbitConfig.EXCHANGE, event.routingKey(), event.message());
+                }
+            }
+        }
+        System.out.println(" Lote enviado: " + events.size() + " eventos");
+    }
+
+    // Como publishBatch, pero con un confirm correlacionado por evento: el future i se completa cuando el broker
+    // confirma el evento i (o falla por nack, return o timeout). Sin confirms habilitados vuelven completos.
+    public List<CompletableFuture<Void>> publishBatchConfirmed(List<OutgoingEvent> events) {
+        if (events == null || events.isEmpty()) return List.of();
+        if (!confirmsEnabled()) {
+            publishBatch(events);
+            return events.stream().map(event -> CompletableFuture.<Void>completedFuture(null)).toList();
+        }
+
+        RabbitTemplate template = (RabbitTemplate) rabbitTemplate;
+        List<CompletableFuture<Void>> confirms = new ArrayList<>(events.size());
+        template.invoke(ops -> {
+            for (OutgoingEvent event : events) {
+                confirms.add(sendWithConfirm(correlation -> {
+                    if (event.message() instanceof Message message) {
+                        ops.send(RabbitConfig.EXCHANGE, event.routingKey(), message, correlation);
+                    } else {
+                        ops.convertAndSend(RabbitConfig.EXCHANGE, event.routingKey(), event.message(), correlation);
+                    }
+                }));
+            }
+            return null;
+        });
+        System.out.println(" Lote enviado: " + events.size() + " eventos (esperando confirms)");
+        return confirms;
+    }
+
+    // Mensaje + routingKey a publicar dentro de un lote (un Message ya armado se envía sin converter)
+    public record OutgoingEvent(Object message, String routingKey) {}
+}
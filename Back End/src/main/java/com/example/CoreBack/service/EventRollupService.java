@@ -0,0 +1,116 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.EventHourlyRollup;
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.EventRollupRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class EventRollupService {
+
+    private final EventRollupRepository rollupRepository;
+    private final EventRepository eventRepository;
+
+    public EventRollupService(EventRollupRepository rollupRepository, EventRepository eventRepository) {
+        this.rollupRepository = rollupRepository;
+        this.eventRepository = eventRepository;
+    }
+
+    // Suma los eventos a sus contadores por hora. Se llama dentro de la transacción que guarda las filas
+    // (consumer u outbox), así el contador y la fila del evento se confirman juntos.
+    public void record(Collection<StoredEvent> events) {
+        record(events, List.of(), null);
+    }
+
+    // Inserts y cambios de estado en un único upsert. Cada evento de `transitioned` ya trae su estado nuevo:
+    // suma ahí y resta en `fromStatus` (ej: InQueue del outbox), así cada fila cuenta una sola vez
+    public void record(Collection<StoredEvent> inserted, Collection<StoredEvent> transitioned, String fromStatus) {
+        Map<EventHourlyRollup.Key, Long> deltas = new HashMap<>();
+        if (inserted != null) {
+            for (StoredEvent event : inserted) {
+                deltas.merge(keyOf(event), 1L, Long::sum);
+            }
+        }
+        if (transitioned != null) {
+            for (StoredEvent event : transitioned) {
+                EventHourlyRollup.Key key = keyOf(event);
+                deltas.merge(key, 1L, Long::sum);
+                deltas.merge(new EventHourlyRollup.Key(key.getBucketHour(), key.getModule(), fromStatus,
+                        key.getEventType()), -1L, Long::sum);
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) return;
+        rollupRepository.upsertCounts(deltas);
+    }
+
+    // Totales por hora desde `from` (inclusive)
+    public Map<LocalDateTime, Long> getHourlyTotals(LocalDateTime from) {
+        Map<LocalDateTime, Long> totals = new HashMap<>();
+        for (EventRollupRepository.HourTotal row : rollupRepository.sumByHourSince(from)) {
+            totals.put(row.getBucketHour(), row.getTotal() != null ? row.getTotal() : 0L);
+        }
+        return totals;
+    }
+
+    // Totales históricos por módulo
+    public Map<String, Long> getModuleTotals() {
+        Map<String, Long> totals = new HashMap<>();
+        for (EventRollupRepository.ModuleTotal row : rollupRepository.sumByModule()) {
+            totals.put(row.getModule(), row.getTotal() != null ? row.getTotal() : 0L);
+        }
+        return totals;
+    }
+
+    // Total aproximado de eventos para un filtro de módulo/estado (null = sin filtro)
+    public long estimateTotal(String module, String status) {
+        return rollupRepository.sumFiltered(module, status);
+    }
+
+    // Backfill único: si la tabla de rollups está vacía pero ya hay eventos, se arma con un GROUP BY
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        try {
+            if (rollupRepository.count() > 0 || eventRepository.count() == 0) return;
+
+            Map<EventHourlyRollup.Key, Long> deltas = new HashMap<>();
+            for (EventRepository.HourlyGroupCount row : eventRepository.countGroupedByHour()) {
+                LocalDateTime hour = LocalDateTime.of(row.getYr().intValue(), row.getMon().intValue(),
+                        row.getDy().intValue(), row.getHr().intValue(), 0);
+                EventHourlyRollup.Key key = new EventHourlyRollup.Key(hour,
+                        EventModules.classify(row.getSource()), valueOr(row.getStatus(), "Unknown"),
+                        valueOr(row.getEventType(), "UNKNOWN"));
+                deltas.merge(key, row.getTotal(), Long::sum);
+            }
+            rollupRepository.upsertCounts(deltas);
+            System.out.println("📊 Rollups por hora reconstruidos: " + deltas.size() + " filas");
+        } catch (Exception e) {
+            System.err.println("❌ No se pudo reconstruir event_hourly_rollup: " + e.getMessage());
+        }
+    }
+
+    static EventHourlyRollup.Key keyOf(StoredEvent event) {
+        LocalDateTime occurredAt = event.getOccurredAt() != null ? event.getOccurredAt() : LocalDateTime.now();
+        return new EventHourlyRollup.Key(
+                occurredAt.truncatedTo(ChronoUnit.HOURS),
+                event.getModule() != null ? event.getModule() : EventModules.classify(event.getSource()),
+                valueOr(event.getStatus(), "Unknown"),
+                valueOr(event.getEventType(), "UNKNOWN"));
+    }
+
+    private static String valueOr(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventSpecification;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Búsqueda de /admin/search/events ya validada y compilada.
+// DSL (query params):
+//   type=movie.created | type=movie.*   tipo exacto o por prefijo
+//   source=/peliculas/api               source exacto
+//   module=peliculas                    módulo (columna indexada)
+//   status=Delivered,Failed             uno o más estados
+//   from=2025-03-01[T10:00] to=...      ventana de occurredAt [from, to)
+//   q=inception                         términos del payload (índice invertido)
+//   payload.title=Inception             igualdad sobre un campo del payload (índice invertido)
+//   cursor=...  limit=100  explain=true
+// Toda búsqueda queda acotada a una ventana de occurredAt de como mucho `maxWindow`,
+// así el plan siempre es un rango sobre un índice que termina en occurredAt.
+public record EventSearchPlan(String type,
+                              String source,
+                              String module,
+                              List<String> statuses,
+                              LocalDateTime from,
+                              LocalDateTime to,
+                              String text,
+                              Map<String, String> payloadFields,
+                              EventCursor cursor,
+                              int limit,
+                              boolean explain) {
+
+    static final String PAYLOAD_PREFIX = "payload.";
+    static final int DEFAULT_LIMIT = 100;
+
+    private static final List<String> KEYS = List.of(
+            "type", "source", "module", "status", "from", "to", "q", "cursor", "limit", "explain");
+
+    public static EventSearchPlan compile(Map<String, String> filters, LocalDateTime now,
+                                          Duration maxWindow, int maxLimit) {
+        Map<String, String> payloadFields = new TreeMap<>();
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            String key = filter.getKey();
+            if (key.startsWith(PAYLOAD_PREFIX) && key.length() > PAYLOAD_PREFIX.length()) {
+                if (isBlank(filter.getValue())) {
+                    throw new IllegalArgumentException("Falta el valor de " + key);
+                }
+                payloadFields.put(key.substring(PAYLOAD_PREFIX.length()), filter.getValue().trim());
+            } else if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Filtro desconocido: " + key);
+            }
+        }
+
+        LocalDateTime to = parseTime("to", filters.get("to"));
+        LocalDateTime from = parseTime("from", filters.get("from"));
+        if (to == null) to = from != null && from.plus(maxWindow).isBefore(now) ? from.plus(maxWindow) : now;
+        if (from == null) from = to.minus(maxWindow);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from debe ser anterior a to");
+        }
+        if (Duration.between(from, to).compareTo(maxWindow) > 0) {
+            throw new IllegalArgumentException("La ventana from/to no puede superar " + maxWindow.toDays() + " días");
+        }
+
+        List<String> statuses = new ArrayList<>();
+        if (!isBlank(filters.get("status"))) {
+            for (String status : filters.get("status").split(",")) {
+                if (!status.isBlank()) statuses.add(StoredEvent.canonicalStatus(status));
+            }
+        }
+
+        String module = isBlank(filters.get("module")) ? null : EventModules.classify(filters.get("module"));
+        EventCursor cursor = isBlank(filters.get("cursor")) ? null : EventCursor.decode(filters.get("cursor"));
+
+        return new EventSearchPlan(trimToNull(filters.get("type")), trimToNull(filters.get("source")), module,
+                List.copyOf(statuses), from, to, trimToNull(filters.get("q")), Map.copyOf(payloadFields), cursor,
+                parseLimit(filters.get("limit"), maxLimit), Boolean.parseBoolean(filters.get("explain")));
+    }
+
+    // Los predicados de payload se resuelven en el índice invertido y llegan a la DB como eventId IN (...)
+    public boolean needsPayloadIndex() {
+        return text != null || !payloadFields.isEmpty();
+    }
+
+    // Índice por el que entra la consulta (el de mayor selectividad entre los filtros presentes)
+    public String accessIndex() {
+        if (needsPayloadIndex()) return "idx_events_event_id";
+        if (module != null && !statuses.isEmpty()) return "idx_events_module_status_occurred_at";
+        if (module != null) return "idx_events_module_occurred_at";
+        if (!statuses.isEmpty()) return "idx_events_status_occurred_at";
+        return "idx_events_occurred_at_id";
+    }
+
+    // Predicados sobre columnas; el filtro del índice de payloads y el keyset los agrega el service
+    public Specification<StoredEvent> toSpecification() {
+        Specification<StoredEvent> spec = EventSpecification.occurredBetween(from, to);
+        if (module != null) spec = spec.and(EventSpecification.hasModule(module));
+        if (statuses.size() == 1) spec = spec.and(EventSpecification.hasStatus(statuses.get(0)));
+        if (statuses.size() > 1) spec = spec.and(EventSpecification.hasStatusIn(statuses));
+        if (type != null) {
+            spec = spec.and(type.endsWith("*")
+                    ? EventSpecification.hasTypePrefix(type.substring(0, type.length() - 1))
+                    : EventSpecification.hasType(type));
+        }
+        if (source != null) spec = spec.and(EventSpecification.hasSource(source));
+        if (cursor != null) spec = spec.and(EventSpecification.before(cursor.occurredAt(), cursor.id()));
+        return spec;
+    }
+
+    // Resumen legible del plan (explain=true)
+    public Map<String, Object> describe() {
+        Map<String, Object> plan = new LinkedHashMap<>();
+        plan.put("index", accessIndex());
+        plan.put("from", from);
+        plan.put("to", to);
+        if (module != null) plan.put("module", module);
+        if (!statuses.isEmpty()) plan.put("status", statuses);
+        if (type != null) plan.put("type", type);
+        if (source != null) plan.put("source", source);
+        if (text != null) plan.put("q", text);
+        if (!payloadFields.isEmpty()) plan.put("payload", payloadFields);
+        plan.put("keyset", cursor != null);
+        plan.put("limit", limit);
+        return plan;
+    }
+
+    private static LocalDateTime parseTime(String key, String value) {
+        if (isBlank(value)) return null;
+        String trimmed = value.trim();
+        try {
+            return trimmed.length() == 10 ? LocalDate.parse(trimmed).atStartOfDay() : LocalDateTime.parse(trimmed);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(key + " debe tener formato yyyy-MM-dd o yyyy-MM-ddTHH:mm[:ss]");
+        }
+    }
+
+    private static int parseLimit(String value, int maxLimit) {
+        if (isBlank(value)) return Math.min(DEFAULT_LIMIT, maxLimit);
+        try {
+            int limit = Integer.parseInt(value.trim());
+            if (limit < 1 || limit > maxLimit) {
+                throw new IllegalArgumentException("limit debe estar entre 1 y " + maxLimit);
+            }
+            return limit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("limit debe ser numérico");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String trimToNull(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+}
@@ -2,28 +2,44 @@ package com.example.CoreBack.service;
 
 import com.example.CoreBack.entity.EventDTO;
 import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.ArchivedEvent;
+import com.example.CoreBack.repository.EventArchive;
+import com.example.CoreBack.repository.EventPartitioning;
 import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.EventSpecification;
+import com.example.CoreBack.repository.EventSummary;
 import com.example.CoreBack.security.KeyStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 @Service
 public class EventService {
@@ -32,145 +48,606 @@ public class EventService {
     private final EventPublisherService publisherService;
     private final ObjectMapper objectMapper;
     private final KeyStore keyStore;
+    private final OutboxService outboxService;
+    private final EventRollupService rollupService;
+    private final LiveEventCounters liveCounters;
+    private final PayloadSearchIndex payloadIndex;
+    private final EventArchive eventArchive;
+    private final AdmissionController admission;
+
+    // true: el ingreso escribe evento + outbox en una transacción y el OutboxRelay publica.
+    // false: se publica directo a Rabbit como antes.
+    @Value("${core.outbox.enabled:true}")
+    private boolean outboxEnabled = true;
+
+    // structured: el mensaje AMQP es el evento JSON completo. binary: atributos en headers y body = data (CloudEventHeaders)
+    @Value("${core.amqp.content-mode:structured}")
+    private String contentMode = "structured";
+
+    // Espera máxima por los confirms del lote sin outbox
+    @Value("${core.publisher.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs = 5000;
+
+    // count=estimate con búsqueda en payload: los rollups no conocen ese filtro, se cuenta hasta este tope
+    @Value("${core.events.count-cap:10000}")
+    private int countCap = 10000;
 
     public EventService(EventRepository eventRepository,
                         EventPublisherService publisherService,
                         ObjectMapper objectMapper,
-                        KeyStore keyStore) {
+                        KeyStore keyStore,
+                        OutboxService outboxService,
+                        EventRollupService rollupService,
+                        LiveEventCounters liveCounters,
+                        PayloadSearchIndex payloadIndex,
+                        EventArchive eventArchive,
+                        AdmissionController admission) {
         this.eventRepository = eventRepository;
         this.publisherService = publisherService;
         this.objectMapper = objectMapper;
         this.keyStore = keyStore;
+        this.outboxService = outboxService;
+        this.rollupService = rollupService;
+        this.liveCounters = liveCounters;
+        this.payloadIndex = payloadIndex;
+        this.eventArchive = eventArchive;
+        this.admission = admission;
+    }
+
+    // true: el ingreso responde con el evento guardado en el outbox, no con el confirm del broker
+    public boolean isOutboxEnabled() {
+        return outboxEnabled;
     }
 
     // Procesa y publica evento
     public StoredEvent processIncomingEvent(@Valid EventDTO eventDTO, String routingKey, String apiKey) {
         try {
-            // ---------- AUTORIZACIÓN ----------
-            if (apiKey == null || !keyStore.isValidKey(apiKey)) {
-                throw new SecurityException("Missing or invalid X-API-KEY");
+            authorize(eventDTO, routingKey, apiKey);
+            admission.admit(eventDTO.getSource());
+
+            StoredEvent storedEvent = toStoredEvent(eventDTO);
+
+            if (outboxEnabled) {
+                // Un único insert local; el relay publica y el consumer lo marca Delivered
+                return enqueue(toPendingEvent(eventDTO, storedEvent, routingKey));
             }
-            // Autoriza por dominio usando routingKey (ej: "usuarios.usuario.created")
-            if (!keyStore.isTypeAllowed(apiKey, routingKey)) {
-                throw new SecurityException("API Key no autorizada para el routingKey=" + routingKey);
+
+            // Publicar a Rabbit desde el service (como ya tenías)
+            if (binaryContentMode()) {
+                assignId(eventDTO, storedEvent);
+                publisherService.publishBinary(metadataOf(storedEvent), dataBytes(storedEvent), routingKey);
+            } else {
+                publisherService.publish(eventDTO, routingKey);
             }
-            // (Opcional) Si viene source en el body, debe coincidir con la key
-            if (eventDTO.getSource() != null) {
-                String expectedSource = keyStore.sourceOf(apiKey).orElse(null);
-                if (expectedSource != null && !expectedSource.equals(eventDTO.getSource())) {
-                    throw new SecurityException("API Key no autorizada para el source enviado (expected=" 
-                        + expectedSource + ", got=" + eventDTO.getSource() + ")");
-                }
+
+            return storedEvent;
+
+        } catch (SecurityException | AdmissionRejectedException e) {
+            // Propagamos para que el controller responda 401/403 o 429
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error procesando evento", e);
+        }
+    }
+
+    // Igual que processIncomingEvent. Con outbox el future vuelve completo tras el commit local (el evento ya es
+    // durable y el relay lo publica); sin outbox se completa recién cuando el broker confirma la publicación.
+    // Los errores de autorización/armado se lanzan en el momento; los del broker llegan por el future.
+    public CompletableFuture<StoredEvent> processIncomingEventAsync(@Valid EventDTO eventDTO, String routingKey, String apiKey) {
+        StoredEvent storedEvent;
+        try {
+            authorize(eventDTO, routingKey, apiKey);
+            admission.admit(eventDTO.getSource());
+            storedEvent = toStoredEvent(eventDTO);
+            if (outboxEnabled) {
+                // Con outbox la durabilidad la da el commit local: no hay que esperar al broker
+                return CompletableFuture.completedFuture(enqueue(toPendingEvent(eventDTO, storedEvent, routingKey)));
             }
-            // ---------- TU LÓGICA ORIGINAL ----------
-            String type = eventDTO.getType();
-            String source = eventDTO.getSource();
-            String contentType = eventDTO.getDatacontenttype();
+        } catch (SecurityException | AdmissionRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error procesando evento", e);
+        }
 
-            String payloadJson = objectMapper.writeValueAsString(eventDTO.getData());
+        if (binaryContentMode()) {
+            assignId(eventDTO, storedEvent);
+            return publisherService.publishBinaryConfirmed(metadataOf(storedEvent), dataBytes(storedEvent), routingKey)
+                    .thenApply(confirmed -> storedEvent);
+        }
+        return publisherService.publishConfirmed(eventDTO, routingKey)
+                .thenApply(confirmed -> storedEvent);
+    }
 
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime sysDate = eventDTO.getSysDate();
+    // Modo passthrough: el body del request se publica tal cual llegó. Un JsonParser lee sólo el sobre
+    // (type/source/datacontenttype, id y sysDate) y `data` se guarda como el rango de bytes original:
+    // no se arma el EventDTO ni se vuelve a serializar el evento.
+    // Si el id viene vacío o el sysDate no se puede usar tal cual, el evento sigue por el camino del DTO
+    // (en modo binario no: el id y la hora van en headers y el body publicado es sólo `data`).
+    public CompletableFuture<StoredEvent> processRawEventAsync(byte[] body, String routingKey, String apiKey) {
+        StoredEvent storedEvent;
+        byte[] message;
+        try {
+            RawEvent raw;
+            try {
+                raw = RawEvent.parse(body);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Evento JSON inválido: " + e.getMessage());
+            }
+            String error = raw.validate();
+            if (error != null) {
+                throw new IllegalArgumentException(error);
+            }
+            authorize(raw.source(), routingKey, apiKey);
+            admission.admit(raw.source());
 
-            LocalDateTime occurredAt;
-            if (sysDate != null &&
-                !sysDate.isAfter(now.plusMinutes(5)) &&
-                !sysDate.isBefore(now.minusDays(1))) {
-                occurredAt = sysDate;
-            } else {
-                occurredAt = now;
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime sysDate = parseSysDate(raw.sysDate());
+            LocalDateTime occurredAt = resolveOccurredAt(sysDate, now);
+            boolean binary = binaryContentMode();
+            boolean blankId = raw.id() != null && raw.id().isBlank();
+            if (!binary && (blankId || (raw.sysDate() != null && !occurredAt.equals(sysDate)))) {
+                return processIncomingEventAsync(objectMapper.readValue(body, EventDTO.class), routingKey, apiKey);
             }
 
-            StoredEvent storedEvent = new StoredEvent(
-                    type,
-                    source,
-                    contentType,
-                    payloadJson,
-                    occurredAt
-            );
+            String eventId = raw.id() != null && !blankId ? raw.id() : UUID.randomUUID().toString();
+            message = binary ? raw.dataBytes() : raw.withEnvelope(eventId, occurredAt.toString());
 
+            storedEvent = new StoredEvent(raw.type(), raw.source(), raw.datacontenttype(), raw.dataText(), occurredAt);
+            storedEvent.setEventId(eventId);
+            storedEvent.setModule(EventModules.classify(raw.source()));
             storedEvent.setStatus("InQueue");
 
-            // Publicar a Rabbit desde el service (como ya tenías)
-            publisherService.publish(eventDTO, routingKey);
+            if (outboxEnabled) {
+                return CompletableFuture.completedFuture(enqueue(binary
+                        ? OutboxService.PendingEvent.binary(storedEvent, routingKey)
+                        : new OutboxService.PendingEvent(storedEvent, routingKey, new String(message, StandardCharsets.UTF_8))));
+            }
+        } catch (SecurityException | IllegalArgumentException | AdmissionRejectedException e) {
+            // Van tal cual para que el controller responda 403 / 400 / 429 con el motivo
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error procesando evento", e);
+        }
 
-            // (Opcional) persistir si corresponde:
-            // storedEvent = eventRepository.save(storedEvent);
+        CompletableFuture<Void> published = binaryContentMode()
+                ? publisherService.publishBinaryConfirmed(metadataOf(storedEvent), message, routingKey)
+                : publisherService.publishRawConfirmed(message, routingKey);
+        return published.thenApply(confirmed -> storedEvent);
+    }
 
-            return storedEvent;
+    // Un eventId que ya estaba guardado (reintento del productor) no se vuelve a encolar:
+    // se responde igual que la primera vez, con el evento armado en este request
+    private StoredEvent enqueue(OutboxService.PendingEvent pending) {
+        Optional<StoredEvent> saved = outboxService.enqueue(pending);
+        if (saved.isEmpty()) {
+            System.out.println("♻️ Evento duplicado ignorado (id=" + pending.event().getEventId() + ")");
+            return pending.event();
+        }
+        liveCounters.recordStored(saved.get());
+        return saved.get();
+    }
 
-        } catch (SecurityException se) {
-            // Propagamos para que el controller responda 401/403
-            throw se;
+    private static LocalDateTime parseSysDate(String value) {
+        if (value == null) return null;
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // ---------- AUTORIZACIÓN ----------
+    private void authorize(EventDTO eventDTO, String routingKey, String apiKey) {
+        authorize(eventDTO.getSource(), routingKey, apiKey);
+    }
+
+    private void authorize(String source, String routingKey, String apiKey) {
+        if (apiKey == null || !keyStore.isValidKey(apiKey)) {
+            throw new SecurityException("Missing or invalid X-API-KEY");
+        }
+        // Autoriza por dominio usando routingKey (ej: "usuarios.usuario.created")
+        if (!keyStore.isTypeAllowed(apiKey, routingKey)) {
+            throw new SecurityException("API Key no autorizada para el routingKey=" + routingKey);
+        }
+        // (Opcional) Si viene source en el body, debe coincidir con la key
+        if (source != null) {
+            String expectedSource = keyStore.sourceOf(apiKey).orElse(null);
+            if (expectedSource != null && !expectedSource.equals(source)) {
+                throw new SecurityException("API Key no autorizada para el source enviado (expected=" 
+                    + expectedSource + ", got=" + source + ")");
+            }
+        }
+    }
+
+    // Procesa un lote de eventos: la key se valida una sola vez y todo se publica en un único canal.
+    // Cada evento usa su propio `type` como routingKey y devuelve un resultado individual.
+    public List<Map<String, Object>> processIncomingBatch(List<EventDTO> events, String apiKey) {
+        if (apiKey == null || !keyStore.isValidKey(apiKey)) {
+            throw new SecurityException("Missing or invalid X-API-KEY");
+        }
+        String expectedSource = keyStore.sourceOf(apiKey).orElse(null);
+
+        List<Map<String, Object>> results = new ArrayList<>(events.size());
+        List<Map<String, Object>> acceptedResults = new ArrayList<>();
+        List<EventPublisherService.OutgoingEvent> outgoing = new ArrayList<>();
+        List<OutboxService.PendingEvent> pending = new ArrayList<>();
+
+        for (int i = 0; i < events.size(); i++) {
+            EventDTO eventDTO = events.get(i);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", i);
+            results.add(result);
+
+            String error = validateBatchItem(eventDTO, apiKey, expectedSource);
+            if (error != null) {
+                result.put("status", "rejected");
+                result.put("error", error);
+                continue;
+            }
+            // Con las colas saturadas el ítem se rechaza con el Retry-After de su módulo
+            OptionalLong retryAfter = admission.retryAfter(EventModules.classify(eventDTO.getSource()));
+            if (retryAfter.isPresent()) {
+                result.put("status", "throttled");
+                result.put("retryAfter", retryAfter.getAsLong());
+                continue;
+            }
+
+            try {
+                StoredEvent storedEvent = toStoredEvent(eventDTO);
+                result.put("routingKey", eventDTO.getType());
+                result.put("occurredAt", storedEvent.getOccurredAt());
+                if (outboxEnabled) {
+                    pending.add(toPendingEvent(eventDTO, storedEvent, eventDTO.getType()));
+                } else if (binaryContentMode()) {
+                    assignId(eventDTO, storedEvent);
+                    outgoing.add(new EventPublisherService.OutgoingEvent(
+                            CloudEventHeaders.toMessage(metadataOf(storedEvent), dataBytes(storedEvent)), eventDTO.getType()));
+                } else {
+                    outgoing.add(new EventPublisherService.OutgoingEvent(eventDTO, eventDTO.getType()));
+                }
+                acceptedResults.add(result);
+            } catch (JsonProcessingException e) {
+                result.put("status", "rejected");
+                result.put("error", "Payload 'data' inválido");
+            }
+        }
+
+        try {
+            if (outboxEnabled) {
+                List<StoredEvent> saved = outboxService.enqueueAll(pending);
+                saved.forEach(liveCounters::recordStored);
+                // Un reintento de un evento ya guardado se acepta igual (ya está en la cola), marcado como duplicado.
+                // pending y acceptedResults van a la par: cada pendiente es el resultado del mismo índice
+                Set<StoredEvent> savedEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+                savedEvents.addAll(saved);
+                for (int i = 0; i < pending.size(); i++) {
+                    if (!savedEvents.contains(pending.get(i).event())) acceptedResults.get(i).put("duplicate", true);
+                }
+                acceptedResults.forEach(r -> r.put("status", "sent_to_queue"));
+            } else {
+                // Cada ítem queda sent_to_queue sólo si el broker confirmó su mensaje
+                List<CompletableFuture<Void>> confirms = publisherService.publishBatchConfirmed(outgoing);
+                awaitAll(confirms);
+                for (int i = 0; i < acceptedResults.size(); i++) {
+                    String failure = confirmFailure(confirms.get(i));
+                    if (failure == null) {
+                        acceptedResults.get(i).put("status", "sent_to_queue");
+                    } else {
+                        acceptedResults.get(i).put("status", "error");
+                        acceptedResults.get(i).put("error", failure);
+                    }
+                }
+            }
         } catch (Exception e) {
-            throw new RuntimeException("Error procesando evento", e);
+            acceptedResults.forEach(r -> {
+                r.put("status", "error");
+                r.put("error", e.getMessage() != null ? e.getMessage() : "Error publicando el lote");
+            });
+        }
+
+        return results;
+    }
+
+    private void awaitAll(List<CompletableFuture<Void>> confirms) {
+        try {
+            CompletableFuture.allOf(confirms.toArray(new CompletableFuture[0]))
+                    .get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ignored) {
+            // Cada ítem sin confirm se informa abajo
         }
     }
 
+    // null si el broker confirmó; si no, el motivo
+    private static String confirmFailure(CompletableFuture<Void> confirm) {
+        if (!confirm.isDone()) return "Sin confirm del broker";
+        try {
+            confirm.join();
+            return null;
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) return "Sin confirm del broker";
+            return cause.getMessage() != null ? cause.getMessage() : "Broker nack";
+        }
+    }
+
+    // Validación por ítem del lote (el @Valid no aplica a cada elemento de una lista)
+    private String validateBatchItem(EventDTO eventDTO, String apiKey, String expectedSource) {
+        if (eventDTO == null) return "Evento vacío";
+        if (eventDTO.getType() == null || eventDTO.getType().isBlank()) return "El campo 'type' es obligatorio";
+        if (eventDTO.getSource() == null || eventDTO.getSource().isBlank()) return "El campo 'source' es obligatorio";
+        if (eventDTO.getDatacontenttype() == null || eventDTO.getDatacontenttype().isBlank()) {
+            return "El campo 'datacontenttype' es obligatorio";
+        }
+        if (eventDTO.getData() == null) return "El campo 'data' es obligatorio";
+
+        if (!keyStore.isTypeAllowed(apiKey, eventDTO.getType())) {
+            return "API Key no autorizada para el type=" + eventDTO.getType();
+        }
+        if (expectedSource != null && !expectedSource.equals(eventDTO.getSource())) {
+            return "API Key no autorizada para el source enviado (expected="
+                + expectedSource + ", got=" + eventDTO.getSource() + ")";
+        }
+        return null;
+    }
+
+    // Arma el StoredEvent (InQueue) a partir del DTO recibido
+    private StoredEvent toStoredEvent(EventDTO eventDTO) throws JsonProcessingException {
+        String payloadJson = objectMapper.writeValueAsString(eventDTO.getData());
+
+        LocalDateTime occurredAt = resolveOccurredAt(eventDTO.getSysDate(), LocalDateTime.now());
+
+        StoredEvent storedEvent = new StoredEvent(
+                eventDTO.getType(),
+                eventDTO.getSource(),
+                eventDTO.getDatacontenttype(),
+                payloadJson,
+                occurredAt
+        );
+
+        storedEvent.setModule(EventModules.classify(eventDTO.getSource()));
+        storedEvent.setStatus("InQueue");
+        return storedEvent;
+    }
+
+    // La ventana aceptada para sysDate acota la distancia entre occurredAt y el id (poda de particiones)
+    private static LocalDateTime resolveOccurredAt(LocalDateTime sysDate, LocalDateTime now) {
+        if (sysDate != null &&
+            !sysDate.isAfter(now.plus(EventPartitioning.MAX_SYSDATE_AHEAD)) &&
+            !sysDate.isBefore(now.minus(EventPartitioning.MAX_SYSDATE_BEHIND))) {
+            return sysDate;
+        }
+        return now;
+    }
+
+    // Asigna el id del evento (el del productor o uno nuevo) y serializa el mensaje que va al outbox.
+    // El consumer usa ese id para pasar la fila de InQueue a Delivered.
+    // En modo binario el mensaje es el payload ya serializado: no hay segunda serialización.
+    private OutboxService.PendingEvent toPendingEvent(EventDTO eventDTO, StoredEvent storedEvent, String routingKey)
+            throws JsonProcessingException {
+        assignId(eventDTO, storedEvent);
+        if (binaryContentMode()) {
+            return OutboxService.PendingEvent.binary(storedEvent, routingKey);
+        }
+
+        String messageJson = objectMapper.writeValueAsString(eventDTO);
+        return new OutboxService.PendingEvent(storedEvent, routingKey, messageJson);
+    }
+
+    private static void assignId(EventDTO eventDTO, StoredEvent storedEvent) {
+        if (eventDTO.getId() == null || eventDTO.getId().isBlank()) {
+            eventDTO.setId(UUID.randomUUID().toString());
+        }
+        eventDTO.setSysDate(storedEvent.getOccurredAt());
+        storedEvent.setEventId(eventDTO.getId());
+    }
+
+    private boolean binaryContentMode() {
+        return "binary".equalsIgnoreCase(contentMode);
+    }
+
+    private static CloudEventHeaders.Metadata metadataOf(StoredEvent storedEvent) {
+        return new CloudEventHeaders.Metadata(storedEvent.getEventId(), storedEvent.getEventType(),
+                storedEvent.getSource(), storedEvent.getContentType(), storedEvent.getOccurredAt());
+    }
+
+    // `data` tal como lo serializó toStoredEvent
+    private static byte[] dataBytes(StoredEvent storedEvent) {
+        return storedEvent.getPayload().getBytes(StandardCharsets.UTF_8);
+    }
+
 
     // 🔍 Listar con filtros
     public Map<String, Object> getAllEvents(int page, int size, String module, String status, String search) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "occurredAt"));
+        return getAllEvents(page, size, module, status, search, null, CountMode.EXACT.name());
+    }
+
+    // Modos del total del listado: exacto (COUNT(*)), sin total, o estimado desde los rollups (con búsqueda en
+    // payload, que los rollups no conocen, el estimado pasa a un conteo con tope)
+    public enum CountMode {
+        EXACT, NONE, ESTIMATE;
+
+        public static CountMode from(String value) {
+            if (value == null || value.isBlank()) return EXACT;
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("count debe ser exact, none o estimate");
+            }
+        }
+    }
+
+    // `cursor` != null activa la paginación por keyset sobre (occurredAt, id): "" es la primera página y
+    // cada respuesta trae el `nextCursor`. Sin cursor se mantiene la paginación por número de página.
+    public Map<String, Object> getAllEvents(int page, int size, String module, String status, String search,
+                                            String cursor, String count) {
+        CountMode countMode = CountMode.from(count);
+        Sort sort = Sort.by(Sort.Direction.DESC, "occurredAt").and(Sort.by(Sort.Direction.DESC, "id"));
     
         Specification<StoredEvent> spec = Specification.where(null);
+        String moduleFilter = null;
+        String statusFilter = null;
     
         if (module != null && !module.isBlank()) {
-            spec = spec.and((root, query, cb) ->
-                    cb.like(cb.lower(root.get("source")), "%" + module.toLowerCase() + "%"));
+            // Igualdad sobre la columna indexada `module` (el filtro se normaliza igual que el source)
+            moduleFilter = EventModules.classify(module);
+            spec = spec.and(EventSpecification.hasModule(moduleFilter));
         }
     
         if (status != null && !status.isBlank()) {
-            spec = spec.and((root, query, cb) ->
-                    cb.equal(cb.lower(root.get("status")), status.toLowerCase()));
+            // El estado se guarda normalizado: igualdad directa sobre (status, occurredAt)
+            statusFilter = StoredEvent.canonicalStatus(status);
+            spec = spec.and(EventSpecification.hasStatus(status));
         }
     
+        EventCursor position = cursor != null && !cursor.isBlank() ? EventCursor.decode(cursor) : null;
+        PayloadSearchIndex.Hits searchHits = null;
         if (search != null && !search.isBlank()) {
-            spec = spec.and((root, query, cb) ->
-                    cb.like(cb.lower(root.get("payload")), "%" + search.toLowerCase() + "%"));
+            // Búsqueda en payload sólo por el índice invertido (los `max-hits` matches; `searchHits` dice si
+            // quedaron afuera). No hay LIKE de respaldo: los payloads comprimidos están en payload_data y un
+            // LIKE sobre la columna TEXT no los ve, así que mientras el índice se construye se responde 503.
+            if (!payloadIndex.isReady()) {
+                throw new IllegalStateException("El índice de búsqueda todavía se está construyendo");
+            }
+            // Con cursor, el índice devuelve los matches siguientes a esa posición (no siempre los más nuevos)
+            searchHits = payloadIndex.search(search, Map.of(), null, null, position);
+            spec = spec.and(EventSpecification.hasEventIdIn(searchHits.eventIds()));
         }
-    
-        Page<StoredEvent> filteredPage = eventRepository.findAll(spec, pageable);
-    
-        return Map.of(
-                "page", page,
-                "size", size,
-                "total", filteredPage.getTotalElements(),
-                "events", filteredPage.getContent()
-        );
+
+        // Se pide una fila de más para saber si hay página siguiente sin contar
+        List<EventSummary> rows;
+        if (cursor != null) {
+            Specification<StoredEvent> seek = spec;
+            if (position != null) {
+                seek = seek.and(EventSpecification.before(position.occurredAt(), position.id()));
+            }
+            rows = eventRepository.findSlice(seek, sort, 0, size + 1);
+            boolean indexHasMore = searchHits != null && searchHits.truncated();
+
+            if (rows.size() <= size && !indexHasMore && eventArchive.hasSegments()) {
+                // La tabla se terminó: se sigue con los días archivados, que son siempre los más viejos
+                rows = new ArrayList<>(rows);
+                if (!rows.isEmpty()) {
+                    position = EventCursor.of(rows.get(rows.size() - 1));
+                }
+                for (ArchivedEvent archived : eventArchive.findBefore(
+                        position != null ? position.occurredAt() : null, position != null ? position.id() : null,
+                        moduleFilter, statusFilter, search, size + 1 - rows.size())) {
+                    rows.add(archived.toSummary());
+                }
+            }
+        } else {
+            rows = eventRepository.findSlice(spec, sort, (long) page * size, size + 1);
+        }
+        boolean hasMore = rows.size() > size;
+        List<EventSummary> events = hasMore ? rows.subList(0, size) : rows;
+        EventCursor next = hasMore && !events.isEmpty() ? EventCursor.of(events.get(events.size() - 1)) : null;
+        if (cursor != null && !hasMore && searchHits != null && searchHits.truncated()) {
+            // Los matches del índice para esta página se agotaron antes de llenarla: se sigue después del último
+            hasMore = true;
+            next = searchHits.last();
+        }
+
+        Long total = null;
+        boolean estimated = false;
+        boolean capped = false;
+        boolean searching = search != null && !search.isBlank();
+        if (countMode == CountMode.EXACT) {
+            total = eventRepository.count(spec);
+            if (cursor != null && !searching) {
+                // Lo archivado sale de los footers (la búsqueda en payload sólo cuenta lo que sigue en la tabla)
+                total += eventArchive.count(moduleFilter, statusFilter);
+            }
+        } else if (countMode == CountMode.ESTIMATE && !searching) {
+            // Sin contar filas: suma de los rollups por módulo/estado
+            total = rollupService.estimateTotal(moduleFilter, statusFilter);
+            estimated = true;
+        } else if (countMode == CountMode.ESTIMATE) {
+            // Los rollups no saben de la búsqueda: conteo exacto hasta countCap, "al menos countCap" si lo supera
+            long counted = eventRepository.countUpTo(spec, countCap);
+            capped = counted > countCap;
+            total = Math.min(counted, countCap);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("page", page);
+        result.put("size", size);
+        result.put("total", total);
+        if (countMode == CountMode.ESTIMATE) {
+            result.put("totalEstimated", estimated);
+        }
+        if (capped) {
+            result.put("totalCapped", true);
+        }
+        if (searchHits != null && searchHits.truncated()) {
+            // Cada página (o todo el listado, sin cursor) sólo ve max-hits matches del índice
+            result.put("searchTruncated", true);
+            result.put("searchTotalHits", searchHits.totalHits());
+        }
+        result.put("events", events);
+        result.put("hasMore", hasMore);
+        result.put("nextCursor", next != null ? next.encode() : null);
+        return result;
     }
     
 
+    // Detalle de un evento que ya no está en la tabla porque se movió al archivo frío
+    public Optional<StoredEvent> findArchived(Long id) {
+        return eventArchive.findById(id).map(ArchivedEvent::toStoredEvent);
+    }
+
     // 📊 Estadísticas globales
     public Map<String, Object> getGlobalStats() {
         YearMonth thisMonth = YearMonth.now();
         YearMonth lastMonth = thisMonth.minusMonths(1);
 
-        LocalDate startOfThisMonth = thisMonth.atDay(1);
-        LocalDate startOfNextMonth = thisMonth.plusMonths(1).atDay(1);
-        LocalDate startOfLastMonth = lastMonth.atDay(1);
-
-        List<StoredEvent> allEvents = eventRepository.findAll();
-
-        Predicate<StoredEvent> inThisMonth = e -> {
-            LocalDate date = e.getOccurredAt().toLocalDate();
-            return !date.isBefore(startOfThisMonth) && date.isBefore(startOfNextMonth);
-        };
-        Predicate<StoredEvent> inLastMonth = e -> {
-            LocalDate date = e.getOccurredAt().toLocalDate();
-            return !date.isBefore(startOfLastMonth) && date.isBefore(startOfThisMonth);
-        };
-
-        long totalThisMonth = allEvents.stream().filter(inThisMonth).count();
-        long totalLastMonth = allEvents.stream().filter(inLastMonth).count();
-
-        long deliveredThisMonth = allEvents.stream().filter(e -> "Delivered".equalsIgnoreCase(e.getStatus()) && inThisMonth.test(e)).count();
-        long deliveredLastMonth = allEvents.stream().filter(e -> "Delivered".equalsIgnoreCase(e.getStatus()) && inLastMonth.test(e)).count();
-
-        long failedThisMonth = allEvents.stream().filter(e -> "Failed".equalsIgnoreCase(e.getStatus()) && inThisMonth.test(e)).count();
-        long failedLastMonth = allEvents.stream().filter(e -> "Failed".equalsIgnoreCase(e.getStatus()) && inLastMonth.test(e)).count();
-
-        long inQueueThisMonth = allEvents.stream().filter(e -> "InQueue".equalsIgnoreCase(e.getStatus()) && inThisMonth.test(e)).count();
-        long inQueueLastMonth = allEvents.stream().filter(e -> "InQueue".equalsIgnoreCase(e.getStatus()) && inLastMonth.test(e)).count();
+        long totalThisMonth = 0, totalLastMonth = 0;
+        long deliveredThisMonth = 0, deliveredLastMonth = 0;
+        long failedThisMonth = 0, failedLastMonth = 0;
+        long inQueueThisMonth = 0, inQueueLastMonth = 0;
+
+        if (liveCounters.isReconciled()) {
+            // Foto de la DB reconciliada + delta local: sin acceso a la DB
+            totalThisMonth = liveCounters.monthTotal(thisMonth);
+            totalLastMonth = liveCounters.monthTotal(lastMonth);
+            deliveredThisMonth = liveCounters.monthCount(thisMonth, "Delivered");
+            deliveredLastMonth = liveCounters.monthCount(lastMonth, "Delivered");
+            failedThisMonth = liveCounters.monthCount(thisMonth, "Failed");
+            failedLastMonth = liveCounters.monthCount(lastMonth, "Failed");
+            inQueueThisMonth = liveCounters.monthCount(thisMonth, "InQueue");
+            inQueueLastMonth = liveCounters.monthCount(lastMonth, "InQueue");
+        } else {
+            LocalDate startOfThisMonth = thisMonth.atDay(1);
+            LocalDate startOfNextMonth = thisMonth.plusMonths(1).atDay(1);
+            LocalDate startOfLastMonth = lastMonth.atDay(1);
+
+            // Un solo GROUP BY sobre el rango indexado de occurredAt (sin traer payloads a memoria)
+            List<EventRepository.MonthlyStatusCount> counts = new ArrayList<>(eventRepository.countByStatusForMonths(
+                    startOfLastMonth.atStartOfDay(), startOfThisMonth.atStartOfDay(), startOfNextMonth.atStartOfDay()));
+            // Días de esos meses que ya pasaron al archivo frío (conteos del footer de cada segmento)
+            counts.addAll(eventArchive.countByStatusForMonths(
+                    startOfLastMonth.atStartOfDay(), startOfThisMonth.atStartOfDay(), startOfNextMonth.atStartOfDay()));
+
+            for (EventRepository.MonthlyStatusCount row : counts) {
+                long current = row.getThisMonth() != null ? row.getThisMonth() : 0;
+                long previous = row.getLastMonth() != null ? row.getLastMonth() : 0;
+                totalThisMonth += current;
+                totalLastMonth += previous;
+
+                String status = row.getStatus();
+                if ("Delivered".equalsIgnoreCase(status)) {
+                    deliveredThisMonth += current;
+                    deliveredLastMonth += previous;
+                } else if ("Failed".equalsIgnoreCase(status)) {
+                    failedThisMonth += current;
+                    failedLastMonth += previous;
+                } else if ("InQueue".equalsIgnoreCase(status)) {
+                    inQueueThisMonth += current;
+                    inQueueLastMonth += previous;
+                }
+            }
+        }
 
         BiFunction<Long, Long, Integer> calcChange = (current, previous) -> {
             long difference = current - previous;
@@ -198,17 +675,22 @@ public class EventService {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime start = now.minusHours(23).truncatedTo(ChronoUnit.HOURS);
 
-        List<StoredEvent> last24hEvents = eventRepository.findAll().stream()
-                .filter(e -> !e.getOccurredAt().isBefore(start))
-                .toList();
-
-        Map<LocalDateTime, Long> counts = last24hEvents.stream()
-                .collect(Collectors.groupingBy(
-                        e -> e.getOccurredAt().truncatedTo(ChronoUnit.HOURS),
-                        Collectors.counting()
+        List<Map<String, Object>> evolution = new ArrayList<>(24);
+        if (liveCounters.isReconciled()) {
+            // Ring buffer en memoria (foto reconciliada + delta local): sin acceso a la DB
+            for (int i = 0; i < 24; i++) {
+                LocalDateTime hour = start.plusHours(i);
+                evolution.add(Map.of(
+                        "hour", hour.getHour(),
+                        "count", liveCounters.hourTotal(hour)
                 ));
+            }
+            return evolution;
+        }
+
+        // Sin foto reciente de los contadores: event_hourly_rollup (a lo sumo 24 horas × módulos × estados × tipos filas)
+        Map<LocalDateTime, Long> counts = rollupService.getHourlyTotals(start);
 
-        List<Map<String, Object>> evolution = new ArrayList<>();
         for (int i = 0; i < 24; i++) {
             LocalDateTime hour = start.plusHours(i);
             long count = counts.getOrDefault(hour, 0L);
@@ -223,24 +705,11 @@ public class EventService {
 
     public Map<String, Long> getEventsPerModule() {
         // Lista de módulos conocidos
-        List<String> modules = List.of("usuarios", "social", "reviews", "peliculas", "discovery");
-   
-        // Conteo real
-        Map<String, Long> counts = eventRepository.findAll().stream()
-                .filter(e -> e.getSource() != null)
-                .collect(Collectors.groupingBy(
-                        e -> {
-                            String source = e.getSource().toLowerCase();
-                            if (source.contains("user") || source.contains("usuario")) return "usuarios";
-                            if (source.contains("social")) return "social";
-                            if (source.contains("review")) return "reviews";
-                            if (source.contains("movie") || source.contains("pelicula")) return "peliculas";
-                            if (source.contains("discovery")) return "discovery";
-                            return "otros"; // 👈 reemplaza null por "otros"
-                        },
-                        Collectors.counting()
-                ));
-   
+        List<String> modules = EventModules.KNOWN;
+
+        // Conteo real (desde los rollups por hora)
+        Map<String, Long> counts = rollupService.getModuleTotals();
+
         // Inicializar módulos conocidos con 0
         Map<String, Long> result = new LinkedHashMap<>();
         for (String module : modules) {
@@ -0,0 +1,261 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventArchive;
+import com.example.CoreBack.repository.EventRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Contadores en memoria para el dashboard en vivo:
+// - ring de 24 buckets por hora (módulo × estado) para /events/evolution
+// - 3 buckets por mes (estado) para /events/stats (mes actual y anterior)
+// Cada lectura es base + delta: la base es una foto de la DB (compartida por todos los nodos) que se vuelve a
+// tomar cada core.live-counters.reconcile-ms; el delta es lo que este nodo registró (ingreso y consumer) desde
+// esa foto. Así lo que ingresa o se consume en otro nodo aparece a lo sumo un intervalo después y el error de
+// un delta local (ej: transición de un evento que ingresó por otro nodo) no se acumula: se descarta con la foto
+// siguiente. Si la base tiene más de 3 intervalos (la DB no respondió) isReconciled() da false y el service
+// vuelve a consultar la DB.
+// La primera foto se toma antes de que arranquen los listeners de Rabbit y el servidor HTTP.
+// Las lecturas no tocan la DB ni reservan memoria (salvo la respuesta que arma el service).
+@Component
+public class LiveEventCounters implements SmartInitializingSingleton {
+
+    static final List<String> STATUSES = StoredEvent.STATUSES;
+
+    private static final int HOURS = 24;
+    private static final int MONTHS = 3;
+    private static final int MODULE_SLOTS = EventModules.KNOWN.size() + 1; // + "otros"
+    private static final int STATUS_SLOTS = STATUSES.size() + 1;           // + cualquier otro estado
+
+    private final EventRepository eventRepository;
+    private final EventArchive eventArchive;
+
+    @Value("${core.live-counters.reconcile-ms:60000}")
+    private long reconcileMs;
+
+    // Foto de la DB, delta desde esa foto y, mientras se toma una foto nueva, el delta anterior
+    // (sigue sumando hasta que la foto nueva lo reemplaza)
+    private volatile Counts baseline = new Counts();
+    private volatile Counts delta = new Counts();
+    private volatile Counts pendingDelta;
+    private volatile long reconciledAt;
+
+    public LiveEventCounters(EventRepository eventRepository, EventArchive eventArchive) {
+        this.eventRepository = eventRepository;
+        this.eventArchive = eventArchive;
+    }
+
+    // Evento persistido con su estado actual (InQueue desde el outbox, Delivered desde el consumer)
+    public void recordStored(StoredEvent event) {
+        add(event.getSource(), event.getStatus(), event.getOccurredAt(), 1);
+    }
+
+    // Evento ya contado que cambia de estado (ej: InQueue → Delivered); el total no cambia
+    public void recordTransition(StoredEvent event, String fromStatus) {
+        add(event.getSource(), fromStatus, event.getOccurredAt(), -1);
+        add(event.getSource(), event.getStatus(), event.getOccurredAt(), 1);
+    }
+
+    // true si la base se tomó hace menos de 3 intervalos de reconciliación
+    public boolean isReconciled() {
+        long at = reconciledAt;
+        return at > 0 && System.currentTimeMillis() - at <= 3 * reconcileMs;
+    }
+
+    // Total de eventos cuya hora de ocurrencia es `hour` (truncada), si está dentro de la ventana de 24h
+    public long hourTotal(LocalDateTime hour) {
+        long epochHour = epochHour(hour);
+        Counts[] layers = layers();
+        long total = 0;
+        for (int slot = 0; slot < MODULE_SLOTS * STATUS_SLOTS; slot++) {
+            total += sum(layers, counts -> counts.hours, epochHour, slot);
+        }
+        return total;
+    }
+
+    public long monthCount(YearMonth month, String status) {
+        return sum(layers(), counts -> counts.months, epochMonth(month), statusSlot(status));
+    }
+
+    public long monthTotal(YearMonth month) {
+        long epochMonth = epochMonth(month);
+        Counts[] layers = layers();
+        long total = 0;
+        for (int slot = 0; slot < STATUS_SLOTS; slot++) {
+            total += sum(layers, counts -> counts.months, epochMonth, slot);
+        }
+        return total;
+    }
+
+    // Con todos los beans creados y antes del arranque de los lifecycle (listeners, servidor web)
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconcile();
+    }
+
+    // Nueva foto de la DB: últimas 24h agrupadas por hora/source/estado y los dos últimos meses por estado.
+    // El delta se corta antes de consultar: lo registrado durante la consulta queda en el delta nuevo (puede
+    // contarse dos veces hasta la foto siguiente, pero no se pierde).
+    @Scheduled(fixedDelayString = "${core.live-counters.reconcile-ms:60000}",
+            initialDelayString = "${core.live-counters.reconcile-ms:60000}")
+    public synchronized void reconcile() {
+        Counts previous = delta;
+        pendingDelta = previous;
+        delta = new Counts();
+        try {
+            Counts fresh = new Counts();
+            LocalDateTime start = LocalDateTime.now().minusHours(HOURS - 1).truncatedTo(ChronoUnit.HOURS);
+            for (EventRepository.HourlyGroupCount row : eventRepository.countGroupedByHourSince(start)) {
+                LocalDateTime hour = LocalDateTime.of(row.getYr().intValue(), row.getMon().intValue(),
+                        row.getDy().intValue(), row.getHr().intValue(), 0);
+                fresh.addHour(row.getSource(), row.getStatus(), hour, row.getTotal());
+            }
+
+            YearMonth thisMonth = YearMonth.now();
+            LocalDateTime lastMonthStart = thisMonth.minusMonths(1).atDay(1).atStartOfDay();
+            LocalDateTime thisMonthStart = thisMonth.atDay(1).atStartOfDay();
+            LocalDateTime nextMonthStart = thisMonth.plusMonths(1).atDay(1).atStartOfDay();
+            List<EventRepository.MonthlyStatusCount> months = new ArrayList<>(
+                    eventRepository.countByStatusForMonths(lastMonthStart, thisMonthStart, nextMonthStart));
+            // Días de esos meses que ya están en el archivo frío
+            months.addAll(eventArchive.countByStatusForMonths(lastMonthStart, thisMonthStart, nextMonthStart));
+            for (EventRepository.MonthlyStatusCount row : months) {
+                fresh.addMonth(row.getStatus(), thisMonth, row.getThisMonth() != null ? row.getThisMonth() : 0L);
+                fresh.addMonth(row.getStatus(), thisMonth.minusMonths(1), row.getLastMonth() != null ? row.getLastMonth() : 0L);
+            }
+
+            baseline = fresh;
+            pendingDelta = null;
+            boolean first = reconciledAt == 0;
+            reconciledAt = System.currentTimeMillis();
+            if (first) System.out.println("📊 Contadores en vivo inicializados desde la DB");
+        } catch (Exception e) {
+            // Sin foto nueva: el delta anterior se vuelve a sumar al actual para no perderlo
+            Counts current = delta;
+            previous.mergeInto(current);
+            pendingDelta = null;
+            System.err.println("❌ No se pudieron reconciliar los contadores en vivo: " + e.getMessage());
+        }
+    }
+
+    private void add(String source, String status, LocalDateTime occurredAt, long delta) {
+        LocalDateTime when = occurredAt != null ? occurredAt : LocalDateTime.now();
+        Counts counts = this.delta;
+        counts.addHour(source, status, when, delta);
+        counts.addMonth(status, YearMonth.from(when), delta);
+    }
+
+    private Counts[] layers() {
+        Counts pending = pendingDelta;
+        return pending != null
+                ? new Counts[] { baseline, pending, delta }
+                : new Counts[] { baseline, delta };
+    }
+
+    // Suma de un slot en todas las capas; un resultado negativo (el delta local se adelantó a la foto) cuenta como 0
+    private static long sum(Counts[] layers, Function<Counts, Bucket[]> ring, long period, int slot) {
+        long total = 0;
+        for (Counts layer : layers) {
+            Bucket[] buckets = ring.apply(layer);
+            Bucket bucket = buckets[Math.floorMod(period, buckets.length)];
+            if (bucket.period == period) total += bucket.counts[slot].sum();
+        }
+        return Math.max(0L, total);
+    }
+
+    // Devuelve el bucket del período, reciclándolo si todavía tenía un período anterior.
+    // null si el bucket ya pertenece a un período más nuevo (el dato llegó demasiado tarde).
+    private static Bucket claim(Bucket[] ring, long period) {
+        Bucket bucket = ring[Math.floorMod(period, ring.length)];
+        if (bucket.period == period) return bucket;
+        synchronized (bucket) {
+            if (bucket.period < period) {
+                for (LongAdder counter : bucket.counts) counter.reset();
+                bucket.period = period;
+            }
+            return bucket.period == period ? bucket : null;
+        }
+    }
+
+    private static int moduleSlot(String source) {
+        int index = EventModules.KNOWN.indexOf(EventModules.classify(source));
+        return index >= 0 ? index : MODULE_SLOTS - 1;
+    }
+
+    private static int statusSlot(String status) {
+        for (int i = 0; i < STATUSES.size(); i++) {
+            if (STATUSES.get(i).equalsIgnoreCase(status)) return i;
+        }
+        return STATUS_SLOTS - 1;
+    }
+
+    private static long epochHour(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    private static long epochMonth(YearMonth month) {
+        return month.getYear() * 12L + month.getMonthValue() - 1;
+    }
+
+    // Una capa de contadores (foto de la DB o delta local) con sus rings por hora y por mes
+    private static final class Counts {
+        final Bucket[] hours = new Bucket[HOURS];
+        final Bucket[] months = new Bucket[MONTHS];
+
+        Counts() {
+            for (int i = 0; i < HOURS; i++) hours[i] = new Bucket(MODULE_SLOTS * STATUS_SLOTS);
+            for (int i = 0; i < MONTHS; i++) months[i] = new Bucket(STATUS_SLOTS);
+        }
+
+        void addHour(String source, String status, LocalDateTime occurredAt, long delta) {
+            long epochHour = epochHour(occurredAt);
+            // Fuera de la ventana de 24h no hay bucket que actualizar
+            if (epochHour <= epochHour(LocalDateTime.now()) - HOURS) return;
+            Bucket bucket = claim(hours, epochHour);
+            if (bucket == null) return;
+            bucket.counts[moduleSlot(source) * STATUS_SLOTS + statusSlot(status)].add(delta);
+        }
+
+        void addMonth(String status, YearMonth month, long delta) {
+            Bucket bucket = claim(months, epochMonth(month));
+            if (bucket == null) return;
+            bucket.counts[statusSlot(status)].add(delta);
+        }
+
+        // Suma esta capa en otra, período por período
+        void mergeInto(Counts target) {
+            merge(hours, target.hours);
+            merge(months, target.months);
+        }
+
+        private static void merge(Bucket[] from, Bucket[] to) {
+            for (Bucket source : from) {
+                if (source.period == Long.MIN_VALUE) continue;
+                Bucket bucket = claim(to, source.period);
+                if (bucket == null) continue;
+                for (int i = 0; i < source.counts.length; i++) bucket.counts[i].add(source.counts[i].sum());
+            }
+        }
+    }
+
+    private static final class Bucket {
+        volatile long period = Long.MIN_VALUE;
+        final LongAdder[] counts;
+
+        Bucket(int size) {
+            counts = new LongAdder[size];
+            for (int i = 0; i < size; i++) counts[i] = new LongAdder();
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.CoreBack.service;
 
 import com.example.CoreBack.entity.ModulePolicy;
+import com.example.CoreBack.entity.RetryPolicy;
 import com.example.CoreBack.repository.ModulePolicyRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class ModulePolicyService {
@@ -13,15 +15,31 @@ public class ModulePolicyService {
     @Autowired
     private ModulePolicyRepository repository;
 
+    @Autowired
+    private PolicyTable policyTable;
+
+    @Autowired
+    private ConfigChanges configChanges;
+
     public List<ModulePolicy> findAll() {
-        return repository.findAll();
+        return repository.findAllWithPolicy();
     }
 
     public ModulePolicy save(ModulePolicy modulePolicy) {
-        return repository.save(modulePolicy);
+        ModulePolicy saved = repository.save(modulePolicy);
+        configChanges.changed(ConfigChanges.RETRY_POLICIES);
+        return saved;
     }
 
     public void delete(Long id) {
         repository.deleteById(id);
+        configChanges.changed(ConfigChanges.RETRY_POLICIES);
+    }
+
+    // Política de reintentos vigente para un módulo de EventModules. El nombre del ModulePolicy puede ser
+    // el del módulo ("usuarios") o cualquiera que clasifique igual ("Users"); vacío si no hay o está deshabilitada.
+    // Sale de PolicyTable, sin consultar la DB por cada mensaje
+    public Optional<RetryPolicy> retryPolicyFor(String module) {
+        return policyTable.resolve(module);
     }
-}
\ No newline at end of file
+}
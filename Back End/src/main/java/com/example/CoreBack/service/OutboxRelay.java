@@ -0,0 +1,130 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.OutboxMessage;
+import com.example.CoreBack.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Drena el outbox en lotes: publica con confirms y borra (o reprograma) las filas en bloque.
+// Ninguna transacción queda abierta mientras se espera al broker: una transacción corta reclama el lote
+// (SKIP LOCKED + availableAt corrido por claim-lease-ms, así otro nodo no lo toma), la publicación y la espera
+// de confirms van fuera, y una segunda transacción borra lo confirmado y reprograma el resto.
+// Si el nodo se cae en el medio, el lease vence y otro nodo republica (el consumer descarta el duplicado).
+@Component
+@ConditionalOnProperty(name = "core.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final EventPublisherService publisherService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${core.outbox.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${core.outbox.confirm-timeout-ms:10000}")
+    private long confirmTimeoutMs = 10000;
+
+    @Value("${core.outbox.retry-delay-ms:5000}")
+    private long retryDelayMs = 5000;
+
+    // Tiempo que un lote reclamado queda fuera del alcance de los demás nodos (mayor que confirm-timeout-ms)
+    @Value("${core.outbox.claim-lease-ms:30000}")
+    private long claimLeaseMs = 30000;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       EventPublisherService publisherService,
+                       TransactionTemplate transactionTemplate) {
+        this.outboxRepository = outboxRepository;
+        this.publisherService = publisherService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${core.outbox.relay-interval-ms:200}")
+    public void relay() {
+        try {
+            Integer relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed != null && relayed >= batchSize);
+        } catch (Exception e) {
+            // El broker o la DB no están disponibles: las filas quedan y se reintenta en el próximo ciclo
+            System.err.println("❌ Outbox relay interrumpido: " + e.getMessage());
+        }
+    }
+
+    // Un lote: reclamar (tx corta) → publicar todo → esperar confirms → delete/update en bloque (tx corta)
+    int relayBatch() {
+        List<OutboxMessage> batch = transactionTemplate.execute(status -> claimNextBatch());
+        if (batch == null || batch.isEmpty()) return 0;
+
+        List<CompletableFuture<Void>> confirms = new ArrayList<>(batch.size());
+        for (OutboxMessage message : batch) {
+            confirms.add(publish(message));
+        }
+
+        try {
+            CompletableFuture.allOf(confirms.toArray(new CompletableFuture[0]))
+                    .get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception ignored) {
+            // Los que no confirmaron se reprograman abajo
+        }
+
+        List<Long> delivered = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<Void> confirm = confirms.get(i);
+            if (confirm.isDone() && !confirm.isCompletedExceptionally()) {
+                delivered.add(batch.get(i).getId());
+            } else {
+                failed.add(batch.get(i).getId());
+            }
+        }
+
+        transactionTemplate.execute(status -> {
+            if (!delivered.isEmpty()) {
+                outboxRepository.deleteAllByIdInBatch(delivered);
+            }
+            if (!failed.isEmpty()) {
+                outboxRepository.markFailedAttempt(failed, LocalDateTime.now().plusNanos(retryDelayMs * 1_000_000));
+            }
+            return null;
+        });
+        if (!failed.isEmpty()) {
+            System.err.println("⚠️ Outbox: " + failed.size() + " mensajes sin confirm, se reintentan en " + retryDelayMs + "ms");
+        }
+
+        return batch.size();
+    }
+
+    // Bloquea el próximo lote y corre su availableAt: al commit se liberan los locks y el lote queda reservado
+    private List<OutboxMessage> claimNextBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMessage> batch = outboxRepository.lockNextBatch(now, PageRequest.of(0, batchSize));
+        if (!batch.isEmpty()) {
+            outboxRepository.lease(batch.stream().map(OutboxMessage::getId).toList(),
+                    now.plusNanos(claimLeaseMs * 1_000_000));
+        }
+        return batch;
+    }
+
+    private CompletableFuture<Void> publish(OutboxMessage message) {
+        if (message.isBinary()) {
+            CloudEventHeaders.Metadata metadata = new CloudEventHeaders.Metadata(message.getEventId(),
+                    message.getEventType(), message.getSource(), message.getContentType(), message.getOccurredAt());
+            return publisherService.publishBinaryConfirmed(metadata,
+                    message.getPayload().getBytes(StandardCharsets.UTF_8), message.getRoutingKey());
+        }
+        return publisherService.publishJsonConfirmed(message.getPayload(), message.getRoutingKey());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.OutboxMessage;
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.OutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class OutboxService {
+
+    private final EventRepository eventRepository;
+    private final OutboxRepository outboxRepository;
+    private final EventDeduplicator deduplicator;
+    private final EventRollupService rollupService;
+
+    public OutboxService(EventRepository eventRepository, OutboxRepository outboxRepository,
+                         EventDeduplicator deduplicator, EventRollupService rollupService) {
+        this.eventRepository = eventRepository;
+        this.outboxRepository = outboxRepository;
+        this.deduplicator = deduplicator;
+        this.rollupService = rollupService;
+    }
+
+    // Guarda el evento (InQueue), su mensaje de outbox y su rollup en una sola transacción local.
+    // Vacío si el eventId ya estaba guardado (reintento del productor): no se inserta nada
+    @Transactional
+    public Optional<StoredEvent> enqueue(PendingEvent pending) {
+        if (deduplicator.claim(List.of(pending.event().getEventId())).isEmpty()) {
+            return Optional.empty();
+        }
+        StoredEvent saved = eventRepository.save(pending.event());
+        outboxRepository.save(pending.toOutboxMessage());
+        rollupService.record(List.of(saved));
+        return Optional.of(saved);
+    }
+
+    // Variante para lotes: todo el lote entra o no entra. Devuelve sólo los guardados
+    // (los eventIds repetidos, contra la DB o dentro del mismo lote, se saltean)
+    @Transactional
+    public List<StoredEvent> enqueueAll(List<PendingEvent> pending) {
+        Set<String> claimed = new HashSet<>(deduplicator.claim(pending.stream().map(p -> p.event().getEventId()).toList()));
+        List<PendingEvent> fresh = pending.stream().filter(p -> claimed.remove(p.event().getEventId())).toList();
+        if (fresh.isEmpty()) return List.of();
+        List<StoredEvent> saved = eventRepository.insertAll(fresh.stream().map(PendingEvent::event).toList());
+        outboxRepository.saveAll(fresh.stream().map(PendingEvent::toOutboxMessage).toList());
+        rollupService.record(saved);
+        return saved;
+    }
+
+    // Evento a persistir + mensaje (ya serializado) que el relay va a publicar
+    public record PendingEvent(StoredEvent event, String routingKey, String messageJson, boolean binary) {
+
+        public PendingEvent(StoredEvent event, String routingKey, String messageJson) {
+            this(event, routingKey, messageJson, false);
+        }
+
+        // Modo binario: se publica sólo el payload (`data`) y los atributos salen del propio StoredEvent
+        public static PendingEvent binary(StoredEvent event, String routingKey) {
+            return new PendingEvent(event, routingKey, event.getPayload(), true);
+        }
+
+        OutboxMessage toOutboxMessage() {
+            OutboxMessage message = new OutboxMessage(event.getEventId(), routingKey, messageJson);
+            if (binary) {
+                message.setContentMode(OutboxMessage.BINARY);
+                message.setEventType(event.getEventType());
+                message.setSource(event.getSource());
+                message.setContentType(event.getContentType());
+                message.setOccurredAt(event.getOccurredAt());
+            }
+            return message;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.PayloadCodec;
+import com.example.CoreBack.repository.EventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Migración de la columna TEXT `payload` a `payload_data` comprimida (PayloadCodec).
+// Recorre las filas todavía sin migrar en orden de id, en tramos y una transacción por tramo;
+// cada UPDATE deja el texto en null, así que una fila migrada no se vuelve a leer.
+// Las filas nuevas ya se escriben comprimidas (StoredEvent.encodePayload).
+@Component
+@ConditionalOnProperty(name = "core.payload.compression.backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class PayloadCompressionBackfill {
+
+    private final EventRepository eventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PayloadDictionaryService dictionaries;
+
+    @Value("${core.payload.compression.backfill.chunk-size:500}")
+    private int chunkSize = 500;
+
+    public PayloadCompressionBackfill(EventRepository eventRepository, JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate, PayloadDictionaryService dictionaries) {
+        this.eventRepository = eventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dictionaries = dictionaries;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            long migrated = backfill();
+            if (migrated > 0) {
+                System.out.println("🗜️ Payloads comprimidos: " + migrated + " eventos");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Compresión de payloads interrumpida: " + e.getMessage());
+        }
+    }
+
+    // Devuelve la cantidad de filas migradas
+    public long backfill() {
+        long total = 0;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<EventRepository.UncompressedPayload> rows =
+                    eventRepository.findUncompressedPayloads(afterId, PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) return total;
+
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (EventRepository.UncompressedPayload row : rows) {
+                updates.add(new Object[]{PayloadCodec.encode(row.getEventType(), row.getPayload()), row.getId()});
+            }
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "update events set payload_data = ?, payload = null where id = ? and payload_data is null", updates));
+
+            total += rows.size();
+            afterId = rows.get(rows.size() - 1).getId();
+            // Los tipos que ya juntaron muestras con este tramo estrenan diccionario en el siguiente
+            dictionaries.trainPending();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.PayloadCodec;
+import com.example.CoreBack.entity.PayloadDictionary;
+import com.example.CoreBack.repository.PayloadDictionaryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Diccionarios de compresión por tipo de evento para PayloadCodec.
+// Mientras un tipo no tiene diccionario se guardan muestras de sus payloads (se comprimen sin diccionario);
+// con `samples` muestras el job arma uno, lo guarda en payload_dictionary y desde ahí se usa para ese tipo.
+// Los diccionarios de otros nodos se cargan al recargar o la primera vez que hay que decodificar uno.
+@Component
+public class PayloadDictionaryService implements PayloadCodec.Dictionaries {
+
+    // Deflate sólo mira 32KB hacia atrás
+    static final int MAX_DICTIONARY_BYTES = 32 * 1024;
+
+    private final PayloadDictionaryRepository repository;
+    private final Map<Integer, byte[]> byId = new ConcurrentHashMap<>();
+    private final Map<String, PayloadCodec.Dictionary> active = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> samples = new ConcurrentHashMap<>();
+
+    @Value("${core.payload.compression.dictionaries.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${core.payload.compression.dictionaries.samples:200}")
+    private int samplesPerDictionary = 200;
+
+    @Value("${core.payload.compression.dictionaries.size:16384}")
+    private int dictionarySize = 16384;
+
+    public PayloadDictionaryService(PayloadDictionaryRepository repository) {
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void start() {
+        reload();
+        PayloadCodec.register(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        PayloadCodec.unregister(this);
+    }
+
+    @Override
+    public PayloadCodec.Dictionary forType(String eventType, String sample) {
+        if (!enabled || eventType == null) return null;
+        PayloadCodec.Dictionary dictionary = active.get(eventType);
+        if (dictionary != null) return dictionary;
+
+        List<String> pending = samples.computeIfAbsent(eventType, type -> new ArrayList<>());
+        synchronized (pending) {
+            if (pending.size() < samplesPerDictionary) pending.add(sample);
+        }
+        return null;
+    }
+
+    @Override
+    public byte[] byId(int id) {
+        byte[] content = byId.get(id);
+        if (content != null) return content;
+        return repository.findById(id).map(dictionary -> {
+            byId.put(id, dictionary.getContent());
+            return dictionary.getContent();
+        }).orElse(null);
+    }
+
+    // Entrena los tipos que ya juntaron suficientes muestras; después recarga los de otros nodos
+    @Scheduled(fixedDelayString = "${core.payload.compression.dictionaries.train-interval-ms:60000}")
+    public void trainPending() {
+        try {
+            for (Map.Entry<String, List<String>> entry : samples.entrySet()) {
+                List<String> pending;
+                synchronized (entry.getValue()) {
+                    if (entry.getValue().size() < samplesPerDictionary) continue;
+                    pending = new ArrayList<>(entry.getValue());
+                }
+                String eventType = entry.getKey();
+                PayloadDictionary saved = repository.save(new PayloadDictionary(eventType,
+                        train(pending, Math.min(dictionarySize, MAX_DICTIONARY_BYTES))));
+                activate(saved);
+                samples.remove(eventType);
+                System.out.println("🗜️ Diccionario de payloads para " + eventType + " (" + saved.getContent().length + " bytes)");
+            }
+            reload();
+        } catch (Exception e) {
+            System.err.println("❌ Error entrenando diccionarios de payloads: " + e.getMessage());
+        }
+    }
+
+    void reload() {
+        for (PayloadDictionary dictionary : repository.findAllByOrderByIdAsc()) {
+            activate(dictionary);
+        }
+    }
+
+    private void activate(PayloadDictionary dictionary) {
+        byId.put(dictionary.getId(), dictionary.getContent());
+        active.merge(dictionary.getEventType(), new PayloadCodec.Dictionary(dictionary.getId(), dictionary.getContent()),
+                (current, candidate) -> candidate.id() > current.id() ? candidate : current);
+        samples.remove(dictionary.getEventType());
+    }
+
+    // Deflate encuentra coincidencias hacia atrás, así que el diccionario es "texto que ya pasó":
+    // los fragmentos JSON (entre , { } [ ]) que aparecen en varias muestras, con los más valiosos
+    // (frecuencia × largo) al final, donde las distancias son más cortas.
+    static byte[] train(List<String> samples, int size) {
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (String sample : samples) {
+            Set<String> seen = new HashSet<>();
+            int start = 0;
+            for (int i = 0; i < sample.length(); i++) {
+                char c = sample.charAt(i);
+                if (c == ',' || c == '{' || c == '}' || c == '[' || c == ']') {
+                    if (i + 1 - start > 1) seen.add(sample.substring(start, i + 1));
+                    start = i + 1;
+                }
+            }
+            if (sample.length() - start > 1) seen.add(sample.substring(start));
+            for (String fragment : seen) documentFrequency.merge(fragment, 1, Integer::sum);
+        }
+
+        List<Map.Entry<String, Integer>> fragments = new ArrayList<>(documentFrequency.entrySet());
+        fragments.removeIf(entry -> entry.getValue() < 2);
+        fragments.sort(Comparator.comparingLong((Map.Entry<String, Integer> entry) ->
+                (long) entry.getValue() * entry.getKey().length()).reversed());
+
+        // Se eligen los más valiosos hasta llenar el tamaño y se escriben del menos al más valioso
+        List<byte[]> chosen = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : fragments) {
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (total + bytes.length > size) continue;
+            chosen.add(bytes);
+            total += bytes.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(total);
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            out.writeBytes(chosen.get(i));
+        }
+        byte[] dictionary = out.toByteArray();
+        // Sin fragmentos repetidos (payloads muy distintos) se usa la última muestra tal cual
+        if (dictionary.length == 0 && !samples.isEmpty()) {
+            byte[] last = samples.get(samples.size() - 1).getBytes(StandardCharsets.UTF_8);
+            dictionary = Arrays.copyOfRange(last, Math.max(0, last.length - size), last.length);
+        }
+        return dictionary;
+    }
+}
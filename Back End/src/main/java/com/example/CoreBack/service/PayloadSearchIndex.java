@@ -0,0 +1,432 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.TimeOrderedIdGenerator;
+import com.example.CoreBack.repository.EventPartitioning;
+import com.example.CoreBack.repository.EventRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Índice invertido (Lucene) sobre los tokens del payload, guardado en disco local.
+// Cada documento es un evento (clave eventId) con los términos del payload, un campo exacto
+// por cada hoja del JSON ("p.<ruta>", para los predicados payload.<ruta>=valor), su occurredAt (en
+// microsegundos, la precisión de la columna) y su id; el índice se ordena por (occurredAt, id) descendente,
+// así "los N más recientes que matchean" corta temprano en cada segmento sin recorrer todos los matches.
+// La ventana from/to y el cursor de keyset se resuelven en el índice con rangos sobre esos mismos campos,
+// así cada página trae los N siguientes en el orden del listado y no siempre los N más nuevos.
+// Cada nodo tiene su propio índice y lo pone al día desde la tabla events (compartida) por marca de
+// agua de id: catchUp() lee las filas con id mayor a la marca, así entran también las InQueue del
+// outbox y lo que consumieron otros nodos. La marca se guarda con cada commit; después de una caída
+// se retoma desde el último commit. El consumer indexa además lo que inserta para que se vea antes.
+// Las búsquedas matchean palabras completas o por prefijo ("incep" encuentra "inception"), no
+// subcadenas dentro de una palabra como el viejo LIKE '%term%' ("ception" no encuentra nada).
+@Component
+public class PayloadSearchIndex {
+
+    static final String EVENT_ID = "eventId";
+    static final String TEXT = "text";
+    static final String OCCURRED_AT = "occurredAt";
+    static final String ID = "id";
+    static final String FIELD_PREFIX = "p.";
+
+    // Versión del formato de documento: si cambia, el índice existente se descarta y se reconstruye
+    static final String SCHEMA_KEY = "schema";
+    static final String SCHEMA_VERSION = "4";
+    // Mayor id de events ya recorrido por catchUp()
+    static final String WATERMARK_KEY = "watermark";
+
+    private static final Sort RECENT_FIRST = new Sort(
+            new SortField(OCCURRED_AT, SortField.Type.LONG, true),
+            new SortField(ID, SortField.Type.LONG, true));
+
+    // Resultado de una búsqueda: como mucho max-hits eventIds (los más recientes), el total real de matches
+    // y la posición del último hit devuelto (para seguir después de él si hubo corte)
+    public record Hits(List<String> eventIds, long totalHits, EventCursor last) {
+
+        public boolean truncated() {
+            return totalHits > eventIds.size();
+        }
+    }
+
+    private final EventRepository eventRepository;
+    private final ObjectMapper objectMapper;
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    @Value("${core.search.index.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${core.search.index.dir:data/payload-index}")
+    private String indexDir = "data/payload-index";
+
+    @Value("${core.search.index.max-hits:1000}")
+    private int maxHits = 1000;
+
+    @Value("${core.search.index.backfill-chunk:2000}")
+    private int backfillChunk = 2000;
+
+    // catchUp() vuelve a mirar los ids de este último tramo de tiempo: una fila con un id apenas menor a
+    // la marca puede commitearse después (transacciones en vuelo, otros nodos)
+    @Value("${core.search.index.catch-up-lag-ms:10000}")
+    private long catchUpLagMs = 10000;
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile boolean ready;
+    private volatile long watermark = Long.MIN_VALUE;
+
+    public PayloadSearchIndex(EventRepository eventRepository, ObjectMapper objectMapper) {
+        this.eventRepository = eventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) return;
+        open(FSDirectory.open(Path.of(indexDir)));
+    }
+
+    // Separado para poder abrir el índice sobre un directorio en memoria en los tests
+    void open(Directory directory) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setIndexSort(RECENT_FIRST);
+        this.directory = directory;
+        this.writer = new IndexWriter(directory, config);
+        if (writer.getDocStats().numDocs > 0 && !SCHEMA_VERSION.equals(commitValue(writer, SCHEMA_KEY))) {
+            System.out.println("🔎 Índice de payloads con formato viejo: se reconstruye");
+            writer.deleteAll();
+        } else {
+            String committed = commitValue(writer, WATERMARK_KEY);
+            this.watermark = committed != null ? Long.parseLong(committed) : Long.MIN_VALUE;
+        }
+        this.searcherManager = new SearcherManager(writer, null);
+        // Listo recién cuando catchUp() alcanza el final de la tabla
+        this.ready = false;
+        System.out.println("🔎 Índice de payloads abierto (" + writer.getDocStats().numDocs + " documentos)");
+    }
+
+    // Alta o reemplazo del documento del evento (idempotente ante redeliveries del mismo eventId).
+    // Un error acá no debe frenar el consumo: el índice es derivado y se puede reconstruir.
+    public void index(Long id, String eventId, String payload, LocalDateTime occurredAt) {
+        if (writer == null || id == null || eventId == null || payload == null) return;
+
+        Document doc = new Document();
+        doc.add(new StringField(EVENT_ID, eventId, Field.Store.YES));
+        doc.add(new TextField(TEXT, payload, Field.Store.NO));
+        addFieldTerms(doc, payload);
+        doc.add(new NumericDocValuesField(OCCURRED_AT, toMicros(occurredAt)));
+        doc.add(new LongPoint(OCCURRED_AT, toMicros(occurredAt)));
+        doc.add(new NumericDocValuesField(ID, id));
+        doc.add(new LongPoint(ID, id));
+        doc.add(new StoredField(ID, id));
+        try {
+            writer.updateDocument(new Term(EVENT_ID, eventId), doc);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ No se pudo indexar el evento " + eventId + ": " + e.getMessage());
+        }
+    }
+
+    // Retención: saca del índice los eventos de particiones ya borradas
+    public void deleteOlderThan(LocalDateTime cutoff) {
+        if (writer == null) return;
+        try {
+            writer.deleteDocuments(LongPoint.newRangeQuery(OCCURRED_AT, Long.MIN_VALUE, toMicros(cutoff) - 1));
+        } catch (IOException e) {
+            System.err.println("❌ No se pudieron borrar eventos viejos del índice: " + e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Hits search(String text) {
+        return search(text, Map.of());
+    }
+
+    public Hits search(String text, Map<String, String> fields) {
+        return search(text, fields, null, null, null);
+    }
+
+    // eventIds cuyo payload contiene todos los términos (prefijo) de `text` y cuyos campos coinciden
+    // con `fields` (ruta → valor, sin distinguir mayúsculas), con occurredAt en [from, to) y posición
+    // anterior a `before` (keyset por (occurredAt, id); null = sin cota), los más recientes primero.
+    // Como mucho `max-hits` resultados; totalHits dice cuántos matchean en total.
+    public Hits search(String text, Map<String, String> fields, LocalDateTime from, LocalDateTime to,
+                       EventCursor before) {
+        if (searcherManager == null) return new Hits(List.of(), 0, null);
+        Query query = toQuery(text, fields);
+        if (query == null) return new Hits(List.of(), 0, null);
+        query = bounded(query, from, to, before);
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                ScoreDoc[] hits = searcher.search(query, maxHits, RECENT_FIRST).scoreDocs;
+                StoredFields storedFields = searcher.storedFields();
+                List<String> eventIds = new ArrayList<>(hits.length);
+                for (ScoreDoc hit : hits) {
+                    eventIds.add(storedFields.document(hit.doc).get(EVENT_ID));
+                }
+                // El corte temprano no cuenta el resto: sólo si se llenó el tope hace falta contar aparte
+                long totalHits = hits.length < maxHits ? hits.length : searcher.count(query);
+                EventCursor last = null;
+                if (hits.length > 0) {
+                    Object[] position = ((FieldDoc) hits[hits.length - 1]).fields;
+                    last = new EventCursor(fromMicros((Long) position[0]), (Long) position[1]);
+                }
+                return new Hits(eventIds, totalHits, last);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Agrega la ventana de occurredAt y la cota del cursor: occurredAt < c.occurredAt o (= y id < c.id)
+    private static Query bounded(Query query, LocalDateTime from, LocalDateTime to, EventCursor before) {
+        if (from == null && to == null && before == null) return query;
+        BooleanQuery.Builder builder = new BooleanQuery.Builder().add(query, BooleanClause.Occur.MUST);
+        if (from != null || to != null) {
+            builder.add(LongPoint.newRangeQuery(OCCURRED_AT,
+                    from != null ? toMicros(from) : Long.MIN_VALUE,
+                    to != null ? toMicros(to) - 1 : Long.MAX_VALUE), BooleanClause.Occur.FILTER);
+        }
+        if (before != null) {
+            long at = toMicros(before.occurredAt());
+            Query sameInstant = new BooleanQuery.Builder()
+                    .add(LongPoint.newExactQuery(OCCURRED_AT, at), BooleanClause.Occur.FILTER)
+                    .add(LongPoint.newRangeQuery(ID, Long.MIN_VALUE, before.id() - 1), BooleanClause.Occur.FILTER)
+                    .build();
+            Query seek = new BooleanQuery.Builder()
+                    .add(LongPoint.newRangeQuery(OCCURRED_AT, Long.MIN_VALUE, at - 1), BooleanClause.Occur.SHOULD)
+                    .add(sameInstant, BooleanClause.Occur.SHOULD)
+                    .build();
+            builder.add(seek, BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    // Mismo analyzer que al indexar; cada término es obligatorio y matchea por prefijo de palabra
+    Query toQuery(String text) {
+        return toQuery(text, Map.of());
+    }
+
+    Query toQuery(String text, Map<String, String> fields) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int terms = 0;
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            builder.add(new TermQuery(new Term(FIELD_PREFIX + field.getKey(), normalize(field.getValue()))),
+                    BooleanClause.Occur.MUST);
+            terms++;
+        }
+        if (text == null || text.isBlank()) return terms == 0 ? null : builder.build();
+
+        try (TokenStream stream = analyzer.tokenStream(TEXT, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                builder.add(new PrefixQuery(new Term(TEXT, term.toString())), BooleanClause.Occur.MUST);
+                terms++;
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms == 0 ? null : builder.build();
+    }
+
+    // Al arrancar: pone el índice al día antes de marcarlo listo (todo desde la DB si arranca vacío)
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpOnStartup() {
+        catchUp();
+    }
+
+    // Indexa las filas de events con id mayor a la marca de agua, en tramos de id. Los ids del último
+    // catch-up-lag-ms se vuelven a leer; los que ya están en el índice no se reindexan.
+    @Scheduled(fixedDelayString = "${core.search.index.catch-up-interval-ms:2000}",
+            initialDelayString = "${core.search.index.catch-up-interval-ms:2000}")
+    public synchronized void catchUp() {
+        if (writer == null) return;
+        try {
+            long recheckFrom = recheckFrom(watermark);
+            if (recheckFrom < watermark) searcherManager.maybeRefreshBlocking();
+
+            long indexed = 0;
+            long afterId = recheckFrom;
+            List<EventRepository.PayloadRow> rows;
+            do {
+                rows = eventRepository.findPayloadsAfter(afterId, PageRequest.of(0, backfillChunk));
+                for (EventRepository.PayloadRow row : rows) {
+                    if (row.getId() <= watermark && contains(row.getEventId())) continue;
+                    index(row.getId(), row.getEventId(), row.getPayloadText(), row.getOccurredAt());
+                    indexed++;
+                }
+                if (!rows.isEmpty()) {
+                    afterId = rows.get(rows.size() - 1).getId();
+                    watermark = Math.max(watermark, afterId);
+                }
+            } while (rows.size() == backfillChunk);
+
+            if (!ready) {
+                commit();
+                refresh();
+                ready = true;
+                System.out.println("🔎 Índice de payloads al día: " + indexed + " eventos indexados al arrancar");
+            }
+        } catch (Exception e) {
+            // Se reintenta en la próxima corrida desde la misma marca
+            System.err.println("❌ No se pudo poner al día el índice de payloads: " + e.getMessage());
+        }
+    }
+
+    // Desde dónde volver a leer: catch-up-lag-ms antes de la marca (sólo para ids con fecha; los legacy
+    // IDENTITY ya no crecen)
+    private long recheckFrom(long mark) {
+        if (mark < EventPartitioning.LEGACY_ID_LIMIT) return mark;
+        long from = TimeOrderedIdGenerator.minIdAt(TimeOrderedIdGenerator.millisOf(mark) - catchUpLagMs) - 1;
+        return Math.max(from, EventPartitioning.LEGACY_ID_LIMIT - 1);
+    }
+
+    private boolean contains(String eventId) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.count(new TermQuery(new Term(EVENT_ID, eventId))) > 0;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    // Hace visibles para la búsqueda los documentos agregados (near-real-time, sin commit)
+    @Scheduled(fixedDelayString = "${core.search.index.refresh-interval-ms:1000}")
+    public void refresh() {
+        if (searcherManager == null) return;
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            System.err.println("❌ Error refrescando el índice de payloads: " + e.getMessage());
+        }
+    }
+
+    // Persiste en disco lo indexado desde el último commit
+    @Scheduled(fixedDelayString = "${core.search.index.commit-interval-ms:30000}")
+    public void commit() {
+        if (writer == null || !writer.hasUncommittedChanges()) return;
+        try {
+            writer.setLiveCommitData(Map.of(SCHEMA_KEY, SCHEMA_VERSION,
+                    WATERMARK_KEY, String.valueOf(watermark)).entrySet());
+            writer.commit();
+        } catch (IOException e) {
+            System.err.println("❌ Error guardando el índice de payloads: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (writer == null) return;
+        commit();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+        writer = null;
+        searcherManager = null;
+    }
+
+    // Un StringField por hoja del JSON: {"movie":{"title":"X"}} → p.movie.title = "x"
+    private void addFieldTerms(Document doc, String payload) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(payload);
+        } catch (Exception e) {
+            return; // payload que no es JSON: sólo queda el texto
+        }
+        addFieldTerms(doc, "", root);
+    }
+
+    private void addFieldTerms(Document doc, String path, JsonNode node) {
+        if (node == null || node.isNull()) return;
+        if (node.isObject()) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> child = it.next();
+                addFieldTerms(doc, path.isEmpty() ? child.getKey() : path + "." + child.getKey(), child.getValue());
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) addFieldTerms(doc, path, element);
+        } else if (!path.isEmpty()) {
+            doc.add(new StringField(FIELD_PREFIX + path, normalize(node.asText()), Field.Store.NO));
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String commitValue(IndexWriter writer, String key) {
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData == null) return null;
+        for (Map.Entry<String, String> entry : commitData) {
+            if (key.equals(entry.getKey())) return entry.getValue();
+        }
+        return null;
+    }
+
+    private static long toMicros(LocalDateTime occurredAt) {
+        if (occurredAt == null) return 0L;
+        Instant instant = occurredAt.toInstant(ZoneOffset.UTC);
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
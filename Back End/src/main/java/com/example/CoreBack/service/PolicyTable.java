@@ -0,0 +1,121 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.ModulePolicy;
+import com.example.CoreBack.entity.RetryPolicy;
+import com.example.CoreBack.repository.ModulePolicyRepository;
+import com.example.CoreBack.repository.RetryPolicyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tabla en memoria módulo → RetryPolicy vigente y id → RetryPolicy, para que el consumer y los
+// reintentos no vayan a la DB por cada mensaje. Se carga con dos consultas (ModulePolicy con fetch join
+// y RetryPolicy) y se descarta con cada ConfigChanged de RETRY_POLICIES, de este nodo o de otro.
+// refresh-ms es el respaldo si se pierde un aviso. Las políticas son copias: nadie modifica las entidades.
+@Component
+public class PolicyTable {
+
+    private final ModulePolicyRepository modulePolicies;
+    private final RetryPolicyRepository retryPolicies;
+
+    @Value("${core.policies.cache.refresh-ms:60000}")
+    private long refreshMs = 60000;
+
+    // Sube con cada invalidación: una carga que empezó antes no pisa la tabla nueva
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private volatile Snapshot last;
+
+    private record Snapshot(Map<String, RetryPolicy> byModule, Map<Long, RetryPolicy> byId, long loadedAt) {}
+
+    public PolicyTable(ModulePolicyRepository modulePolicies, RetryPolicyRepository retryPolicies) {
+        this.modulePolicies = modulePolicies;
+        this.retryPolicies = retryPolicies;
+    }
+
+    // Política habilitada de un módulo de EventModules (ver ModulePolicyService.retryPolicyFor)
+    public Optional<RetryPolicy> resolve(String module) {
+        if (module == null) return Optional.empty();
+        return Optional.ofNullable(snapshot().byModule().get(module.toLowerCase(Locale.ROOT)));
+    }
+
+    public RetryPolicy policy(Long id) {
+        return id == null ? null : snapshot().byId().get(id);
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+    @EventListener
+    public void onConfigChanged(ConfigChanges.ConfigChanged change) {
+        if (ConfigChanges.RETRY_POLICIES.equals(change.topic())) {
+            invalidate();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.loadedAt() < refreshMs) return current;
+        return load();
+    }
+
+    private synchronized Snapshot load() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.loadedAt() < refreshMs) return current;
+
+        long loadingVersion = version.get();
+        Snapshot loaded;
+        try {
+            loaded = build(modulePolicies.findAllWithPolicy(), retryPolicies.findAll());
+        } catch (RuntimeException e) {
+            // Sin DB se sigue con la última tabla cargada, si hubo alguna
+            if (last == null) throw e;
+            System.err.println("⚠️ No se pudieron recargar las políticas, se usan las anteriores: " + e.getMessage());
+            return last;
+        }
+        last = loaded;
+        if (version.get() == loadingVersion) snapshot = loaded;
+        return loaded;
+    }
+
+    // Mismo criterio que la búsqueda lineal: el primero (por id) cuyo nombre sea el módulo o clasifique
+    // como él, saltando los que no tienen política o la tienen deshabilitada
+    private static Snapshot build(List<ModulePolicy> modules, List<RetryPolicy> policies) {
+        Map<Long, RetryPolicy> byId = new HashMap<>();
+        for (RetryPolicy policy : policies) {
+            byId.put(policy.getId(), copy(policy));
+        }
+        Map<String, RetryPolicy> byModule = new HashMap<>();
+        for (ModulePolicy module : modules) {
+            RetryPolicy policy = module.getPolicy();
+            if (module.getModuleName() == null || policy == null || !policy.isEnabled()) continue;
+            RetryPolicy resolved = byId.computeIfAbsent(policy.getId(), id -> copy(policy));
+            byModule.putIfAbsent(module.getModuleName().toLowerCase(Locale.ROOT), resolved);
+            byModule.putIfAbsent(EventModules.classify(module.getModuleName()), resolved);
+        }
+        return new Snapshot(Collections.unmodifiableMap(byModule), Collections.unmodifiableMap(byId),
+                System.currentTimeMillis());
+    }
+
+    private static RetryPolicy copy(RetryPolicy policy) {
+        RetryPolicy copy = new RetryPolicy();
+        copy.setId(policy.getId());
+        copy.setName(policy.getName());
+        copy.setMinDelay(policy.getMinDelay());
+        copy.setMaxDelay(policy.getMaxDelay());
+        copy.setMaxTries(policy.getMaxTries());
+        copy.setBackoffMultiplier(policy.getBackoffMultiplier());
+        copy.setEnabled(policy.isEnabled());
+        return copy;
+    }
+}
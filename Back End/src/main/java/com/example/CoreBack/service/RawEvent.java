@@ -0,0 +1,147 @@
+package com.example.CoreBack.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Sobre de un evento leído sin armar el EventDTO ni un Map (modo passthrough).
+// Un JsonParser recorre sólo el primer nivel del body: toma id/type/source/datacontenttype/sysDate
+// y de `data` guarda el rango de bytes (skipChildren no materializa nada). El body se reenvía y
+// se guarda tal cual llegó; `data` sale del mismo arreglo.
+final class RawEvent {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final byte[] body;
+    private final int objectStart;   // offset del '{' raíz
+    private final String id;
+    private final String type;
+    private final String source;
+    private final String datacontenttype;
+    private final String sysDate;
+    private final int dataStart;     // -1 si no vino `data`
+    private final int dataEnd;
+
+    private RawEvent(byte[] body, int objectStart, String id, String type, String source,
+                     String datacontenttype, String sysDate, int dataStart, int dataEnd) {
+        this.body = body;
+        this.objectStart = objectStart;
+        this.id = id;
+        this.type = type;
+        this.source = source;
+        this.datacontenttype = datacontenttype;
+        this.sysDate = sysDate;
+        this.dataStart = dataStart;
+        this.dataEnd = dataEnd;
+    }
+
+    static RawEvent parse(byte[] body) throws IOException {
+        if (body == null || body.length == 0) {
+            throw new JsonParseException(null, "El evento está vacío");
+        }
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "El evento debe ser un objeto JSON");
+            }
+            int objectStart = (int) parser.currentTokenLocation().getByteOffset();
+            String id = null, type = null, source = null, datacontenttype = null, sysDate = null;
+            int dataStart = -1, dataEnd = -1;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> id = text(parser, value, field);
+                    case "type" -> type = text(parser, value, field);
+                    case "source" -> source = text(parser, value, field);
+                    case "datacontenttype" -> datacontenttype = text(parser, value, field);
+                    case "sysDate" -> sysDate = text(parser, value, field);
+                    case "data" -> {
+                        if (value == JsonToken.START_OBJECT) {
+                            dataStart = (int) parser.currentTokenLocation().getByteOffset();
+                            parser.skipChildren();
+                            dataEnd = (int) parser.currentLocation().getByteOffset();
+                        } else if (value == JsonToken.VALUE_NULL) {
+                            dataStart = dataEnd = -1;
+                        } else {
+                            throw new JsonParseException(parser, "El campo 'data' debe ser un objeto");
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new JsonParseException(parser, "Evento JSON incompleto");
+            }
+            return new RawEvent(body, objectStart, id, type, source, datacontenttype, sysDate, dataStart, dataEnd);
+        }
+    }
+
+    private static String text(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value == JsonToken.VALUE_NULL) return null;
+        if (value != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "El campo '" + field + "' debe ser un string");
+        }
+        return parser.getText();
+    }
+
+    // Mismas reglas que la validación del EventDTO; null si el evento es válido
+    String validate() {
+        if (type == null || type.isBlank()) return "El campo 'type' es obligatorio";
+        if (source == null || source.isBlank()) return "El campo 'source' es obligatorio";
+        if (datacontenttype == null || datacontenttype.isBlank()) return "El campo 'datacontenttype' es obligatorio";
+        if (dataStart < 0) return "El campo 'data' es obligatorio";
+        return null;
+    }
+
+    String id() { return id; }
+    String type() { return type; }
+    String source() { return source; }
+    String datacontenttype() { return datacontenttype; }
+    String sysDate() { return sysDate; }
+
+    byte[] body() { return body; }
+
+    String bodyText() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    // `data` tal cual vino en el body (lo que el ingreso guarda como payload)
+    String dataText() {
+        if (dataStart < 0) return null;
+        return new String(body, dataStart, dataEnd - dataStart, StandardCharsets.UTF_8);
+    }
+
+    // `data` como bytes, para el body del modo binario (CloudEventHeaders)
+    byte[] dataBytes() {
+        if (dataStart < 0) return null;
+        return Arrays.copyOfRange(body, dataStart, dataEnd);
+    }
+
+    // Body con el id y el sysDate que asignó el core, sólo si el productor no los mandó:
+    // se insertan después del '{' raíz copiando bytes, sin reserializar el resto.
+    // El evento ya pasó validate(), así que el objeto tiene campos y la coma final es válida.
+    byte[] withEnvelope(String assignedId, String assignedSysDate) {
+        StringBuilder prefix = new StringBuilder();
+        if (id == null && assignedId != null) {
+            prefix.append("\"id\":\"").append(assignedId).append("\",");
+        }
+        if (sysDate == null && assignedSysDate != null) {
+            prefix.append("\"sysDate\":\"").append(assignedSysDate).append("\",");
+        }
+        if (prefix.isEmpty()) return body;
+
+        byte[] inserted = prefix.toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + inserted.length);
+        out.write(body, 0, objectStart + 1);
+        out.writeBytes(inserted);
+        out.write(body, objectStart + 1, body.length - objectStart - 1);
+        return out.toByteArray();
+    }
+}
@@ -13,16 +13,25 @@ public class RetryPolicyService {
     @Autowired
     private RetryPolicyRepository repository;
 
+    @Autowired
+    private PolicyTable policyTable;
+
+    @Autowired
+    private ConfigChanges configChanges;
+
     public List<RetryPolicy> findAll() {
         return repository.findAll();
     }
 
+    // Copia de PolicyTable: no va a la DB y no se puede usar para modificar la política (ver update)
     public RetryPolicy findById(Long id) {
-        return repository.findById(id).orElse(null);
+        return policyTable.policy(id);
     }
 
     public RetryPolicy save(RetryPolicy policy) {
-        return repository.save(policy);
+        RetryPolicy saved = repository.save(policy);
+        configChanges.changed(ConfigChanges.RETRY_POLICIES);
+        return saved;
     }
 
     public RetryPolicy update(Long id, RetryPolicy policy) {
@@ -33,10 +42,13 @@ public class RetryPolicyService {
         existing.setMaxTries(policy.getMaxTries());
         existing.setBackoffMultiplier(policy.getBackoffMultiplier());
         existing.setEnabled(policy.isEnabled());
-        return repository.save(existing);
+        RetryPolicy saved = repository.save(existing);
+        configChanges.changed(ConfigChanges.RETRY_POLICIES);
+        return saved;
     }
 
     public void delete(Long id) {
         repository.deleteById(id);
+        configChanges.changed(ConfigChanges.RETRY_POLICIES);
     }
 }
\ No newline at end of file
@@ -0,0 +1,279 @@
+package com.example.CoreBack.service;
+
+import com.example.CoreBack.entity.PendingRetry;
+import com.example.CoreBack.repository.PendingRetryRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.CoreBack.config.RabbitConfig.CORE_ALL_QUEUE;
+
+// Reintentos en proceso (core.retry.mode=in-process): en vez de esperar en las colas core.retry.<ms>ms,
+// el mensaje fallido se guarda en pending_retries y su id entra en un timing wheel; al vencer se publica
+// directo en core.all.queue y la fila se borra cuando el broker confirma. Ningún hilo duerme por mensaje:
+// un único tick avanza el wheel. Cada nodo (core.node-id) recarga sus filas al arrancar, así un reinicio
+// no pierde los reintentos pendientes.
+// La ocupación se publica como gauges core.retry.pending (total y por nivel del wheel).
+@Component
+public class RetryScheduler {
+
+    private final PendingRetryRepository repository;
+    private final EventPublisherService publisher;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${core.retry.in-process.tick-ms:100}")
+    private long tickMs = 100;
+
+    @Value("${core.retry.in-process.wheel-size:256}")
+    private int wheelSize = 256;
+
+    @Value("${core.retry.in-process.levels:3}")
+    private int levels = 3;
+
+    // Dueño de las filas: tiene que ser el mismo tras un reinicio para recargarlas
+    @Value("${core.retry.in-process.node:${core.node-id:0}}")
+    private String node = "0";
+
+    @Value("${core.retry.in-process.batch-size:500}")
+    private int batchSize = 500;
+
+    // Si el broker rechaza la redelivery, el timer se reprograma con esta espera (la fila sigue)
+    @Value("${core.retry.in-process.republish-delay-ms:5000}")
+    private long republishDelayMs = 5000;
+
+    @Value("${core.publisher.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs = 5000;
+
+    private TimingWheel<Long> wheel; // guardado por `this`
+
+    public RetryScheduler(PendingRetryRepository repository,
+                          EventPublisherService publisher,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.publisher = publisher;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (wheel != null) return;
+        wheel = new TimingWheel<>(tickMs, wheelSize, levels, System.currentTimeMillis());
+        Gauge.builder("core.retry.pending", this, RetryScheduler::pending)
+                .description("Reintentos en proceso pendientes")
+                .register(meterRegistry);
+        for (int level = 0; level < levels; level++) {
+            int index = level;
+            Gauge.builder("core.retry.pending.level", this, scheduler -> scheduler.pending(index))
+                    .description("Reintentos pendientes por nivel del timing wheel")
+                    .tag("level", String.valueOf(level))
+                    .register(meterRegistry);
+        }
+    }
+
+    // Guarda el mensaje en su propia transacción (la del consumer se está revirtiendo) y
+    // recién con el commit agrega el timer, para que no venza antes de que exista la fila
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void schedule(Message message, int attempt, long delayMs) {
+        long dueMs = System.currentTimeMillis() + Math.max(0, delayMs);
+        PendingRetry pending = new PendingRetry(node, attempt, toDateTime(dueMs));
+        pending.setContentType(message.getMessageProperties().getContentType());
+        pending.setHeaders(writeHeaders(message.getMessageProperties().getHeaders()));
+        pending.setBody(message.getBody());
+        Long id = repository.save(pending).getId();
+        afterCommit(() -> add(id, dueMs));
+    }
+
+    @Scheduled(fixedDelayString = "${core.retry.in-process.tick-ms:100}")
+    public void tick() {
+        List<Long> due;
+        synchronized (this) {
+            due = wheel().advance(System.currentTimeMillis());
+        }
+        if (!due.isEmpty()) {
+            redeliver(due);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            long reloaded = reload();
+            if (reloaded > 0) {
+                System.out.println("⏱️ Reintentos pendientes recargados: " + reloaded);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ No se pudieron recargar los reintentos pendientes: " + e.getMessage());
+        }
+    }
+
+    // Vuelve a cargar en el wheel los timers de este nodo (sólo id y vencimiento, sin el mensaje)
+    public long reload() {
+        long total = 0;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<PendingRetryRepository.PendingTimer> timers =
+                    repository.findTimers(node, afterId, PageRequest.of(0, batchSize));
+            if (timers.isEmpty()) return total;
+
+            synchronized (this) {
+                for (PendingRetryRepository.PendingTimer timer : timers) {
+                    wheel().add(timer.getId(), toEpochMs(timer.getDueAt()));
+                }
+            }
+            total += timers.size();
+            afterId = timers.get(timers.size() - 1).getId();
+        }
+    }
+
+    public synchronized int pending() {
+        return wheel().size();
+    }
+
+    synchronized int pending(int level) {
+        return wheel().occupancy(level);
+    }
+
+    // Publica los vencidos en core.all.queue, espera los confirms y borra en bloque las filas confirmadas;
+    // lo que no se pudo publicar o confirmar (o leer) se reprograma. Un id sin fila ya se entregó
+    // (ej: recargado dos veces) y se ignora.
+    void redeliver(Collection<Long> ids) {
+        List<Long> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (int from = 0; from < unique.size(); from += batchSize) {
+            List<Long> chunk = unique.subList(from, Math.min(from + batchSize, unique.size()));
+            List<Long> sent = new ArrayList<>(chunk.size());
+            List<Long> failed = new ArrayList<>();
+            try {
+                Map<Long, CompletableFuture<Void>> confirms = new LinkedHashMap<>();
+                for (PendingRetry pending : repository.findAllById(chunk)) {
+                    confirms.put(pending.getId(), publish(pending));
+                }
+                try {
+                    CompletableFuture.allOf(confirms.values().toArray(new CompletableFuture[0]))
+                            .get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (Exception ignored) {
+                    // Los que no confirmaron se reprograman abajo
+                }
+                for (Map.Entry<Long, CompletableFuture<Void>> confirm : confirms.entrySet()) {
+                    if (confirm.getValue().isDone() && !confirm.getValue().isCompletedExceptionally()) {
+                        sent.add(confirm.getKey());
+                    } else {
+                        failed.add(confirm.getKey());
+                    }
+                }
+                if (!sent.isEmpty()) {
+                    repository.deleteAllByIdInBatch(sent);
+                }
+            } catch (Exception e) {
+                // Sin DB: se reprograma todo lo que no se confirmó como publicado
+                System.err.println("❌ Redelivery de reintentos interrumpida: " + e.getMessage());
+                failed = new ArrayList<>(chunk);
+                failed.removeAll(sent);
+            }
+            if (!failed.isEmpty()) {
+                long retryAt = System.currentTimeMillis() + republishDelayMs;
+                synchronized (this) {
+                    failed.forEach(id -> wheel().add(id, retryAt));
+                }
+                System.err.println("⚠️ " + failed.size() + " reintentos sin publicar, se reprograman en " + republishDelayMs + "ms");
+            }
+        }
+    }
+
+    private CompletableFuture<Void> publish(PendingRetry pending) {
+        try {
+            return publisher.sendConfirmed("", CORE_ALL_QUEUE, toMessage(pending));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private synchronized void add(Long id, long dueMs) {
+        wheel().add(id, dueMs);
+    }
+
+    private TimingWheel<Long> wheel() {
+        if (wheel == null) start();
+        return wheel;
+    }
+
+    private Message toMessage(PendingRetry pending) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(pending.getContentType());
+        readHeaders(pending.getHeaders()).forEach(properties::setHeader);
+        return new Message(pending.getBody(), properties);
+    }
+
+    // Los headers que no son texto, número o booleano (ej: fechas) se guardan como texto
+    private String writeHeaders(Map<String, Object> headers) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        headers.forEach((name, value) -> {
+            if (value == null) return;
+            values.put(name, value instanceof Number || value instanceof Boolean ? value : value.toString());
+        });
+        try {
+            return objectMapper.writeValueAsString(values);
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudieron serializar los headers del reintento", e);
+        }
+    }
+
+    private Map<String, Object> readHeaders(String headers) {
+        if (headers == null || headers.isBlank()) return Map.of();
+        try {
+            return objectMapper.readValue(headers, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            return Map.of();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static LocalDateTime toDateTime(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMs(LocalDateTime dateTime) {
+        return dateTime == null ? 0L : dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
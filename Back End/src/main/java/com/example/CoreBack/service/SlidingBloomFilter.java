@@ -0,0 +1,104 @@
+package com.example.CoreBack.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Filtro de Bloom con ventana deslizante de dos generaciones: se agrega a la actual y se consulta en las dos.
+// rotate() descarta la anterior y la actual pasa a serlo, así que un id se recuerda entre una y dos ventanas.
+// También rota solo cuando la actual llega a `capacity` ids, para no pasarse de la tasa de falsos positivos.
+// "No" es seguro (el id no se agregó en la ventana); "tal vez" puede ser un falso positivo.
+final class SlidingBloomFilter {
+
+    private final int capacity;
+    private final long bits;
+    private final int hashes;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    SlidingBloomFilter(int capacity, double falsePositiveRate) {
+        this.capacity = Math.max(1, capacity);
+        double ln2 = Math.log(2);
+        this.bits = Math.max(64, (long) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / this.capacity * ln2));
+        this.current = new Generation(bits);
+        this.previous = new Generation(bits);
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        return current.contains(hash, bits, hashes) || previous.contains(hash, bits, hashes);
+    }
+
+    void put(String value) {
+        Generation generation = current;
+        if (generation.put(hash(value), bits, hashes) && generation.count.incrementAndGet() >= capacity) {
+            rotate(generation);
+        }
+    }
+
+    void rotate() {
+        rotate(current);
+    }
+
+    // Sólo rota si `full` sigue siendo la actual (dos hilos que la llenan a la vez rotan una vez)
+    private synchronized void rotate(Generation full) {
+        if (current != full) return;
+        previous = full;
+        current = new Generation(bits);
+    }
+
+    // FNV-1a de 64 bits + el mezclado final de murmur3; las dos mitades alimentan el doble hashing
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Generation {
+        private final AtomicLongArray words;
+        private final AtomicInteger count = new AtomicInteger();
+
+        Generation(long bits) {
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        }
+
+        boolean contains(long hash, long bits, int hashes) {
+            long h1 = (int) hash;
+            long h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // true si prendió algún bit (el id era nuevo para esta generación)
+        boolean put(long hash, long bits, int hashes) {
+            long h1 = (int) hash;
+            long h2 = (int) (hash >>> 32);
+            boolean changed = false;
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value;
+                while (((value = words.get(word)) & mask) == 0) {
+                    if (words.compareAndSet(word, value, value | mask)) {
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+            return changed;
+        }
+    }
+}
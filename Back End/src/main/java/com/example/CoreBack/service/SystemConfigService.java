@@ -3,23 +3,97 @@ package com.example.CoreBack.service;
 import com.example.CoreBack.entity.SystemConfig;
 import com.example.CoreBack.repository.SystemConfigRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.atomic.AtomicReference;
+
+// La fila única de SystemConfig se lee una vez y queda en una foto inmutable que se reemplaza entera:
+// los que chequean umbrales por evento leen snapshot() sin tocar la DB ni tomar locks.
+// update() la reemplaza y avisa a los otros nodos (ConfigChanges), que la recargan; refresh-ms es el respaldo.
 @Service
 public class SystemConfigService {
 
     @Autowired
     private SystemConfigRepository repository;
 
-    public SystemConfig getConfig() {
-        return repository.findById(1L).orElseGet(() -> {
+    @Autowired
+    private ConfigChanges configChanges;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    // Foto de la configuración vigente. Lleva el id y la versión de la fila: la copia de getConfig() se puede
+    // guardar sin crear otra fila, y una lectura vieja no pisa una foto más nueva
+    public record Snapshot(int queueThreshold, int latencyThreshold, int errorThreshold, String notificationEmail,
+                           Long id, long version) {
+
+        static Snapshot of(SystemConfig config) {
+            return new Snapshot(config.getQueueThreshold(), config.getLatencyThreshold(),
+                    config.getErrorThreshold(), config.getNotificationEmail(), config.getId(), config.getVersion());
+        }
+
+        SystemConfig toEntity() {
             SystemConfig config = new SystemConfig();
-            return repository.save(config);
-        });
+            config.setId(id);
+            config.setVersion(version);
+            config.setQueueThreshold(queueThreshold);
+            config.setLatencyThreshold(latencyThreshold);
+            config.setErrorThreshold(errorThreshold);
+            config.setNotificationEmail(notificationEmail);
+            return config;
+        }
+    }
+
+    public Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        return snapshot != null ? snapshot : refresh();
+    }
+
+    // Copia de la foto: modificarla no cambia la configuración (para eso está update)
+    public SystemConfig getConfig() {
+        return snapshot().toEntity();
     }
 
     public SystemConfig update(SystemConfig config) {
         config.setId(1L);
-        return repository.save(config);
+        SystemConfig saved = repository.save(config);
+        install(Snapshot.of(saved != null ? saved : config));
+        configChanges.changed(ConfigChanges.SYSTEM_CONFIG);
+        return saved;
+    }
+
+    // Relee la fila (y la crea con los valores por defecto si no existe)
+    public Snapshot refresh() {
+        SystemConfig config = repository.findById(1L).orElseGet(() -> {
+            SystemConfig created = new SystemConfig();
+            return repository.save(created);
+        });
+        return install(Snapshot.of(config));
+    }
+
+    // Un refresco que leyó antes de un update (aviso atrasado, el @Scheduled) no vuelve a la foto anterior
+    private Snapshot install(Snapshot fresh) {
+        return current.accumulateAndGet(fresh, (old, candidate) ->
+                old == null || candidate.version() >= old.version() ? candidate : old);
+    }
+
+    @EventListener
+    public void onConfigChanged(ConfigChanges.ConfigChanged change) {
+        if (ConfigChanges.SYSTEM_CONFIG.equals(change.topic())) {
+            refreshQuietly();
+        }
+    }
+
+    // Respaldo por si se pierde un aviso
+    @Scheduled(fixedDelayString = "${core.system-config.refresh-ms:60000}",
+            initialDelayString = "${core.system-config.refresh-ms:60000}")
+    public void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Se queda con la foto actual hasta el próximo refresco
+            System.err.println("⚠️ No se pudo recargar la configuración del sistema: " + e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.example.CoreBack.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Timing wheel jerárquico: `levels` ruedas de `wheelSize` ranuras (potencia de 2); una ranura del nivel i
+// cubre tickMs × wheelSize^i. Agregar es O(1) (el nivel y la ranura salen del vencimiento) y avanzar un tick
+// es O(1) más lo que vence: sólo cuando una rueda completa la vuelta se vuelca una ranura del nivel de arriba
+// en los de abajo. Lo que vence más allá del horizonte espera en el último nivel y se reubica al bajar.
+// No es thread-safe: RetryScheduler lo usa bajo su lock.
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int shift;
+    private final long mask;
+    private final int levels;
+    private final List<Timer<T>>[][] slots;
+    private final int[] occupancy;
+
+    private long currentTick;
+    private int size;
+
+    private record Timer<T>(long dueTick, T value) {}
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1 || levels < 1
+                || (long) Integer.numberOfTrailingZeros(wheelSize) * levels >= 62) {
+            throw new IllegalArgumentException("Timing wheel inválido: tick=" + tickMs + "ms, ranuras=" + wheelSize
+                    + ", niveles=" + levels);
+        }
+        this.tickMs = tickMs;
+        this.shift = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = levels;
+        this.slots = new List[levels][wheelSize];
+        this.occupancy = new int[levels];
+        this.currentTick = startMs / tickMs;
+    }
+
+    // Un vencimiento ya pasado sale en el próximo advance
+    void add(T value, long dueMs) {
+        long dueTick = Math.max(Math.floorDiv(dueMs + tickMs - 1, tickMs), currentTick + 1);
+        place(new Timer<>(dueTick, value));
+        size++;
+    }
+
+    // Avanza tick a tick hasta `nowMs` y devuelve lo vencido en orden de vencimiento
+    List<T> advance(long nowMs) {
+        long target = nowMs / tickMs;
+        List<T> expired = new ArrayList<>();
+        while (currentTick < target) {
+            currentTick++;
+            // Al cerrar la vuelta de un nivel baja la ranura siguiente del de arriba
+            for (int level = 1; level < levels; level++) {
+                if (((currentTick >>> (shift * (level - 1))) & mask) != 0) break;
+                cascade(level, (int) ((currentTick >>> (shift * level)) & mask));
+            }
+            List<Timer<T>> due = take(0, (int) (currentTick & mask));
+            if (due == null) continue;
+            for (Timer<T> timer : due) {
+                expired.add(timer.value());
+            }
+            size -= due.size();
+        }
+        return expired;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int occupancy(int level) {
+        return occupancy[level];
+    }
+
+    int levels() {
+        return levels;
+    }
+
+    // Tiempo que cubre el wheel sin reubicar: tickMs × wheelSize^levels
+    long horizonMs() {
+        return tickMs << (shift * levels);
+    }
+
+    private void cascade(int level, int slot) {
+        List<Timer<T>> timers = take(level, slot);
+        if (timers == null) return;
+        for (Timer<T> timer : timers) {
+            place(timer);
+        }
+    }
+
+    private List<Timer<T>> take(int level, int slot) {
+        List<Timer<T>> timers = slots[level][slot];
+        if (timers == null) return null;
+        slots[level][slot] = null;
+        occupancy[level] -= timers.size();
+        return timers;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.dueTick() - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << (shift * (level + 1))) {
+            level++;
+        }
+        // Más allá del horizonte: a la última ranura alcanzable, con su vencimiento real para cuando baje
+        long tick = delta >= 1L << (shift * levels) ? currentTick + (1L << (shift * levels)) - 1 : timer.dueTick();
+        int slot = (int) ((tick >>> (shift * level)) & mask);
+        List<Timer<T>> timers = slots[level][slot];
+        if (timers == null) {
+            timers = new ArrayList<>();
+            slots[level][slot] = timers;
+        }
+        timers.add(timer);
+        occupancy[level]++;
+    }
+}
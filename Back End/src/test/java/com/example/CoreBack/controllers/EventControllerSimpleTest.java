@@ -3,6 +3,7 @@ package com.example.CoreBack.controllers;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -17,12 +18,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import com.example.CoreBack.entity.EventDTO;
 import com.example.CoreBack.entity.StoredEvent;
 import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.service.AdmissionRejectedException;
 import com.example.CoreBack.service.EventService;
 import com.example.CoreBack.testutils.TestData;
 
@@ -56,7 +59,8 @@ class EventControllerSimpleTest {
     void setUp() {
         validEventDTO = TestData.Events.validEventDTO(); // asegurate que tenga source coherente si validás en service
         storedEvent = TestData.Events.storedEvent("test-id", "user.created");
-        when(request.getAttribute("AUTH_API_KEY")).thenReturn(API_KEY);
+        // lenient: los tests de GET no leen la apiKey del request
+        lenient().when(request.getAttribute("AUTH_API_KEY")).thenReturn(API_KEY);
     }
 
     // ============================================================
@@ -69,13 +73,13 @@ class EventControllerSimpleTest {
         Map<String, Object> mockResponse = Map.of(
             "page", 0, "size", 10, "total", 1L, "events", List.of(storedEvent)
         );
-        when(eventService.getAllEvents(0, 10, null, null, null)).thenReturn(mockResponse);
+        when(eventService.getAllEvents(0, 10, null, null, null, null, "exact")).thenReturn(mockResponse);
 
-        ResponseEntity<?> response = eventController.getAllEvents(0, 10, null, null, null);
+        ResponseEntity<?> response = eventController.getAllEvents(0, 10, null, null, null, null, "exact");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(mockResponse, response.getBody());
-        verify(eventService).getAllEvents(0, 10, null, null, null);
+        verify(eventService).getAllEvents(0, 10, null, null, null, null, "exact");
     }
 
     @Test
@@ -84,14 +88,50 @@ class EventControllerSimpleTest {
         Map<String, Object> mockResponse = Map.of(
             "page", 0, "size", 10, "total", 0L, "events", List.of()
         );
-        when(eventService.getAllEvents(0, 10, "user-service", "COMPLETED", "test"))
+        when(eventService.getAllEvents(0, 10, "user-service", "COMPLETED", "test", null, "exact"))
             .thenReturn(mockResponse);
 
-        ResponseEntity<?> response = eventController.getAllEvents(0, 10, "user-service", "COMPLETED", "test");
+        ResponseEntity<?> response = eventController.getAllEvents(0, 10, "user-service", "COMPLETED", "test", null, "exact");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(mockResponse, response.getBody());
-        verify(eventService).getAllEvents(0, 10, "user-service", "COMPLETED", "test");
+        verify(eventService).getAllEvents(0, 10, "user-service", "COMPLETED", "test", null, "exact");
+    }
+
+    @Test
+    @DisplayName("GET /events - Con search y el índice sin construir responde 503")
+    void getAllEvents_WithSearchWhileIndexNotReady_ShouldReturn503() {
+        when(eventService.getAllEvents(0, 10, null, null, "test", null, "exact"))
+            .thenThrow(new IllegalStateException("El índice de búsqueda todavía se está construyendo"));
+
+        ResponseEntity<?> response = eventController.getAllEvents(0, 10, null, null, "test", null, "exact");
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("GET /events - Con cursor pagina por keyset")
+    void getAllEvents_WithCursor_ShouldUseKeyset() {
+        Map<String, Object> mockResponse = Map.of(
+            "page", 0, "size", 10, "events", List.of(storedEvent), "hasMore", false
+        );
+        when(eventService.getAllEvents(0, 10, null, null, null, "", "none")).thenReturn(mockResponse);
+
+        ResponseEntity<?> response = eventController.getAllEvents(0, 10, null, null, null, "", "none");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(mockResponse, response.getBody());
+    }
+
+    @Test
+    @DisplayName("GET /events - Cursor inválido devuelve 400")
+    void getAllEvents_WithInvalidCursor_ShouldReturnBadRequest() {
+        when(eventService.getAllEvents(0, 10, null, null, null, "???", "none"))
+            .thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        ResponseEntity<?> response = eventController.getAllEvents(0, 10, null, null, null, "???", "none");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
 
     // ============================================================
@@ -139,43 +179,62 @@ class EventControllerSimpleTest {
     void receiveEvent_WithValidEvent_ShouldProcessSuccessfully() {
         String routingKey = "user.updated";
         StoredEvent processed = TestData.Events.storedEvent("test-id", "user.updated");
-        when(eventService.processIncomingEvent(validEventDTO, routingKey, API_KEY)).thenReturn(processed);
+        when(eventService.processIncomingEventAsync(validEventDTO, routingKey, API_KEY))
+            .thenReturn(CompletableFuture.completedFuture(processed));
 
-        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, routingKey, request);
+        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, routingKey, request).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         @SuppressWarnings("unchecked")
         Map<String, Object> body = (Map<String, Object>) response.getBody();
         assertEquals("sent_to_queue", body.get("status"));
+        assertEquals("confirmed", body.get("delivery"));
         assertEquals(routingKey, body.get("routingKey"));
         assertNotNull(body.get("occurredAt"));
 
-        verify(eventService).processIncomingEvent(validEventDTO, routingKey, API_KEY);
+        verify(eventService).processIncomingEventAsync(validEventDTO, routingKey, API_KEY);
+    }
+
+    @Test
+    @DisplayName("POST /events/receive - Con outbox responde queued (guardado, todavía sin confirm del broker)")
+    void receiveEvent_WithOutbox_ShouldReportQueued() {
+        StoredEvent processed = TestData.Events.storedEvent("test-id", DEFAULT_ROUTING);
+        when(eventService.isOutboxEnabled()).thenReturn(true);
+        when(eventService.processIncomingEventAsync(validEventDTO, DEFAULT_ROUTING, API_KEY))
+            .thenReturn(CompletableFuture.completedFuture(processed));
+
+        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, DEFAULT_ROUTING, request).join();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertEquals("sent_to_queue", body.get("status"));
+        assertEquals("queued", body.get("delivery"));
     }
 
     @Test
     @DisplayName("POST /events/receive - Con routing key por defecto")
     void receiveEvent_WithoutRoutingKey_ShouldUseDefaultRoutingKey() {
         StoredEvent processed = TestData.Events.storedEvent("test-id", DEFAULT_ROUTING);
-        when(eventService.processIncomingEvent(validEventDTO, DEFAULT_ROUTING, API_KEY)).thenReturn(processed);
+        when(eventService.processIncomingEventAsync(validEventDTO, DEFAULT_ROUTING, API_KEY))
+            .thenReturn(CompletableFuture.completedFuture(processed));
 
-        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, DEFAULT_ROUTING, request);
+        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, DEFAULT_ROUTING, request).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         @SuppressWarnings("unchecked")
         Map<String, Object> body = (Map<String, Object>) response.getBody();
         assertEquals(DEFAULT_ROUTING, body.get("routingKey"));
-        verify(eventService).processIncomingEvent(validEventDTO, DEFAULT_ROUTING, API_KEY);
+        verify(eventService).processIncomingEventAsync(validEventDTO, DEFAULT_ROUTING, API_KEY);
     }
 
     @Test
     @DisplayName("POST /events/receive - Maneja errores del service")
     void receiveEvent_WithServiceError_ShouldReturnBadRequest() {
         RuntimeException err = new RuntimeException("RabbitMQ connection failed");
-        when(eventService.processIncomingEvent(any(EventDTO.class), anyString(), anyString()))
+        when(eventService.processIncomingEventAsync(any(EventDTO.class), anyString(), anyString()))
             .thenThrow(err);
 
-        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, "test.key", request);
+        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, "test.key", request).join();
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         @SuppressWarnings("unchecked")
@@ -184,6 +243,95 @@ class EventControllerSimpleTest {
         assertEquals("RabbitMQ connection failed", body.get("message"));
     }
 
+    @Test
+    @DisplayName("POST /events/receive - Sin confirm del broker devuelve 503")
+    void receiveEvent_WithBrokerNack_ShouldReturnServiceUnavailable() {
+        when(eventService.processIncomingEventAsync(any(EventDTO.class), anyString(), anyString()))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker nack: queue full")));
+
+        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, "test.key", request).join();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertEquals("Broker nack: queue full", body.get("message"));
+    }
+
+    @Test
+    @DisplayName("POST /events/receive - Con las colas saturadas devuelve 429 con Retry-After")
+    void receiveEvent_WhenThrottled_ShouldReturnTooManyRequests() {
+        when(eventService.processIncomingEventAsync(any(EventDTO.class), anyString(), anyString()))
+            .thenThrow(new AdmissionRejectedException("usuarios", 12));
+
+        ResponseEntity<?> response = eventController.receiveEvent(validEventDTO, "test.key", request).join();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("12", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertEquals("throttled", body.get("status"));
+    }
+
+    // ============================================================
+    // Tests para POST /events/receive/batch
+    // ============================================================
+
+    @Test
+    @DisplayName("POST /events/receive/batch - Devuelve resultado por ítem")
+    void receiveBatch_WithValidEvents_ShouldReturnPerItemResults() {
+        List<EventDTO> batch = List.of(validEventDTO, validEventDTO);
+        List<Map<String, Object>> results = List.of(
+            Map.of("index", 0, "status", "sent_to_queue"),
+            Map.of("index", 1, "status", "rejected", "error", "API Key no autorizada")
+        );
+        when(eventService.processIncomingBatch(batch, API_KEY)).thenReturn(results);
+
+        ResponseEntity<?> response = eventController.receiveBatch(batch, request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertEquals(1L, body.get("accepted"));
+        assertEquals(1L, body.get("rejected"));
+        assertEquals(results, body.get("results"));
+    }
+
+    @Test
+    @DisplayName("POST /events/receive/batch - Sin ítems aceptados por saturación devuelve 429")
+    void receiveBatch_WhenAllThrottled_ShouldReturnTooManyRequests() {
+        List<EventDTO> batch = List.of(validEventDTO, validEventDTO);
+        List<Map<String, Object>> results = List.of(
+            Map.of("index", 0, "status", "throttled", "retryAfter", 5L),
+            Map.of("index", 1, "status", "throttled", "retryAfter", 20L)
+        );
+        when(eventService.processIncomingBatch(batch, API_KEY)).thenReturn(results);
+
+        ResponseEntity<?> response = eventController.receiveBatch(batch, request);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("20", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    @DisplayName("POST /events/receive/batch - Lote vacío devuelve 400")
+    void receiveBatch_WithEmptyBatch_ShouldReturnBadRequest() {
+        ResponseEntity<?> response = eventController.receiveBatch(List.of(), request);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(eventService);
+    }
+
+    @Test
+    @DisplayName("POST /events/receive/batch - API Key no autorizada devuelve 403")
+    void receiveBatch_WithForbiddenKey_ShouldReturnForbidden() {
+        when(eventService.processIncomingBatch(anyList(), anyString()))
+            .thenThrow(new SecurityException("Missing or invalid X-API-KEY"));
+
+        ResponseEntity<?> response = eventController.receiveBatch(List.of(validEventDTO), request);
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
     // ============================================================
     // Tests para GET /events/stats
     // ============================================================
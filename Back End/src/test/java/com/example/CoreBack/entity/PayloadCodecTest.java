@@ -0,0 +1,85 @@
+package com.example.CoreBack.entity;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PayloadCodecTest {
+
+    private static final String PAYLOAD =
+        "{\"movieId\":\"67890\",\"title\":\"Inception\",\"year\":2010,\"genres\":[\"sci-fi\",\"action\"]}";
+
+    @AfterEach
+    void tearDown() {
+        PayloadCodec.register(null);
+    }
+
+    @Test
+    @DisplayName("Los payloads chicos sin diccionario se guardan tal cual")
+    void encode_smallPayloadWithoutDictionary_shouldStoreRaw() {
+        byte[] data = PayloadCodec.encode("movie.created", PAYLOAD);
+
+        assertThat(data[0]).isEqualTo(PayloadCodec.RAW);
+        assertThat(PayloadCodec.decode(data, null)).isEqualTo(PAYLOAD);
+    }
+
+    @Test
+    @DisplayName("Los payloads grandes se comprimen con deflate")
+    void encode_largePayload_shouldDeflate() {
+        String payload = "[" + (PAYLOAD + ",").repeat(100) + "{}]";
+
+        byte[] data = PayloadCodec.encode("movie.created", payload);
+
+        assertThat(data[0]).isEqualTo(PayloadCodec.DEFLATE);
+        assertThat(data.length).isLessThan(payload.length() / 10);
+        assertThat(PayloadCodec.decode(data, null)).isEqualTo(payload);
+    }
+
+    @Test
+    @DisplayName("Con diccionario del tipo hasta un payload chico se comprime y se lee con el mismo id")
+    void encode_withDictionary_shouldCompressSmallPayload() {
+        byte[] dictionary = PAYLOAD.replace("Inception", "Interstellar").getBytes(StandardCharsets.UTF_8);
+        PayloadCodec.register(new PayloadCodec.Dictionaries() {
+            public PayloadCodec.Dictionary forType(String eventType, String sample) {
+                return new PayloadCodec.Dictionary(7, dictionary);
+            }
+            public byte[] byId(int id) {
+                return id == 7 ? dictionary : null;
+            }
+        });
+
+        byte[] data = PayloadCodec.encode("movie.created", PAYLOAD);
+
+        assertThat(data[0]).isEqualTo(PayloadCodec.DICT);
+        assertThat(data.length).isLessThan(PAYLOAD.length() / 2);
+        assertThat(PayloadCodec.decode(data, null)).isEqualTo(PAYLOAD);
+    }
+
+    @Test
+    @DisplayName("Sin diccionario disponible para decodificar falla en lugar de devolver basura")
+    void decode_withUnknownDictionary_shouldThrow() {
+        byte[] dictionary = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        PayloadCodec.register(new PayloadCodec.Dictionaries() {
+            public PayloadCodec.Dictionary forType(String eventType, String sample) {
+                return new PayloadCodec.Dictionary(7, dictionary);
+            }
+            public byte[] byId(int id) {
+                return null;
+            }
+        });
+        byte[] data = PayloadCodec.encode("movie.created", PAYLOAD);
+
+        assertThatThrownBy(() -> PayloadCodec.decode(data, null)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Sin payload_data se devuelve el texto de la columna vieja")
+    void decode_withoutData_shouldReturnLegacyText() {
+        assertThat(PayloadCodec.decode(null, PAYLOAD)).isEqualTo(PAYLOAD);
+        assertThat(PayloadCodec.encode("movie.created", null)).isNull();
+    }
+}
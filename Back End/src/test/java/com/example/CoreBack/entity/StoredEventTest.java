@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import static org.assertj.core.api.Assertions.assertThat;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.example.CoreBack.testutils.TestData;
 
@@ -249,4 +250,52 @@ class StoredEventTest {
         externalApiEvent.setEventId("event-3");
         assertThat(externalApiEvent.getSource()).isEqualTo("external-api");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("setStatus debe normalizar las mayúsculas de los estados conocidos")
+    void setStatus_ShouldNormalizeKnownStatuses() {
+        // Given
+        StoredEvent storedEvent = new StoredEvent();
+
+        // When / Then
+        storedEvent.setStatus("delivered");
+        assertThat(storedEvent.getStatus()).isEqualTo("Delivered");
+        storedEvent.setStatus(" INQUEUE ");
+        assertThat(storedEvent.getStatus()).isEqualTo("InQueue");
+        storedEvent.setStatus("Retrying");
+        assertThat(storedEvent.getStatus()).isEqualTo("Retrying");
+        storedEvent.setStatus(null);
+        assertThat(storedEvent.getStatus()).isNull();
+    }
+
+    @Test
+    @DisplayName("Al persistir el payload se guarda comprimido en payload_data y se lee igual")
+    void encodePayload_ShouldStoreCompressedPayload() {
+        // Given
+        String payload = "{\"title\":\"Inception\",\"review\":\"" + "muy buena ".repeat(50) + "\"}";
+        StoredEvent storedEvent = new StoredEvent("review.created", "/reviews/api", "application/json", payload,
+            LocalDateTime.now());
+
+        // When
+        storedEvent.encodePayload();
+        byte[] stored = (byte[]) ReflectionTestUtils.getField(storedEvent, "payloadData");
+        StoredEvent loaded = new StoredEvent();
+        ReflectionTestUtils.setField(loaded, "payloadData", stored);
+
+        // Then
+        assertThat(ReflectionTestUtils.getField(storedEvent, "payload")).isNull();
+        assertThat(stored.length).isLessThan(payload.length());
+        assertThat(loaded.getPayload()).isEqualTo(payload);
+    }
+
+    @Test
+    @DisplayName("Las filas sin migrar siguen leyendo la columna TEXT")
+    void getPayload_WithLegacyColumn_ShouldReturnText() {
+        // Given
+        StoredEvent loaded = new StoredEvent();
+        ReflectionTestUtils.setField(loaded, "payload", "{\"legacy\":true}");
+
+        // When / Then
+        assertThat(loaded.getPayload()).isEqualTo("{\"legacy\":true}");
+    }
+}
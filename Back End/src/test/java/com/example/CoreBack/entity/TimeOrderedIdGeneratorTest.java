@@ -0,0 +1,78 @@
+package com.example.CoreBack.entity;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitarios para TimeOrderedIdGenerator
+ *
+ * Verifica:
+ * - Ids únicos y crecientes
+ * - Ids dentro del rango seguro de JavaScript (53 bits)
+ * - Recuperación del timestamp a partir del id
+ */
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    @DisplayName("nextId debe generar ids únicos y estrictamente crecientes")
+    void nextId_ShouldBeUniqueAndIncreasing() {
+        // Given
+        Set<Long> seen = new HashSet<>();
+        long previous = -1L;
+
+        // When / Then
+        for (int i = 0; i < 10_000; i++) {
+            long id = TimeOrderedIdGenerator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            assertThat(seen.add(id)).isTrue();
+            previous = id;
+        }
+    }
+
+    @Test
+    @DisplayName("nextId debe quedar dentro de Number.MAX_SAFE_INTEGER")
+    void nextId_ShouldFitInJavaScriptSafeInteger() {
+        // When
+        long id = TimeOrderedIdGenerator.nextId();
+
+        // Then
+        assertThat(id).isPositive();
+        assertThat(id).isLessThanOrEqualTo((1L << 53) - 1);
+    }
+
+    @Test
+    @DisplayName("millisOf debe devolver el momento de generación del id")
+    void millisOf_ShouldReturnGenerationTime() {
+        // Given
+        long before = System.currentTimeMillis();
+
+        // When
+        long id = TimeOrderedIdGenerator.nextId();
+        long after = System.currentTimeMillis();
+
+        // Then
+        assertThat(TimeOrderedIdGenerator.millisOf(id)).isBetween(before, after);
+    }
+
+    @Test
+    @DisplayName("useNode pone el nodo en los bits del medio y rechaza valores fuera de 0-15")
+    void useNode_ShouldEncodeNodeAndRejectOutOfRange() {
+        try {
+            // When
+            TimeOrderedIdGenerator.useNode(5);
+            long id = TimeOrderedIdGenerator.nextId();
+
+            // Then
+            assertThat((id >>> TimeOrderedIdGenerator.SEQUENCE_BITS) & TimeOrderedIdGenerator.MAX_NODE).isEqualTo(5);
+            assertThatThrownBy(() -> TimeOrderedIdGenerator.useNode(16)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> TimeOrderedIdGenerator.useNode(-1)).isInstanceOf(IllegalArgumentException.class);
+        } finally {
+            TimeOrderedIdGenerator.useNode(0);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.CoreBack.repository;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ClusterLockRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 10, 12, 0);
+
+    @Autowired
+    private ClusterLockRepository lockRepository;
+
+    @Test
+    @DisplayName("takeOver sólo toma un lock vencido o propio")
+    void takeOver_ShouldRespectOwnerAndExpiry() {
+        // Given
+        lockRepository.create("job", "node-a", NOW.plusMinutes(5));
+
+        // When / Then
+        assertThat(lockRepository.takeOver("job", "node-b", NOW, NOW.plusMinutes(5))).isZero();
+        assertThat(lockRepository.takeOver("job", "node-a", NOW, NOW.plusMinutes(10))).isEqualTo(1);
+        assertThat(lockRepository.takeOver("job", "node-b", NOW.plusMinutes(11), NOW.plusMinutes(20))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("release libera sólo el lock del dueño")
+    void release_ShouldOnlyAffectOwner() {
+        // Given
+        lockRepository.create("job", "node-a", NOW.plusMinutes(5));
+
+        // When / Then
+        assertThat(lockRepository.release("job", "node-b", NOW)).isZero();
+        assertThat(lockRepository.release("job", "node-a", NOW)).isEqualTo(1);
+        assertThat(lockRepository.takeOver("job", "node-b", NOW.plusSeconds(1), NOW.plusMinutes(5))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("create falla si otro nodo ya creó el lock")
+    void create_WithExistingLock_ShouldFail() {
+        // Given
+        lockRepository.create("job", "node-a", NOW.plusMinutes(5));
+
+        // When / Then
+        assertThatThrownBy(() -> lockRepository.create("job", "node-b", NOW.plusMinutes(5)))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    }
+}
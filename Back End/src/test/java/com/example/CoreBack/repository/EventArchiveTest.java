@@ -0,0 +1,146 @@
+package com.example.CoreBack.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventArchiveTest {
+
+    @TempDir Path dir;
+
+    private EventArchive archive;
+
+    private static final LocalDate DAY_1 = LocalDate.of(2025, 1, 30);
+    private static final LocalDate DAY_2 = LocalDate.of(2025, 2, 2);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archive = new EventArchive();
+        archive.open(dir);
+    }
+
+    @Test
+    @DisplayName("Un segmento se relee igual que se escribió, con el footer por módulo y estado")
+    void writer_shouldRoundTripRowsAndFooter() throws IOException {
+        // Given: más filas que un bloque y un payload de más de 64KB
+        String bigPayload = "{\"text\":\"" + "x".repeat(70_000) + "\"}";
+        int rows = EventSegment.BLOCK_ROWS + 10;
+        try (EventSegment.Writer writer = archive.writer(DAY_1)) {
+            for (int i = 0; i < rows; i++) {
+                writer.append(event(i + 1, DAY_1.atTime(10, 0).plusSeconds(i), i % 2 == 0 ? "usuarios" : "peliculas",
+                    i == 0 ? bigPayload : "{\"n\":" + i + "}"));
+            }
+            archive.publish(writer.finish());
+        }
+
+        // When
+        EventArchive reopened = new EventArchive();
+        reopened.open(dir);
+
+        // Then
+        assertTrue(reopened.contains(DAY_1));
+        assertEquals(rows, reopened.count(null, null));
+        assertEquals(rows / 2, reopened.count("usuarios", "Delivered"));
+        assertEquals(bigPayload, reopened.findById(1L).orElseThrow().payload());
+        assertEquals(DAY_1.atTime(10, 0).plusSeconds(rows - 1), reopened.findById(rows).orElseThrow().occurredAt());
+        assertEquals(rows, reopened.idsOf(DAY_1).size());
+        try (var files = Files.walk(dir)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    @DisplayName("findBefore recorre los días archivados del más nuevo al más viejo a partir del cursor")
+    void findBefore_shouldSeekNewestFirst() throws IOException {
+        // Given
+        write(DAY_1, event(1, DAY_1.atTime(9, 0), "usuarios", "{\"title\":\"Inception\"}"),
+                     event(2, DAY_1.atTime(10, 0), "peliculas", "{}"));
+        write(DAY_2, event(3, DAY_2.atTime(9, 0), "usuarios", "{}"),
+                     event(4, DAY_2.atTime(9, 0), "usuarios", "{\"title\":\"INCEPTION 2\"}"));
+
+        // When / Then
+        assertEquals(List.of(4L, 3L, 2L, 1L), ids(archive.findBefore(null, null, null, null, null, 10)));
+        assertEquals(List.of(4L, 3L), ids(archive.findBefore(null, null, null, null, null, 2)));
+        assertEquals(List.of(3L, 2L), ids(archive.findBefore(DAY_2.atTime(9, 0), 4L, null, null, null, 2)));
+        assertEquals(List.of(4L, 3L, 1L), ids(archive.findBefore(null, null, "usuarios", "Delivered", null, 10)));
+        assertEquals(List.of(4L, 1L), ids(archive.findBefore(null, null, null, null, "inception", 10)));
+        assertEquals(List.of(), ids(archive.findBefore(DAY_1.atTime(9, 0), 1L, null, null, null, 10)));
+    }
+
+    @Test
+    @DisplayName("countByStatusForMonths reparte los días archivados entre el mes actual y el anterior")
+    void countByStatusForMonths_shouldSplitByMonth() throws IOException {
+        // Given
+        write(DAY_1, event(1, DAY_1.atTime(9, 0), "usuarios", "{}"), event(2, DAY_1.atTime(9, 5), "usuarios", "{}"));
+        write(DAY_2, event(3, DAY_2.atTime(9, 0), "usuarios", "{}"));
+
+        // When
+        Map<String, EventRepository.MonthlyStatusCount> counts = archive.countByStatusForMonths(
+                LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 2, 1, 0, 0), LocalDateTime.of(2025, 3, 1, 0, 0))
+            .stream().collect(Collectors.toMap(EventRepository.MonthlyStatusCount::getStatus, c -> c));
+
+        // Then
+        assertEquals(1L, counts.get("Delivered").getThisMonth());
+        assertEquals(2L, counts.get("Delivered").getLastMonth());
+    }
+
+    @Test
+    @DisplayName("Al abrir se ignoran los segmentos a medio escribir sin romper al nodo que los escribe")
+    void open_shouldIgnoreUnfinishedSegments() throws IOException {
+        // Given
+        EventSegment.Writer writer = archive.writer(DAY_1);
+        writer.append(event(1, DAY_1.atTime(9, 0), "usuarios", "{}"));
+
+        // When
+        EventArchive reopened = new EventArchive();
+        reopened.open(dir);
+
+        // Then
+        assertFalse(reopened.hasSegments());
+        archive.publish(writer.finish());
+        assertTrue(archive.contains(DAY_1));
+    }
+
+    @Test
+    @DisplayName("refresh suma los días que archivó otro nodo en el directorio compartido")
+    void refresh_shouldLoadSegmentsFromOtherNodes() throws IOException {
+        // Given
+        EventArchive otherNode = new EventArchive();
+        otherNode.open(dir);
+        write(DAY_1, event(1, DAY_1.atTime(9, 0), "usuarios", "{}"));
+
+        // When
+        otherNode.refresh();
+
+        // Then
+        assertTrue(otherNode.contains(DAY_1));
+        assertEquals(1L, otherNode.count(null, null));
+    }
+
+    private void write(LocalDate day, ArchivedEvent... events) throws IOException {
+        try (EventSegment.Writer writer = archive.writer(day)) {
+            for (ArchivedEvent event : events) writer.append(event);
+            archive.publish(writer.finish());
+        }
+    }
+
+    private static ArchivedEvent event(long id, LocalDateTime occurredAt, String module, String payload) {
+        return new ArchivedEvent(id, "evt-" + id, "movie.created", "/" + module + "/api", module,
+            "application/json", payload, occurredAt, "Delivered");
+    }
+
+    private static List<Long> ids(List<ArchivedEvent> events) {
+        return events.stream().map(ArchivedEvent::id).toList();
+    }
+}
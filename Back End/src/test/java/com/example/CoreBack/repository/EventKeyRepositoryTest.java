@@ -0,0 +1,37 @@
+package com.example.CoreBack.repository;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests de integración para EventKeyRepository (claim con insert-ignore sobre event_keys)
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class EventKeyRepositoryTest {
+
+    @Autowired
+    private EventKeyRepository eventKeys;
+
+    @Test
+    @DisplayName("claim() debe insertar sólo las claves nuevas y devolver las de esta llamada")
+    void claim_ShouldReturnOnlyNewKeys() {
+        // Given
+        assertThat(eventKeys.claim(List.of("evt-1", "evt-2"))).containsExactlyInAnyOrder("evt-1", "evt-2");
+
+        // When
+        Set<String> claimed = eventKeys.claim(List.of("evt-2", "evt-3", "evt-3"));
+
+        // Then
+        assertThat(claimed).containsExactly("evt-3");
+        assertThat(eventKeys.count()).isEqualTo(3);
+        assertThat(eventKeys.claim(List.of("evt-1", "evt-3"))).isEmpty();
+    }
+}
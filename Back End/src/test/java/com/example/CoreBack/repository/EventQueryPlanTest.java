@@ -0,0 +1,96 @@
+package com.example.CoreBack.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.CoreBack.entity.StoredEvent;
+
+/**
+ * Regresión de planes de consulta (H2) para los accesos del dashboard sobre la tabla events.
+ *
+ * Verifica:
+ * - Filtro por estado usa (status, occurredAt)
+ * - Filtro por módulo usa un índice que empieza por module
+ * - Rango por mes usa (occurredAt, status)
+ *
+ * ANALYZE hace commit en H2, así que el test corre sin transacción y borra lo sembrado al terminar
+ * (si no, las filas quedan en la DB compartida con el resto de los tests de repositorio).
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EventQueryPlanTest {
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        String[] statuses = { "InQueue", "Delivered", "Failed" };
+        String[] modules = { "usuarios", "social", "reviews", "peliculas", "discovery", "otros" };
+        LocalDateTime base = LocalDateTime.now().minusDays(60);
+
+        List<StoredEvent> events = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            StoredEvent event = new StoredEvent("a.b.created", "/" + modules[i % modules.length] + "/api",
+                "application/json", "{}", base.plusMinutes(i * 29L));
+            event.setEventId("seed-" + i);
+            event.setModule(modules[i % modules.length]);
+            event.setStatus(statuses[i % statuses.length]);
+            events.add(event);
+        }
+        eventRepository.saveAll(events);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from events where event_id like 'seed-%'");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    @DisplayName("Filtro por estado ordenado por fecha usa idx_events_status_occurred_at")
+    void statusFilter_ShouldUseStatusIndex() {
+        String plan = explain("select id from events where status = 'Delivered' order by occurred_at desc limit 10");
+
+        assertThat(plan).containsIgnoringCase("idx_events_status_occurred_at");
+    }
+
+    @Test
+    @DisplayName("Filtro por módulo usa un índice sobre module")
+    void moduleFilter_ShouldUseModuleIndex() {
+        String plan = explain("select id from events where module = 'usuarios' order by occurred_at desc limit 10");
+
+        assertThat(plan).containsIgnoringCase("idx_events_module_");
+    }
+
+    @Test
+    @DisplayName("Rango de fechas de las stats usa idx_events_occurred_at_status")
+    void monthRange_ShouldUseOccurredAtIndex() {
+        String plan = explain("select status, count(*) from events where occurred_at >= timestamp '2024-01-01 00:00:00'"
+            + " and occurred_at < timestamp '2024-02-01 00:00:00' group by status");
+
+        assertThat(plan).containsIgnoringCase("idx_events_occurred_at_status");
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -57,6 +57,63 @@ class EventRepositoryTest {
         assertThat(foundEvent.getEventId()).isEqualTo("test-event-123");
     }
 
+    @Test
+    @DisplayName("insertAll() inserta el lote por JDBC con id en memoria y el payload codificado")
+    void insertAll_ShouldBatchInsertWithIdsAndEncodedPayload() {
+        // Given
+        StoredEvent first = TestData.Events.storedEvent("batch-1", "user.created");
+        StoredEvent second = TestData.Events.storedEvent("batch-2", "movie.updated");
+        first.setPayload("{\"userId\":1}");
+
+        // When
+        List<StoredEvent> inserted = eventRepository.insertAll(List.of(first, second));
+
+        // Then
+        assertThat(inserted).containsExactly(first, second);
+        assertThat(first.getId()).isNotNull();
+        assertThat(second.getId()).isGreaterThan(first.getId());
+        entityManager.clear();
+        StoredEvent found = eventRepository.findById(first.getId()).orElseThrow();
+        assertThat(found.getEventId()).isEqualTo("batch-1");
+        assertThat(found.getStatus()).isEqualTo(first.getStatus());
+        assertThat(found.getPayload()).isEqualTo("{\"userId\":1}");
+    }
+
+    @Test
+    @DisplayName("normalizeStatus() corrige sólo las filas con otras mayúsculas")
+    void normalizeStatus_ShouldFixOnlyDifferentCase() {
+        // Given
+        StoredEvent lower = eventRepository.save(TestData.Events.storedEvent("status-1", "user.created"));
+        StoredEvent canonical = eventRepository.save(TestData.Events.storedEvent("status-2", "user.created"));
+        entityManager.flush();
+        entityManager.getEntityManager().createNativeQuery("update events set status = 'delivered' where id = ?1")
+            .setParameter(1, lower.getId()).executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("update events set status = 'Delivered' where id = ?1")
+            .setParameter(1, canonical.getId()).executeUpdate();
+
+        // When
+        int normalized = eventRepository.normalizeStatus("Delivered");
+
+        // Then
+        assertThat(normalized).isEqualTo(1);
+        entityManager.clear();
+        assertThat(eventRepository.findById(lower.getId()).orElseThrow().getStatus()).isEqualTo("Delivered");
+    }
+
+    @Test
+    @DisplayName("countUpTo() cuenta hasta el tope + 1")
+    void countUpTo_ShouldStopAfterCap() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            eventRepository.save(TestData.Events.storedEvent("count-" + i, "user.created"));
+        }
+        entityManager.flush();
+
+        // When / Then
+        assertThat(eventRepository.countUpTo(null, 10)).isEqualTo(5);
+        assertThat(eventRepository.countUpTo(null, 3)).isEqualTo(4);
+    }
+
     @Test
     @DisplayName("findAll() debe retornar todos los eventos")
     void findAll_ShouldReturnAllEvents() {
@@ -260,4 +317,167 @@ class EventRepositoryTest {
         assertThat(allEvents).extracting(StoredEvent::getEventId)
             .containsExactlyInAnyOrder("tx-event-1", "tx-event-2");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("countByStatusForMonths() debe agrupar por estado y separar mes actual / anterior")
+    void countByStatusForMonths_ShouldGroupByStatusAndMonth() {
+        // Given: meses reales, los ids (por tiempo) tienen que caer en el rango que se poda
+        LocalDateTime thisMonthStart = java.time.LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        LocalDateTime lastMonthStart = thisMonthStart.minusMonths(1);
+        LocalDateTime nextMonthStart = thisMonthStart.plusMonths(1);
+
+        entityManager.persist(eventAt("Delivered", thisMonthStart.plusDays(2)));
+        entityManager.persist(eventAt("Delivered", thisMonthStart.minusDays(3)));
+        entityManager.persist(eventAt("Failed", thisMonthStart));
+        entityManager.persist(eventAt("Delivered", lastMonthStart.minusSeconds(1))); // fuera de rango
+        entityManager.persist(eventAt("InQueue", nextMonthStart));                   // fuera de rango
+        entityManager.flush();
+
+        // When
+        List<EventRepository.MonthlyStatusCount> counts =
+            eventRepository.countByStatusForMonths(lastMonthStart, thisMonthStart, nextMonthStart);
+
+        // Then
+        assertThat(counts).hasSize(2);
+        EventRepository.MonthlyStatusCount delivered = counts.stream()
+            .filter(c -> c.getStatus().equals("Delivered")).findFirst().orElseThrow();
+        assertThat(delivered.getThisMonth()).isEqualTo(1L);
+        assertThat(delivered.getLastMonth()).isEqualTo(1L);
+        EventRepository.MonthlyStatusCount failed = counts.stream()
+            .filter(c -> c.getStatus().equals("Failed")).findFirst().orElseThrow();
+        assertThat(failed.getThisMonth()).isEqualTo(1L);
+        assertThat(failed.getLastMonth()).isEqualTo(0L);
+    }
+
+    @Test
+    @DisplayName("findWithoutModule() y updateModuleByIds() deben completar el módulo en orden de id")
+    void moduleBackfillQueries_ShouldAssignModule() {
+        // Given
+        StoredEvent legacy = eventAt("Delivered", LocalDateTime.now());
+        legacy.setSource("/usuarios/api");
+        StoredEvent classified = eventAt("Delivered", LocalDateTime.now());
+        classified.setModule("social");
+        entityManager.persist(legacy);
+        entityManager.persist(classified);
+        entityManager.flush();
+
+        // When
+        List<EventRepository.IdAndSource> pending = eventRepository.findWithoutModule(
+            org.springframework.data.domain.PageRequest.of(0, 10));
+        int updated = eventRepository.updateModuleByIds(List.of(legacy.getId()), "usuarios");
+        entityManager.clear();
+
+        // Then
+        assertThat(pending).extracting(EventRepository.IdAndSource::getId).containsExactly(legacy.getId());
+        assertThat(updated).isEqualTo(1);
+        assertThat(eventRepository.findById(legacy.getId())).get()
+            .extracting(StoredEvent::getModule).isEqualTo("usuarios");
+    }
+
+    @Test
+    @DisplayName("findSlice() con EventSpecification.before() debe paginar por (occurredAt, id) sin saltear empates")
+    void findSlice_WithKeyset_ShouldSeekPastCursor() {
+        // Given: 5 eventos, dos con el mismo occurredAt
+        LocalDateTime base = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.MINUTES).minusHours(2);
+        for (int i = 0; i < 4; i++) {
+            entityManager.persist(eventAt("Delivered", base.plusMinutes(i)));
+        }
+        entityManager.persist(eventAt("Delivered", base.plusMinutes(3)));
+        entityManager.flush();
+        org.springframework.data.domain.Sort sort = org.springframework.data.domain.Sort
+            .by(org.springframework.data.domain.Sort.Direction.DESC, "occurredAt", "id");
+
+        // When
+        List<EventSummary> first = eventRepository.findSlice(null, sort, 0, 2);
+        EventSummary last = first.get(1);
+        List<EventSummary> second = eventRepository.findSlice(
+            EventSpecification.before(last.occurredAt(), last.id()), sort, 0, 10);
+
+        // Then
+        assertThat(first).extracting(EventSummary::occurredAt).containsOnly(base.plusMinutes(3));
+        assertThat(second).hasSize(3);
+        assertThat(second).extracting(EventSummary::occurredAt)
+            .containsExactly(base.plusMinutes(2), base.plusMinutes(1), base);
+    }
+
+    @Test
+    @DisplayName("findSlice() debe proyectar las columnas del listado sin el payload")
+    void findSlice_ShouldProjectListColumns() {
+        // Given
+        StoredEvent event = eventAt("Delivered", LocalDateTime.of(2025, 3, 10, 12, 0));
+        event.setEventId("evt-summary");
+        event.setModule("usuarios");
+        event.setPayload("{\"big\":\"" + "x".repeat(10_000) + "\"}");
+        entityManager.persistAndFlush(event);
+        entityManager.clear();
+
+        // When
+        List<EventSummary> rows = eventRepository.findSlice(EventSpecification.hasModule("usuarios"),
+            org.springframework.data.domain.Sort.by("id"), 0, 10);
+
+        // Then
+        assertThat(rows).containsExactly(new EventSummary(event.getId(), "evt-summary", "user.created",
+            "test_source", "usuarios", "Delivered", LocalDateTime.of(2025, 3, 10, 12, 0)));
+    }
+
+    @Test
+    @DisplayName("streamSlice() debe recorrer el rango de occurredAt filtrado por tipo con límite")
+    void streamSlice_ShouldStreamFilteredRange() {
+        // Given
+        LocalDateTime base = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.MINUTES).minusHours(2);
+        for (int i = 0; i < 5; i++) {
+            StoredEvent event = eventAt("Delivered", base.plusMinutes(i));
+            event.setEventType(i % 2 == 0 ? "movie.created" : "user.created");
+            entityManager.persist(event);
+        }
+        entityManager.persist(eventAt("Delivered", base.minusDays(1)));
+        entityManager.flush();
+        org.springframework.data.domain.Sort sort = org.springframework.data.domain.Sort
+            .by(org.springframework.data.domain.Sort.Direction.DESC, "occurredAt", "id");
+
+        // When
+        List<EventSummary> rows;
+        try (java.util.stream.Stream<EventSummary> stream = eventRepository.streamSlice(
+                EventSpecification.occurredBetween(base, base.plusHours(1))
+                    .and(EventSpecification.hasTypePrefix("movie.")),
+                sort, 2, java.time.Duration.ofSeconds(5))) {
+            rows = stream.toList();
+        }
+
+        // Then
+        assertThat(rows).extracting(EventSummary::occurredAt)
+            .containsExactly(base.plusMinutes(4), base.plusMinutes(2));
+    }
+
+    @Test
+    @DisplayName("findDayChunk() debe devolver las filas completas del día en orden (occurredAt, id) por tramos")
+    void findDayChunk_ShouldPageThroughDay() {
+        // Given
+        LocalDateTime dayStart = LocalDateTime.now().toLocalDate().atStartOfDay();
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(eventAt("Delivered", dayStart.plusHours(3 - i)));
+        }
+        entityManager.persist(eventAt("Delivered", dayStart.minusMinutes(1)));
+        entityManager.flush();
+
+        // When
+        List<ArchivedEvent> first = eventRepository.findDayChunk(dayStart, dayStart.plusDays(1),
+            dayStart, Long.MIN_VALUE, 2);
+        ArchivedEvent last = first.get(first.size() - 1);
+        List<ArchivedEvent> second = eventRepository.findDayChunk(dayStart, dayStart.plusDays(1),
+            last.occurredAt(), last.id(), 2);
+
+        // Then
+        assertThat(first).extracting(ArchivedEvent::occurredAt)
+            .containsExactly(dayStart.plusHours(1), dayStart.plusHours(2));
+        assertThat(second).extracting(ArchivedEvent::occurredAt).containsExactly(dayStart.plusHours(3));
+        assertThat(second.get(0).payload()).isEqualTo("{}");
+        assertThat(eventRepository.findOldestOccurredAt()).isEqualTo(dayStart.minusMinutes(1));
+    }
+
+    private static StoredEvent eventAt(String status, LocalDateTime occurredAt) {
+        StoredEvent event = new StoredEvent("user.created", "test_source", "application/json", "{}", occurredAt);
+        event.setStatus(status);
+        return event;
+    }
+}
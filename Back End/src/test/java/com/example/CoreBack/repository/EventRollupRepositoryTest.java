@@ -0,0 +1,68 @@
+package com.example.CoreBack.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.CoreBack.entity.EventHourlyRollup;
+
+/**
+ * Tests de integración para EventRollupRepository (upsert en batch + agregados del dashboard)
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class EventRollupRepositoryTest {
+
+    @Autowired
+    private EventRollupRepository rollupRepository;
+
+    @Test
+    @DisplayName("upsertCounts() debe insertar claves nuevas y sumar sobre las existentes")
+    void upsertCounts_ShouldInsertAndIncrement() {
+        // Given
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 10, 14, 0);
+        EventHourlyRollup.Key users = new EventHourlyRollup.Key(hour, "usuarios", "Delivered", "usuarios.usuario.created");
+        EventHourlyRollup.Key movies = new EventHourlyRollup.Key(hour, "peliculas", "Delivered", "peliculas.pelicula.created");
+
+        // When
+        rollupRepository.upsertCounts(Map.of(users, 3L));
+        rollupRepository.upsertCounts(Map.of(users, 2L, movies, 1L));
+
+        // Then
+        assertThat(rollupRepository.findById(users)).get()
+            .extracting(EventHourlyRollup::getEventCount).isEqualTo(5L);
+        assertThat(rollupRepository.findById(movies)).get()
+            .extracting(EventHourlyRollup::getEventCount).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("sumByHourSince() y sumByModule() deben agregar los contadores")
+    void sums_ShouldAggregateCounters() {
+        // Given
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 10, 14, 0);
+        rollupRepository.upsertCounts(Map.of(
+            new EventHourlyRollup.Key(hour, "usuarios", "Delivered", "a"), 3L,
+            new EventHourlyRollup.Key(hour, "usuarios", "Failed", "a"), 1L,
+            new EventHourlyRollup.Key(hour.minusHours(5), "social", "Delivered", "b"), 4L));
+
+        // When
+        List<EventRollupRepository.HourTotal> byHour = rollupRepository.sumByHourSince(hour.minusHours(1));
+        List<EventRollupRepository.ModuleTotal> byModule = rollupRepository.sumByModule();
+
+        // Then
+        assertThat(byHour).hasSize(1);
+        assertThat(byHour.get(0).getBucketHour()).isEqualTo(hour);
+        assertThat(byHour.get(0).getTotal()).isEqualTo(4L);
+        assertThat(byModule).extracting(EventRollupRepository.ModuleTotal::getModule, EventRollupRepository.ModuleTotal::getTotal)
+            .containsExactlyInAnyOrder(
+                org.assertj.core.groups.Tuple.tuple("usuarios", 4L),
+                org.assertj.core.groups.Tuple.tuple("social", 4L));
+    }
+}
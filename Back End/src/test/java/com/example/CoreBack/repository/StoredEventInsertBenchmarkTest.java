@@ -0,0 +1,158 @@
+package com.example.CoreBack.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.entity.TimeOrderedIdGenerator;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Benchmark de inserts: 100k filas con IDENTITY (un round trip por fila) vs ids en memoria + batch JDBC,
+ * el mismo volumen por EventRepository.insertAll (el camino del outbox y del consumer por lotes) y por saveAll
+ * (el ORM con batching de Hibernate, como referencia).
+ *
+ * No corre en el build normal. Para ejecutarlo (H2 en memoria del perfil test):
+ *   mvn test -Dtest=StoredEventInsertBenchmarkTest -Dbenchmark=true
+ * Contra MySQL (con rewriteBatchedStatements=true) la diferencia es mucho mayor que en H2,
+ * porque cada round trip cuesta latencia de red. Se apunta a una base descartable con:
+ *   -Dspring.datasource.url="jdbc:mysql://host:3306/bench?rewriteBatchedStatements=true"
+ *   -Dspring.datasource.username=... -Dspring.datasource.password=...
+ *   -Dspring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver
+ *   -Dspring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect
+ * Las filas de events se revierten al terminar y la tabla auxiliar se borra.
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StoredEventInsertBenchmarkTest {
+
+    private static final int ROWS = 100_000;
+    private static final int CHUNK = 1_000;
+    private static final int JDBC_BATCH = 200;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Benchmark: 100k inserts antes (IDENTITY) y después (@TimeOrderedId + batch)")
+    void benchmark_100kInserts() {
+        // Antes: IDENTITY obliga a ejecutar cada INSERT en el momento para leer la clave generada
+        createBenchTable("events_identity_bench", "id bigint auto_increment primary key");
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            int n = i;
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "insert into events_identity_bench (event_id, event_type, source, content_type, payload, occurred_at, status) "
+                                + "values (?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+                ps.setString(1, "bench-" + n);
+                ps.setString(2, "usuarios.usuario.created");
+                ps.setString(3, "/usuarios/api");
+                ps.setString(4, "application/json");
+                ps.setString(5, "{}");
+                ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+                ps.setString(7, "Delivered");
+                return ps;
+            }, new GeneratedKeyHolder());
+        }
+        double identityRate = rate(start);
+        jdbcTemplate.execute("drop table events_identity_bench");
+
+        // Mismo INSERT con el id generado en memoria: entra en batches JDBC del tamaño de hibernate.jdbc.batch_size
+        createBenchTable("events_batch_bench", "id bigint primary key");
+        start = System.nanoTime();
+        for (int from = 0; from < ROWS; from += JDBC_BATCH) {
+            List<Object[]> rows = new ArrayList<>(JDBC_BATCH);
+            for (int i = from; i < from + JDBC_BATCH; i++) {
+                rows.add(new Object[] { TimeOrderedIdGenerator.nextId(), "bench-" + i, "usuarios.usuario.created",
+                        "/usuarios/api", "application/json", "{}", Timestamp.valueOf(LocalDateTime.now()), "Delivered" });
+            }
+            jdbcTemplate.batchUpdate("insert into events_batch_bench (id, event_id, event_type, source, content_type, "
+                    + "payload, occurred_at, status) values (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+        double jdbcBatchRate = rate(start);
+        jdbcTemplate.execute("drop table events_batch_bench");
+
+        // El camino real: insertAll, batch JDBC sobre events con el payload codificado (PayloadCodec)
+        start = System.nanoTime();
+        for (int from = 0; from < ROWS; from += CHUNK) {
+            List<StoredEvent> chunk = new ArrayList<>(CHUNK);
+            for (int i = from; i < from + CHUNK; i++) {
+                StoredEvent event = new StoredEvent("usuarios.usuario.created", "/usuarios/api",
+                        "application/json", "{}", LocalDateTime.now());
+                event.setEventId("bench-insert-" + i);
+                event.setStatus("Delivered");
+                chunk.add(event);
+            }
+            eventRepository.insertAll(chunk);
+        }
+        double insertAllRate = rate(start);
+        jdbcTemplate.update("delete from events where event_id like 'bench-insert-%'");
+
+        // Referencia: saveAll, Hibernate agrupa los inserts (hibernate.jdbc.batch_size) pero suma el costo del ORM
+        // (contexto de persistencia, callbacks, flush)
+        start = System.nanoTime();
+        for (int from = 0; from < ROWS; from += CHUNK) {
+            List<StoredEvent> chunk = new ArrayList<>(CHUNK);
+            for (int i = from; i < from + CHUNK; i++) {
+                StoredEvent event = new StoredEvent("usuarios.usuario.created", "/usuarios/api",
+                        "application/json", "{}", LocalDateTime.now());
+                event.setEventId("bench-" + i);
+                event.setStatus("Delivered");
+                chunk.add(event);
+            }
+            eventRepository.saveAll(chunk);
+            entityManager.flush();
+            entityManager.clear();
+        }
+        double hibernateRate = rate(start);
+
+        System.out.printf("📊 IDENTITY: %.0f filas/s | ids en memoria + batch JDBC: %.0f filas/s (x%.1f) "
+                        + "| insertAll: %.0f filas/s (x%.1f) | saveAll con @TimeOrderedId: %.0f filas/s%n",
+                identityRate, jdbcBatchRate, jdbcBatchRate / identityRate,
+                insertAllRate, insertAllRate / identityRate, hibernateRate);
+
+        assertThat(eventRepository.count()).isEqualTo(ROWS);
+    }
+
+    // Mismas columnas indexadas que events, para que los tres caminos paguen el mismo mantenimiento de índices
+    private void createBenchTable(String table, String idColumn) {
+        jdbcTemplate.execute("drop table if exists " + table);
+        jdbcTemplate.execute("create table " + table + " (" + idColumn + ", "
+                + "event_id varchar(255), event_type varchar(255), source varchar(255), module varchar(32), "
+                + "content_type varchar(255), payload text, occurred_at timestamp, status varchar(255) not null)");
+        String[] indexes = { "event_id", "occurred_at, id", "occurred_at, status", "status, occurred_at",
+                "module, occurred_at", "module, status, occurred_at" };
+        for (int i = 0; i < indexes.length; i++) {
+            jdbcTemplate.execute("create index " + table + "_" + i + " on " + table + " (" + indexes[i] + ")");
+        }
+    }
+
+    private static double rate(long startNanos) {
+        return ROWS / ((System.nanoTime() - startNanos) / 1_000_000_000.0);
+    }
+}
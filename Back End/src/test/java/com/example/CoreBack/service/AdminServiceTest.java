@@ -0,0 +1,159 @@
+package com.example.CoreBack.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.EventSummary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+@ExtendWith(MockitoExtension.class)
+class AdminServiceTest {
+
+    @Mock private EventRepository eventRepository;
+    @Mock private PayloadSearchIndex payloadIndex;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private AdminService adminService;
+
+    private static final LocalDateTime NOW = LocalDateTime.now().withNano(0);
+
+    @BeforeEach
+    void setUp() {
+        adminService = new AdminService(eventRepository, payloadIndex, objectMapper);
+    }
+
+    @Test
+    @DisplayName("stream escribe un evento por línea y un cierre con nextCursor cuando hay más filas")
+    void stream_shouldWriteNdjsonWithTrailer() throws Exception {
+        // Given
+        EventSearchPlan plan = adminService.compile(Map.of("module", "peliculas", "limit", "2"));
+        when(eventRepository.streamSlice(any(), any(), eq(3), any())).thenReturn(Stream.of(
+            summary(3L, NOW), summary(2L, NOW.minusMinutes(1)), summary(1L, NOW.minusMinutes(2))));
+
+        // When
+        List<JsonNode> lines = run(plan);
+
+        // Then
+        assertEquals(3, lines.size());
+        assertEquals(3L, lines.get(0).get("id").asLong());
+        assertEquals(2L, lines.get(1).get("id").asLong());
+        JsonNode trailer = lines.get(2);
+        assertEquals(2, trailer.get("count").asInt());
+        assertTrue(trailer.get("hasMore").asBoolean());
+        assertEquals(2L, EventCursor.decode(trailer.get("nextCursor").asText()).id());
+        verifyNoInteractions(payloadIndex);
+    }
+
+    @Test
+    @DisplayName("stream resuelve los predicados de payload en el índice invertido")
+    void stream_withPayloadPredicates_shouldQueryIndex() throws Exception {
+        // Given
+        when(payloadIndex.isReady()).thenReturn(true);
+        when(payloadIndex.search(eq("inception"), eq(Map.of("title", "Inception")), any(), any(), isNull()))
+            .thenReturn(new PayloadSearchIndex.Hits(List.of("evt-1"), 1, new EventCursor(NOW, 1L)));
+        when(eventRepository.streamSlice(any(), any(), anyInt(), any())).thenReturn(Stream.of(summary(1L, NOW)));
+        EventSearchPlan plan = adminService.compile(Map.of("q", "inception", "payload.title", "Inception"));
+
+        // When
+        List<JsonNode> lines = run(plan);
+
+        // Then
+        JsonNode trailer = lines.get(1);
+        assertEquals(1, trailer.get("indexHits").asInt());
+        assertFalse(trailer.get("hasMore").asBoolean());
+        assertTrue(trailer.get("nextCursor").isNull());
+    }
+
+    @Test
+    @DisplayName("stream pasa la ventana y el cursor al índice y sigue después del último hit si hubo corte")
+    void stream_withTruncatedIndexHits_shouldContinueAfterLastHit() throws Exception {
+        // Given
+        EventCursor cursor = new EventCursor(NOW.minusHours(1), 50L);
+        EventCursor lastHit = new EventCursor(NOW.minusHours(2), 7L);
+        when(payloadIndex.isReady()).thenReturn(true);
+        when(payloadIndex.search(eq("inception"), eq(Map.of()), any(), any(), eq(cursor)))
+            .thenReturn(new PayloadSearchIndex.Hits(List.of("evt-1", "evt-2"), 5000, lastHit));
+        when(eventRepository.streamSlice(any(), any(), anyInt(), any())).thenReturn(Stream.of(summary(1L, NOW.minusHours(1))));
+        EventSearchPlan plan = adminService.compile(Map.of("q", "inception", "cursor", cursor.encode()));
+
+        // When
+        List<JsonNode> lines = run(plan);
+
+        // Then
+        verify(payloadIndex).search(eq("inception"), eq(Map.of()), eq(plan.from()), eq(plan.to()), eq(cursor));
+        JsonNode trailer = lines.get(1);
+        assertEquals(5000, trailer.get("indexHits").asInt());
+        assertTrue(trailer.get("indexTruncated").asBoolean());
+        assertTrue(trailer.get("hasMore").asBoolean());
+        assertEquals(lastHit, EventCursor.decode(trailer.get("nextCursor").asText()));
+    }
+
+    @Test
+    @DisplayName("stream corta la búsqueda que supera el timeout e informa el error en la última línea")
+    void stream_onTimeout_shouldReportError() throws Exception {
+        // Given
+        when(eventRepository.streamSlice(any(), any(), anyInt(), any()))
+            .thenThrow(new QueryTimeoutException("timeout"));
+
+        // When
+        List<JsonNode> lines = run(adminService.compile(Map.of()));
+
+        // Then
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).has("error"));
+        assertEquals(0, lines.get(0).get("count").asInt());
+    }
+
+    @Test
+    @DisplayName("explain=true devuelve el plan sin consultar la DB")
+    void stream_withExplain_shouldNotQuery() throws Exception {
+        List<JsonNode> lines = run(adminService.compile(Map.of("status", "failed", "explain", "true")));
+
+        assertEquals("idx_events_status_occurred_at", lines.get(0).get("plan").get("index").asText());
+        verifyNoInteractions(eventRepository);
+    }
+
+    @Test
+    @DisplayName("compile falla mientras el índice se reconstruye si la búsqueda lo necesita")
+    void compile_whileIndexNotReady_shouldThrow() {
+        when(payloadIndex.isReady()).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> adminService.compile(Map.of("q", "inception")));
+        assertDoesNotThrow(() -> adminService.compile(Map.of("module", "peliculas")));
+    }
+
+    private List<JsonNode> run(EventSearchPlan plan) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        adminService.stream(plan, out);
+        return out.toString(StandardCharsets.UTF_8).lines().map(line -> {
+            try {
+                return objectMapper.readTree(line);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
+    }
+
+    private static EventSummary summary(Long id, LocalDateTime occurredAt) {
+        return new EventSummary(id, "evt-" + id, "movie.created", "/peliculas/api", "peliculas", "Delivered", occurredAt);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.CoreBack.config.RabbitConfig;
+import com.example.CoreBack.repository.OutboxRepository;
+
+@ExtendWith(MockitoExtension.class)
+class AdmissionControllerTest {
+
+    @Mock private AmqpAdmin amqpAdmin;
+    @Mock private SystemConfigService systemConfig;
+    @Mock private OutboxRepository outboxRepository;
+
+    private AdmissionController admission;
+
+    @BeforeEach
+    void setUp() {
+        admission = new AdmissionController(amqpAdmin, systemConfig, outboxRepository);
+        ReflectionTestUtils.setField(admission, "priorities", "usuarios=2.0");
+        admission.loadPriorities();
+        ReflectionTestUtils.setField(admission, "moduleQueues", "usuarios=" + RabbitConfig.CORE_USERS_QUEUE);
+        admission.loadModuleQueues();
+    }
+
+    @Test
+    @DisplayName("Con la cola por debajo del umbral se admite")
+    void retryAfter_underThreshold_shouldAdmit() {
+        // Given
+        threshold(100);
+        sample(80, 10);
+
+        // When / Then
+        assertTrue(admission.retryAfter("peliculas").isEmpty());
+        assertDoesNotThrow(() -> admission.admit("/movies/api"));
+    }
+
+    @Test
+    @DisplayName("Por encima del umbral el Retry-After es el excedente sobre el ritmo de drenaje")
+    void retryAfter_overThreshold_shouldUseDrainRate() {
+        // Given: 250 - 100 = 150 de excedente a 10/s
+        threshold(100);
+        sample(250, 10);
+
+        // When
+        OptionalLong retryAfter = admission.retryAfter("peliculas");
+
+        // Then
+        assertEquals(OptionalLong.of(15), retryAfter);
+        AdmissionRejectedException rejected =
+            assertThrows(AdmissionRejectedException.class, () -> admission.admit("/movies/api"));
+        assertEquals(15, rejected.getRetryAfterSeconds());
+    }
+
+    @Test
+    @DisplayName("Si la cola no drena el Retry-After es el máximo")
+    void retryAfter_withoutDrain_shouldUseMax() {
+        threshold(100);
+        sample(250, -5);
+
+        assertEquals(OptionalLong.of(60), admission.retryAfter("peliculas"));
+    }
+
+    @Test
+    @DisplayName("La prioridad del módulo multiplica el umbral")
+    void retryAfter_withPriority_shouldRaiseLimit() {
+        threshold(100);
+        sample(150, 10);
+
+        assertTrue(admission.retryAfter("usuarios").isEmpty());
+        assertTrue(admission.retryAfter("peliculas").isPresent());
+    }
+
+    @Test
+    @DisplayName("Con queueThreshold en 0 o la muestra vieja se admite todo")
+    void retryAfter_withoutThresholdOrStaleSample_shouldAdmit() {
+        // Umbral desactivado
+        threshold(0);
+        sample(10_000, 0);
+        assertTrue(admission.retryAfter("peliculas").isEmpty());
+
+        // Muestra de hace más de 3 intervalos: no se consulta el umbral
+        ReflectionTestUtils.setField(admission, "sample",
+            new AdmissionController.Sample(10_000, 0, System.currentTimeMillis() - 60_000));
+        assertTrue(admission.retryAfter("peliculas").isEmpty());
+    }
+
+    @Test
+    @DisplayName("sample toma la cola más cargada y promedia el drenaje con la muestra anterior")
+    void sample_shouldTakeDeepestQueueAndSmoothDrain() {
+        // Given
+        ReflectionTestUtils.setField(admission, "queues",
+            List.of(RabbitConfig.CORE_ALL_QUEUE, RabbitConfig.CORE_USERS_QUEUE));
+        when(amqpAdmin.getQueueInfo(RabbitConfig.CORE_ALL_QUEUE))
+            .thenReturn(new QueueInformation(RabbitConfig.CORE_ALL_QUEUE, 300, 1));
+        when(amqpAdmin.getQueueInfo(RabbitConfig.CORE_USERS_QUEUE))
+            .thenReturn(new QueueInformation(RabbitConfig.CORE_USERS_QUEUE, 40, 1));
+        ReflectionTestUtils.setField(admission, "sample",
+            new AdmissionController.Sample(500, 40, System.currentTimeMillis() - 10_000));
+
+        // When
+        admission.sample();
+
+        // Then: bajó 200 en ~10s → ~20/s, promediado con 40/s
+        AdmissionController.Sample sample =
+            (AdmissionController.Sample) ReflectionTestUtils.getField(admission, "sample");
+        assertEquals(300, sample.depth());
+        assertEquals(30, sample.drainPerSecond(), 1.0);
+    }
+
+    @Test
+    @DisplayName("sample suma al depth compartido las filas del outbox sin publicar y mide la cola de cada módulo")
+    void sample_shouldAddOutboxBacklogAndMeasureModuleQueues() {
+        // Given
+        when(amqpAdmin.getQueueInfo(RabbitConfig.CORE_ALL_QUEUE))
+            .thenReturn(new QueueInformation(RabbitConfig.CORE_ALL_QUEUE, 50, 1));
+        when(amqpAdmin.getQueueInfo(RabbitConfig.CORE_USERS_QUEUE))
+            .thenReturn(new QueueInformation(RabbitConfig.CORE_USERS_QUEUE, 400, 1));
+        when(outboxRepository.count()).thenReturn(70L);
+
+        // When
+        admission.sample();
+
+        // Then
+        AdmissionController.Sample shared =
+            (AdmissionController.Sample) ReflectionTestUtils.getField(admission, "sample");
+        @SuppressWarnings("unchecked")
+        Map<String, AdmissionController.Sample> modules =
+            (Map<String, AdmissionController.Sample>) ReflectionTestUtils.getField(admission, "moduleSamples");
+        assertEquals(120, shared.depth());
+        assertEquals(400, modules.get("usuarios").depth());
+    }
+
+    @Test
+    @DisplayName("La cola propia de un módulo lo frena sólo a él")
+    void retryAfter_withDeepModuleQueue_shouldRejectOnlyThatModule() {
+        // Given: compartida en 50, la de usuarios en 500 (límite de usuarios 200 por la prioridad)
+        threshold(100);
+        sample(50, 10);
+        long now = System.currentTimeMillis();
+        ReflectionTestUtils.setField(admission, "moduleSamples",
+            Map.of("usuarios", new AdmissionController.Sample(500, 100, now)));
+
+        // When / Then: (500 - 200) / 100 = 3s
+        assertEquals(OptionalLong.of(3), admission.retryAfter("usuarios"));
+        assertTrue(admission.retryAfter("peliculas").isEmpty());
+    }
+
+    @Test
+    @DisplayName("start muestrea en un hilo propio, fuera del pool de @Scheduled")
+    void start_shouldSampleOnDedicatedThread() throws Exception {
+        // Given
+        CountDownLatch sampled = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(amqpAdmin.getQueueInfo(RabbitConfig.CORE_ALL_QUEUE)).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            sampled.countDown();
+            return new QueueInformation(RabbitConfig.CORE_ALL_QUEUE, 10, 1);
+        });
+
+        // When
+        admission.start();
+
+        // Then
+        try {
+            assertTrue(sampled.await(5, TimeUnit.SECONDS));
+            assertEquals("core-admission-sampler", thread.get());
+        } finally {
+            admission.stop();
+        }
+    }
+
+    private void threshold(int queueThreshold) {
+        when(systemConfig.snapshot())
+            .thenReturn(new SystemConfigService.Snapshot(queueThreshold, 0, 0, null, 1L, 0));
+    }
+
+    private void sample(long depth, double drainPerSecond) {
+        ReflectionTestUtils.setField(admission, "sample",
+            new AdmissionController.Sample(depth, drainPerSecond, System.currentTimeMillis()));
+    }
+}
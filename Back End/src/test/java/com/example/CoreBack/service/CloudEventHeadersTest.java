@@ -0,0 +1,50 @@
+package com.example.CoreBack.service;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+class CloudEventHeadersTest {
+
+    @Test
+    @DisplayName("toMessage pone los atributos en headers y read los recupera sin tocar el body")
+    void toMessage_shouldRoundTripAttributes() {
+        // Given
+        CloudEventHeaders.Metadata metadata = new CloudEventHeaders.Metadata(
+            "evt-1", "movie.created", "/peliculas/api", "application/json", LocalDateTime.of(2025, 1, 10, 8, 30, 15));
+        byte[] data = "{\"title\":\"Inception\"}".getBytes();
+
+        // When
+        Message message = CloudEventHeaders.toMessage(metadata, data);
+
+        // Then
+        assertTrue(CloudEventHeaders.isBinary(message));
+        assertSame(data, message.getBody());
+        assertEquals("1.0", message.getMessageProperties().getHeader(CloudEventHeaders.SPECVERSION));
+        assertEquals("evt-1", message.getMessageProperties().getMessageId());
+        assertEquals("application/json", message.getMessageProperties().getContentType());
+        assertEquals(metadata, CloudEventHeaders.read(message));
+    }
+
+    @Test
+    @DisplayName("Un mensaje sin specversion no es binario y un time ilegible se ignora")
+    void isBinary_andRead_shouldTolerateMissingHeaders() {
+        // Given
+        MessageProperties properties = new MessageProperties();
+        Message structured = new Message("{}".getBytes(), properties);
+
+        // Then
+        assertFalse(CloudEventHeaders.isBinary(structured));
+
+        properties.setHeader(CloudEventHeaders.SPECVERSION, "1.0");
+        properties.setHeader(CloudEventHeaders.TIME, "ayer");
+        CloudEventHeaders.Metadata metadata = CloudEventHeaders.read(structured);
+        assertTrue(CloudEventHeaders.isBinary(structured));
+        assertNull(metadata.time());
+        assertNull(metadata.id());
+    }
+}
@@ -31,6 +31,9 @@ class ConfigServiceTest {
     @Mock
     private RetryPolicyRepository retryPolicyRepository;
 
+    @Mock
+    private ConfigChanges configChanges;
+
     @InjectMocks
     private ConfigService configService;
 
@@ -90,6 +93,7 @@ class ConfigServiceTest {
         assertFalse(result.isEnabled());
 
         verify(retryPolicyRepository, times(1)).save(any(RetryPolicy.class));
+        verify(configChanges).changed(ConfigChanges.RETRY_POLICIES);
     }
 
     @Test
@@ -241,7 +245,7 @@ class ConfigServiceTest {
     @DisplayName("Constructor - debería inyectar dependencias correctamente")
     void constructor_ShouldInjectDependenciesCorrectly() {
         // Given & When
-        ConfigService service = new ConfigService(retryPolicyRepository);
+        ConfigService service = new ConfigService(retryPolicyRepository, configChanges);
 
         // Then
         assertNotNull(service);
@@ -0,0 +1,205 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.CoreBack.config.RabbitConfig;
+import com.example.CoreBack.entity.RetryPolicy;
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumerRetriesTest {
+
+    @Mock private EventPublisherService publisher;
+    @Mock private ModulePolicyService modulePolicies;
+    @Mock private EventRepository eventRepository;
+    @Mock private EventRollupService rollupService;
+    @Mock private LiveEventCounters liveCounters;
+    @Mock private RetryScheduler scheduler;
+
+    @InjectMocks
+    private ConsumerRetries retries;
+
+    @Test
+    @DisplayName("El delay crece con el backoff hasta maxDelay y se redondea al escalón siguiente")
+    void delayAndTier_shouldFollowPolicy() {
+        RetryPolicy policy = policy(1000, 30000, 2.0, 10);
+
+        assertEquals(1000, ConsumerRetries.delayFor(policy, 1));
+        assertEquals(4000, ConsumerRetries.delayFor(policy, 3));
+        assertEquals(30000, ConsumerRetries.delayFor(policy, 8));
+        assertEquals(5000, retries.tierFor(4000, 0));
+        assertEquals(600000, retries.tierFor(3_600_000, 0));
+    }
+
+    @Test
+    @DisplayName("Con intentos restantes republica en la cola de espera con el conteo en el header")
+    void retryOrPark_withTriesLeft_shouldPublishToRetryTier() {
+        // Given
+        when(modulePolicies.retryPolicyFor("usuarios")).thenReturn(Optional.of(policy(1500, 10000, 2.5, 3)));
+        when(publisher.sendConfirmed(anyString(), anyString(), any(Message.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        Message message = MessageBuilder.withBody("{}".getBytes()).setHeader(ConsumerRetries.RETRIES_HEADER, 1).build();
+
+        // When
+        ConsumerRetries.Outcome outcome = retries.retryOrPark(message, "/usuarios/api", new IllegalStateException("boom"));
+
+        // Then: segundo fallo → 1500 × 2.5 = 3750ms → escalón de 5s
+        assertEquals(ConsumerRetries.Outcome.RETRIED, outcome);
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(publisher).sendConfirmed(eq(RabbitConfig.RETRY_EXCHANGE), eq(RabbitConfig.retryQueueName(5000)), captor.capture());
+        assertEquals(2, (int) captor.getValue().getMessageProperties().getHeader(ConsumerRetries.RETRIES_HEADER));
+        assertEquals("IllegalStateException: boom", captor.getValue().getMessageProperties().getHeader(ConsumerRetries.ERROR_HEADER));
+        assertArrayEquals("{}".getBytes(), captor.getValue().getBody());
+    }
+
+    @Test
+    @DisplayName("Al agotar maxTries el mensaje va a parking por la DLX")
+    void retryOrPark_withoutTriesLeft_shouldPark() {
+        // Given
+        when(modulePolicies.retryPolicyFor("peliculas")).thenReturn(Optional.of(policy(1000, 4000, 2.0, 2)));
+        when(publisher.sendConfirmed(anyString(), anyString(), any(Message.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        Message message = MessageBuilder.withBody("{}".getBytes()).setHeader(ConsumerRetries.RETRIES_HEADER, 1).build();
+
+        // When
+        ConsumerRetries.Outcome outcome = retries.retryOrPark(message, "/movies/api", new RuntimeException("boom"));
+
+        // Then
+        assertEquals(ConsumerRetries.Outcome.PARKED, outcome);
+        verify(publisher).sendConfirmed(eq(RabbitConfig.DEAD_LETTER_EXCHANGE), eq(RabbitConfig.PARKING_ROUTING_KEY), any(Message.class));
+        verify(publisher, never()).sendConfirmed(eq(RabbitConfig.RETRY_EXCHANGE), anyString(), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Sin política para el módulo usa la default")
+    void retryOrPark_withoutModulePolicy_shouldUseDefault() {
+        // Given
+        when(modulePolicies.retryPolicyFor("otros")).thenReturn(Optional.empty());
+        when(publisher.sendConfirmed(anyString(), anyString(), any(Message.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        Message message = MessageBuilder.withBody("{}".getBytes()).build();
+
+        // When
+        ConsumerRetries.Outcome outcome = retries.retryOrPark(message, "/otro/api", new RuntimeException("boom"));
+
+        // Then
+        assertEquals(ConsumerRetries.Outcome.RETRIED, outcome);
+        verify(publisher).sendConfirmed(eq(RabbitConfig.RETRY_EXCHANGE), eq(RabbitConfig.retryQueueName(1000)), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Si el broker no confirma la copia la excepción sube y el original no se confirma")
+    void retryOrPark_whenBrokerNacks_shouldThrow() {
+        // Given
+        when(modulePolicies.retryPolicyFor("usuarios")).thenReturn(Optional.of(policy(1000, 4000, 2.0, 3)));
+        when(publisher.sendConfirmed(anyString(), anyString(), any(Message.class)))
+                .thenReturn(CompletableFuture.failedFuture(new AmqpException("Broker nack: queue full")));
+        Message message = MessageBuilder.withBody("{}".getBytes()).build();
+
+        // When / Then
+        AmqpException error = assertThrows(AmqpException.class,
+                () -> retries.retryOrPark(message, "/usuarios/api", new RuntimeException("boom")));
+        assertEquals("Broker nack: queue full", error.getMessage());
+    }
+
+    @Test
+    @DisplayName("En modo in-process el reintento va al RetryScheduler con el delay de la política ± jitter")
+    void retryOrPark_inProcess_shouldScheduleInWheel() {
+        // Given
+        ReflectionTestUtils.setField(retries, "mode", "in-process");
+        when(modulePolicies.retryPolicyFor("usuarios")).thenReturn(Optional.of(policy(1500, 4000, 2.5, 3)));
+        Message message = MessageBuilder.withBody("{}".getBytes()).setHeader(ConsumerRetries.RETRIES_HEADER, 1).build();
+
+        // When
+        ConsumerRetries.Outcome outcome = retries.retryOrPark(message, "/usuarios/api", new IllegalStateException("boom"));
+
+        // Then: 3750ms ± 20%, sin pasar por las colas de espera
+        assertEquals(ConsumerRetries.Outcome.RETRIED, outcome);
+        ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+        verify(scheduler).schedule(any(Message.class), eq(2), delay.capture());
+        assertTrue(delay.getValue() >= 3000 && delay.getValue() <= 4500, "delay: " + delay.getValue());
+        verify(publisher, never()).sendConfirmed(anyString(), anyString(), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("El jitter queda dentro de ±jitter × delay")
+    void withJitter_shouldStayWithinSpread() {
+        for (int i = 0; i < 1_000; i++) {
+            long delay = ConsumerRetries.withJitter(10_000, 0.2);
+            assertTrue(delay >= 8_000 && delay <= 12_000, "delay: " + delay);
+        }
+        assertEquals(10_000, ConsumerRetries.withJitter(10_000, 0));
+    }
+
+    @Test
+    @DisplayName("markFailed pasa a Failed el evento del outbox y lo cuenta")
+    void markFailed_shouldUpdateStatusAndCounters() {
+        // Given
+        StoredEvent failed = new StoredEvent("user.created", "/usuarios/api", "application/json", null, null);
+        failed.setEventId("evt-1");
+        when(eventRepository.updateStatusByEventId("evt-1", "Failed")).thenReturn(1);
+
+        // When
+        retries.markFailed(failed);
+
+        // Then
+        assertEquals("Failed", failed.getStatus());
+        verify(rollupService).record(List.of(), List.of(failed), "InQueue");
+        verify(liveCounters).recordTransition(failed, "InQueue");
+    }
+
+    @Test
+    @DisplayName("tierFor no elige un escalón más largo que el maxDelay de la política")
+    void tierFor_shouldNotExceedMaxDelay() {
+        assertEquals(30000, retries.tierFor(40_000, 60_000));
+        assertEquals(1000, retries.tierFor(4000, 4000));
+        assertEquals(120000, retries.tierFor(3_600_000, 300_000));
+        assertEquals(1000, retries.tierFor(500, 200));
+    }
+
+    @Test
+    @DisplayName("markFailed sin fila del outbox no toca rollups ni contadores")
+    void markFailed_withoutOutboxRow_shouldOnlyLog() {
+        // Given
+        StoredEvent failed = new StoredEvent("user.created", "/usuarios/api", "application/json", null, null);
+        failed.setEventId("evt-1");
+        when(eventRepository.updateStatusByEventId("evt-1", "Failed")).thenReturn(0);
+
+        // When
+        retries.markFailed(failed);
+
+        // Then
+        verifyNoInteractions(rollupService, liveCounters);
+    }
+
+    private static RetryPolicy policy(int minDelay, int maxDelay, double multiplier, int maxTries) {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setName("test");
+        policy.setMinDelay(minDelay);
+        policy.setMaxDelay(maxDelay);
+        policy.setBackoffMultiplier(multiplier);
+        policy.setMaxTries(maxTries);
+        policy.setEnabled(true);
+        return policy;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.CoreBack.service;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.CoreBack.repository.ArchivedEvent;
+import com.example.CoreBack.repository.EventArchive;
+import com.example.CoreBack.repository.EventRepository;
+
+@ExtendWith(MockitoExtension.class)
+class EventArchiverTest {
+
+    @Mock private EventRepository eventRepository;
+    @Mock private PayloadSearchIndex payloadIndex;
+    @Mock private ClusterLocks locks;
+
+    @TempDir Path dir;
+
+    private EventArchive archive;
+    private EventArchiver archiver;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 1, 10);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        archive = new EventArchive();
+        ReflectionTestUtils.setField(archive, "dir", dir.toString());
+        archive.load();
+        archiver = new EventArchiver(eventRepository, archive, payloadIndex, locks);
+        ReflectionTestUtils.setField(archiver, "batchSize", 2);
+    }
+
+    @Test
+    @DisplayName("archiveBefore copia cada día a un segmento, después borra sus filas y limpia el índice")
+    void archiveBefore_shouldWriteSegmentThenDelete() throws Exception {
+        // Given: 3 filas en el día, leídas en tramos de 2
+        when(eventRepository.findOldestOccurredAt()).thenReturn(DAY.atTime(8, 0));
+        when(eventRepository.findDayChunk(eq(DAY.atStartOfDay()), eq(DAY.plusDays(1).atStartOfDay()), any(), anyLong(), eq(2)))
+            .thenReturn(List.of(event(1L, DAY.atTime(8, 0)), event(2L, DAY.atTime(9, 0))))
+            .thenReturn(List.of(event(3L, DAY.atTime(10, 0))));
+        when(eventRepository.findDayChunk(eq(DAY.plusDays(1).atStartOfDay()), any(), any(), anyLong(), anyInt()))
+            .thenReturn(List.of());
+
+        // When
+        int archived = archiver.archiveBefore(DAY.plusDays(2));
+
+        // Then
+        assertEquals(1, archived);
+        assertTrue(archive.contains(DAY));
+        assertEquals(3L, archive.count(null, null));
+        verify(eventRepository).findDayChunk(any(), any(), eq(DAY.atTime(9, 0)), eq(2L), eq(2));
+        verify(eventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(eventRepository).deleteAllByIdInBatch(List.of(3L));
+        verify(payloadIndex).deleteOlderThan(DAY.plusDays(2).atStartOfDay());
+    }
+
+    @Test
+    @DisplayName("Si el segmento del día ya existe sólo se terminan de borrar sus filas")
+    void archiveDay_withExistingSegment_shouldOnlyDelete() throws Exception {
+        // Given
+        when(eventRepository.findDayChunk(any(), any(), any(), anyLong(), anyInt()))
+            .thenReturn(List.of(event(1L, DAY.atTime(8, 0))));
+        archiver.archiveDay(DAY);
+        clearInvocations(eventRepository);
+
+        // When
+        boolean archived = archiver.archiveDay(DAY);
+
+        // Then
+        assertTrue(archived);
+        verify(eventRepository, never()).findDayChunk(any(), any(), any(), anyLong(), anyInt());
+        verify(eventRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("archiveBefore no hace nada con la tabla vacía")
+    void archiveBefore_withEmptyTable_shouldDoNothing() throws Exception {
+        when(eventRepository.findOldestOccurredAt()).thenReturn(null);
+
+        assertEquals(0, archiver.archiveBefore(DAY));
+        verifyNoInteractions(payloadIndex);
+    }
+
+    @Test
+    @DisplayName("Sin core.archive.shared no se archiva ni se borra nada")
+    void run_withoutSharedStorage_shouldDoNothing() {
+        // When
+        archiver.run();
+
+        // Then
+        verifyNoInteractions(locks, eventRepository);
+    }
+
+    @Test
+    @DisplayName("Si otro nodo tiene el lock del archivo esta corrida no hace nada")
+    void run_withoutLock_shouldDoNothing() {
+        // Given
+        ReflectionTestUtils.setField(archiver, "shared", true);
+        when(locks.tryAcquire(eq(EventArchiver.LOCK), any())).thenReturn(false);
+
+        // When
+        archiver.run();
+
+        // Then
+        verifyNoInteractions(eventRepository);
+        verify(locks, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Con el lock archiva y lo libera al terminar")
+    void run_withLock_shouldArchiveAndRelease() {
+        // Given
+        ReflectionTestUtils.setField(archiver, "shared", true);
+        when(locks.tryAcquire(eq(EventArchiver.LOCK), any())).thenReturn(true);
+        when(eventRepository.findOldestOccurredAt()).thenReturn(null);
+
+        // When
+        archiver.run();
+
+        // Then
+        verify(eventRepository).findOldestOccurredAt();
+        verify(locks).release(EventArchiver.LOCK);
+    }
+
+    @Test
+    @DisplayName("Si el segmento releído no tiene las filas copiadas no se borra nada")
+    void archiveDay_withMismatchedSegment_shouldNotDelete() throws Exception {
+        // Given
+        EventArchive spied = spy(archive);
+        archiver = new EventArchiver(eventRepository, spied, payloadIndex, locks);
+        ReflectionTestUtils.setField(archiver, "batchSize", 2);
+        when(eventRepository.findDayChunk(any(), any(), any(), anyLong(), anyInt()))
+            .thenReturn(List.of(event(1L, DAY.atTime(8, 0))));
+        doReturn(List.of()).when(spied).idsOf(DAY);
+
+        // When / Then
+        assertThrows(java.io.IOException.class, () -> archiver.archiveDay(DAY));
+        verify(eventRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    private static ArchivedEvent event(Long id, LocalDateTime occurredAt) {
+        return new ArchivedEvent(id, "evt-" + id, "movie.created", "/peliculas/api", "peliculas",
+            "application/json", "{}", occurredAt, "Delivered");
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.CoreBack.service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -12,17 +16,29 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.CoreBack.entity.StoredEvent;
 import com.example.CoreBack.repository.EventRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rabbitmq.client.Channel;
 
@@ -35,6 +51,24 @@ class EventConsumerServiceTest {
     @Mock
     private ObjectMapper objectMapper;
     
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private EventRollupService rollupService;
+
+    @Mock
+    private LiveEventCounters liveCounters;
+
+    @Mock
+    private PayloadSearchIndex payloadIndex;
+
+    @Mock
+    private EventDeduplicator deduplicator;
+
+    @Mock
+    private ConsumerRetries retries;
+
     @Mock
     private Channel channel;
     
@@ -59,8 +93,8 @@ class EventConsumerServiceTest {
     void shouldReceiveAndProcessValidEventMessage() throws Exception {
         // Given
         Map<String, Object> eventMessage = createValidEventMessage();
-        String expectedJson = "{\"id\":\"test-123\"}";
-        when(objectMapper.writeValueAsString(eventMessage)).thenReturn(expectedJson);
+        String expectedJson = "{\"userId\":\"123\"}";
+        when(objectMapper.writeValueAsString(eventMessage.get("data"))).thenReturn(expectedJson);
         
         StoredEvent savedEvent = new StoredEvent(
             "user.created", "users", "application/json", 
@@ -68,6 +102,7 @@ class EventConsumerServiceTest {
         );
         savedEvent.setEventId("test-123");
         when(eventRepository.save(any(StoredEvent.class))).thenReturn(savedEvent);
+        claimAllExcept();
 
         // When
         assertDoesNotThrow(() -> {
@@ -75,7 +110,7 @@ class EventConsumerServiceTest {
         });
 
         // Then
-        verify(objectMapper).writeValueAsString(eventMessage);
+        verify(objectMapper).writeValueAsString(eventMessage.get("data"));
         
         ArgumentCaptor<StoredEvent> eventCaptor = ArgumentCaptor.forClass(StoredEvent.class);
         verify(eventRepository).save(eventCaptor.capture());
@@ -84,6 +119,26 @@ class EventConsumerServiceTest {
         assertThat(capturedEvent.getEventId()).isEqualTo("test-123");
         assertThat(capturedEvent.getEventType()).isEqualTo("user.created");
         assertThat(capturedEvent.getSource()).isEqualTo("users");
+        verify(payloadIndex).index(any(), eq("test-123"), eq(expectedJson), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Debe marcar como Delivered el evento ya registrado por el outbox")
+    void shouldMarkOutboxEventAsDelivered() throws Exception {
+        // Given
+        Map<String, Object> eventMessage = createValidEventMessage();
+        when(eventRepository.updateStatusByEventId("test-123", "Delivered")).thenReturn(1);
+
+        // When
+        eventConsumerService.receiveAllEvents(eventMessage, channel, message);
+
+        // Then
+        verify(eventRepository, never()).save(any(StoredEvent.class));
+        verify(rollupService).record(eq(List.of()), argThat(events -> events.size() == 1), eq("InQueue"));
+        verify(liveCounters).recordTransition(any(StoredEvent.class), eq("InQueue"));
+        // La fila del outbox ya entró al índice por catchUp: la transición no la reindexa
+        verifyNoInteractions(payloadIndex);
+        verify(channel).basicAck(1L, false);
     }
 
     @Test
@@ -115,6 +170,339 @@ class EventConsumerServiceTest {
         verify(objectMapper, never()).writeValueAsString(any());
     }
 
+    @Test
+    @DisplayName("Lote: marca Delivered los existentes, inserta el resto en batch y hace multi-ack")
+    void shouldProcessBatchWithSingleSaveAllAndMultiAck() throws Exception {
+        // Given
+        Map<String, Object> known = createValidEventMessage();
+        Map<String, Object> unknown = createValidEventMessage();
+        unknown.put("id", "test-456");
+        Message first = mock(Message.class);
+        when(first.getBody()).thenReturn("a".getBytes());
+        when(message.getBody()).thenReturn("b".getBytes());
+        when(objectMapper.readValue(aryEq("a".getBytes()), any(TypeReference.class))).thenReturn(known);
+        when(objectMapper.readValue(aryEq("b".getBytes()), any(TypeReference.class))).thenReturn(unknown);
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+            ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        claimAllExcept("test-123");
+        when(eventRepository.findStatusesByEventIds(any())).thenReturn(List.of(status("test-123", "InQueue")));
+        when(eventRepository.updateStatusByEventIds(any(), eq("Delivered"))).thenReturn(1);
+
+        // When
+        eventConsumerService.receiveAllEventsBatch(List.of(first, message), channel);
+
+        // Then
+        verify(eventRepository).updateStatusByEventIds(List.of("test-123"), "Delivered");
+        verify(eventRepository).findStatusesByEventIds(Set.of("test-123"));
+        ArgumentCaptor<List<StoredEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(eventRepository).insertAll(captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+        assertThat(captor.getValue().get(0).getEventId()).isEqualTo("test-456");
+        assertThat(captor.getValue().get(0).getStatus()).isEqualTo("Delivered");
+        verify(channel).basicAck(1L, true);
+        verify(eventRepository, never()).save(any(StoredEvent.class));
+        verify(rollupService).record(argThat(inserted -> inserted.size() == 1), argThat(transitioned -> transitioned.size() == 1), eq("InQueue"));
+        verify(liveCounters).recordTransition(any(StoredEvent.class), eq("InQueue"));
+        verify(liveCounters).recordStored(any(StoredEvent.class));
+        verify(payloadIndex, never()).index(any(), eq("test-123"), any(), any());
+        verify(payloadIndex).index(any(), eq("test-456"), eq("{}"), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Lote: si falla la transacción cada mensaje va a su cola de espera y el lote se confirma")
+    void shouldScheduleRetryForWholeBatchOnFailure() throws Exception {
+        // Given
+        when(message.getBody()).thenReturn("a".getBytes());
+        when(objectMapper.readValue(any(byte[].class), any(TypeReference.class))).thenReturn(createValidEventMessage());
+        RuntimeException failure = new RuntimeException("DB down");
+        when(transactionTemplate.execute(any())).thenThrow(failure);
+        when(retries.retryOrPark(message, "users", failure)).thenReturn(ConsumerRetries.Outcome.RETRIED);
+
+        // When
+        eventConsumerService.receiveAllEventsBatch(List.of(message), channel);
+
+        // Then
+        verify(channel).basicAck(1L, true);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verify(retries, never()).markFailed(any());
+    }
+
+    @Test
+    @DisplayName("Lote: si tampoco se puede republicar se reencola todo el lote")
+    void shouldRequeueWholeBatchWhenRetryFails() throws Exception {
+        // Given
+        when(message.getBody()).thenReturn("a".getBytes());
+        when(objectMapper.readValue(any(byte[].class), any(TypeReference.class))).thenReturn(createValidEventMessage());
+        when(transactionTemplate.execute(any())).thenThrow(new RuntimeException("DB down"));
+        when(retries.retryOrPark(any(), any(), any())).thenThrow(new RuntimeException("RabbitMQ down"));
+
+        // When
+        eventConsumerService.receiveAllEventsBatch(List.of(message), channel);
+
+        // Then
+        verify(channel).basicNack(1L, true, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Lote: si el último mensaje es ilegible el multi-ack no repite su tag ya resuelto")
+    void shouldNotMultiAckTagAlreadyParked() throws Exception {
+        // Given: el tag 1 es legible, el 2 (último) va a parking y se confirma solo
+        Message first = mock(Message.class);
+        MessageProperties firstProperties = mock(MessageProperties.class);
+        when(first.getBody()).thenReturn("a".getBytes());
+        when(first.getMessageProperties()).thenReturn(firstProperties);
+        when(firstProperties.getDeliveryTag()).thenReturn(1L);
+        when(messageProperties.getDeliveryTag()).thenReturn(2L);
+        when(message.getBody()).thenReturn("b".getBytes());
+        when(objectMapper.readValue(aryEq("a".getBytes()), any(TypeReference.class))).thenReturn(createValidEventMessage());
+        when(objectMapper.readValue(aryEq("b".getBytes()), any(TypeReference.class))).thenThrow(new RuntimeException("bad json"));
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+            ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        claimAllExcept();
+
+        // When
+        eventConsumerService.receiveAllEventsBatch(List.of(first, message), channel);
+
+        // Then
+        verify(retries).park(eq(message), anyString());
+        verify(channel).basicAck(2L, false);
+        verify(channel).basicAck(1L, true);
+        verify(channel, never()).basicAck(2L, true);
+    }
+
+    @Test
+    @DisplayName("Si falla el guardado el mensaje se republica para reintentar y no vuelve a la cabeza de la cola")
+    void shouldScheduleRetryInsteadOfRequeue() throws Exception {
+        // Given
+        claimAllExcept();
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(eventRepository.save(any(StoredEvent.class))).thenThrow(new RuntimeException("DB down"));
+        when(retries.retryOrPark(eq(message), eq("users"), any())).thenReturn(ConsumerRetries.Outcome.RETRIED);
+
+        // When
+        eventConsumerService.receiveAllEvents(createValidEventMessage(), channel, message);
+
+        // Then
+        verify(channel).basicAck(1L, false);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verify(retries, never()).markFailed(any());
+    }
+
+    @Test
+    @DisplayName("Si el INSERT falla al hacer flush el mensaje se reintenta antes de confirmarlo")
+    void shouldRetryWhenFlushFailsBeforeAck() throws Exception {
+        // Given: con el id en memoria el error del INSERT aparece recién en el flush
+        claimAllExcept();
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        doThrow(new RuntimeException("Duplicate entry")).when(eventRepository).flush();
+        when(retries.retryOrPark(eq(message), eq("users"), any())).thenReturn(ConsumerRetries.Outcome.RETRIED);
+
+        // When
+        eventConsumerService.receiveAllEvents(createValidEventMessage(), channel, message);
+
+        // Then: el ack es el del mensaje ya republicado, no el del evento guardado
+        verify(retries).retryOrPark(eq(message), eq("users"), any());
+        verify(liveCounters, never()).recordStored(any());
+        verify(deduplicator, never()).delivered(any());
+        verify(channel).basicAck(1L, false);
+    }
+
+    @Test
+    @DisplayName("Sin intentos restantes el mensaje queda en parking y el evento se marca Failed")
+    void shouldMarkFailedWhenParked() throws Exception {
+        // Given
+        claimAllExcept();
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(eventRepository.save(any(StoredEvent.class))).thenThrow(new RuntimeException("DB down"));
+        when(retries.retryOrPark(eq(message), eq("users"), any())).thenReturn(ConsumerRetries.Outcome.PARKED);
+
+        // When
+        eventConsumerService.receiveAllEvents(createValidEventMessage(), channel, message);
+
+        // Then
+        verify(retries).markFailed(argThat(event -> "test-123".equals(event.getEventId())));
+        verify(channel).basicAck(1L, false);
+    }
+
+    @Test
+    @DisplayName("Sobre crudo: guarda `data` tal cual llegó, sin pasar por el ObjectMapper")
+    void shouldStoreRawEnvelopeBodyUnchanged() throws Exception {
+        // Given
+        String body = "{\"id\":\"test-123\",\"type\":\"user.created\",\"source\":\"users\",\"data\":{\"userId\": \"123\"}}";
+        when(message.getBody()).thenReturn(body.getBytes());
+        headers(Map.of(EventPublisherService.ENVELOPE_HEADER, EventPublisherService.RAW_ENVELOPE));
+        claimAllExcept();
+
+        // When
+        eventConsumerService.receiveAllQueueMessage(message, channel);
+
+        // Then
+        ArgumentCaptor<StoredEvent> eventCaptor = ArgumentCaptor.forClass(StoredEvent.class);
+        verify(eventRepository).save(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getPayload()).isEqualTo("{\"userId\": \"123\"}");
+        assertThat(eventCaptor.getValue().getEventType()).isEqualTo("user.created");
+        verify(payloadIndex).index(any(), eq("test-123"), eq("{\"userId\": \"123\"}"), any(LocalDateTime.class));
+        verify(channel).basicAck(1L, false);
+        verifyNoInteractions(objectMapper);
+    }
+
+    @Test
+    @DisplayName("Sobre crudo del outbox: marca Delivered con el sysDate del body")
+    void shouldMarkRawOutboxEventAsDelivered() throws Exception {
+        // Given
+        String body = "{\"id\":\"test-123\",\"sysDate\":\"2025-01-10T08:30\",\"type\":\"user.created\","
+            + "\"source\":\"users\",\"data\":{\"userId\":\"123\"}}";
+        when(message.getBody()).thenReturn(body.getBytes());
+        headers(Map.of(EventPublisherService.ENVELOPE_HEADER, EventPublisherService.RAW_ENVELOPE));
+        when(eventRepository.updateStatusByEventId("test-123", "Delivered")).thenReturn(1);
+
+        // When
+        eventConsumerService.receiveAllQueueMessage(message, channel);
+
+        // Then
+        verify(eventRepository, never()).save(any(StoredEvent.class));
+        verify(rollupService).record(eq(List.of()), argThat(events ->
+            events.iterator().next().getOccurredAt().equals(LocalDateTime.of(2025, 1, 10, 8, 30))), eq("InQueue"));
+        verifyNoInteractions(payloadIndex);
+        verify(channel).basicAck(1L, false);
+        verifyNoInteractions(objectMapper);
+    }
+
+    @Test
+    @DisplayName("Sobre crudo ilegible: va a parking sin reencolar")
+    void shouldDiscardUnreadableRawEnvelope() throws Exception {
+        // Given
+        when(message.getBody()).thenReturn("{\"id\":".getBytes());
+        headers(Map.of(EventPublisherService.ENVELOPE_HEADER, EventPublisherService.RAW_ENVELOPE));
+
+        // When
+        eventConsumerService.receiveAllQueueMessage(message, channel);
+
+        // Then
+        verify(retries).park(eq(message), anyString());
+        verify(channel).basicAck(1L, false);
+        verify(eventRepository, never()).save(any(StoredEvent.class));
+    }
+
+    @Test
+    @DisplayName("Modo binario: guarda `data` con los atributos de los headers, sin parsear el body")
+    void shouldStoreBinaryEventFromHeaders() throws Exception {
+        // Given
+        when(message.getBody()).thenReturn("not json at all".getBytes());
+        headers(Map.of(CloudEventHeaders.SPECVERSION, "1.0", CloudEventHeaders.ID, "test-123",
+            CloudEventHeaders.TYPE, "user.created", CloudEventHeaders.SOURCE, "users"));
+        when(messageProperties.getContentType()).thenReturn("application/json");
+        claimAllExcept();
+
+        // When
+        eventConsumerService.receiveAllQueueMessage(message, channel);
+
+        // Then
+        ArgumentCaptor<StoredEvent> eventCaptor = ArgumentCaptor.forClass(StoredEvent.class);
+        verify(eventRepository).save(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getEventId()).isEqualTo("test-123");
+        assertThat(eventCaptor.getValue().getEventType()).isEqualTo("user.created");
+        assertThat(eventCaptor.getValue().getSource()).isEqualTo("users");
+        assertThat(eventCaptor.getValue().getPayload()).isEqualTo("not json at all");
+        verify(channel).basicAck(1L, false);
+        verifyNoInteractions(objectMapper);
+    }
+
+    @Test
+    @DisplayName("Dedup: un id que ya entregó este nodo se confirma sin tocar la DB")
+    void shouldAckRecentlyDeliveredEventWithoutDbAccess() throws Exception {
+        // Given
+        when(deduplicator.recentlyDelivered("test-123")).thenReturn(true);
+
+        // When
+        eventConsumerService.receiveAllEvents(createValidEventMessage(), channel, message);
+
+        // Then
+        verify(channel).basicAck(1L, false);
+        verifyNoInteractions(eventRepository, rollupService, liveCounters, payloadIndex);
+        verify(deduplicator, never()).claim(any());
+    }
+
+    @Test
+    @DisplayName("Dedup: si la clave ya existe y no hay fila InQueue es una redelivery y no se guarda de nuevo")
+    void shouldNotStoreRedeliveredEventTwice() throws Exception {
+        // Given (claim sin resultado: la clave ya estaba en event_keys; el update no encuentra InQueue)
+        when(eventRepository.updateStatusByEventId("test-123", "Delivered")).thenReturn(0);
+
+        // When
+        eventConsumerService.receiveAllEvents(createValidEventMessage(), channel, message);
+
+        // Then
+        verify(deduplicator).claim(List.of("test-123"));
+        verify(eventRepository, never()).save(any(StoredEvent.class));
+        verifyNoInteractions(rollupService, liveCounters, payloadIndex);
+        verify(deduplicator).delivered(List.of("test-123"));
+        verify(channel).basicAck(1L, false);
+    }
+
+    @Test
+    @DisplayName("Dedup: un id que el Bloom no conoce va directo al claim, sin update previo")
+    void shouldClaimUnknownIdBeforeAnyUpdate() throws Exception {
+        // Given
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        claimAllExcept();
+
+        // When
+        eventConsumerService.receiveAllEvents(createValidEventMessage(), channel, message);
+
+        // Then
+        verify(eventRepository, never()).updateStatusByEventId(anyString(), anyString());
+        verify(eventRepository).save(any(StoredEvent.class));
+    }
+
+    @Test
+    @DisplayName("Lote: los ids que el Bloom no conoce se reclaman sin leer; los repetidos del lote cuentan una vez")
+    void shouldClaimFreshBatchWithoutReading() throws Exception {
+        // Given
+        Message first = mock(Message.class);
+        when(first.getBody()).thenReturn("a".getBytes());
+        when(message.getBody()).thenReturn("a".getBytes());
+        when(objectMapper.readValue(aryEq("a".getBytes()), any(TypeReference.class))).thenReturn(createValidEventMessage());
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+            ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        claimAllExcept();
+
+        // When
+        eventConsumerService.receiveAllEventsBatch(List.of(first, message), channel);
+
+        // Then
+        verify(eventRepository, never()).findStatusesByEventIds(any());
+        ArgumentCaptor<List<StoredEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(eventRepository).insertAll(captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+        verify(deduplicator).delivered(Set.of("test-123"));
+        verify(channel).basicAck(1L, true);
+    }
+
+    // El claim inserta todas las claves salvo `existing` (que ya estaban en event_keys)
+    private void claimAllExcept(String... existing) {
+        when(deduplicator.claim(any())).thenAnswer(inv -> {
+            Set<String> claimed = new HashSet<>(inv.<Collection<String>>getArgument(0));
+            List.of(existing).forEach(claimed::remove);
+            return claimed;
+        });
+    }
+
+    private static EventRepository.EventIdStatus status(String eventId, String status) {
+        return new EventRepository.EventIdStatus() {
+            @Override public String getEventId() { return eventId; }
+            @Override public String getStatus() { return status; }
+        };
+    }
+
+    private void headers(Map<String, Object> headers) {
+        when(messageProperties.getHeader(anyString())).thenAnswer(inv -> headers.get(inv.getArgument(0)));
+    }
+
     private Map<String, Object> createValidEventMessage() {
         Map<String, Object> eventData = new HashMap<>();
         eventData.put("id", "test-123");
@@ -0,0 +1,72 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.CoreBack.repository.EventKeyRepository;
+
+@ExtendWith(MockitoExtension.class)
+class EventDeduplicatorTest {
+
+    @Mock private EventKeyRepository eventKeys;
+
+    private EventDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new EventDeduplicator(eventKeys);
+        ReflectionTestUtils.setField(deduplicator, "lruSize", 2);
+        ReflectionTestUtils.setField(deduplicator, "bloomCapacity", 1_000);
+        deduplicator.start();
+    }
+
+    @Test
+    @DisplayName("claim delega en event_keys y el Bloom pasa a conocer todos los ids reclamados")
+    void claim_shouldRecordIdsInBloom() {
+        // Given
+        when(eventKeys.claim(List.of("evt-1", "evt-2"))).thenReturn(Set.of("evt-1"));
+        assertFalse(deduplicator.mightBeKnown("evt-1"));
+
+        // When
+        Set<String> claimed = deduplicator.claim(List.of("evt-1", "evt-2"));
+
+        // Then
+        assertEquals(Set.of("evt-1"), claimed);
+        assertTrue(deduplicator.mightBeKnown("evt-1"));
+        assertTrue(deduplicator.mightBeKnown("evt-2"));
+        assertFalse(deduplicator.recentlyDelivered("evt-1"));
+    }
+
+    @Test
+    @DisplayName("El LRU de entregados guarda los últimos lru-size ids")
+    void delivered_shouldKeepMostRecentIds() {
+        // When
+        deduplicator.delivered(List.of("evt-1", "evt-2"));
+        deduplicator.recentlyDelivered("evt-1"); // acceso: evt-2 pasa a ser el más viejo
+        deduplicator.delivered(List.of("evt-3"));
+
+        // Then
+        assertTrue(deduplicator.recentlyDelivered("evt-1"));
+        assertFalse(deduplicator.recentlyDelivered("evt-2"));
+        assertTrue(deduplicator.recentlyDelivered("evt-3"));
+        assertTrue(deduplicator.mightBeKnown("evt-2"));
+        verifyNoInteractions(eventKeys);
+    }
+
+    @Test
+    @DisplayName("claim sin ids no va a la DB")
+    void claim_withEmptyIds_shouldSkipDb() {
+        assertTrue(deduplicator.claim(List.of()).isEmpty());
+        verifyNoInteractions(eventKeys);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.CoreBack.entity.DataMigration;
+import com.example.CoreBack.repository.DataMigrationRepository;
+import com.example.CoreBack.repository.EventRepository;
+
+@ExtendWith(MockitoExtension.class)
+class EventModuleBackfillTest {
+
+    @Mock private EventRepository eventRepository;
+    @Mock private DataMigrationRepository migrationRepository;
+    @Mock private TransactionTemplate transactionTemplate;
+
+    private EventModuleBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        backfill = new EventModuleBackfill(eventRepository, migrationRepository, transactionTemplate);
+    }
+
+    @Test
+    @DisplayName("backfill agrupa los ids por módulo y recorre tramos hasta que no quedan filas")
+    void backfill_shouldUpdateChunksByModule() {
+        // Given
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+            ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        when(eventRepository.findWithoutModule(any()))
+            .thenReturn(List.of(row(1L, "/usuarios/api"), row(2L, "/movies/api"), row(3L, "user-service")))
+            .thenReturn(List.of());
+        when(eventRepository.updateModuleByIds(List.of(1L, 3L), "usuarios")).thenReturn(2);
+        when(eventRepository.updateModuleByIds(List.of(2L), "peliculas")).thenReturn(1);
+
+        // When
+        long updated = backfill.backfill();
+
+        // Then
+        assertEquals(3L, updated);
+        verify(eventRepository, times(2)).findWithoutModule(any());
+    }
+
+    @Test
+    @DisplayName("backfill no actualiza nada si todas las filas tienen módulo")
+    void backfill_withNothingPending_shouldDoNothing() {
+        // Given
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+            ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        when(eventRepository.findWithoutModule(any())).thenReturn(List.of());
+
+        // When
+        long updated = backfill.backfill();
+
+        // Then
+        assertEquals(0L, updated);
+        verify(eventRepository, never()).updateModuleByIds(any(), any());
+    }
+
+    @Test
+    @DisplayName("La normalización de estados corre una vez y queda registrada")
+    void normalizeStatusesOnce_shouldRunAndRecordMigration() {
+        // Given
+        when(migrationRepository.existsById(EventModuleBackfill.STATUS_MIGRATION)).thenReturn(false);
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+            ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+
+        // When
+        backfill.normalizeStatusesOnce();
+
+        // Then
+        verify(eventRepository).normalizeStatus("Delivered");
+        verify(eventRepository).normalizeStatus("InQueue");
+        verify(migrationRepository).save(any(DataMigration.class));
+    }
+
+    @Test
+    @DisplayName("Con la normalización ya registrada no se vuelve a recorrer events")
+    void normalizeStatusesOnce_whenAlreadyApplied_shouldSkip() {
+        // Given
+        when(migrationRepository.existsById(EventModuleBackfill.STATUS_MIGRATION)).thenReturn(true);
+
+        // When
+        backfill.normalizeStatusesOnce();
+
+        // Then
+        verify(eventRepository, never()).normalizeStatus(any());
+        verify(migrationRepository, never()).save(any());
+    }
+
+    private static EventRepository.IdAndSource row(Long id, String source) {
+        return new EventRepository.IdAndSource() {
+            @Override public Long getId() { return id; }
+            @Override public String getSource() { return source; }
+        };
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.CoreBack.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.CoreBack.entity.TimeOrderedIdGenerator;
+import com.example.CoreBack.repository.EventPartitioning;
+
+@ExtendWith(MockitoExtension.class)
+class EventPartitionManagerTest {
+
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private PayloadSearchIndex payloadIndex;
+    @Mock private ClusterLocks locks;
+
+    private EventPartitionManager manager;
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 18);
+
+    @BeforeEach
+    void setUp() {
+        manager = new EventPartitionManager(jdbcTemplate, payloadIndex, locks);
+        ReflectionTestUtils.setField(manager, "ahead", 2);
+    }
+
+    @Test
+    @DisplayName("Tabla sin particionar: legacy + un período por mes desde el id más viejo + futuros + pmax")
+    void plan_withUnpartitionedTable_shouldPartitionByIdRange() {
+        // Given
+        long oldestId = TimeOrderedIdGenerator.minIdAt(
+            LocalDate.of(2025, 1, 20).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        // When
+        List<String> ddl = manager.plan(Map.of(), TODAY, oldestId);
+
+        // Then
+        assertEquals(1, ddl.size());
+        String statement = ddl.get(0);
+        assertTrue(statement.startsWith("ALTER TABLE events PARTITION BY RANGE (id) ("));
+        assertTrue(statement.contains("PARTITION plegacy VALUES LESS THAN (" + EventPartitioning.LEGACY_ID_LIMIT + ")"));
+        assertTrue(statement.contains("PARTITION p20250101 VALUES LESS THAN ("
+            + EventPartitionManager.boundOf(LocalDate.of(2025, 2, 1)) + ")"));
+        assertTrue(statement.contains("PARTITION p20250501"));
+        assertFalse(statement.contains("p20250601"));
+        assertTrue(statement.endsWith("PARTITION pmax VALUES LESS THAN MAXVALUE)"));
+    }
+
+    @Test
+    @DisplayName("Tabla particionada: parte pmax para crear sólo los períodos futuros que faltan")
+    void plan_withPartitionedTable_shouldReorganizeCatchAll() {
+        // Given
+        Map<String, Long> existing = new LinkedHashMap<>();
+        existing.put("plegacy", EventPartitioning.LEGACY_ID_LIMIT);
+        existing.put("p20250301", EventPartitionManager.boundOf(LocalDate.of(2025, 4, 1)));
+        existing.put("pmax", null);
+
+        // When
+        List<String> ddl = manager.plan(existing, TODAY, null);
+
+        // Then
+        assertEquals(List.of("ALTER TABLE events REORGANIZE PARTITION pmax INTO ("
+            + "PARTITION p20250401 VALUES LESS THAN (" + EventPartitionManager.boundOf(LocalDate.of(2025, 5, 1)) + "), "
+            + "PARTITION p20250501 VALUES LESS THAN (" + EventPartitionManager.boundOf(LocalDate.of(2025, 6, 1)) + "), "
+            + "PARTITION pmax VALUES LESS THAN MAXVALUE)"), ddl);
+    }
+
+    @Test
+    @DisplayName("Con las particiones al día no hay DDL")
+    void plan_whenUpToDate_shouldDoNothing() {
+        Map<String, Long> existing = new LinkedHashMap<>();
+        existing.put("plegacy", EventPartitioning.LEGACY_ID_LIMIT);
+        existing.put("p20250501", EventPartitionManager.boundOf(LocalDate.of(2025, 6, 1)));
+        existing.put("pmax", null);
+
+        assertEquals(List.of(), manager.plan(existing, TODAY, null));
+    }
+
+    @Test
+    @DisplayName("Retención: borra con DROP PARTITION los períodos vencidos, nunca plegacy")
+    void plan_withRetention_shouldDropExpiredPartitions() {
+        // Given
+        ReflectionTestUtils.setField(manager, "retention", 2);
+        Map<String, Long> existing = new LinkedHashMap<>();
+        existing.put("plegacy", EventPartitioning.LEGACY_ID_LIMIT);
+        existing.put("p20250101", EventPartitionManager.boundOf(LocalDate.of(2025, 2, 1)));
+        existing.put("p20250201", EventPartitionManager.boundOf(LocalDate.of(2025, 3, 1)));
+        existing.put("p20250301", EventPartitionManager.boundOf(LocalDate.of(2025, 4, 1)));
+        existing.put("p20250401", EventPartitionManager.boundOf(LocalDate.of(2025, 5, 1)));
+        existing.put("p20250501", EventPartitionManager.boundOf(LocalDate.of(2025, 6, 1)));
+        existing.put("pmax", null);
+
+        // When
+        List<String> ddl = manager.plan(existing, TODAY, null);
+
+        // Then: se conservan febrero y marzo (2 períodos contando el actual)
+        assertEquals(List.of("ALTER TABLE events DROP PARTITION p20250101"), ddl);
+    }
+
+    @Test
+    @DisplayName("Si otro nodo tiene el lock no se lee ni se modifica nada")
+    void maintain_withoutLock_shouldSkip() {
+        // Given
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(locks.tryAcquire(eq(EventPartitionManager.LOCK), any())).thenReturn(false);
+
+        // When
+        manager.maintainScheduled();
+
+        // Then
+        verify(jdbcTemplate, never()).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(locks, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Al arrancar no se convierte una tabla sin particionar (queda para la corrida programada)")
+    void maintainOnStartup_withUnpartitionedTable_shouldNotAlter() {
+        // Given
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(locks.tryAcquire(eq(EventPartitionManager.LOCK), any())).thenReturn(true);
+
+        // When
+        manager.maintainOnStartup();
+
+        // Then
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(locks).release(EventPartitionManager.LOCK);
+    }
+
+    @Test
+    @DisplayName("La poda de retención borra event_keys y rollups por tramos hasta el mismo límite")
+    void pruneDerived_shouldDeleteKeysAndRollupsInChunks() {
+        // Given
+        LocalDateTime cutoff = LocalDateTime.of(2025, 2, 1, 0, 0);
+        LocalDateTime occurredCutoff = cutoff.minus(EventPartitioning.MAX_SYSDATE_BEHIND);
+        when(jdbcTemplate.update(startsWith("delete from event_keys"), eq(Timestamp.valueOf(cutoff))))
+            .thenReturn(EventPartitionManager.PRUNE_CHUNK, 3);
+        when(jdbcTemplate.update(startsWith("delete from event_hourly_rollup"), eq(Timestamp.valueOf(occurredCutoff))))
+            .thenReturn(7);
+
+        // When
+        manager.pruneDerived(cutoff);
+
+        // Then
+        verify(payloadIndex).deleteOlderThan(occurredCutoff);
+        verify(jdbcTemplate, times(2)).update(startsWith("delete from event_keys"), any(Object[].class));
+        verify(jdbcTemplate, times(1)).update(startsWith("delete from event_hourly_rollup"), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("El período configurable define el inicio de cada partición")
+    void periodStart_shouldFollowConfiguredPeriod() {
+        assertEquals(LocalDate.of(2025, 3, 1), manager.periodStart(TODAY));
+        ReflectionTestUtils.setField(manager, "period", ChronoUnit.WEEKS);
+        assertEquals(LocalDate.of(2025, 3, 17), manager.periodStart(TODAY));
+        ReflectionTestUtils.setField(manager, "period", ChronoUnit.DAYS);
+        assertEquals(TODAY, manager.periodStart(TODAY));
+    }
+}
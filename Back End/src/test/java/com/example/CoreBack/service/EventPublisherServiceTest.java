@@ -1,6 +1,8 @@
 package com.example.CoreBack.service;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import org.junit.jupiter.api.DisplayName;
@@ -10,9 +12,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
 /**
  * Unit tests for EventPublisherService
@@ -87,4 +100,129 @@ class EventPublisherServiceTest {
         assertThat(routingKeyCaptor.getValue()).isNull();
         assertThat(messageCaptor.getValue()).isEqualTo(message);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("publishBatch should send every event of the batch with its routing key")
+    void publishBatch_ShouldSendEveryEvent() {
+        // Given
+        List<EventPublisherService.OutgoingEvent> batch = List.of(
+            new EventPublisherService.OutgoingEvent(Map.of("id", "1"), "usuarios.usuario.created"),
+            new EventPublisherService.OutgoingEvent(Map.of("id", "2"), "usuarios.usuario.updated")
+        );
+
+        // When
+        eventPublisherService.publishBatch(batch);
+
+        // Then
+        verify(rabbitTemplate, times(2)).convertAndSend(exchangeCaptor.capture(), routingKeyCaptor.capture(), messageCaptor.capture());
+        assertThat(routingKeyCaptor.getAllValues()).containsExactly("usuarios.usuario.created", "usuarios.usuario.updated");
+        assertThat(messageCaptor.getAllValues()).containsExactly(Map.of("id", "1"), Map.of("id", "2"));
+    }
+
+    @Test
+    @DisplayName("publishBatch should not touch the template for an empty batch")
+    void publishBatch_WithEmptyBatch_ShouldDoNothing() {
+        eventPublisherService.publishBatch(List.of());
+
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    @DisplayName("publishBatchConfirmed should correlate every event on the shared channel")
+    void publishBatchConfirmed_WithConfirms_ShouldReturnOneFuturePerEvent() {
+        // Given
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(template.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        when(template.invoke(any())).thenAnswer(invocation ->
+            invocation.<RabbitOperations.OperationsCallback<Object>>getArgument(0).doInRabbit(template));
+        EventPublisherService publisher = new EventPublisherService(template);
+        ArgumentCaptor<CorrelationData> correlationCaptor = ArgumentCaptor.forClass(CorrelationData.class);
+
+        // When
+        List<CompletableFuture<Void>> confirms = publisher.publishBatchConfirmed(List.of(
+            new EventPublisherService.OutgoingEvent(Map.of("id", "1"), "usuarios.usuario.created"),
+            new EventPublisherService.OutgoingEvent(Map.of("id", "2"), "usuarios.usuario.updated")));
+
+        // Then
+        verify(template, times(2)).convertAndSend(any(String.class), any(String.class), any(Object.class), correlationCaptor.capture());
+        correlationCaptor.getAllValues().get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+        correlationCaptor.getAllValues().get(1).getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+        assertThat(confirms.get(0)).isCompleted();
+        assertThat(confirms.get(1)).isCompletedExceptionally();
+        assertThat(publisher.getPendingConfirms()).isZero();
+    }
+
+    @Test
+    @DisplayName("publishConfirmed should complete immediately when confirms are not available")
+    void publishConfirmed_WithoutConfirms_ShouldCompleteImmediately() {
+        CompletableFuture<Void> result = eventPublisherService.publishConfirmed(Map.of("id", "1"), "usuarios.usuario.created");
+
+        assertThat(result).isCompleted();
+        verify(rabbitTemplate).convertAndSend(exchangeCaptor.capture(), routingKeyCaptor.capture(), messageCaptor.capture());
+    }
+
+    @Test
+    @DisplayName("publishConfirmed should complete when the broker acks the correlation")
+    void publishConfirmed_WithAck_ShouldCompleteAndClearPending() {
+        // Given
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(template.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        EventPublisherService publisher = new EventPublisherService(template);
+        ArgumentCaptor<CorrelationData> correlationCaptor = ArgumentCaptor.forClass(CorrelationData.class);
+
+        // When
+        CompletableFuture<Void> result = publisher.publishConfirmed(Map.of("id", "1"), "usuarios.usuario.created");
+
+        // Then
+        verify(template).convertAndSend(any(String.class), eq("usuarios.usuario.created"), any(Object.class), correlationCaptor.capture());
+        assertThat(result).isNotDone();
+        assertThat(publisher.getPendingConfirms()).isEqualTo(1);
+
+        correlationCaptor.getValue().getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        assertThat(result).isCompleted();
+        assertThat(publisher.getPendingConfirms()).isZero();
+    }
+
+    @Test
+    @DisplayName("publishConfirmed should fail when the broker nacks the correlation")
+    void publishConfirmed_WithNack_ShouldCompleteExceptionally() {
+        // Given
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(template.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        EventPublisherService publisher = new EventPublisherService(template);
+        ArgumentCaptor<CorrelationData> correlationCaptor = ArgumentCaptor.forClass(CorrelationData.class);
+
+        // When
+        CompletableFuture<Void> result = publisher.publishConfirmed(Map.of("id", "1"), "usuarios.usuario.created");
+        verify(template).convertAndSend(any(String.class), eq("usuarios.usuario.created"), any(Object.class), correlationCaptor.capture());
+        correlationCaptor.getValue().getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+
+        // Then
+        assertThat(result).isCompletedExceptionally();
+        assertThat(publisher.getPendingConfirms()).isZero();
+    }
+
+    @Test
+    @DisplayName("publishRawConfirmed should send the same bytes with the raw envelope header")
+    void publishRawConfirmed_ShouldSendBodyUnchanged() {
+        // Given
+        byte[] body = "{\"type\":\"user.created\",\"data\":{}}".getBytes();
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+
+        // When
+        CompletableFuture<Void> result = eventPublisherService.publishRawConfirmed(body, "users.created.routing");
+
+        // Then
+        verify(rabbitTemplate).send(any(String.class), eq("users.created.routing"), captor.capture());
+        assertThat(result).isCompleted();
+        assertThat(captor.getValue().getBody()).isSameAs(body);
+        assertThat(EventPublisherService.isRawEnvelope(captor.getValue())).isTrue();
+    }
+}
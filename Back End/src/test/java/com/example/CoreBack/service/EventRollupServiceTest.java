@@ -0,0 +1,103 @@
+package com.example.CoreBack.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.CoreBack.entity.EventHourlyRollup;
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.EventRollupRepository;
+
+@ExtendWith(MockitoExtension.class)
+class EventRollupServiceTest {
+
+    @Mock private EventRollupRepository rollupRepository;
+    @Mock private EventRepository eventRepository;
+
+    @InjectMocks
+    private EventRollupService rollupService;
+
+    @Test
+    @DisplayName("record agrupa los eventos por clave y hace un único upsert")
+    @SuppressWarnings("unchecked")
+    void record_shouldAggregateDeltasPerKey() {
+        // Given
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 10, 14, 0);
+        List<StoredEvent> events = List.of(
+            event("/usuarios/api", "usuarios.usuario.created", hour.plusMinutes(5)),
+            event("/usuarios/api", "usuarios.usuario.created", hour.plusMinutes(40)),
+            event("/movies/api", "peliculas.pelicula.created", hour.plusMinutes(1)));
+
+        // When
+        rollupService.record(events);
+
+        // Then
+        ArgumentCaptor<Map<EventHourlyRollup.Key, Long>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(rollupRepository, times(1)).upsertCounts(captor.capture());
+        Map<EventHourlyRollup.Key, Long> deltas = captor.getValue();
+        assertEquals(2, deltas.size());
+        assertEquals(2L, deltas.get(new EventHourlyRollup.Key(hour, "usuarios", "Delivered", "usuarios.usuario.created")));
+        assertEquals(1L, deltas.get(new EventHourlyRollup.Key(hour, "peliculas", "Delivered", "peliculas.pelicula.created")));
+    }
+
+    @Test
+    @DisplayName("record mueve las transiciones de InQueue a su estado nuevo en el mismo upsert")
+    @SuppressWarnings("unchecked")
+    void record_withTransitions_shouldMoveCountFromPreviousStatus() {
+        // Given
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 10, 14, 0);
+        StoredEvent inserted = event("/usuarios/api", "usuarios.usuario.created", hour.plusMinutes(5));
+        StoredEvent delivered = event("/usuarios/api", "usuarios.usuario.created", hour.plusMinutes(10));
+
+        // When
+        rollupService.record(List.of(inserted), List.of(delivered), "InQueue");
+
+        // Then: +2 Delivered (insert + transición) y -1 InQueue
+        ArgumentCaptor<Map<EventHourlyRollup.Key, Long>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(rollupRepository).upsertCounts(captor.capture());
+        assertEquals(2L, captor.getValue().get(new EventHourlyRollup.Key(hour, "usuarios", "Delivered", "usuarios.usuario.created")));
+        assertEquals(-1L, captor.getValue().get(new EventHourlyRollup.Key(hour, "usuarios", "InQueue", "usuarios.usuario.created")));
+    }
+
+    @Test
+    @DisplayName("record no toca la base si no hay eventos")
+    void record_withNoEvents_shouldDoNothing() {
+        // When
+        rollupService.record(List.of());
+
+        // Then
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    @DisplayName("backfillIfEmpty no hace nada si ya existen rollups")
+    void backfillIfEmpty_withExistingRollups_shouldSkip() {
+        // Given
+        when(rollupRepository.count()).thenReturn(10L);
+
+        // When
+        rollupService.backfillIfEmpty();
+
+        // Then
+        verify(eventRepository, never()).countGroupedByHour();
+        verify(rollupRepository, never()).upsertCounts(any());
+    }
+
+    private static StoredEvent event(String source, String type, LocalDateTime occurredAt) {
+        StoredEvent event = new StoredEvent(type, source, "application/json", "{}", occurredAt);
+        event.setStatus("Delivered");
+        return event;
+    }
+}
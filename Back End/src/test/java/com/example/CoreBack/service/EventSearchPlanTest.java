@@ -0,0 +1,86 @@
+package com.example.CoreBack.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class EventSearchPlanTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 20, 10, 0);
+    private static final Duration MAX_WINDOW = Duration.ofDays(31);
+
+    @Test
+    @DisplayName("Sin ventana explícita se busca en los últimos maxWindow días")
+    void compile_withoutWindow_shouldDefaultToMaxWindow() {
+        EventSearchPlan plan = compile(Map.of());
+
+        assertEquals(NOW, plan.to());
+        assertEquals(NOW.minusDays(31), plan.from());
+        assertEquals(EventSearchPlan.DEFAULT_LIMIT, plan.limit());
+        assertEquals("idx_events_occurred_at_id", plan.accessIndex());
+    }
+
+    @Test
+    @DisplayName("Normaliza módulo y estados y elige el índice compuesto correspondiente")
+    void compile_shouldNormalizeAndPickIndex() {
+        EventSearchPlan plan = compile(Map.of("module", "/usuarios/api", "status", "delivered, FAILED",
+            "from", "2025-03-01", "to", "2025-03-10T12:00"));
+
+        assertEquals("usuarios", plan.module());
+        assertEquals(List.of("Delivered", "Failed"), plan.statuses());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 0, 0), plan.from());
+        assertEquals(LocalDateTime.of(2025, 3, 10, 12, 0), plan.to());
+        assertEquals("idx_events_module_status_occurred_at", plan.accessIndex());
+        assertNotNull(plan.toSpecification());
+    }
+
+    @Test
+    @DisplayName("Los filtros payload.<campo> y q van al índice invertido")
+    void compile_withPayloadPredicates_shouldUsePayloadIndex() {
+        EventSearchPlan plan = compile(Map.of("payload.movie.title", "Inception", "q", "nolan"));
+
+        assertTrue(plan.needsPayloadIndex());
+        assertEquals(Map.of("movie.title", "Inception"), plan.payloadFields());
+        assertEquals("nolan", plan.text());
+        assertEquals("idx_events_event_id", plan.accessIndex());
+    }
+
+    @Test
+    @DisplayName("Con sólo from la ventana termina a maxWindow de distancia")
+    void compile_withOnlyFrom_shouldCapWindow() {
+        EventSearchPlan plan = compile(Map.of("from", "2024-01-01"));
+
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), plan.to());
+    }
+
+    @Test
+    @DisplayName("Rechaza filtros desconocidos, ventanas demasiado amplias o invertidas y límites inválidos")
+    void compile_shouldRejectInvalidFilters() {
+        assertThrows(IllegalArgumentException.class, () -> compile(Map.of("payload", "x")));
+        assertThrows(IllegalArgumentException.class, () -> compile(Map.of("foo", "bar")));
+        assertThrows(IllegalArgumentException.class, () -> compile(Map.of("from", "2025-01-01", "to", "2025-03-01")));
+        assertThrows(IllegalArgumentException.class, () -> compile(Map.of("from", "2025-03-10", "to", "2025-03-01")));
+        assertThrows(IllegalArgumentException.class, () -> compile(Map.of("from", "ayer")));
+        assertThrows(IllegalArgumentException.class, () -> compile(Map.of("limit", "5000")));
+        assertThrows(IllegalArgumentException.class, () -> compile(Map.of("cursor", "no-es-un-cursor")));
+    }
+
+    @Test
+    @DisplayName("describe resume el índice elegido y los filtros aplicados")
+    void describe_shouldSummarizePlan() {
+        Map<String, Object> described = compile(Map.of("type", "movie.*", "explain", "true")).describe();
+
+        assertEquals("idx_events_occurred_at_id", described.get("index"));
+        assertEquals("movie.*", described.get("type"));
+        assertEquals(false, described.get("keyset"));
+    }
+
+    private static EventSearchPlan compile(Map<String, String> filters) {
+        return EventSearchPlan.compile(filters, NOW, MAX_WINDOW, 1000);
+    }
+}
@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,19 +13,27 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import org.mockito.AdditionalMatchers;
 import org.mockito.ArgumentMatchers;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.amqp.AmqpException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.example.CoreBack.entity.EventDTO;
 import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.ArchivedEvent;
+import com.example.CoreBack.repository.EventArchive;
 import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.EventSummary;
 import com.example.CoreBack.security.KeyStore;
 import com.example.CoreBack.testutils.TestData;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -39,6 +49,12 @@ class EventServiceTest {
     @Mock private EventPublisherService publisherService;
     @Mock private ObjectMapper objectMapper;
     @Mock private KeyStore keyStore;
+    @Mock private OutboxService outboxService;
+    @Mock private EventRollupService rollupService;
+    @Mock private LiveEventCounters liveCounters;
+    @Mock private PayloadSearchIndex payloadIndex;
+    @Mock private EventArchive eventArchive;
+    @Mock private AdmissionController admission;
 
     private EventService eventService;
 
@@ -47,13 +63,15 @@ class EventServiceTest {
 
     @BeforeEach
     void setUp() {
-        eventService = new EventService(eventRepository, publisherService, objectMapper, keyStore);
+        eventService = new EventService(eventRepository, publisherService, objectMapper, keyStore, outboxService, rollupService, liveCounters, payloadIndex, eventArchive, admission);
+        // Los tests de publicación directa corren con el outbox apagado
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", false);
     }
 
     @Test
     @DisplayName("processIncomingEvent procesa evento válido con autorización OK")
     void processIncomingEvent_withValidEvent_shouldProcessSuccessfully() throws Exception {
-        EventDTO validEventDTO = TestData.Events.validEventDTO(); // asegúrate que source = "/usuarios/api"
+        EventDTO validEventDTO = usuariosEvent("usuarios.usuario.created");
         String routingKey = "usuarios.usuario.created";
         String payloadJson = "{\"userId\":\"12345\",\"email\":\"user@example.com\"}";
 
@@ -183,6 +201,404 @@ class EventServiceTest {
         verify(publisherService).publish(dto, routingKey);
     }
 
+    @Test
+    @DisplayName("processIncomingEventAsync se completa cuando el publisher confirma")
+    void processIncomingEventAsync_withConfirm_shouldCompleteWithStoredEvent() throws Exception {
+        EventDTO dto = TestData.Builder.event().withSource(SOURCE_OK).build();
+        String routingKey = "usuarios.usuario.created";
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(publisherService.publishConfirmed(dto, routingKey)).thenReturn(CompletableFuture.completedFuture(null));
+
+        StoredEvent result = eventService.processIncomingEventAsync(dto, routingKey, API_KEY).join();
+
+        assertEquals(dto.getType(), result.getEventType());
+        verify(publisherService).publishConfirmed(dto, routingKey);
+        verify(publisherService, never()).publish(any(), any());
+    }
+
+    @Test
+    @DisplayName("processIncomingEventAsync propaga el nack del broker por el future")
+    void processIncomingEventAsync_withNack_shouldCompleteExceptionally() throws Exception {
+        EventDTO dto = TestData.Builder.event().withSource(SOURCE_OK).build();
+        String routingKey = "usuarios.usuario.created";
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(publisherService.publishConfirmed(dto, routingKey))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker nack")));
+
+        CompletableFuture<StoredEvent> result = eventService.processIncomingEventAsync(dto, routingKey, API_KEY);
+
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("processIncomingEventAsync rechaza en el momento si la apiKey es inválida")
+    void processIncomingEventAsync_withInvalidApiKey_shouldThrowSecurityException() {
+        EventDTO dto = TestData.Events.validEventDTO();
+        when(keyStore.isValidKey(API_KEY)).thenReturn(false);
+
+        assertThrows(SecurityException.class, () ->
+            eventService.processIncomingEventAsync(dto, "usuarios.usuario.created", API_KEY)
+        );
+        verifyNoInteractions(publisherService);
+    }
+
+    @Test
+    @DisplayName("processIncomingBatch publica los válidos en un lote y rechaza los no autorizados")
+    void processIncomingBatch_withMixedItems_shouldReturnPerItemResults() throws Exception {
+        EventDTO ok = usuariosEvent("usuarios.usuario.created");
+        EventDTO forbidden = usuariosEvent("movies.movie.created");
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(keyStore.isTypeAllowed(API_KEY, "usuarios.usuario.created")).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, "movies.movie.created")).thenReturn(false);
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(publisherService.publishBatchConfirmed(any())).thenReturn(List.of(CompletableFuture.completedFuture(null)));
+
+        List<Map<String, Object>> results = eventService.processIncomingBatch(List.of(ok, forbidden), API_KEY);
+
+        assertEquals(2, results.size());
+        assertEquals("sent_to_queue", results.get(0).get("status"));
+        assertEquals("usuarios.usuario.created", results.get(0).get("routingKey"));
+        assertEquals("rejected", results.get(1).get("status"));
+        assertTrue(((String) results.get(1).get("error")).contains("no autorizada para el type"));
+
+        verify(keyStore, times(1)).isValidKey(API_KEY);
+        verify(publisherService).publishBatchConfirmed(List.of(
+            new EventPublisherService.OutgoingEvent(ok, "usuarios.usuario.created")));
+    }
+
+    @Test
+    @DisplayName("processIncomingEventAsync rechaza sin publicar si la admisión lo frena")
+    void processIncomingEventAsync_whenThrottled_shouldThrowAdmissionRejected() {
+        EventDTO dto = usuariosEvent("usuarios.usuario.created");
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(keyStore.isTypeAllowed(API_KEY, "usuarios.usuario.created")).thenReturn(true);
+        doThrow(new AdmissionRejectedException("usuarios", 7)).when(admission).admit(SOURCE_OK);
+
+        AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class, () ->
+            eventService.processIncomingEventAsync(dto, "usuarios.usuario.created", API_KEY)
+        );
+        assertEquals(7, rejected.getRetryAfterSeconds());
+        verifyNoInteractions(publisherService);
+    }
+
+    @Test
+    @DisplayName("processIncomingBatch marca throttled los ítems de un módulo frenado por la admisión")
+    void processIncomingBatch_whenThrottled_shouldFlagItems() throws Exception {
+        EventDTO ok = usuariosEvent("usuarios.usuario.created");
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(keyStore.isTypeAllowed(API_KEY, "usuarios.usuario.created")).thenReturn(true);
+        when(admission.retryAfter(EventModules.classify(SOURCE_OK))).thenReturn(OptionalLong.of(9));
+
+        List<Map<String, Object>> results = eventService.processIncomingBatch(List.of(ok), API_KEY);
+
+        assertEquals("throttled", results.get(0).get("status"));
+        assertEquals(9L, results.get(0).get("retryAfter"));
+        verify(publisherService).publishBatchConfirmed(List.of());
+    }
+
+    @Test
+    @DisplayName("processIncomingBatch rechaza el lote completo si la apiKey es inválida")
+    void processIncomingBatch_withInvalidApiKey_shouldThrowSecurityException() {
+        when(keyStore.isValidKey(API_KEY)).thenReturn(false);
+
+        assertThrows(SecurityException.class, () ->
+            eventService.processIncomingBatch(List.of(TestData.Events.validEventDTO()), API_KEY)
+        );
+        verifyNoInteractions(publisherService);
+    }
+
+    @Test
+    @DisplayName("processIncomingBatch marca error en los aceptados si falla la publicación")
+    void processIncomingBatch_withPublisherError_shouldMarkAcceptedAsError() throws Exception {
+        EventDTO ok = usuariosEvent("usuarios.usuario.created");
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(keyStore.isTypeAllowed(API_KEY, "usuarios.usuario.created")).thenReturn(true);
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        doThrow(new RuntimeException("RabbitMQ down")).when(publisherService).publishBatchConfirmed(any());
+
+        List<Map<String, Object>> results = eventService.processIncomingBatch(List.of(ok), API_KEY);
+
+        assertEquals("error", results.get(0).get("status"));
+        assertEquals("RabbitMQ down", results.get(0).get("error"));
+    }
+
+    @Test
+    @DisplayName("processIncomingBatch marca error sólo en los ítems que el broker no confirmó")
+    void processIncomingBatch_withNackedItem_shouldMarkOnlyThatItem() throws Exception {
+        EventDTO first = usuariosEvent("usuarios.usuario.created");
+        EventDTO second = usuariosEvent("usuarios.usuario.updated");
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(keyStore.isTypeAllowed(eq(API_KEY), anyString())).thenReturn(true);
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(publisherService.publishBatchConfirmed(any())).thenReturn(List.of(
+            CompletableFuture.completedFuture(null),
+            CompletableFuture.failedFuture(new AmqpException("Broker nack: queue full"))));
+
+        List<Map<String, Object>> results = eventService.processIncomingBatch(List.of(first, second), API_KEY);
+
+        assertEquals("sent_to_queue", results.get(0).get("status"));
+        assertEquals("error", results.get(1).get("status"));
+        assertEquals("Broker nack: queue full", results.get(1).get("error"));
+    }
+
+    @Test
+    @DisplayName("processIncomingEvent con outbox guarda evento + outbox y no publica directo")
+    void processIncomingEvent_withOutbox_shouldEnqueueInsteadOfPublishing() throws Exception {
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", true);
+        EventDTO validEventDTO = usuariosEvent("usuarios.usuario.created");
+        String routingKey = "usuarios.usuario.created";
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(outboxService.enqueue(any())).thenAnswer(inv -> Optional.of(((OutboxService.PendingEvent) inv.getArgument(0)).event()));
+
+        StoredEvent result = eventService.processIncomingEvent(validEventDTO, routingKey, API_KEY);
+
+        verify(liveCounters).recordStored(result);
+        ArgumentCaptor<OutboxService.PendingEvent> captor = ArgumentCaptor.forClass(OutboxService.PendingEvent.class);
+        verify(outboxService).enqueue(captor.capture());
+        OutboxService.PendingEvent pending = captor.getValue();
+
+        assertNotNull(validEventDTO.getId());
+        assertEquals(validEventDTO.getId(), result.getEventId());
+        assertEquals("InQueue", result.getStatus());
+        assertEquals("usuarios", result.getModule());
+        assertEquals(routingKey, pending.routingKey());
+        assertEquals(result.getOccurredAt(), validEventDTO.getSysDate());
+        verifyNoInteractions(publisherService);
+    }
+
+    @Test
+    @DisplayName("processIncomingEvent con outbox conserva el id enviado por el productor")
+    void processIncomingEvent_withOutboxAndProducerId_shouldKeepId() throws Exception {
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", true);
+        EventDTO validEventDTO = usuariosEvent("usuarios.usuario.created");
+        validEventDTO.setId("evt-123");
+        String routingKey = "usuarios.usuario.created";
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(outboxService.enqueue(any())).thenAnswer(inv -> Optional.of(((OutboxService.PendingEvent) inv.getArgument(0)).event()));
+
+        StoredEvent result = eventService.processIncomingEvent(validEventDTO, routingKey, API_KEY);
+
+        assertEquals("evt-123", result.getEventId());
+    }
+
+    @Test
+    @DisplayName("processIncomingEventAsync con outbox completa sin esperar confirm del broker")
+    void processIncomingEventAsync_withOutbox_shouldCompleteAfterLocalInsert() throws Exception {
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", true);
+        EventDTO validEventDTO = usuariosEvent("usuarios.usuario.created");
+        String routingKey = "usuarios.usuario.created";
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(outboxService.enqueue(any())).thenAnswer(inv -> Optional.of(((OutboxService.PendingEvent) inv.getArgument(0)).event()));
+
+        CompletableFuture<StoredEvent> future = eventService.processIncomingEventAsync(validEventDTO, routingKey, API_KEY);
+
+        assertTrue(future.isDone());
+        assertEquals("InQueue", future.join().getStatus());
+        verifyNoInteractions(publisherService);
+    }
+
+    @Test
+    @DisplayName("processRawEventAsync con outbox encola el body original (con el id asignado) sin serializar nada")
+    void processRawEventAsync_withOutbox_shouldEnqueueOriginalBytes() throws Exception {
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", true);
+        String routingKey = "usuarios.usuario.created";
+        String body = "{\"type\":\"usuarios.usuario.created\",\"source\":\"" + SOURCE_OK + "\","
+            + "\"datacontenttype\":\"application/json\",\"data\":{\"userId\": 42, \"tags\":[\"a\"]}}";
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(outboxService.enqueue(any())).thenAnswer(inv -> Optional.of(((OutboxService.PendingEvent) inv.getArgument(0)).event()));
+
+        StoredEvent result = eventService.processRawEventAsync(body.getBytes(), routingKey, API_KEY).join();
+
+        ArgumentCaptor<OutboxService.PendingEvent> captor = ArgumentCaptor.forClass(OutboxService.PendingEvent.class);
+        verify(outboxService).enqueue(captor.capture());
+        String message = captor.getValue().messageJson();
+        assertEquals("{\"id\":\"" + result.getEventId() + "\",\"sysDate\":\"" + result.getOccurredAt() + "\"," + body.substring(1), message);
+        assertEquals("{\"userId\": 42, \"tags\":[\"a\"]}", result.getPayload());
+        assertEquals("InQueue", result.getStatus());
+        assertEquals("usuarios", result.getModule());
+        verifyNoInteractions(objectMapper, publisherService);
+    }
+
+    @Test
+    @DisplayName("processRawEventAsync sin outbox publica los mismos bytes que llegaron si ya traen id y sysDate")
+    void processRawEventAsync_withoutOutbox_shouldPublishBodyUnchanged() throws Exception {
+        String routingKey = "usuarios.usuario.created";
+        LocalDateTime sysDate = LocalDateTime.now().withNano(0);
+        byte[] body = ("{\"id\":\"evt-1\",\"sysDate\":\"" + sysDate + "\",\"type\":\"usuarios.usuario.created\","
+            + "\"source\":\"" + SOURCE_OK + "\",\"datacontenttype\":\"application/json\",\"data\":{}}").getBytes();
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(publisherService.publishRawConfirmed(body, routingKey)).thenReturn(CompletableFuture.completedFuture(null));
+
+        StoredEvent result = eventService.processRawEventAsync(body, routingKey, API_KEY).join();
+
+        assertEquals("evt-1", result.getEventId());
+        assertEquals(sysDate, result.getOccurredAt());
+        verify(publisherService).publishRawConfirmed(same(body), eq(routingKey));
+        verifyNoInteractions(objectMapper);
+    }
+
+    @Test
+    @DisplayName("processIncomingEventAsync en modo binario encola sólo `data`, sin serializar el DTO")
+    void processIncomingEventAsync_withBinaryContentMode_shouldEnqueueDataOnly() throws Exception {
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", true);
+        ReflectionTestUtils.setField(eventService, "contentMode", "binary");
+        EventDTO dto = TestData.Builder.event().withSource(SOURCE_OK).build();
+        String routingKey = "usuarios.usuario.created";
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(objectMapper.writeValueAsString(dto.getData())).thenReturn("{\"userId\":1}");
+        when(outboxService.enqueue(any())).thenAnswer(inv -> Optional.of(((OutboxService.PendingEvent) inv.getArgument(0)).event()));
+
+        StoredEvent result = eventService.processIncomingEventAsync(dto, routingKey, API_KEY).join();
+
+        ArgumentCaptor<OutboxService.PendingEvent> captor = ArgumentCaptor.forClass(OutboxService.PendingEvent.class);
+        verify(outboxService).enqueue(captor.capture());
+        assertTrue(captor.getValue().binary());
+        assertEquals("{\"userId\":1}", captor.getValue().messageJson());
+        assertNotNull(result.getEventId());
+        verify(objectMapper, never()).writeValueAsString(dto);
+    }
+
+    @Test
+    @DisplayName("processRawEventAsync en modo binario publica `data` con los atributos en headers")
+    void processRawEventAsync_withBinaryContentMode_shouldPublishDataWithHeaders() throws Exception {
+        ReflectionTestUtils.setField(eventService, "contentMode", "binary");
+        String routingKey = "usuarios.usuario.created";
+        LocalDateTime outOfWindow = LocalDateTime.now().minusYears(5).withNano(0);
+        byte[] body = ("{\"id\":\"\",\"sysDate\":\"" + outOfWindow + "\",\"type\":\"usuarios.usuario.created\","
+            + "\"source\":\"" + SOURCE_OK + "\",\"datacontenttype\":\"application/json\",\"data\":{\"a\":1}}").getBytes();
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(publisherService.publishBinaryConfirmed(any(), any(), eq(routingKey))).thenReturn(CompletableFuture.completedFuture(null));
+
+        StoredEvent result = eventService.processRawEventAsync(body, routingKey, API_KEY).join();
+
+        // Id vacío y sysDate fuera de ventana no obligan a pasar por el DTO: van en headers
+        ArgumentCaptor<CloudEventHeaders.Metadata> captor = ArgumentCaptor.forClass(CloudEventHeaders.Metadata.class);
+        verify(publisherService).publishBinaryConfirmed(captor.capture(), AdditionalMatchers.aryEq("{\"a\":1}".getBytes()), eq(routingKey));
+        assertFalse(captor.getValue().id().isBlank());
+        assertEquals(result.getEventId(), captor.getValue().id());
+        assertEquals(result.getOccurredAt(), captor.getValue().time());
+        assertNotEquals(outOfWindow, result.getOccurredAt());
+        verifyNoInteractions(objectMapper);
+    }
+
+    @Test
+    @DisplayName("processRawEventAsync rechaza en el momento un evento sin los campos obligatorios")
+    void processRawEventAsync_withMissingData_shouldThrowIllegalArgument() {
+        byte[] body = ("{\"type\":\"usuarios.usuario.created\",\"source\":\"" + SOURCE_OK
+            + "\",\"datacontenttype\":\"application/json\"}").getBytes();
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+            () -> eventService.processRawEventAsync(body, "usuarios.usuario.created", API_KEY));
+
+        assertEquals("El campo 'data' es obligatorio", ex.getMessage());
+        verifyNoInteractions(keyStore, outboxService, publisherService);
+    }
+
+
+    @Test
+    @DisplayName("processIncomingBatch con outbox encola todos los válidos en una sola transacción")
+    void processIncomingBatch_withOutbox_shouldEnqueueAll() throws Exception {
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", true);
+        EventDTO first = usuariosEvent("usuarios.usuario.created");
+        EventDTO second = usuariosEvent("usuarios.usuario.updated");
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(keyStore.isTypeAllowed(eq(API_KEY), anyString())).thenReturn(true);
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(outboxService.enqueueAll(any())).thenAnswer(inv ->
+            inv.<List<OutboxService.PendingEvent>>getArgument(0).stream().map(OutboxService.PendingEvent::event).toList());
+
+        List<Map<String, Object>> results = eventService.processIncomingBatch(List.of(first, second), API_KEY);
+
+        assertEquals("sent_to_queue", results.get(0).get("status"));
+        assertEquals("sent_to_queue", results.get(1).get("status"));
+        assertFalse(results.get(0).containsKey("duplicate"));
+        verify(outboxService).enqueueAll(argThat(list -> list.size() == 2));
+        verifyNoInteractions(publisherService);
+    }
+
+    @Test
+    @DisplayName("processIncomingBatch con outbox marca como duplicados los eventIds que ya estaban guardados")
+    void processIncomingBatch_withOutboxDuplicate_shouldFlagIt() throws Exception {
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", true);
+        EventDTO first = usuariosEvent("usuarios.usuario.created");
+        EventDTO retried = usuariosEvent("usuarios.usuario.updated");
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(keyStore.isTypeAllowed(eq(API_KEY), anyString())).thenReturn(true);
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(outboxService.enqueueAll(any())).thenAnswer(inv ->
+            List.of(inv.<List<OutboxService.PendingEvent>>getArgument(0).get(0).event()));
+
+        List<Map<String, Object>> results = eventService.processIncomingBatch(List.of(first, retried), API_KEY);
+
+        assertEquals("sent_to_queue", results.get(1).get("status"));
+        assertEquals(true, results.get(1).get("duplicate"));
+        assertFalse(results.get(0).containsKey("duplicate"));
+        verify(liveCounters, times(1)).recordStored(any());
+    }
+
+    @Test
+    @DisplayName("processIncomingEvent con outbox no cuenta un reintento de un eventId ya guardado")
+    void processIncomingEvent_withOutboxDuplicate_shouldNotCountIt() throws Exception {
+        ReflectionTestUtils.setField(eventService, "outboxEnabled", true);
+        String routingKey = "usuarios.usuario.created";
+        EventDTO validEventDTO = usuariosEvent(routingKey);
+
+        when(keyStore.isValidKey(API_KEY)).thenReturn(true);
+        when(keyStore.isTypeAllowed(API_KEY, routingKey)).thenReturn(true);
+        when(keyStore.sourceOf(API_KEY)).thenReturn(Optional.of(SOURCE_OK));
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(outboxService.enqueue(any())).thenReturn(Optional.empty());
+
+        StoredEvent result = eventService.processIncomingEvent(validEventDTO, routingKey, API_KEY);
+
+        assertEquals(validEventDTO.getId(), result.getEventId());
+        verify(liveCounters, never()).recordStored(any());
+    }
+
     // --- El resto de tests (getAllEvents, getGlobalStats, getEvolution, getEventsPerModule) quedan igual ---
 
     @Test
@@ -192,11 +608,10 @@ class EventServiceTest {
         StoredEvent e2 = createStoredEvent("movie.created", "peliculas", "Failed");
         StoredEvent e3 = createStoredEvent("review.created", "reviews", "Delivered");
 
-        List<StoredEvent> mockEvents = List.of(e1, e2, e3);
-        Page<StoredEvent> mockPage = new PageImpl<>(mockEvents, Pageable.ofSize(10), 3);
+        List<EventSummary> mockEvents = List.of(summaryOf(e1), summaryOf(e2), summaryOf(e3));
 
-        when(eventRepository.findAll(ArgumentMatchers.<Specification<StoredEvent>>any(), any(Pageable.class)))
-            .thenReturn(mockPage);
+        when(eventRepository.findSlice(any(), any(), eq(0L), eq(11))).thenReturn(mockEvents);
+        when(eventRepository.count(ArgumentMatchers.<Specification<StoredEvent>>any())).thenReturn(3L);
 
         Map<String, Object> result = eventService.getAllEvents(0, 10, "usuarios", "delivered", null);
 
@@ -205,39 +620,298 @@ class EventServiceTest {
         assertEquals(10, result.get("size"));
         assertEquals(3L, result.get("total"));
         assertEquals(mockEvents, result.get("events"));
+        assertEquals(false, result.get("hasMore"));
+
+        // El listado nunca pide entidades completas (con payload)
+        verify(eventRepository, never()).findAll(ArgumentMatchers.<Specification<StoredEvent>>any(), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("getAllEvents con cursor pagina por keyset sin COUNT y devuelve nextCursor")
+    void getAllEvents_withCursor_shouldSeekWithoutCount() {
+        StoredEvent e1 = createStoredEvent("user.created", "usuarios", "Delivered");
+        StoredEvent e2 = createStoredEvent("user.updated", "usuarios", "Delivered");
+        StoredEvent e3 = createStoredEvent("user.deleted", "usuarios", "Delivered");
+        ReflectionTestUtils.setField(e2, "id", 42L);
+        EventSummary s1 = summaryOf(e1);
+        EventSummary s2 = summaryOf(e2);
+
+        when(eventRepository.findSlice(any(), any(), eq(0L), eq(3))).thenReturn(List.of(s1, s2, summaryOf(e3)));
+
+        Map<String, Object> result = eventService.getAllEvents(0, 2, null, null, null, "", "none");
+
+        assertEquals(List.of(s1, s2), result.get("events"));
+        assertEquals(true, result.get("hasMore"));
+        assertNull(result.get("total"));
+        EventCursor next = EventCursor.decode((String) result.get("nextCursor"));
+        assertEquals(42L, next.id());
+        assertEquals(e2.getOccurredAt(), next.occurredAt());
+        verify(eventRepository, never()).count(ArgumentMatchers.<Specification<StoredEvent>>any());
+        verify(eventRepository, never()).findAll(ArgumentMatchers.<Specification<StoredEvent>>any(), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("getAllEvents con cursor sigue en el archivo frío cuando la tabla se termina")
+    void getAllEvents_withCursor_shouldContinueIntoArchive() {
+        StoredEvent e1 = createStoredEvent("user.created", "usuarios", "Delivered");
+        ReflectionTestUtils.setField(e1, "id", 42L);
+        EventSummary s1 = summaryOf(e1);
+        ArchivedEvent archived = new ArchivedEvent(7L, "evt-7", "user.created", "/usuarios/api", "usuarios",
+            "application/json", "{}", e1.getOccurredAt().minusDays(120), "Delivered");
+
+        when(eventRepository.findSlice(any(), any(), eq(0L), eq(3))).thenReturn(List.of(s1));
+        when(eventArchive.hasSegments()).thenReturn(true);
+        when(eventArchive.findBefore(e1.getOccurredAt(), 42L, "usuarios", "Delivered", null, 2))
+            .thenReturn(List.of(archived));
+        when(eventRepository.count(ArgumentMatchers.<Specification<StoredEvent>>any())).thenReturn(1L);
+        when(eventArchive.count("usuarios", "Delivered")).thenReturn(500L);
+
+        Map<String, Object> result = eventService.getAllEvents(0, 2, "usuarios", "delivered", null, "", "exact");
+
+        assertEquals(List.of(s1, archived.toSummary()), result.get("events"));
+        assertEquals(false, result.get("hasMore"));
+        assertEquals(501L, result.get("total"));
+    }
+
+    @Test
+    @DisplayName("getAllEvents con count=estimate usa los rollups en lugar de COUNT(*)")
+    void getAllEvents_withEstimate_shouldUseRollups() {
+        when(eventRepository.findSlice(any(), any(), eq(10L), eq(11))).thenReturn(List.of());
+        when(rollupService.estimateTotal("usuarios", "Delivered")).thenReturn(1234L);
+
+        Map<String, Object> result = eventService.getAllEvents(1, 10, "User", "delivered", null, null, "estimate");
+
+        assertEquals(1234L, result.get("total"));
+        assertEquals(true, result.get("totalEstimated"));
+        assertEquals(false, result.get("hasMore"));
+        assertNull(result.get("nextCursor"));
+    }
+
+    @Test
+    @DisplayName("getAllEvents con count=estimate y search cuenta con tope en lugar de usar los rollups")
+    void getAllEvents_withEstimateAndSearch_shouldCountUpToCap() {
+        when(payloadIndex.isReady()).thenReturn(true);
+        when(payloadIndex.search("inception", Map.of(), null, null, null))
+            .thenReturn(new PayloadSearchIndex.Hits(List.of("evt-1"), 1, null));
+        ReflectionTestUtils.setField(eventService, "countCap", 100);
+        when(eventRepository.findSlice(any(), any(), eq(0L), eq(11))).thenReturn(List.of());
+        when(eventRepository.countUpTo(any(), eq(100))).thenReturn(42L);
+
+        Map<String, Object> result = eventService.getAllEvents(0, 10, null, null, "inception", null, "estimate");
+
+        assertEquals(42L, result.get("total"));
+        assertEquals(false, result.get("totalEstimated"));
+        assertNull(result.get("totalCapped"));
+        verify(rollupService, never()).estimateTotal(any(), any());
+    }
+
+    @Test
+    @DisplayName("getAllEvents con count=estimate y search marca totalCapped si se supera el tope")
+    void getAllEvents_withEstimateAndSearchOverCap_shouldReportCapped() {
+        when(payloadIndex.isReady()).thenReturn(true);
+        when(payloadIndex.search("inception", Map.of(), null, null, null))
+            .thenReturn(new PayloadSearchIndex.Hits(List.of("evt-1"), 1, null));
+        ReflectionTestUtils.setField(eventService, "countCap", 100);
+        when(eventRepository.findSlice(any(), any(), eq(0L), eq(11))).thenReturn(List.of());
+        when(eventRepository.countUpTo(any(), eq(100))).thenReturn(101L);
+
+        Map<String, Object> result = eventService.getAllEvents(0, 10, null, null, "inception", null, "estimate");
+
+        assertEquals(100L, result.get("total"));
+        assertEquals(true, result.get("totalCapped"));
+    }
 
-        verify(eventRepository).findAll(ArgumentMatchers.<Specification<StoredEvent>>any(), any(Pageable.class));
+    @Test
+    @DisplayName("getAllEvents con search usa el índice de payloads cuando está listo")
+    void getAllEvents_withSearch_shouldUseIndexWhenReady() {
+        when(payloadIndex.isReady()).thenReturn(true);
+        when(payloadIndex.search("inception", Map.of(), null, null, null))
+            .thenReturn(new PayloadSearchIndex.Hits(List.of("evt-1", "evt-2"), 2, null));
+        when(eventRepository.findSlice(any(), any(), eq(0L), eq(11))).thenReturn(List.of());
+
+        Map<String, Object> result = eventService.getAllEvents(0, 10, null, null, "inception", "", "none");
+
+        verify(payloadIndex).search("inception", Map.of(), null, null, null);
+        assertNull(result.get("searchTruncated"));
+    }
+
+    @Test
+    @DisplayName("getAllEvents informa cuando la búsqueda tiene más matches que los que ve el listado")
+    void getAllEvents_withTruncatedSearch_shouldReportTotalHits() {
+        when(payloadIndex.isReady()).thenReturn(true);
+        when(payloadIndex.search("inception", Map.of(), null, null, null))
+            .thenReturn(new PayloadSearchIndex.Hits(List.of("evt-1", "evt-2"), 5000, null));
+        when(eventRepository.findSlice(any(), any(), eq(0L), eq(11))).thenReturn(List.of());
+
+        Map<String, Object> result = eventService.getAllEvents(0, 10, null, null, "inception", null, "none");
+
+        assertEquals(true, result.get("searchTruncated"));
+        assertEquals(5000L, result.get("searchTotalHits"));
+    }
+
+    @Test
+    @DisplayName("getAllEvents con cursor y search pagina el índice desde el cursor y sigue después del último hit")
+    void getAllEvents_withCursorAndTruncatedSearch_shouldContinueAfterLastHit() {
+        EventCursor position = new EventCursor(LocalDateTime.of(2025, 3, 10, 12, 0), 50L);
+        EventCursor lastHit = new EventCursor(LocalDateTime.of(2025, 3, 9, 12, 0), 7L);
+        when(payloadIndex.isReady()).thenReturn(true);
+        when(payloadIndex.search("inception", Map.of(), null, null, position))
+            .thenReturn(new PayloadSearchIndex.Hits(List.of("evt-1"), 5000, lastHit));
+        when(eventRepository.findSlice(any(), any(), eq(0L), eq(11))).thenReturn(List.of());
+
+        Map<String, Object> result = eventService.getAllEvents(0, 10, null, null, "inception", position.encode(), "none");
+
+        assertEquals(true, result.get("hasMore"));
+        assertEquals(lastHit.encode(), result.get("nextCursor"));
+        verify(eventArchive, never()).findBefore(any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getAllEvents con search sin índice listo responde no disponible en lugar de un LIKE incompleto")
+    void getAllEvents_withSearch_shouldRejectWhileIndexNotReady() {
+        when(payloadIndex.isReady()).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () ->
+            eventService.getAllEvents(0, 10, null, null, "inception", "", "none"));
+
+        verify(payloadIndex, never()).search(anyString());
+        verify(eventRepository, never()).findSlice(any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getAllEvents rechaza cursores inválidos")
+    void getAllEvents_withInvalidCursor_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () ->
+            eventService.getAllEvents(0, 10, null, null, null, "no-es-un-cursor", "none"));
     }
 
     @Test
     @DisplayName("getGlobalStats debe calcular estadísticas correctamente")
     void getGlobalStats_shouldCalculateStatsCorrectly() {
-        LocalDateTime thisMonth = LocalDateTime.now().withDayOfMonth(15);
-        LocalDateTime lastMonth = thisMonth.minusMonths(1);
-
-        List<StoredEvent> mockEvents = List.of(
-            createStoredEventWithDate("event1", "source1", "Delivered", thisMonth),
-            createStoredEventWithDate("event2", "source2", "Failed", thisMonth),
-            createStoredEventWithDate("event3", "source3", "Delivered", lastMonth),
-            createStoredEventWithDate("event4", "source4", "InQueue", thisMonth)
-        );
-
-        when(eventRepository.findAll()).thenReturn(mockEvents);
+        when(eventRepository.countByStatusForMonths(any(), any(), any())).thenReturn(List.of(
+            monthlyCount("Delivered", 1L, 1L),
+            monthlyCount("Failed", 1L, 0L),
+            monthlyCount("InQueue", 1L, 0L)
+        ));
 
         Map<String, Object> result = eventService.getGlobalStats();
 
         assertNotNull(result);
         assertTrue(result.containsKey("thisMonth"));
         assertTrue(result.containsKey("lastMonth"));
-        assertTrue(result.containsKey("totalEvents"));
-        assertTrue(result.containsKey("delivered"));
-        assertTrue(result.containsKey("failed"));
-        assertTrue(result.containsKey("inQueue"));
+        assertEquals(11, result.size());
+        assertEquals(3L, result.get("totalEvents"));
+        assertEquals(1L, result.get("totalEventsLastMonth"));
+        assertEquals(200, result.get("totalChange"));
+        assertEquals(1L, result.get("delivered"));
+        assertEquals(0, result.get("deliveredChange"));
+        assertEquals(1L, result.get("failed"));
+        assertEquals(100, result.get("failedChange"));
+        assertEquals(1L, result.get("inQueue"));
+
+        verify(eventRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("getGlobalStats consulta el rango [mes anterior, mes siguiente)")
+    void getGlobalStats_shouldQueryMonthBoundaries() {
+        when(eventRepository.countByStatusForMonths(any(), any(), any())).thenReturn(List.of());
+
+        Map<String, Object> result = eventService.getGlobalStats();
+
+        java.time.YearMonth thisMonth = java.time.YearMonth.now();
+        verify(eventRepository).countByStatusForMonths(
+            thisMonth.minusMonths(1).atDay(1).atStartOfDay(),
+            thisMonth.atDay(1).atStartOfDay(),
+            thisMonth.plusMonths(1).atDay(1).atStartOfDay());
+        assertEquals(0L, result.get("totalEvents"));
+        assertEquals(0, result.get("totalChange"));
+    }
+
+    @Test
+    @DisplayName("getEvolution arma 24 horas desde los rollups, con 0 en las horas sin eventos")
+    void getEvolution_shouldReadHourlyRollups() {
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.HOURS);
+        when(rollupService.getHourlyTotals(any())).thenReturn(Map.of(currentHour, 7L));
+
+        List<Map<String, Object>> evolution = eventService.getEvolution();
+
+        assertEquals(24, evolution.size());
+        assertEquals(currentHour.getHour(), evolution.get(23).get("hour"));
+        assertEquals(7L, evolution.get(23).get("count"));
+        assertEquals(0L, evolution.get(0).get("count"));
+        verify(eventRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("getEventsPerModule devuelve los módulos conocidos desde los rollups")
+    void getEventsPerModule_shouldReadModuleRollups() {
+        when(rollupService.getModuleTotals()).thenReturn(Map.of("usuarios", 5L, "otros", 2L));
+
+        Map<String, Long> result = eventService.getEventsPerModule();
 
-        verify(eventRepository).findAll();
+        assertEquals(List.of("usuarios", "social", "reviews", "peliculas", "discovery"), List.copyOf(result.keySet()));
+        assertEquals(5L, result.get("usuarios"));
+        assertEquals(0L, result.get("social"));
+        verify(eventRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("getGlobalStats responde desde los contadores en vivo sin tocar la DB")
+    void getGlobalStats_withSeededCounters_shouldNotQueryDatabase() {
+        java.time.YearMonth thisMonth = java.time.YearMonth.now();
+        when(liveCounters.isReconciled()).thenReturn(true);
+        when(liveCounters.monthTotal(thisMonth)).thenReturn(10L);
+        when(liveCounters.monthTotal(thisMonth.minusMonths(1))).thenReturn(5L);
+        when(liveCounters.monthCount(any(), anyString())).thenReturn(0L);
+        when(liveCounters.monthCount(thisMonth, "Delivered")).thenReturn(8L);
+
+        Map<String, Object> result = eventService.getGlobalStats();
+
+        assertEquals(10L, result.get("totalEvents"));
+        assertEquals(5L, result.get("totalEventsLastMonth"));
+        assertEquals(100, result.get("totalChange"));
+        assertEquals(8L, result.get("delivered"));
+        verifyNoInteractions(eventRepository);
+    }
+
+    @Test
+    @DisplayName("getEvolution responde desde el ring buffer en memoria cuando está inicializado")
+    void getEvolution_withSeededCounters_shouldNotQueryDatabase() {
+        when(liveCounters.isReconciled()).thenReturn(true);
+        when(liveCounters.hourTotal(any())).thenReturn(3L);
+
+        List<Map<String, Object>> evolution = eventService.getEvolution();
+
+        assertEquals(24, evolution.size());
+        assertEquals(3L, evolution.get(0).get("count"));
+        verifyNoInteractions(rollupService, eventRepository);
     }
 
     // Helpers
+    // Evento completo con el source de API_KEY: pasa la validación de campos y de source
+    private static EventDTO usuariosEvent(String type) {
+        return TestData.Builder.event()
+            .withType(type)
+            .withSource(SOURCE_OK)
+            .withDataContentType("application/json")
+            .withSysDate(LocalDateTime.now())
+            .withData("userId", 12345L)
+            .build();
+    }
+
+    private static EventRepository.MonthlyStatusCount monthlyCount(String status, Long thisMonth, Long lastMonth) {
+        return new EventRepository.MonthlyStatusCount() {
+            @Override public String getStatus() { return status; }
+            @Override public Long getThisMonth() { return thisMonth; }
+            @Override public Long getLastMonth() { return lastMonth; }
+        };
+    }
+    private EventSummary summaryOf(StoredEvent ev) {
+        return new EventSummary(ev.getId(), ev.getEventId(), ev.getEventType(), ev.getSource(), ev.getModule(),
+                ev.getStatus(), ev.getOccurredAt());
+    }
+
     private StoredEvent createStoredEvent(String type, String source, String status) {
         return createStoredEventWithDate(type, source, status, LocalDateTime.now());
     }
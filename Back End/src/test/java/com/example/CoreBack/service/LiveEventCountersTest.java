@@ -0,0 +1,209 @@
+package com.example.CoreBack.service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventArchive;
+import com.example.CoreBack.repository.EventRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class LiveEventCountersTest {
+
+    @Mock private EventRepository eventRepository;
+    @Mock private EventArchive eventArchive;
+
+    private LiveEventCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        counters = new LiveEventCounters(eventRepository, eventArchive);
+        ReflectionTestUtils.setField(counters, "reconcileMs", 60000L);
+    }
+
+    @Test
+    @DisplayName("recordStored suma en la hora y en el mes de ocurrencia")
+    void recordStored_shouldCountHourAndMonth() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+
+        // When
+        counters.recordStored(event("/usuarios/api", "InQueue", now));
+        counters.recordStored(event("/movies/api", "Delivered", now));
+
+        // Then
+        assertEquals(2L, counters.hourTotal(now.truncatedTo(ChronoUnit.HOURS)));
+        assertEquals(2L, counters.monthTotal(YearMonth.from(now)));
+        assertEquals(1L, counters.monthCount(YearMonth.from(now), "InQueue"));
+        assertEquals(1L, counters.monthCount(YearMonth.from(now), "delivered"));
+    }
+
+    @Test
+    @DisplayName("recordTransition mueve el conteo entre estados sin cambiar el total")
+    void recordTransition_shouldMoveBetweenStatuses() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        StoredEvent event = event("/usuarios/api", "InQueue", now);
+        counters.recordStored(event);
+
+        // When
+        event.setStatus("Delivered");
+        counters.recordTransition(event, "InQueue");
+
+        // Then
+        YearMonth month = YearMonth.from(now);
+        assertEquals(1L, counters.monthTotal(month));
+        assertEquals(0L, counters.monthCount(month, "InQueue"));
+        assertEquals(1L, counters.monthCount(month, "Delivered"));
+        assertEquals(1L, counters.hourTotal(now.truncatedTo(ChronoUnit.HOURS)));
+    }
+
+    @Test
+    @DisplayName("Una transición de un evento que ingresó por otro nodo no deja el total en negativo")
+    void recordTransition_withoutLocalIngest_shouldNotGoNegative() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        StoredEvent delivered = event("/usuarios/api", "Delivered", now);
+
+        // When
+        counters.recordTransition(delivered, "InQueue");
+
+        // Then
+        assertEquals(0L, counters.monthCount(YearMonth.from(now), "InQueue"));
+        assertEquals(1L, counters.monthCount(YearMonth.from(now), "Delivered"));
+        assertEquals(1L, counters.hourTotal(now.truncatedTo(ChronoUnit.HOURS)));
+    }
+
+    @Test
+    @DisplayName("Eventos fuera de la ventana de 24h no se cuentan por hora")
+    void recordStored_outsideWindow_shouldIgnoreHourlyBucket() {
+        // Given
+        LocalDateTime old = LocalDateTime.now().minusHours(30);
+
+        // When
+        counters.recordStored(event("/usuarios/api", "Delivered", old));
+
+        // Then
+        assertEquals(0L, counters.hourTotal(old.truncatedTo(ChronoUnit.HOURS)));
+        assertEquals(0L, counters.hourTotal(old.plusHours(24).truncatedTo(ChronoUnit.HOURS)));
+    }
+
+    @Test
+    @DisplayName("Al terminar de crear los beans se siembran los contadores desde la DB")
+    void seed_shouldLoadCountersFromDatabase() {
+        // Given
+        YearMonth thisMonth = YearMonth.now();
+        when(eventRepository.countGroupedByHourSince(any())).thenReturn(List.of());
+        when(eventRepository.countByStatusForMonths(any(), any(), any())).thenReturn(List.of(
+            new EventRepository.MonthlyStatusCount() {
+                @Override public String getStatus() { return "Failed"; }
+                @Override public Long getThisMonth() { return 4L; }
+                @Override public Long getLastMonth() { return 2L; }
+            }));
+
+        // When
+        counters.afterSingletonsInstantiated();
+
+        // Then
+        assertTrue(counters.isReconciled());
+        assertEquals(4L, counters.monthCount(thisMonth, "Failed"));
+        assertEquals(2L, counters.monthCount(thisMonth.minusMonths(1), "Failed"));
+    }
+
+    @Test
+    @DisplayName("La reconciliación reemplaza el delta local por la foto de la DB (ingreso y consumo en otros nodos)")
+    void reconcile_shouldReplaceLocalDeltaWithDatabaseBaseline() {
+        // Given: este nodo sólo vio la entrega de un evento que ingresó por otro nodo
+        YearMonth thisMonth = YearMonth.now();
+        counters.recordTransition(event("/usuarios/api", "Delivered", LocalDateTime.now()), "InQueue");
+        when(eventRepository.countGroupedByHourSince(any())).thenReturn(List.of());
+        when(eventRepository.countByStatusForMonths(any(), any(), any())).thenReturn(List.of(
+            monthly("Delivered", 3L), monthly("InQueue", 2L)));
+
+        // When
+        counters.reconcile();
+
+        // Then: los números son los de la DB, no los del delta local
+        assertEquals(3L, counters.monthCount(thisMonth, "Delivered"));
+        assertEquals(2L, counters.monthCount(thisMonth, "InQueue"));
+        assertEquals(5L, counters.monthTotal(thisMonth));
+    }
+
+    @Test
+    @DisplayName("Lo registrado después de la foto se suma a la base")
+    void recordStored_afterReconcile_shouldAddToBaseline() {
+        // Given
+        YearMonth thisMonth = YearMonth.now();
+        when(eventRepository.countGroupedByHourSince(any())).thenReturn(List.of());
+        when(eventRepository.countByStatusForMonths(any(), any(), any())).thenReturn(List.of(monthly("InQueue", 2L)));
+        counters.reconcile();
+
+        // When
+        StoredEvent event = event("/usuarios/api", "InQueue", LocalDateTime.now());
+        counters.recordStored(event);
+        event.setStatus("Delivered");
+        counters.recordTransition(event, "InQueue");
+
+        // Then
+        assertEquals(2L, counters.monthCount(thisMonth, "InQueue"));
+        assertEquals(1L, counters.monthCount(thisMonth, "Delivered"));
+    }
+
+    @Test
+    @DisplayName("Si la DB falla se conserva el delta y los contadores no quedan como reconciliados")
+    void reconcile_whenDatabaseFails_shouldKeepDeltaAndReportStale() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        counters.recordStored(event("/usuarios/api", "Delivered", now));
+        when(eventRepository.countGroupedByHourSince(any())).thenThrow(new RuntimeException("db down"));
+
+        // When
+        counters.reconcile();
+
+        // Then
+        assertFalse(counters.isReconciled());
+        assertEquals(1L, counters.monthCount(YearMonth.from(now), "Delivered"));
+    }
+
+    @Test
+    @DisplayName("Una foto más vieja que 3 intervalos deja de servirse")
+    void isReconciled_withStaleBaseline_shouldBeFalse() {
+        // Given
+        when(eventRepository.countGroupedByHourSince(any())).thenReturn(List.of());
+        when(eventRepository.countByStatusForMonths(any(), any(), any())).thenReturn(List.of());
+        counters.reconcile();
+
+        // When
+        ReflectionTestUtils.setField(counters, "reconciledAt", System.currentTimeMillis() - 180001L);
+
+        // Then
+        assertFalse(counters.isReconciled());
+    }
+
+    private static EventRepository.MonthlyStatusCount monthly(String status, long thisMonth) {
+        return new EventRepository.MonthlyStatusCount() {
+            @Override public String getStatus() { return status; }
+            @Override public Long getThisMonth() { return thisMonth; }
+            @Override public Long getLastMonth() { return 0L; }
+        };
+    }
+
+    private static StoredEvent event(String source, String status, LocalDateTime occurredAt) {
+        StoredEvent event = new StoredEvent("a.b.created", source, "application/json", "{}", occurredAt);
+        event.setStatus(status);
+        return event;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.CoreBack.service;
 
 import com.example.CoreBack.entity.ModulePolicy;
+import com.example.CoreBack.entity.RetryPolicy;
 import com.example.CoreBack.repository.ModulePolicyRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,6 +15,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -35,6 +37,12 @@ class ModulePolicyServiceTest {
     @Mock
     private ModulePolicyRepository repository;
 
+    @Mock
+    private PolicyTable policyTable;
+
+    @Mock
+    private ConfigChanges configChanges;
+
     @InjectMocks
     private ModulePolicyService modulePolicyService;
 
@@ -47,7 +55,7 @@ class ModulePolicyServiceTest {
             createModulePolicy("events", "Event module policy"),
             createModulePolicy("notifications", "Notification module policy")
         );
-        when(repository.findAll()).thenReturn(policies);
+        when(repository.findAllWithPolicy()).thenReturn(policies);
 
         // When
         List<ModulePolicy> result = modulePolicyService.findAll();
@@ -58,34 +66,34 @@ class ModulePolicyServiceTest {
         assertThat(result.get(0).getModuleName()).isEqualTo("users");
         assertThat(result.get(1).getModuleName()).isEqualTo("events");
         assertThat(result.get(2).getModuleName()).isEqualTo("notifications");
-        verify(repository).findAll();
+        verify(repository).findAllWithPolicy();
     }
 
     @Test
     @DisplayName("findAll should return empty list when no policies exist")
     void findAll_WhenNoPoliciesExist_ShouldReturnEmptyList() {
         // Given
-        when(repository.findAll()).thenReturn(Collections.emptyList());
+        when(repository.findAllWithPolicy()).thenReturn(Collections.emptyList());
 
         // When
         List<ModulePolicy> result = modulePolicyService.findAll();
 
         // Then
         assertThat(result).isEmpty();
-        verify(repository).findAll();
+        verify(repository).findAllWithPolicy();
     }
 
     @Test
     @DisplayName("findAll should handle database access exceptions")
     void findAll_WhenDatabaseAccessFails_ShouldPropagateException() {
         // Given
-        when(repository.findAll()).thenThrow(new DataAccessException("Database connection failed") {});
+        when(repository.findAllWithPolicy()).thenThrow(new DataAccessException("Database connection failed") {});
 
         // When & Then
         assertThatThrownBy(() -> modulePolicyService.findAll())
             .isInstanceOf(DataAccessException.class)
             .hasMessage("Database connection failed");
-        verify(repository).findAll();
+        verify(repository).findAllWithPolicy();
     }
 
     @Test
@@ -106,6 +114,7 @@ class ModulePolicyServiceTest {
         assertThat(result.getId()).isEqualTo(1L);
         assertThat(result.getModuleName()).isEqualTo("testModule");
         verify(repository).save(inputPolicy);
+        verify(configChanges).changed(ConfigChanges.RETRY_POLICIES);
     }
 
     @Test
@@ -189,6 +198,22 @@ class ModulePolicyServiceTest {
         verify(repository).deleteById(policyId);
     }
 
+    @Test
+    @DisplayName("retryPolicyFor resuelve desde PolicyTable sin consultar el repositorio")
+    void retryPolicyFor_ShouldResolveFromPolicyTable() {
+        // Given
+        RetryPolicy policy = new RetryPolicy();
+        policy.setName("usuarios-policy");
+        when(policyTable.resolve("usuarios")).thenReturn(Optional.of(policy));
+
+        // When
+        Optional<RetryPolicy> result = modulePolicyService.retryPolicyFor("usuarios");
+
+        // Then
+        assertThat(result).contains(policy);
+        verifyNoInteractions(repository);
+    }
+
     /**
      * Helper method to create ModulePolicy test instances
      */
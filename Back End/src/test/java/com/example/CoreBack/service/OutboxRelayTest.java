@@ -0,0 +1,160 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.CoreBack.entity.OutboxMessage;
+import com.example.CoreBack.repository.OutboxRepository;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock private OutboxRepository outboxRepository;
+    @Mock private EventPublisherService publisherService;
+    @Mock private TransactionTemplate transactionTemplate;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxRepository, publisherService, transactionTemplate);
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 2);
+        ReflectionTestUtils.setField(outboxRelay, "confirmTimeoutMs", 100L);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(inv ->
+            ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("relayBatch borra en bloque los confirmados y reprograma los fallidos")
+    void relayBatch_shouldDeleteConfirmedAndRescheduleFailed() {
+        // Given
+        OutboxMessage ok = message(1L, "a.b.created");
+        OutboxMessage nack = message(2L, "a.b.updated");
+        when(outboxRepository.lockNextBatch(any(), any())).thenReturn(List.of(ok, nack));
+        when(publisherService.publishJsonConfirmed("{}", "a.b.created"))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        when(publisherService.publishJsonConfirmed("{}", "a.b.updated"))
+            .thenReturn(CompletableFuture.failedFuture(new AmqpException("Broker nack")));
+
+        // When
+        int relayed = outboxRelay.relayBatch();
+
+        // Then
+        assertEquals(2, relayed);
+        verify(outboxRepository).lease(eq(List.of(1L, 2L)), any());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(outboxRepository).markFailedAttempt(eq(List.of(2L)), any());
+    }
+
+    @Test
+    @DisplayName("relayBatch espera los confirms fuera de la transacción: reclamar y cerrar son dos transacciones cortas")
+    void relayBatch_shouldNotHoldTransactionWhilePublishing() {
+        // Given
+        when(outboxRepository.lockNextBatch(any(), any())).thenReturn(List.of(message(1L, "a.b.created")));
+        when(publisherService.publishJsonConfirmed("{}", "a.b.created"))
+            .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        outboxRelay.relayBatch();
+
+        // Then
+        InOrder order = inOrder(transactionTemplate, publisherService, outboxRepository);
+        order.verify(transactionTemplate).execute(any());
+        order.verify(outboxRepository).lease(eq(List.of(1L)), any());
+        order.verify(publisherService).publishJsonConfirmed("{}", "a.b.created");
+        order.verify(transactionTemplate).execute(any());
+        order.verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("relayBatch no publica nada si el outbox está vacío")
+    void relayBatch_withEmptyOutbox_shouldDoNothing() {
+        // Given
+        when(outboxRepository.lockNextBatch(any(), any())).thenReturn(List.of());
+
+        // When
+        int relayed = outboxRelay.relayBatch();
+
+        // Then
+        assertEquals(0, relayed);
+        verifyNoInteractions(publisherService);
+        verify(outboxRepository, never()).deleteAllByIdInBatch(anyList());
+    }
+
+    @Test
+    @DisplayName("relay sigue drenando mientras los lotes vengan llenos")
+    void relay_shouldLoopWhileBatchIsFull() {
+        // Given
+        when(outboxRepository.lockNextBatch(any(), any()))
+            .thenReturn(List.of(message(1L, "a.b.c"), message(2L, "a.b.c")))
+            .thenReturn(List.of(message(3L, "a.b.c")));
+        when(publisherService.publishJsonConfirmed(any(), any()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        outboxRelay.relay();
+
+        // Then
+        verify(outboxRepository, times(2)).lockNextBatch(any(), any());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(3L));
+    }
+
+    @Test
+    @DisplayName("relayBatch publica las filas en modo binario con los atributos en headers y `data` como body")
+    void relayBatch_withBinaryRow_shouldPublishBinary() {
+        // Given
+        OutboxMessage binary = message(1L, "a.b.created");
+        binary.setContentMode(OutboxMessage.BINARY);
+        binary.setEventType("a.b.created");
+        binary.setSource("/a/api");
+        binary.setContentType("application/json");
+        when(outboxRepository.lockNextBatch(any(), any())).thenReturn(List.of(binary));
+        when(publisherService.publishBinaryConfirmed(any(), any(), eq("a.b.created")))
+            .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        outboxRelay.relayBatch();
+
+        // Then
+        verify(publisherService).publishBinaryConfirmed(
+            eq(new CloudEventHeaders.Metadata("evt-1", "a.b.created", "/a/api", "application/json", null)),
+            aryEq("{}".getBytes()), eq("a.b.created"));
+        verify(publisherService, never()).publishJsonConfirmed(any(), any());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("relay no propaga errores de la DB o el broker")
+    void relay_withFailure_shouldNotThrow() {
+        // Given
+        doThrow(new RuntimeException("DB down")).when(transactionTemplate).execute(any());
+
+        // When / Then
+        assertDoesNotThrow(() -> outboxRelay.relay());
+    }
+
+    private static OutboxMessage message(Long id, String routingKey) {
+        OutboxMessage message = new OutboxMessage("evt-" + id, routingKey, "{}");
+        message.setId(id);
+        return message;
+    }
+}
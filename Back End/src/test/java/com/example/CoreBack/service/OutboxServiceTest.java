@@ -0,0 +1,151 @@
+package com.example.CoreBack.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.CoreBack.entity.OutboxMessage;
+import com.example.CoreBack.entity.StoredEvent;
+import com.example.CoreBack.repository.EventRepository;
+import com.example.CoreBack.repository.OutboxRepository;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTest {
+
+    @Mock private EventRepository eventRepository;
+    @Mock private OutboxRepository outboxRepository;
+    @Mock private EventDeduplicator deduplicator;
+    @Mock private EventRollupService rollupService;
+
+    @InjectMocks
+    private OutboxService outboxService;
+
+    @Test
+    @DisplayName("enqueue guarda el evento y su mensaje de outbox")
+    void enqueue_shouldSaveEventAndOutboxMessage() {
+        // Given
+        StoredEvent event = storedEvent("evt-1");
+        when(eventRepository.save(event)).thenReturn(event);
+        claimAll();
+
+        // When
+        Optional<StoredEvent> result = outboxService.enqueue(
+            new OutboxService.PendingEvent(event, "usuarios.usuario.created", "{\"id\":\"evt-1\"}"));
+
+        // Then
+        assertSame(event, result.orElseThrow());
+        ArgumentCaptor<OutboxMessage> captor = ArgumentCaptor.forClass(OutboxMessage.class);
+        verify(outboxRepository).save(captor.capture());
+        assertEquals("evt-1", captor.getValue().getEventId());
+        assertEquals("usuarios.usuario.created", captor.getValue().getRoutingKey());
+        assertEquals("{\"id\":\"evt-1\"}", captor.getValue().getPayload());
+        assertEquals(0, captor.getValue().getAttempts());
+        verify(rollupService).record(List.of(event));
+    }
+
+    @Test
+    @DisplayName("enqueueAll inserta los eventos en batch y guarda los mensajes con saveAll")
+    void enqueueAll_shouldSaveInBulk() {
+        // Given
+        List<OutboxService.PendingEvent> pending = List.of(
+            new OutboxService.PendingEvent(storedEvent("evt-1"), "a.b.created", "{}"),
+            new OutboxService.PendingEvent(storedEvent("evt-2"), "a.b.updated", "{}"));
+        claimAll();
+
+        // When
+        outboxService.enqueueAll(pending);
+
+        // Then
+        verify(eventRepository).insertAll(argThatSize(2));
+        verify(outboxRepository).saveAll(argThatSize(2));
+        verify(eventRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("PendingEvent.binary guarda sólo el payload y copia los atributos del evento a la fila")
+    void enqueue_withBinaryPending_shouldStoreAttributes() {
+        // Given
+        StoredEvent event = storedEvent("evt-1");
+        when(eventRepository.save(event)).thenReturn(event);
+        claimAll();
+
+        // When
+        outboxService.enqueue(OutboxService.PendingEvent.binary(event, "usuarios.usuario.created"));
+
+        // Then
+        ArgumentCaptor<OutboxMessage> captor = ArgumentCaptor.forClass(OutboxMessage.class);
+        verify(outboxRepository).save(captor.capture());
+        OutboxMessage message = captor.getValue();
+        assertTrue(message.isBinary());
+        assertEquals("{}", message.getPayload());
+        assertEquals("usuarios.usuario.created", message.getEventType());
+        assertEquals("/usuarios/api", message.getSource());
+        assertEquals("application/json", message.getContentType());
+        assertEquals(event.getOccurredAt(), message.getOccurredAt());
+    }
+
+    @Test
+    @DisplayName("enqueue no guarda nada si el eventId ya estaba reclamado (reintento del productor)")
+    void enqueue_withDuplicateEventId_shouldSkip() {
+        // Given (el claim no inserta la clave: ya existía)
+        StoredEvent event = storedEvent("evt-1");
+
+        // When
+        Optional<StoredEvent> result = outboxService.enqueue(new OutboxService.PendingEvent(event, "a.b.created", "{}"));
+
+        // Then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(eventRepository, outboxRepository);
+    }
+
+    @Test
+    @DisplayName("enqueueAll saltea los eventIds ya guardados y los repetidos dentro del lote")
+    void enqueueAll_withDuplicates_shouldSaveOnlyClaimed() {
+        // Given
+        when(deduplicator.claim(any())).thenReturn(Set.of("evt-2"));
+        List<OutboxService.PendingEvent> pending = List.of(
+            new OutboxService.PendingEvent(storedEvent("evt-1"), "a.b.created", "{}"),
+            new OutboxService.PendingEvent(storedEvent("evt-2"), "a.b.created", "{}"),
+            new OutboxService.PendingEvent(storedEvent("evt-2"), "a.b.created", "{}"));
+
+        // When
+        outboxService.enqueueAll(pending);
+
+        // Then
+        ArgumentCaptor<List<StoredEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(eventRepository).insertAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("evt-2", captor.getValue().get(0).getEventId());
+        verify(outboxRepository).saveAll(argThatSize(1));
+    }
+
+    private void claimAll() {
+        when(deduplicator.claim(any())).thenAnswer(inv -> new HashSet<>(inv.<Collection<String>>getArgument(0)));
+    }
+
+    private static <T> List<T> argThatSize(int size) {
+        return argThat(list -> list != null && list.size() == size);
+    }
+
+    private static StoredEvent storedEvent(String eventId) {
+        StoredEvent event = new StoredEvent("usuarios.usuario.created", "/usuarios/api",
+            "application/json", "{}", LocalDateTime.now());
+        event.setEventId(eventId);
+        event.setStatus("InQueue");
+        return event;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.CoreBack.entity.PayloadCodec;
+import com.example.CoreBack.repository.EventRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PayloadCompressionBackfillTest {
+
+    @Mock private EventRepository eventRepository;
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private TransactionTemplate transactionTemplate;
+    @Mock private PayloadDictionaryService dictionaries;
+
+    private PayloadCompressionBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        backfill = new PayloadCompressionBackfill(eventRepository, jdbcTemplate, transactionTemplate, dictionaries);
+    }
+
+    @Test
+    @DisplayName("backfill comprime los payloads por tramos de id hasta que no quedan filas")
+    @SuppressWarnings("unchecked")
+    void backfill_shouldCompressChunksInOrder() {
+        // Given
+        doAnswer(inv -> {
+            ((java.util.function.Consumer<TransactionStatus>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(eventRepository.findUncompressedPayloads(eq(Long.MIN_VALUE), any()))
+            .thenReturn(List.of(row(1L, "{\"title\":\"Inception\"}"), row(2L, "{\"title\":\"Tenet\"}")));
+        when(eventRepository.findUncompressedPayloads(eq(2L), any())).thenReturn(List.of());
+
+        // When
+        long migrated = backfill.backfill();
+
+        // Then
+        assertEquals(2L, migrated);
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), updates.capture());
+        Object[] first = updates.getValue().get(0);
+        assertEquals("{\"title\":\"Inception\"}", PayloadCodec.decode((byte[]) first[0], null));
+        assertEquals(1L, first[1]);
+        verify(dictionaries).trainPending();
+    }
+
+    private static EventRepository.UncompressedPayload row(Long id, String payload) {
+        return new EventRepository.UncompressedPayload() {
+            public Long getId() { return id; }
+            public String getEventType() { return "movie.created"; }
+            public String getPayload() { return payload; }
+        };
+    }
+}
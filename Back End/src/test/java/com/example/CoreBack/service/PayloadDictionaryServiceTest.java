@@ -0,0 +1,96 @@
+package com.example.CoreBack.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.CoreBack.entity.PayloadCodec;
+import com.example.CoreBack.entity.PayloadDictionary;
+import com.example.CoreBack.repository.PayloadDictionaryRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PayloadDictionaryServiceTest {
+
+    @Mock private PayloadDictionaryRepository repository;
+
+    private PayloadDictionaryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PayloadDictionaryService(repository);
+        ReflectionTestUtils.setField(service, "samplesPerDictionary", 3);
+    }
+
+    @Test
+    @DisplayName("Junta muestras del tipo y con suficientes entrena y guarda un diccionario")
+    void trainPending_withEnoughSamples_shouldSaveDictionary() {
+        // Given
+        when(repository.save(any())).thenAnswer(inv -> {
+            PayloadDictionary saved = inv.getArgument(0);
+            saved.setId(5);
+            return saved;
+        });
+        for (int i = 0; i < 3; i++) {
+            assertNull(service.forType("movie.created", "{\"title\":\"Movie " + i + "\",\"genres\":[\"sci-fi\"]}"));
+        }
+
+        // When
+        service.trainPending();
+
+        // Then
+        PayloadCodec.Dictionary dictionary = service.forType("movie.created", "{}");
+        assertNotNull(dictionary);
+        assertEquals(5, dictionary.id());
+        assertTrue(new String(dictionary.bytes(), StandardCharsets.UTF_8).contains("\"sci-fi\"]"));
+        verify(repository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("No entrena tipos con pocas muestras")
+    void trainPending_withFewSamples_shouldWait() {
+        service.forType("movie.created", "{\"title\":\"Inception\"}");
+
+        service.trainPending();
+
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("byId busca en la DB los diccionarios de otros nodos")
+    void byId_shouldLoadUnknownDictionary() {
+        PayloadDictionary dictionary = new PayloadDictionary("user.created", new byte[]{1, 2, 3});
+        dictionary.setId(9);
+        when(repository.findById(9)).thenReturn(Optional.of(dictionary));
+
+        assertArrayEquals(new byte[]{1, 2, 3}, service.byId(9));
+        assertArrayEquals(new byte[]{1, 2, 3}, service.byId(9));
+        verify(repository, times(1)).findById(9);
+    }
+
+    @Test
+    @DisplayName("train deja al final los fragmentos repetidos más valiosos y respeta el tamaño")
+    void train_shouldKeepRepeatedFragments() {
+        List<String> samples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            samples.add("{\"userId\":" + i + ",\"action\":\"login\",\"client\":{\"os\":\"android\"}}");
+        }
+
+        String dictionary = new String(PayloadDictionaryService.train(samples, 1024), StandardCharsets.UTF_8);
+
+        assertTrue(dictionary.contains("\"action\":\"login\","));
+        assertFalse(dictionary.contains("\"userId\":3"));
+        assertTrue(PayloadDictionaryService.train(samples, 10).length <= 10);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.CoreBack.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.FSDirectory;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.CoreBack.entity.TimeOrderedIdGenerator;
+import com.example.CoreBack.repository.EventRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class PayloadSearchIndexTest {
+
+    @Mock private EventRepository eventRepository;
+
+    private PayloadSearchIndex index;
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 10, 12, 0);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = new PayloadSearchIndex(eventRepository, new ObjectMapper());
+        index.open(new ByteBuffersDirectory());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    @DisplayName("search devuelve los eventos que contienen todos los términos, más recientes primero")
+    void search_shouldMatchAllTermsMostRecentFirst() {
+        // Given
+        index.index(1L, "evt-1", "{\"title\":\"Inception\",\"year\":2010}", BASE);
+        index.index(2L, "evt-2", "{\"title\":\"Interstellar\",\"year\":2014}", BASE.plusMinutes(1));
+        index.index(3L, "evt-3", "{\"title\":\"Inception\",\"review\":\"great\"}", BASE.plusMinutes(2));
+        index.refresh();
+
+        // When / Then
+        assertEquals(List.of("evt-3", "evt-1"), index.search("inception").eventIds());
+        assertEquals(List.of("evt-3"), index.search("Inception GREAT").eventIds());
+        assertEquals(List.of("evt-2"), index.search("interstellar 2014").eventIds());
+        assertEquals(List.of(), index.search("matrix").eventIds());
+    }
+
+    @Test
+    @DisplayName("search matchea por prefijo de palabra, como el LIKE al que reemplaza")
+    void search_shouldMatchWordPrefix() {
+        // Given
+        index.index(1L, "evt-1", "{\"title\":\"Inception\"}", BASE);
+        index.refresh();
+
+        // When / Then
+        assertEquals(List.of("evt-1"), index.search("incep").eventIds());
+    }
+
+    @Test
+    @DisplayName("search filtra por igualdad sobre campos del payload (rutas anidadas y arrays)")
+    void search_shouldMatchPayloadFields() {
+        // Given
+        index.index(1L, "evt-1", "{\"movie\":{\"title\":\"Inception\",\"tags\":[\"sci-fi\",\"heist\"]}}", BASE);
+        index.index(2L, "evt-2", "{\"movie\":{\"title\":\"Inception 2\"}}", BASE.plusMinutes(1));
+        index.refresh();
+
+        // When / Then
+        assertEquals(List.of("evt-1"), index.search(null, Map.of("movie.title", "inception")).eventIds());
+        assertEquals(List.of("evt-1"), index.search(null, Map.of("movie.tags", "HEIST")).eventIds());
+        assertEquals(List.of("evt-2"), index.search("inception", Map.of("movie.title", "Inception 2")).eventIds());
+        assertEquals(List.of(), index.search(null, Map.of("movie.title", "incep")).eventIds());
+    }
+
+    @Test
+    @DisplayName("reindexar el mismo eventId reemplaza el documento (redelivery)")
+    void index_shouldReplaceSameEventId() {
+        // Given
+        index.index(1L, "evt-1", "{\"title\":\"Inception\"}", BASE);
+        index.index(1L, "evt-1", "{\"title\":\"Inception\"}", BASE);
+        index.refresh();
+
+        // When / Then
+        assertEquals(List.of("evt-1"), index.search("inception").eventIds());
+    }
+
+    @Test
+    @DisplayName("search sin términos no consulta el índice")
+    void search_withBlankText_shouldReturnEmpty() {
+        assertEquals(List.of(), index.search("  ").eventIds());
+        assertNull(index.toQuery("{}"));
+    }
+
+    @Test
+    @DisplayName("search matchea prefijos de palabra pero no subcadenas en el medio")
+    void search_shouldNotMatchInfix() {
+        // Given
+        index.index(1L, "evt-1", "{\"title\":\"Inception\"}", BASE);
+        index.refresh();
+
+        // When / Then
+        assertEquals(List.of(), index.search("ception").eventIds());
+    }
+
+    @Test
+    @DisplayName("search informa el total de matches cuando supera max-hits")
+    void search_overMaxHits_shouldReportTruncation() {
+        // Given
+        ReflectionTestUtils.setField(index, "maxHits", 2);
+        for (int i = 1; i <= 3; i++) {
+            index.index((long) i, "evt-" + i, "{\"title\":\"Inception\"}", BASE.plusMinutes(i));
+        }
+        index.refresh();
+
+        // When
+        PayloadSearchIndex.Hits hits = index.search("inception");
+
+        // Then
+        assertEquals(List.of("evt-3", "evt-2"), hits.eventIds());
+        assertEquals(3L, hits.totalHits());
+        assertTrue(hits.truncated());
+    }
+
+    @Test
+    @DisplayName("search aplica la ventana de occurredAt y el cursor de keyset dentro del índice")
+    void search_withWindowAndCursor_shouldPageThroughIndex() {
+        // Given
+        ReflectionTestUtils.setField(index, "maxHits", 2);
+        for (int i = 1; i <= 5; i++) {
+            index.index((long) i, "evt-" + i, "{\"title\":\"Inception\"}", BASE.plusMinutes(i));
+        }
+        index.index(6L, "evt-6", "{\"title\":\"Inception\"}", BASE.plusMinutes(4));
+        index.refresh();
+
+        // When
+        PayloadSearchIndex.Hits window = index.search("inception", Map.of(), BASE.plusMinutes(2), BASE.plusMinutes(5), null);
+        PayloadSearchIndex.Hits firstPage = index.search("inception", Map.of(), null, null, null);
+        PayloadSearchIndex.Hits secondPage = index.search("inception", Map.of(), null, null, firstPage.last());
+
+        // Then
+        assertEquals(List.of("evt-6", "evt-4"), window.eventIds());
+        assertEquals(4L, window.totalHits());
+        assertEquals(List.of("evt-5", "evt-6"), firstPage.eventIds());
+        assertEquals(new EventCursor(BASE.plusMinutes(4), 6L), firstPage.last());
+        assertEquals(List.of("evt-4", "evt-3"), secondPage.eventIds());
+    }
+
+    @Test
+    @DisplayName("catchUp reconstruye el índice desde la DB por tramos de id y lo marca listo")
+    void catchUp_shouldIndexStoredPayloads() {
+        // Given
+        assertFalse(index.isReady());
+        when(eventRepository.findPayloadsAfter(eq(Long.MIN_VALUE), any()))
+            .thenReturn(List.of(row(10L, "evt-10", "{\"title\":\"Inception\"}", BASE)));
+
+        // When
+        index.catchUp();
+
+        // Then
+        assertTrue(index.isReady());
+        assertEquals(List.of("evt-10"), index.search("inception").eventIds());
+        verify(eventRepository, times(1)).findPayloadsAfter(any(), any());
+    }
+
+    @Test
+    @DisplayName("catchUp sigue desde la marca de agua e indexa filas que este nodo no consumió (outbox, otros nodos)")
+    void catchUp_shouldContinueFromWatermark() {
+        // Given
+        long first = TimeOrderedIdGenerator.nextId();
+        when(eventRepository.findPayloadsAfter(eq(Long.MIN_VALUE), any()))
+            .thenReturn(List.of(row(first, "evt-a", "{\"title\":\"Inception\"}", BASE)));
+        index.catchUp();
+        long second = TimeOrderedIdGenerator.nextId();
+        when(eventRepository.findPayloadsAfter(longThat(afterId -> afterId != Long.MIN_VALUE && afterId < first), any()))
+            .thenReturn(List.of(
+                row(first, "evt-a", "{\"title\":\"Inception\"}", BASE),
+                row(second, "evt-b", "{\"title\":\"Inception\"}", BASE.plusMinutes(1))));
+
+        // When
+        index.catchUp();
+        index.refresh();
+
+        // Then
+        assertEquals(List.of("evt-b", "evt-a"), index.search("inception").eventIds());
+    }
+
+    @Test
+    @DisplayName("Al reabrir el índice retoma la marca de agua del último commit")
+    void open_shouldRestoreCommittedWatermark(@TempDir Path dir) throws IOException {
+        // Given
+        PayloadSearchIndex first = new PayloadSearchIndex(eventRepository, new ObjectMapper());
+        first.open(FSDirectory.open(dir));
+        when(eventRepository.findPayloadsAfter(eq(Long.MIN_VALUE), any()))
+            .thenReturn(List.of(row(10L, "evt-10", "{\"title\":\"Inception\"}", BASE)));
+        first.catchUp();
+        first.close();
+
+        // When
+        PayloadSearchIndex reopened = new PayloadSearchIndex(eventRepository, new ObjectMapper());
+        reopened.open(FSDirectory.open(dir));
+        reopened.catchUp();
+
+        // Then
+        verify(eventRepository).findPayloadsAfter(eq(10L), any());
+        assertEquals(List.of("evt-10"), reopened.search("inception").eventIds());
+        reopened.close();
+    }
+
+    private static EventRepository.PayloadRow row(Long id, String eventId, String payload, LocalDateTime occurredAt) {
+        return new EventRepository.PayloadRow() {
+            public Long getId() { return id; }
+            public String getEventId() { return eventId; }
+            public String getPayload() { return payload; }
+            public byte[] getPayloadData() { return null; }
+            public LocalDateTime getOccurredAt() { return occurredAt; }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.example.CoreBack.entity.ModulePolicy;
+import com.example.CoreBack.entity.RetryPolicy;
+import com.example.CoreBack.repository.ModulePolicyRepository;
+import com.example.CoreBack.repository.RetryPolicyRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PolicyTableTest {
+
+    @Mock private ModulePolicyRepository modulePolicies;
+    @Mock private RetryPolicyRepository retryPolicies;
+
+    @InjectMocks
+    private PolicyTable table;
+
+    @Test
+    @DisplayName("Resuelve por nombre o por clasificación con una sola carga")
+    void resolve_shouldLoadOnceAndMatchByNameOrClassification() {
+        // Given
+        RetryPolicy fast = policy(1L, "fast", true);
+        RetryPolicy slow = policy(2L, "slow", true);
+        when(modulePolicies.findAllWithPolicy()).thenReturn(List.of(module("Users", fast), module("peliculas", slow)));
+        when(retryPolicies.findAll()).thenReturn(List.of(fast, slow));
+
+        // When / Then
+        assertEquals("fast", table.resolve("usuarios").orElseThrow().getName());
+        assertEquals("fast", table.resolve("users").orElseThrow().getName());
+        assertEquals("slow", table.resolve("peliculas").orElseThrow().getName());
+        assertTrue(table.resolve("social").isEmpty());
+        assertEquals("slow", table.policy(2L).getName());
+        verify(modulePolicies, times(1)).findAllWithPolicy();
+        verify(retryPolicies, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Salta los módulos con la política deshabilitada y devuelve copias")
+    void resolve_shouldSkipDisabledAndReturnCopies() {
+        // Given
+        RetryPolicy disabled = policy(1L, "off", false);
+        RetryPolicy enabled = policy(2L, "on", true);
+        when(modulePolicies.findAllWithPolicy()).thenReturn(List.of(module("usuarios", disabled), module("Users", enabled)));
+        when(retryPolicies.findAll()).thenReturn(List.of(disabled, enabled));
+
+        // When
+        RetryPolicy resolved = table.resolve("usuarios").orElseThrow();
+
+        // Then
+        assertEquals("on", resolved.getName());
+        assertNotSame(enabled, resolved);
+    }
+
+    @Test
+    @DisplayName("Un ConfigChanged de políticas descarta la tabla y la próxima lectura recarga")
+    void onConfigChanged_shouldReloadOnNextRead() {
+        // Given
+        RetryPolicy before = policy(1L, "antes", true);
+        RetryPolicy after = policy(1L, "después", true);
+        when(modulePolicies.findAllWithPolicy())
+                .thenReturn(List.of(module("usuarios", before)))
+                .thenReturn(List.of(module("usuarios", after)));
+        when(retryPolicies.findAll()).thenReturn(List.of(before)).thenReturn(List.of(after));
+        assertEquals("antes", table.resolve("usuarios").orElseThrow().getName());
+
+        // When
+        table.onConfigChanged(new ConfigChanges.ConfigChanged("otro-tema"));
+        assertEquals("antes", table.resolve("usuarios").orElseThrow().getName());
+        table.onConfigChanged(new ConfigChanges.ConfigChanged(ConfigChanges.RETRY_POLICIES));
+
+        // Then
+        assertEquals("después", table.resolve("usuarios").orElseThrow().getName());
+        verify(modulePolicies, times(2)).findAllWithPolicy();
+    }
+
+    @Test
+    @DisplayName("Si la recarga falla sigue con la última tabla")
+    void resolve_whenReloadFails_shouldKeepLastTable() {
+        // Given
+        RetryPolicy fast = policy(1L, "fast", true);
+        when(modulePolicies.findAllWithPolicy())
+                .thenReturn(List.of(module("usuarios", fast)))
+                .thenThrow(new DataAccessResourceFailureException("DB caída"));
+        when(retryPolicies.findAll()).thenReturn(List.of(fast));
+        table.resolve("usuarios");
+
+        // When
+        table.invalidate();
+
+        // Then
+        assertEquals("fast", table.resolve("usuarios").orElseThrow().getName());
+    }
+
+    private static ModulePolicy module(String name, RetryPolicy policy) {
+        ModulePolicy module = new ModulePolicy();
+        module.setModuleName(name);
+        module.setPolicy(policy);
+        return module;
+    }
+
+    private static RetryPolicy policy(Long id, String name, boolean enabled) {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setId(id);
+        policy.setName(name);
+        policy.setMinDelay(1000);
+        policy.setMaxDelay(10000);
+        policy.setMaxTries(3);
+        policy.setBackoffMultiplier(2.0);
+        policy.setEnabled(enabled);
+        return policy;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.CoreBack.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RawEventTest {
+
+    private static final String EVENT = "{ \"type\":\"movie.created\", \"source\":\"/peliculas/api\", \"extra\":{\"a\":[1,2]},"
+        + " \"datacontenttype\":\"application/json\", \"data\": {\"title\":\"Café \\\"Noir\\\"\",\"cast\":[{\"n\":1}]} }";
+
+    @Test
+    @DisplayName("parse toma el sobre y deja `data` como el rango de bytes original")
+    void parse_shouldReadEnvelopeAndSliceData() throws IOException {
+        // When
+        RawEvent raw = RawEvent.parse(EVENT.getBytes(StandardCharsets.UTF_8));
+
+        // Then
+        assertNull(raw.validate());
+        assertEquals("movie.created", raw.type());
+        assertEquals("/peliculas/api", raw.source());
+        assertEquals("application/json", raw.datacontenttype());
+        assertNull(raw.id());
+        assertEquals("{\"title\":\"Café \\\"Noir\\\"\",\"cast\":[{\"n\":1}]}", raw.dataText());
+        assertEquals(EVENT, raw.bodyText());
+    }
+
+    @Test
+    @DisplayName("withEnvelope agrega sólo el id y el sysDate que faltan, sin tocar el resto del body")
+    void withEnvelope_shouldSpliceMissingFields() throws IOException {
+        // Given
+        RawEvent raw = RawEvent.parse(EVENT.getBytes(StandardCharsets.UTF_8));
+
+        // When
+        byte[] message = raw.withEnvelope("evt-1", "2025-01-10T08:30");
+
+        // Then
+        RawEvent reparsed = RawEvent.parse(message);
+        assertEquals("evt-1", reparsed.id());
+        assertEquals("2025-01-10T08:30", reparsed.sysDate());
+        assertEquals(raw.dataText(), reparsed.dataText());
+        assertEquals("{\"id\":\"evt-1\",\"sysDate\":\"2025-01-10T08:30\"," + EVENT.substring(1), reparsed.bodyText());
+        assertSame(reparsed.body(), reparsed.withEnvelope("evt-2", "2025-01-11T00:00"));
+    }
+
+    @Test
+    @DisplayName("validate y parse rechazan eventos incompletos o mal formados")
+    void parse_shouldRejectInvalidEvents() throws IOException {
+        assertEquals("El campo 'data' es obligatorio",
+            RawEvent.parse("{\"type\":\"a\",\"source\":\"b\",\"datacontenttype\":\"c\",\"data\":null}".getBytes()).validate());
+        assertEquals("El campo 'type' es obligatorio", RawEvent.parse("{\"data\":{}}".getBytes()).validate());
+        assertThrows(IOException.class, () -> RawEvent.parse("[1]".getBytes()));
+        assertThrows(IOException.class, () -> RawEvent.parse("{\"type\":1}".getBytes()));
+        assertThrows(IOException.class, () -> RawEvent.parse("{\"data\":[]}".getBytes()));
+        assertThrows(IOException.class, () -> RawEvent.parse("{\"data\":{\"a\":".getBytes()));
+    }
+}
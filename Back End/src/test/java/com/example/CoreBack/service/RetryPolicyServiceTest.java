@@ -31,6 +31,12 @@ class RetryPolicyServiceTest {
     @Mock
     private RetryPolicyRepository repository;
 
+    @Mock
+    private PolicyTable policyTable;
+
+    @Mock
+    private ConfigChanges configChanges;
+
     @InjectMocks
     private RetryPolicyService retryPolicyService;
 
@@ -95,7 +101,7 @@ class RetryPolicyServiceTest {
     @DisplayName("findById - debería retornar política cuando existe")
     void findById_ShouldReturnPolicyWhenExists() {
         // Given
-        when(repository.findById(1L)).thenReturn(Optional.of(testRetryPolicy));
+        when(policyTable.policy(1L)).thenReturn(testRetryPolicy);
 
         // When
         RetryPolicy result = retryPolicyService.findById(1L);
@@ -109,21 +115,22 @@ class RetryPolicyServiceTest {
         assertEquals(testRetryPolicy.getMaxTries(), result.getMaxTries());
         assertEquals(testRetryPolicy.getBackoffMultiplier(), result.getBackoffMultiplier());
         assertEquals(testRetryPolicy.isEnabled(), result.isEnabled());
-        verify(repository, times(1)).findById(1L);
+        verify(policyTable, times(1)).policy(1L);
+        verifyNoInteractions(repository);
     }
 
     @Test
     @DisplayName("findById - debería retornar null cuando no existe")
     void findById_ShouldReturnNullWhenNotExists() {
         // Given
-        when(repository.findById(99L)).thenReturn(Optional.empty());
+        when(policyTable.policy(99L)).thenReturn(null);
 
         // When
         RetryPolicy result = retryPolicyService.findById(99L);
 
         // Then
         assertNull(result);
-        verify(repository, times(1)).findById(99L);
+        verify(policyTable, times(1)).policy(99L);
     }
 
     @Test
@@ -0,0 +1,156 @@
+package com.example.CoreBack.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.CoreBack.config.RabbitConfig;
+import com.example.CoreBack.entity.PendingRetry;
+import com.example.CoreBack.repository.PendingRetryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class RetrySchedulerTest {
+
+    @Mock private PendingRetryRepository repository;
+    @Mock private EventPublisherService publisher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RetryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new RetryScheduler(repository, publisher, new ObjectMapper(), meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "tickMs", 10L);
+        ReflectionTestUtils.setField(scheduler, "node", "core-1");
+        scheduler.start();
+    }
+
+    @Test
+    @DisplayName("schedule guarda el mensaje con sus headers y lo agrega al wheel")
+    void schedule_shouldPersistMessageAndAddTimer() {
+        // Given
+        Message message = MessageBuilder.withBody("{\"id\":\"evt-1\"}".getBytes(StandardCharsets.UTF_8))
+                .setContentType("application/json")
+                .setHeader(ConsumerRetries.RETRIES_HEADER, 2)
+                .build();
+        when(repository.save(any(PendingRetry.class))).thenAnswer(invocation -> {
+            PendingRetry pending = invocation.getArgument(0);
+            pending.setId(42L);
+            return pending;
+        });
+
+        // When
+        scheduler.schedule(message, 2, 1_000);
+
+        // Then
+        ArgumentCaptor<PendingRetry> captor = ArgumentCaptor.forClass(PendingRetry.class);
+        verify(repository).save(captor.capture());
+        assertEquals("core-1", captor.getValue().getOwner());
+        assertEquals(2, captor.getValue().getAttempt());
+        assertEquals("{\"x-core-retries\":2}", captor.getValue().getHeaders());
+        assertEquals(1, scheduler.pending());
+        assertEquals(1.0, meterRegistry.get("core.retry.pending").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Al vencer publica en core.all.queue y borra las filas")
+    void redeliver_shouldPublishAndDeleteRows() {
+        // Given
+        when(repository.findAllById(List.of(1L, 2L))).thenReturn(List.of(pending(1L), pending(2L)));
+        when(publisher.sendConfirmed(eq(""), eq(RabbitConfig.CORE_ALL_QUEUE), any(Message.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        scheduler.redeliver(List.of(1L, 2L, 1L));
+
+        // Then
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(publisher, times(2)).sendConfirmed(eq(""), eq(RabbitConfig.CORE_ALL_QUEUE), captor.capture());
+        assertEquals(1, (int) captor.getValue().getMessageProperties().getHeader(ConsumerRetries.RETRIES_HEADER));
+        assertEquals("application/json", captor.getValue().getMessageProperties().getContentType());
+        verify(repository).deleteAllByIdInBatch(List.of(1L, 2L));
+        assertEquals(0, scheduler.pending());
+    }
+
+    @Test
+    @DisplayName("Lo que el broker rechaza queda en la tabla y se reprograma")
+    void redeliver_whenPublishFails_shouldReschedule() {
+        // Given
+        when(repository.findAllById(List.of(1L, 2L))).thenReturn(List.of(pending(1L), pending(2L)));
+        when(publisher.sendConfirmed(eq(""), eq(RabbitConfig.CORE_ALL_QUEUE), any(Message.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenThrow(new AmqpException("Broker caído"));
+
+        // When
+        scheduler.redeliver(List.of(1L, 2L));
+
+        // Then
+        verify(repository).deleteAllByIdInBatch(List.of(1L));
+        assertEquals(1, scheduler.pending());
+    }
+
+    @Test
+    @DisplayName("Una fila cuyo mensaje el broker no confirma no se borra y se reprograma")
+    void redeliver_whenBrokerNacks_shouldKeepRow() {
+        // Given
+        when(repository.findAllById(List.of(1L, 2L))).thenReturn(List.of(pending(1L), pending(2L)));
+        when(publisher.sendConfirmed(eq(""), eq(RabbitConfig.CORE_ALL_QUEUE), any(Message.class)))
+                .thenReturn(CompletableFuture.failedFuture(new AmqpException("Broker nack")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        scheduler.redeliver(List.of(1L, 2L));
+
+        // Then
+        verify(repository).deleteAllByIdInBatch(List.of(2L));
+        assertEquals(1, scheduler.pending());
+    }
+
+    @Test
+    @DisplayName("Al arrancar recarga los timers del nodo por páginas")
+    void reload_shouldAddPersistedTimers() {
+        // Given
+        PendingRetryRepository.PendingTimer timer = mock(PendingRetryRepository.PendingTimer.class);
+        when(timer.getId()).thenReturn(7L);
+        when(timer.getDueAt()).thenReturn(LocalDateTime.now().plusMinutes(5));
+        when(repository.findTimers(eq("core-1"), eq(Long.MIN_VALUE), any())).thenReturn(List.of(timer));
+        when(repository.findTimers(eq("core-1"), eq(7L), any())).thenReturn(List.of());
+
+        // When
+        long reloaded = scheduler.reload();
+
+        // Then
+        assertEquals(1, reloaded);
+        assertEquals(1, scheduler.pending());
+    }
+
+    private static PendingRetry pending(Long id) {
+        PendingRetry pending = new PendingRetry("core-1", 1, LocalDateTime.now());
+        pending.setId(id);
+        pending.setContentType("application/json");
+        pending.setHeaders("{\"x-core-retries\":1}");
+        pending.setBody("{}".getBytes(StandardCharsets.UTF_8));
+        return pending;
+    }
+}
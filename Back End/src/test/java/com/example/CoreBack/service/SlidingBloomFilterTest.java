@@ -0,0 +1,61 @@
+package com.example.CoreBack.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SlidingBloomFilterTest {
+
+    @Test
+    @DisplayName("Un id agregado siempre da 'tal vez' y los no agregados casi nunca")
+    void mightContain_shouldHaveNoFalseNegativesAndFewFalsePositives() {
+        // Given
+        SlidingBloomFilter filter = new SlidingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 5_000; i++) {
+            filter.put("evt-" + i);
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 5_000; i < 15_000; i++) {
+            if (filter.mightContain("evt-" + i)) falsePositives++;
+        }
+
+        // Then
+        for (int i = 0; i < 5_000; i++) {
+            assertTrue(filter.mightContain("evt-" + i));
+        }
+        assertTrue(falsePositives < 200, "falsos positivos: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Un id se recuerda una rotación y se olvida en la segunda")
+    void rotate_shouldForgetAfterTwoWindows() {
+        // Given
+        SlidingBloomFilter filter = new SlidingBloomFilter(1_000, 0.01);
+        filter.put("evt-1");
+
+        // When / Then
+        filter.rotate();
+        assertTrue(filter.mightContain("evt-1"));
+        filter.rotate();
+        assertFalse(filter.mightContain("evt-1"));
+    }
+
+    @Test
+    @DisplayName("Al llenar la generación actual rota sola sin perder lo último agregado")
+    void put_withFullGeneration_shouldRotate() {
+        // Given
+        SlidingBloomFilter filter = new SlidingBloomFilter(100, 0.01);
+
+        // When
+        for (int i = 0; i < 250; i++) {
+            filter.put("evt-" + i);
+        }
+
+        // Then: las dos generaciones vigentes cubren los últimos 100-200 ids
+        for (int i = 150; i < 250; i++) {
+            assertTrue(filter.mightContain("evt-" + i));
+        }
+    }
+}
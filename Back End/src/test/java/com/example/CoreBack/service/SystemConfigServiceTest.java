@@ -29,6 +29,9 @@ class SystemConfigServiceTest {
     @Mock
     private SystemConfigRepository repository;
 
+    @Mock
+    private ConfigChanges configChanges;
+
     @InjectMocks
     private SystemConfigService systemConfigService;
 
@@ -129,6 +132,116 @@ class SystemConfigServiceTest {
         assertThat(result).isEqualTo(savedConfig);
     }
 
+    @Test
+    @DisplayName("snapshot se lee de la DB una sola vez")
+    void snapshot_ShouldReadRepositoryOnce() {
+        // Given
+        SystemConfig existingConfig = new SystemConfig();
+        existingConfig.setQueueThreshold(500);
+        when(repository.findById(1L)).thenReturn(Optional.of(existingConfig));
+
+        // When
+        systemConfigService.snapshot();
+        systemConfigService.getConfig();
+        SystemConfigService.Snapshot result = systemConfigService.snapshot();
+
+        // Then
+        assertThat(result.queueThreshold()).isEqualTo(500);
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("update reemplaza la foto y avisa el cambio a los otros nodos")
+    void update_ShouldReplaceSnapshotAndNotify() {
+        // Given
+        SystemConfig inputConfig = new SystemConfig();
+        inputConfig.setQueueThreshold(1000);
+        inputConfig.setErrorThreshold(5);
+        when(repository.save(inputConfig)).thenReturn(inputConfig);
+
+        // When
+        systemConfigService.update(inputConfig);
+        SystemConfigService.Snapshot result = systemConfigService.snapshot();
+
+        // Then
+        assertThat(result.queueThreshold()).isEqualTo(1000);
+        assertThat(result.errorThreshold()).isEqualTo(5);
+        verify(configChanges).changed(ConfigChanges.SYSTEM_CONFIG);
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Un cambio avisado por otro nodo recarga la foto")
+    void onConfigChanged_ShouldRefreshSnapshot() {
+        // Given
+        SystemConfig before = new SystemConfig();
+        before.setLatencyThreshold(100);
+        SystemConfig after = new SystemConfig();
+        after.setLatencyThreshold(250);
+        when(repository.findById(1L)).thenReturn(Optional.of(before)).thenReturn(Optional.of(after));
+        assertThat(systemConfigService.snapshot().latencyThreshold()).isEqualTo(100);
+
+        // When
+        systemConfigService.onConfigChanged(new ConfigChanges.ConfigChanged(ConfigChanges.RETRY_POLICIES));
+        systemConfigService.onConfigChanged(new ConfigChanges.ConfigChanged(ConfigChanges.SYSTEM_CONFIG));
+
+        // Then
+        assertThat(systemConfigService.snapshot().latencyThreshold()).isEqualTo(250);
+        verify(repository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("getConfig devuelve una copia: modificarla no cambia la foto")
+    void getConfig_ShouldReturnDetachedCopy() {
+        // Given
+        SystemConfig existingConfig = new SystemConfig();
+        existingConfig.setQueueThreshold(10);
+        when(repository.findById(1L)).thenReturn(Optional.of(existingConfig));
+
+        // When
+        systemConfigService.getConfig().setQueueThreshold(99);
+
+        // Then
+        assertThat(systemConfigService.snapshot().queueThreshold()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Un refresco con una versión más vieja no pisa la foto de un update")
+    void refresh_WithOlderVersion_ShouldKeepNewerSnapshot() {
+        // Given
+        SystemConfig updated = new SystemConfig();
+        updated.setQueueThreshold(1000);
+        updated.setVersion(3);
+        when(repository.save(updated)).thenReturn(updated);
+        SystemConfig stale = new SystemConfig();
+        stale.setQueueThreshold(10);
+        stale.setVersion(2);
+        when(repository.findById(1L)).thenReturn(Optional.of(stale));
+        systemConfigService.update(updated);
+
+        // When
+        systemConfigService.refreshQuietly();
+
+        // Then
+        assertThat(systemConfigService.snapshot().queueThreshold()).isEqualTo(1000);
+    }
+
+    @Test
+    @DisplayName("getConfig lleva el id y la versión de la fila para poder guardarse sin duplicarla")
+    void getConfig_ShouldCarryIdAndVersion() {
+        // Given
+        SystemConfig existingConfig = new SystemConfig();
+        existingConfig.setVersion(7);
+        when(repository.findById(1L)).thenReturn(Optional.of(existingConfig));
+
+        // When
+        SystemConfig result = systemConfigService.getConfig();
+
+        // Then
+        assertThat(result.getId()).isEqualTo(1L);
+        assertThat(result.getVersion()).isEqualTo(7);
+    }
+
     private SystemConfig createSystemConfigWithProperties() {
         SystemConfig config = new SystemConfig();
         // Add any properties that SystemConfig might have
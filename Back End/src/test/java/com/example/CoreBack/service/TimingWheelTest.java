@@ -0,0 +1,100 @@
+package com.example.CoreBack.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+    @Test
+    @DisplayName("Un timer vence en su tick, ni antes ni después")
+    void advance_shouldExpireOnDueTick() {
+        // Given: 10ms por tick, 8 ranuras, 3 niveles
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 3, 0);
+        wheel.add("a", 50);
+        wheel.add("b", 1_000);
+
+        // When / Then
+        assertTrue(wheel.advance(40).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(50));
+        assertTrue(wheel.advance(990).isEmpty());
+        assertEquals(List.of("b"), wheel.advance(1_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Los timers lejanos bajan de nivel al cerrar cada vuelta")
+    void advance_shouldCascadeFromUpperLevels() {
+        // Given
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 3, 0);
+        wheel.add("cerca", 30);
+        wheel.add("medio", 400);
+        wheel.add("lejos", 4_000);
+
+        // Then: cada uno en el nivel que cubre su espera
+        assertEquals(1, wheel.occupancy(0));
+        assertEquals(1, wheel.occupancy(1));
+        assertEquals(1, wheel.occupancy(2));
+
+        // When
+        assertEquals(List.of("cerca"), wheel.advance(399));
+        assertEquals(List.of("medio"), wheel.advance(3_999));
+        assertEquals(List.of("lejos"), wheel.advance(4_000));
+    }
+
+    @Test
+    @DisplayName("Un vencimiento más allá del horizonte espera en el último nivel y vence en su momento")
+    void add_beyondHorizon_shouldExpireOnTime() {
+        // Given: horizonte de 10ms × 8³ = 5120ms
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 3, 0);
+        assertEquals(5_120, wheel.horizonMs());
+        wheel.add("muy lejos", 20_000);
+
+        // When / Then
+        assertTrue(wheel.advance(19_990).isEmpty());
+        assertEquals(List.of("muy lejos"), wheel.advance(20_000));
+    }
+
+    @Test
+    @DisplayName("Un vencimiento ya pasado sale en el próximo tick")
+    void add_alreadyDue_shouldExpireOnNextTick() {
+        // Given
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 3, 1_000);
+
+        // When
+        wheel.add("tarde", 500);
+
+        // Then
+        assertEquals(List.of("tarde"), wheel.advance(1_010));
+    }
+
+    @Test
+    @DisplayName("Cientos de miles de timers vencen todos y en orden")
+    void advance_withManyTimers_shouldExpireAllInOrder() {
+        // Given
+        TimingWheel<Long> wheel = new TimingWheel<>(100, 256, 3, 0);
+        for (long i = 0; i < 300_000; i++) {
+            wheel.add(i, (i * 7_919) % 3_600_000);
+        }
+
+        // When
+        List<Long> expired = wheel.advance(3_600_000);
+
+        // Then
+        assertEquals(300_000, expired.size());
+        for (int i = 1; i < expired.size(); i++) {
+            long previous = Math.floorDiv((expired.get(i - 1) * 7_919) % 3_600_000 + 99, 100);
+            long current = Math.floorDiv((expired.get(i) * 7_919) % 3_600_000 + 99, 100);
+            assertTrue(previous <= current);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Rechaza ranuras que no son potencia de 2")
+    void constructor_withInvalidSize_shouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<>(10, 100, 3, 0));
+    }
+}
@@ -22,7 +22,9 @@ function Messages() {
   const [events, setEvents] = useState([]);
   const [moduleFilter, setModuleFilter] = useState('');
   const [page, setPage] = useState(0);
-  const [totalPages, setTotalPages] = useState(1);
+  // Paginación por keyset: cursors[i] es el cursor para pedir la página i ('' = primera página)
+  const [cursors, setCursors] = useState(['']);
+  const [hasMore, setHasMore] = useState(false);
 
 
 /*
@@ -82,15 +84,20 @@ function Messages() {
 
   ];*/
 
-  useEffect(() => {
+  const loadPage = (targetPage, pageCursors) => {
+    const cursor = encodeURIComponent(pageCursors[targetPage] ?? '');
     api
       //.get("events?page=0&size=5&module=movies&search=inception")
-      .get(`events?module=${moduleFilter}&search=${searchFilter}${statusFilter ? `&status=${statusFilter}` : ''}`)
+      .get(`events?cursor=${cursor}&count=none&module=${moduleFilter}&search=${searchFilter}${statusFilter ? `&status=${statusFilter}` : ''}`)
       .then(res => {
         if (res.data) {
           setEvents(res.data.events);
-          setTotalPages(Math.ceil(res.data.total / 10));
-          setPage(0)
+          setHasMore(res.data.hasMore);
+          if (res.data.nextCursor) {
+            const next = pageCursors.slice(0, targetPage + 1);
+            next[targetPage + 1] = res.data.nextCursor;
+            setCursors(next);
+          }
         }
       })
      /* .catch(err => {
@@ -99,25 +106,22 @@ function Messages() {
       .finally(() => {
         //setLoading(false);
       });*/
-  }, [moduleFilter, searchFilter, statusFilter]);
+  };
 
   useEffect(() => {
-    api
-      //.get("events?page=0&size=5&module=movies&search=inception")
-      .get(`events?page=${page}&module=${moduleFilter}&search=${searchFilter}${statusFilter ? `&status=${statusFilter}` : ''}`)
-      .then(res => {
-        if (res.data) {
-          setEvents(res.data.events);
-          setTotalPages(Math.ceil(res.data.total / 10));
-        }
-      })
-      /*.catch(err => {
-        //setError("No se pudieron cargar los eventos.");
-      })
-      .finally(() => {
-        //setLoading(false);
-      });*/
-  }, [page]);
+    // Cambió un filtro: se descartan los cursores y se vuelve a la primera página
+    setPage(0);
+    setCursors(['']);
+    loadPage(0, ['']);
+  }, [moduleFilter, searchFilter, statusFilter]);
+
+  const goToPage = (targetPage) => {
+    setPage(targetPage);
+    loadPage(targetPage, cursors);
+  };
+
+  // Sólo se puede saltar a páginas cuyo cursor ya se conoce
+  const knownPages = hasMore ? Math.max(cursors.length, page + 2) : page + 1;
 
   /*const filteredEvents = events.filter(event => {
     const matchesSearch =
@@ -172,27 +176,27 @@ function Messages() {
             {page > 0 && (
               <button
                 className={`${styles.arrowButton} ${styles.left}`}
-                onClick={() => setPage(page - 1)}
+                onClick={() => goToPage(page - 1)}
               >
                 <img src={arrow} alt="Anterior" />
               </button>)}
 
             <div className={styles.pageNumbers}>
-              {Array.from({ length: totalPages }).map((_, i) => (
+              {Array.from({ length: knownPages }).map((_, i) => (
                 (i <= page + 2 && i >= page || i >= page - 2 && i <= page) &&
                 <button
                   key={i}
                   className={`${styles.pageButton} ${i === page ? styles.active : ''}`}
-                  onClick={() => setPage(i)}
+                  onClick={() => goToPage(i)}
                 >
                   {i + 1}
                 </button>
               ))}
             </div>
-            {page + 1 < totalPages && (
+            {hasMore && (
               <button
                 className={styles.arrowButton}
-                onClick={() => setPage(page + 1)}
+                onClick={() => goToPage(page + 1)}
               >
                 <img src={arrow} alt="Siguiente" />
               </button>)}